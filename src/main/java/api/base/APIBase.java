@@ -13,11 +13,13 @@ import org.apache.logging.log4j.Logger;
 import org.testng.Assert;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import common.config.ConfigManager;
+import common.helpers.Await;
 
 import java.io.File;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 
 import static io.restassured.RestAssured.given;
 
@@ -35,14 +37,15 @@ public class APIBase {
     public APIBase() {
         logger.info("Initializing API Base Class");
 
-        // Fetch base URI from ConfigManager
+        // Fetch base URI from ConfigManager; inside a ConfigScope this is the scoped environment's URI
         baseUri = ConfigManager.get("baseUri");
         if (baseUri == null || baseUri.isEmpty()) {
             baseUri = "http://localhost"; // Default fallback URI
             logger.warn("Base URI not found in configuration. Using default: {}", baseUri);
         }
 
-        logger.info("Base URI: {}", baseUri);
+        logger.info("Base URI: {} (environment: {})", baseUri,
+                ConfigManager.currentEnvironment() != null ? ConfigManager.currentEnvironment() : "default");
         initializeRequestSpec(baseUri);
     }
 
@@ -93,7 +96,52 @@ public class APIBase {
 
         logger.info("Sending {} request to endpoint: {}", method.toUpperCase(), endpoint);
         logger.info("Full URL: {}", baseUri + endpoint);
+        prepareRequest(headers, params);
 
+        try {
+            response = sendHttpRequest(method, endpoint);
+            logRequestAndResponse(method, endpoint, headers, params.toString());
+            logger.info("Response received: Status Code: {}, Body: {}", response.statusCode(), response.asString());
+        } catch (Exception e) {
+            logger.error("Exception while sending request: {}", e.getMessage(), e);
+            throw e;
+        }
+
+        return response;
+    }
+
+    /**
+     * Sends an HTTP request repeatedly until its response satisfies a condition, e.g. until an asynchronously
+     * created resource stops returning 404. Polling follows {@link Await}'s adaptive backoff and timeout;
+     * only the final response is logged and attached to the report.
+     *
+     * @param method    The HTTP method (GET, POST, PUT, etc.).
+     * @param endpoint  The endpoint to hit.
+     * @param headers   The headers to include in the request.
+     * @param params    A map containing query parameters, body, or multipart data.
+     * @param condition The condition the response must satisfy.
+     * @return The first Response that satisfied the condition.
+     * @throws AssertionError If no response satisfies the condition before the await timeout.
+     */
+    public Response sendRequestUntil(String method, String endpoint, Headers headers, Map<String, Object> params,
+                                     Predicate<Response> condition) {
+        if (requestSpec == null) {
+            logger.error("RequestSpecification is null. Please initialize it before sending a request.");
+            throw new IllegalStateException("RequestSpecification is not initialized.");
+        }
+
+        logger.info("Polling {} {} until the response satisfies the condition", method.toUpperCase(), endpoint);
+        prepareRequest(headers, params);
+        response = Await.until(method.toUpperCase() + " " + endpoint + " responds as expected",
+                () -> sendHttpRequest(method, endpoint), condition);
+        logRequestAndResponse(method, endpoint, headers, params.toString());
+        return response;
+    }
+
+    /**
+     * Applies headers, query parameters, body and multipart data to the request specification.
+     */
+    private void prepareRequest(Headers headers, Map<String, Object> params) {
         if (headers != null && headers.size() > 0) {
             requestSpec.headers(headers);
         } else {
@@ -125,17 +173,6 @@ public class APIBase {
                 throw new IllegalArgumentException("File does not exist: " + filePath);
             }
         }
-
-        try {
-            response = sendHttpRequest(method, endpoint);
-            logRequestAndResponse(method, endpoint, headers, params.toString());
-            logger.info("Response received: Status Code: {}, Body: {}", response.statusCode(), response.asString());
-        } catch (Exception e) {
-            logger.error("Exception while sending request: {}", e.getMessage(), e);
-            throw e;
-        }
-
-        return response;
     }
 
     private Response sendHttpRequest(String method, String endpoint) {
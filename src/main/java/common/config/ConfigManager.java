@@ -1,4 +1,3 @@
-
 package common.config;
 
 import org.apache.logging.log4j.LogManager;
@@ -6,70 +5,324 @@ import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * The ConfigManager class is responsible for loading and managing the application's configuration properties.
- * It loads properties from a configuration file located at "src/main/resources/config.properties".
- * The class utilizes lazy loading to load properties only when they are needed.
- * It also ensures thread safety while loading the properties.
- * This class provides a method to retrieve the configuration values by key.
+ * Configuration is resolved from layers, each overriding the ones before it:
+ * <ol>
+ *   <li>defaults: the optional classpath resource "config-defaults.properties"</li>
+ *   <li>the classpath resource "config.properties"</li>
+ *   <li>the profile file "config-&lt;profile&gt;.properties", when a profile is selected with {@code config.profile}</li>
+ *   <li>environment variables with the {@code UTF_} prefix, for keys known to the layers above ({@code mysql.url} is
+ *   read from {@code UTF_MYSQL_URL}), so that unrelated variables such as {@code BROWSER} are not picked up</li>
+ *   <li>JVM system properties for keys known to the layers above (e.g. {@code -Dbrowser=firefox}), and any key with the
+ *   {@code utf.} prefix ({@code -Dutf.testData.cache.enabled=false} sets {@code testData.cache.enabled}); other system
+ *   properties such as {@code java.*} or {@code user.*} are not configuration</li>
+ * </ol>
+ * Files are read from the classpath, unless a configuration folder is set with the {@code config.dir} system property
+ * (or {@code CONFIG_DIR}), in which case files present there are read from it instead, e.g. straight from
+ * src/main/resources so that edits take effect on reload without a build.
+ * The merged result is an immutable {@link ConfigSnapshot} held in an atomic reference. Reads never lock, and a
+ * reload swaps in a completely built snapshot, so readers see either the old or the new configuration.
+ * <p>
+ * A thread can additionally open a {@link ConfigScope} that overlays another environment's file
+ * ("config-&lt;environment&gt;.properties") or explicit values on top of the run-wide snapshot. Scoped values take
+ * precedence over every layer above, so one JVM can run scenarios against several environments at once.
  */
 public class ConfigManager {
 
     // Logger for logging information, warnings, and errors related to configuration loading
     private static final Logger logger = LogManager.getLogger(ConfigManager.class);
 
-    // Property object that holds the loaded configuration properties
-    private static volatile Properties props;
+    // Key that selects the profile file; read from system properties, the environment or the files
+    private static final String PROFILE_KEY = "config.profile";
+
+    // Prefix of environment variables that override configuration keys
+    private static final String ENVIRONMENT_PREFIX = "UTF_";
+
+    // Prefix of system properties that set configuration keys the files do not define
+    private static final String SYSTEM_PROPERTY_PREFIX = "utf.";
+
+    // The current configuration snapshot, replaced as a whole on reload
+    private static final AtomicReference<ConfigSnapshot> snapshot = new AtomicReference<>();
+
+    // Scoped snapshot of the current thread, or null when the thread uses the run-wide snapshot
+    private static final ThreadLocal<ConfigSnapshot> scoped = new ThreadLocal<>();
+
+    // Environment snapshots built on top of the current run-wide snapshot; cleared on reload
+    private static final ConcurrentHashMap<String, ConfigSnapshot> environments = new ConcurrentHashMap<>();
+
+    // Key of the folder whose configuration files are read instead of the classpath copies
+    private static final String CONFIG_DIR_KEY = "config.dir";
+
+    // Folder read before the classpath, or null to read the classpath only
+    private static volatile Path configDirectory = initialConfigDirectory();
 
     /**
-     * Static block for lazy initialization of the Properties object.
+     * Static block for eager initialization of the configuration snapshot.
      * This is executed when the class is loaded to ensure properties are loaded before use.
-     * The properties are loaded by calling the loadProperties method.
      */
     static {
         loadProperties(); // Load properties as soon as the class is loaded
     }
 
     /**
-     * Loads properties from the config file.
-     * This method is synchronized to ensure thread safety during property loading.
-     * It will read the properties from the classpath resource "config.properties".
+     * Builds the first snapshot if none is installed yet.
      *
-     * If the properties file is loaded successfully, an info log is generated.
-     * If an error occurs during loading, an error log is generated.
+     * @throws RuntimeException if the configuration cannot be loaded.
+     */
+    private static void loadProperties() {
+        if (snapshot.get() == null) {
+            snapshot.compareAndSet(null, readSnapshot());
+        }
+    }
+
+    /**
+     * Resolves all configuration layers into a new snapshot.
      *
+     * @return The resolved snapshot.
+     * @throws RuntimeException if a required configuration file cannot be loaded.
+     */
+    private static ConfigSnapshot readSnapshot() {
+        Map<String, String> values = new HashMap<>();
+        List<String> layers = new ArrayList<>();
+
+        if (merge(values, readProperties("config-defaults.properties", false))) {
+            layers.add("config-defaults.properties");
+        }
+        merge(values, readProperties("config.properties", true));
+        layers.add("config.properties");
+
+        String profile = System.getProperty(PROFILE_KEY, System.getenv(toEnvironmentName(PROFILE_KEY)));
+        if (profile == null) {
+            profile = values.get(PROFILE_KEY);
+        }
+        if (profile != null && !profile.trim().isEmpty()) {
+            String profileFile = "config-" + profile.trim() + ".properties";
+            if (merge(values, readProperties(profileFile, false))) {
+                layers.add(profileFile);
+            } else {
+                logger.warn("Configuration profile '{}' selected but {} was not found.", profile, profileFile);
+            }
+        }
+
+        // Environment variables can only override known keys, since their names cannot express dots or case
+        int overridden = 0;
+        for (String key : new ArrayList<>(values.keySet())) {
+            String value = System.getenv(ENVIRONMENT_PREFIX + toEnvironmentName(key));
+            if (value != null) {
+                values.put(key, value);
+                overridden++;
+            }
+        }
+        if (overridden > 0) {
+            layers.add("environment");
+        }
+
+        // System properties override known keys; prefixed ones can set any key and take precedence
+        Properties system = System.getProperties();
+        Map<String, String> prefixed = new HashMap<>();
+        overridden = 0;
+        for (String key : system.stringPropertyNames()) {
+            if (key.startsWith(SYSTEM_PROPERTY_PREFIX) && key.length() > SYSTEM_PROPERTY_PREFIX.length()) {
+                prefixed.put(key.substring(SYSTEM_PROPERTY_PREFIX.length()), system.getProperty(key));
+            } else if (values.containsKey(key)) {
+                values.put(key, system.getProperty(key));
+                overridden++;
+            }
+        }
+        values.putAll(prefixed);
+        if (overridden + prefixed.size() > 0) {
+            layers.add("system properties");
+        }
+
+        logger.info("Configuration loaded successfully from layers {}.", layers);
+        return new ConfigSnapshot(values, layers);
+    }
+
+    private static Path initialConfigDirectory() {
+        String directory = System.getProperty(CONFIG_DIR_KEY, System.getenv(toEnvironmentName(CONFIG_DIR_KEY)));
+        return directory == null || directory.trim().isEmpty() ? null : Paths.get(directory.trim()).toAbsolutePath().normalize();
+    }
+
+    /**
+     * Returns the folder configuration files are read from before the classpath.
+     *
+     * @return The folder, or null if only the classpath is read.
+     */
+    public static Path configDirectory() {
+        return configDirectory;
+    }
+
+    /**
+     * Reads configuration files from a folder before the classpath from the next load on, e.g. so that a reload sees
+     * edits to src/main/resources that have not been copied to the classpath by a build yet.
+     *
+     * @param directory The folder, or null to read the classpath only.
+     */
+    public static void useConfigDirectory(Path directory) {
+        configDirectory = directory != null ? directory.toAbsolutePath().normalize() : null;
+    }
+
+    /**
+     * Reads a Properties object from the configuration folder or, if it has no such file, a classpath resource.
+     *
+     * @param resource The resource name.
+     * @param required Whether a missing resource is an error.
+     * @return The loaded properties, or null if an optional resource does not exist.
      * @throws RuntimeException if the properties file cannot be loaded.
      */
-    private static synchronized void loadProperties() {
-        if (props == null) {
-            try (InputStream input = ConfigManager.class.getClassLoader().getResourceAsStream("config.properties")) {
-                if (input == null) {
-                    throw new IOException("Configuration file not found");
+    private static Properties readProperties(String resource, boolean required) {
+        try (InputStream input = open(resource)) {
+            if (input == null) {
+                if (!required) {
+                    return null;
                 }
-                Properties tempProps = new Properties();
-                tempProps.load(input);  // Load properties from the classpath
-                props = tempProps;
-                logger.info("Configuration loaded successfully.");
-            } catch (IOException e) {
-                logger.error("Failed to load configuration file", e);
-                throw new RuntimeException("Configuration loading failed", e);  // Throw exception for critical failure
+                throw new IOException("Configuration file not found: " + resource);
             }
+            Properties tempProps = new Properties();
+            tempProps.load(input);  // Load properties from the configuration folder or the classpath
+            return tempProps;
+        } catch (IOException e) {
+            logger.error("Failed to load configuration file " + resource, e);
+            throw new RuntimeException("Configuration loading failed", e);  // Throw exception for critical failure
+        }
+    }
+
+    private static InputStream open(String resource) throws IOException {
+        Path directory = configDirectory;
+        if (directory != null && Files.isRegularFile(directory.resolve(resource))) {
+            return Files.newInputStream(directory.resolve(resource));
+        }
+        return ConfigManager.class.getClassLoader().getResourceAsStream(resource);
+    }
+
+    private static boolean merge(Map<String, String> values, Properties layer) {
+        if (layer == null) {
+            return false;
+        }
+        for (String key : layer.stringPropertyNames()) {
+            values.put(key, layer.getProperty(key));
         }
+        return true;
+    }
+
+    /**
+     * Converts a configuration key to an environment variable name, e.g. "mysql.url" to "MYSQL_URL". Overrides of
+     * configuration keys are read from the name with the "UTF_" prefix.
+     *
+     * @param key The configuration key.
+     * @return The environment variable name.
+     */
+    static String toEnvironmentName(String key) {
+        StringBuilder name = new StringBuilder(key.length());
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            name.append(Character.isLetterOrDigit(c) ? Character.toUpperCase(c) : '_');
+        }
+        return name.toString();
+    }
+
+    /**
+     * Returns the configuration snapshot of the current thread: its scoped snapshot if one is open, otherwise the
+     * run-wide one. Hold on to the returned snapshot when several values must come from the same version.
+     *
+     * @return The current snapshot.
+     */
+    public static ConfigSnapshot snapshot() {
+        ConfigSnapshot current = scoped.get();
+        return current != null ? current : snapshot.get();
+    }
+
+    /**
+     * Returns the environment the current thread targets.
+     *
+     * @return The environment name, or null when no environment scope is open.
+     */
+    public static String currentEnvironment() {
+        return snapshot().environment();
+    }
+
+    /**
+     * Binds the current thread to another environment until the returned scope is closed.
+     * The environment's values come from "config-&lt;environment&gt;.properties" on the classpath, overlaid on the
+     * run-wide configuration. Environment snapshots are built once and shared by all threads that use them.
+     *
+     * @param environment The environment name, e.g. "staging".
+     * @return The open scope.
+     * @throws RuntimeException if the environment file cannot be loaded.
+     */
+    public static ConfigScope withEnvironment(String environment) {
+        String name = environment.trim();
+        ConfigSnapshot base = snapshot.get();
+        ConfigSnapshot target = environments.get(name);
+        if (target == null) {
+            ConfigSnapshot built = base.overlay(toMap(readProperties("config-" + name + ".properties", true)),
+                    "config-" + name + ".properties", name);
+            target = environments.putIfAbsent(name, built);
+            if (target == null) {
+                target = built;
+            }
+            logger.info("Configuration for environment '{}' resolved from layers {}.", name, target.layers());
+        }
+        return openScope(target);
+    }
+
+    /**
+     * Overrides individual values for the current thread until the returned scope is closed.
+     * The overrides are applied on top of whatever the thread currently sees, including an open environment scope.
+     *
+     * @param overrides The values to override.
+     * @return The open scope.
+     */
+    public static ConfigScope withOverrides(Map<String, String> overrides) {
+        return openScope(snapshot().overlay(overrides, "overrides", null));
+    }
+
+    private static ConfigScope openScope(ConfigSnapshot target) {
+        ConfigScope scope = new ConfigScope(scoped.get(), target);
+        scoped.set(target);
+        return scope;
+    }
+
+    /**
+     * Restores the scoped snapshot a thread had before a scope was opened.
+     *
+     * @param previous The previous scoped snapshot, or null to return to the run-wide configuration.
+     */
+    static void restoreScope(ConfigSnapshot previous) {
+        if (previous == null) {
+            scoped.remove();
+        } else {
+            scoped.set(previous);
+        }
+    }
+
+    private static Map<String, String> toMap(Properties properties) {
+        Map<String, String> values = new HashMap<>();
+        merge(values, properties);
+        return values;
     }
 
     /**
      * Retrieves the value of a configuration property by its key.
-     * If the properties are not loaded yet, it will load them before fetching the value.
      *
      * @param key The key for the configuration property.
      * @return The value of the configuration property, or null if the key doesn't exist.
-     *         If the properties file is not loaded, it will load the properties first before retrieving the value.
      */
     public static String get(String key) {
-        ensurePropertiesLoaded();
-        return props != null ? props.getProperty(key) : null;
+        return snapshot().get(key);
     }
 
     /**
@@ -80,26 +333,76 @@ public class ConfigManager {
      * @return The value of the configuration property, or the default value if the key doesn't exist.
      */
     public static String get(String key, String defaultValue) {
-        ensurePropertiesLoaded();
-        return props != null ? props.getProperty(key, defaultValue) : defaultValue;
+        return snapshot().get(key, defaultValue);
+    }
+
+    /**
+     * Retrieves an integer configuration property, parsed once per snapshot.
+     *
+     * @param key The key for the configuration property.
+     * @param defaultValue The value to return if the key doesn't exist.
+     * @return The parsed value, or the default value if the key doesn't exist.
+     * @throws IllegalStateException if the value is not an integer.
+     */
+    public static int getInt(String key, int defaultValue) {
+        return snapshot().getInt(key, defaultValue);
     }
 
     /**
-     * Ensures that properties are loaded.
+     * Retrieves a long configuration property, parsed once per snapshot.
+     *
+     * @param key The key for the configuration property.
+     * @param defaultValue The value to return if the key doesn't exist.
+     * @return The parsed value, or the default value if the key doesn't exist.
+     * @throws IllegalStateException if the value is not an integer.
      */
-    private static void ensurePropertiesLoaded() {
-        if (props == null) {
-            logger.info("Properties have not been loaded yet. Loading now.");
-            loadProperties();  // Ensure properties are loaded if not already
-        }
+    public static long getLong(String key, long defaultValue) {
+        return snapshot().getLong(key, defaultValue);
+    }
+
+    /**
+     * Retrieves a boolean configuration property, parsed once per snapshot.
+     *
+     * @param key The key for the configuration property.
+     * @param defaultValue The value to return if the key doesn't exist.
+     * @return The parsed value, or the default value if the key doesn't exist.
+     */
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        return snapshot().getBoolean(key, defaultValue);
+    }
+
+    /**
+     * Retrieves a duration configuration property such as "30s", "250ms" or "PT1M", parsed once per snapshot.
+     *
+     * @param key The key for the configuration property.
+     * @param defaultValue The value to return if the key doesn't exist.
+     * @return The parsed value, or the default value if the key doesn't exist.
+     * @throws IllegalStateException if the value is not a duration.
+     */
+    public static Duration getDuration(String key, Duration defaultValue) {
+        return snapshot().getDuration(key, defaultValue);
+    }
+
+    /**
+     * Retrieves a comma-separated configuration property as a list, parsed once per snapshot.
+     *
+     * @param key The key for the configuration property.
+     * @return An unmodifiable list, empty if the key doesn't exist.
+     */
+    public static List<String> getList(String key) {
+        return snapshot().getList(key);
     }
 
     /**
-     * Optional method to reload properties in case of changes.
+     * Reloads properties in case of changes, e.g. when the test data watcher sees config.properties change.
+     * All layers are resolved into a new snapshot before it replaces the old one in a single atomic write,
+     * so concurrent readers see either the old or the new configuration, never a missing one.
+     * Scopes that are already open keep the configuration they were opened with.
+     * If a file cannot be read, the current snapshot stays in place.
      */
-    public static synchronized void reloadProperties() {
+    public static void reloadProperties() {
         logger.info("Reloading configuration properties.");
-        props = null;
-        loadProperties();  // Reload properties
+        snapshot.set(readSnapshot());  // Swap in the fully resolved snapshot
+        environments.clear();  // Environment snapshots are rebuilt on top of the new one when next opened
     }
 }
@@ -0,0 +1,48 @@
+package common.config;
+
+/**
+ * A configuration override bound to the current thread, e.g. for one scenario that targets another environment.
+ * While the scope is open, every {@link ConfigManager} read on this thread resolves through it; closing the scope
+ * restores whatever the thread saw before, so scopes nest. Close the scope on the thread that opened it.
+ *
+ * <pre>
+ *   try (ConfigScope scope = ConfigManager.withEnvironment("staging")) {
+ *       new APIBase();  // Uses the staging baseUri
+ *   }
+ * </pre>
+ */
+public final class ConfigScope implements AutoCloseable {
+
+    // Snapshot the thread resolved through before this scope was opened, or null for the run-wide one
+    private final ConfigSnapshot previous;
+
+    // Snapshot this scope installed
+    private final ConfigSnapshot current;
+
+    private boolean closed;
+
+    ConfigScope(ConfigSnapshot previous, ConfigSnapshot current) {
+        this.previous = previous;
+        this.current = current;
+    }
+
+    /**
+     * Returns the configuration this scope installed.
+     *
+     * @return The scoped snapshot.
+     */
+    public ConfigSnapshot snapshot() {
+        return current;
+    }
+
+    /**
+     * Ends the scope and restores the thread's previous configuration. Closing twice has no effect.
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            ConfigManager.restoreScope(previous);
+        }
+    }
+}
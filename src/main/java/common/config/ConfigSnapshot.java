@@ -0,0 +1,255 @@
+package common.config;
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable view of the resolved configuration at one point in time.
+ * The merged key/value table never changes after construction, so any number of threads can read it without locking.
+ * Typed values are parsed on first use and cached in the snapshot; a reload builds a new snapshot with an empty cache,
+ * so a cached value can never outlive the text it was parsed from.
+ */
+public final class ConfigSnapshot {
+
+    // Marks a key that is absent, so repeated misses are not parsed again
+    private static final Object MISSING = new Object();
+
+    // Merged key/value table; never modified after construction
+    private final Map<String, String> values;
+
+    // Typed values by key and type, parsed once per snapshot
+    private final ConcurrentHashMap<String, Object> typed = new ConcurrentHashMap<>();
+
+    // Names of the layers that contributed to this snapshot, lowest precedence first
+    private final List<String> layers;
+
+    // Name of the environment this snapshot targets, or null for the run-wide configuration
+    private final String environment;
+
+    ConfigSnapshot(Map<String, String> values, List<String> layers) {
+        this(values, layers, null);
+    }
+
+    private ConfigSnapshot(Map<String, String> values, List<String> layers, String environment) {
+        this.values = Collections.unmodifiableMap(new HashMap<>(values));
+        this.layers = Collections.unmodifiableList(new ArrayList<>(layers));
+        this.environment = environment;
+    }
+
+    /**
+     * Returns a new snapshot with another layer on top of this one.
+     *
+     * @param overrides   The values of the new layer.
+     * @param layer       The name of the new layer, for logging.
+     * @param environment The environment the new snapshot targets, or null to keep this snapshot's environment.
+     * @return A new snapshot; this one is unchanged.
+     */
+    ConfigSnapshot overlay(Map<String, String> overrides, String layer, String environment) {
+        Map<String, String> merged = new HashMap<>(values);
+        merged.putAll(overrides);
+        List<String> names = new ArrayList<>(layers);
+        names.add(layer);
+        return new ConfigSnapshot(merged, names, environment != null ? environment : this.environment);
+    }
+
+    /**
+     * Returns the raw value of a key.
+     *
+     * @param key The configuration key.
+     * @return The value, or null if the key is not set.
+     */
+    public String get(String key) {
+        return values.get(key);
+    }
+
+    /**
+     * Returns the raw value of a key, or a default if it is not set.
+     *
+     * @param key          The configuration key.
+     * @param defaultValue The value to return if the key is not set.
+     * @return The value, or the default.
+     */
+    public String get(String key, String defaultValue) {
+        String value = values.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * Returns an integer value.
+     *
+     * @param key          The configuration key.
+     * @param defaultValue The value to return if the key is not set.
+     * @return The parsed value, or the default.
+     * @throws IllegalStateException If the value is not an integer.
+     */
+    public int getInt(String key, int defaultValue) {
+        Object value = typed(key, "int");
+        return value != MISSING ? (Integer) value : defaultValue;
+    }
+
+    /**
+     * Returns a long value.
+     *
+     * @param key          The configuration key.
+     * @param defaultValue The value to return if the key is not set.
+     * @return The parsed value, or the default.
+     * @throws IllegalStateException If the value is not an integer.
+     */
+    public long getLong(String key, long defaultValue) {
+        Object value = typed(key, "long");
+        return value != MISSING ? (Long) value : defaultValue;
+    }
+
+    /**
+     * Returns a boolean value; only "true" (in any case) is true, as with {@link Boolean#parseBoolean(String)}.
+     *
+     * @param key          The configuration key.
+     * @param defaultValue The value to return if the key is not set.
+     * @return The parsed value, or the default.
+     */
+    public boolean getBoolean(String key, boolean defaultValue) {
+        Object value = typed(key, "boolean");
+        return value != MISSING ? (Boolean) value : defaultValue;
+    }
+
+    /**
+     * Returns a duration. Values may be written with a unit ({@code 250ms}, {@code 30s}, {@code 5m}, {@code 2h},
+     * {@code 1d}), in ISO-8601 form ({@code PT30S}), or as a plain number of milliseconds.
+     *
+     * @param key          The configuration key.
+     * @param defaultValue The value to return if the key is not set.
+     * @return The parsed value, or the default.
+     * @throws IllegalStateException If the value is not a duration.
+     */
+    public Duration getDuration(String key, Duration defaultValue) {
+        Object value = typed(key, "duration");
+        return value != MISSING ? (Duration) value : defaultValue;
+    }
+
+    /**
+     * Returns a comma-separated list; items are trimmed and empty items are dropped.
+     *
+     * @param key The configuration key.
+     * @return An unmodifiable list, empty if the key is not set.
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> getList(String key) {
+        Object value = typed(key, "list");
+        return value != MISSING ? (List<String>) value : Collections.emptyList();
+    }
+
+    /**
+     * Returns the merged key/value table.
+     *
+     * @return An unmodifiable map.
+     */
+    public Map<String, String> asMap() {
+        return values;
+    }
+
+    /**
+     * Returns the environment this snapshot targets.
+     *
+     * @return The environment name, or null for the run-wide configuration.
+     */
+    public String environment() {
+        return environment;
+    }
+
+    /**
+     * Returns the names of the layers this snapshot was built from, lowest precedence first.
+     *
+     * @return An unmodifiable list of layer names.
+     */
+    public List<String> layers() {
+        return layers;
+    }
+
+    /**
+     * Looks up a parsed value, parsing and caching it on first use.
+     * Hits are a single lock-free map read; a race on the first use parses twice and keeps the first result.
+     */
+    private Object typed(String key, String type) {
+        String cacheKey = type + ':' + key;
+        Object value = typed.get(cacheKey);
+        if (value == null) {
+            value = parse(key, type, values.get(key));
+            Object previous = typed.putIfAbsent(cacheKey, value);
+            if (previous != null) {
+                value = previous;
+            }
+        }
+        return value;
+    }
+
+    private static Object parse(String key, String type, String text) {
+        if (text == null) {
+            return MISSING;
+        }
+        String value = text.trim();
+        try {
+            switch (type) {
+                case "int":
+                    return Integer.parseInt(value);
+                case "long":
+                    return Long.parseLong(value);
+                case "boolean":
+                    return Boolean.parseBoolean(value);
+                case "duration":
+                    return parseDuration(value);
+                case "list":
+                    return parseList(value);
+                default:
+                    throw new IllegalArgumentException("Unknown type " + type);
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalStateException("Configuration property " + key + "='" + text + "' is not a valid " + type, e);
+        }
+    }
+
+    private static Duration parseDuration(String value) {
+        String lower = value.toLowerCase(Locale.ROOT);
+        if (lower.startsWith("p")) {
+            return Duration.parse(value);
+        }
+        int split = 0;
+        while (split < lower.length() && (Character.isDigit(lower.charAt(split)) || lower.charAt(split) == '-')) {
+            split++;
+        }
+        long amount = Long.parseLong(lower.substring(0, split));
+        String unit = lower.substring(split).trim();
+        switch (unit) {
+            case "":
+            case "ms":
+                return Duration.ofMillis(amount);
+            case "s":
+                return Duration.ofSeconds(amount);
+            case "m":
+                return Duration.ofMinutes(amount);
+            case "h":
+                return Duration.ofHours(amount);
+            case "d":
+                return Duration.ofDays(amount);
+            default:
+                throw new IllegalArgumentException("Unknown duration unit " + unit);
+        }
+    }
+
+    private static List<String> parseList(String value) {
+        List<String> items = new ArrayList<>();
+        for (String item : value.split(",")) {
+            String trimmed = item.trim();
+            if (!trimmed.isEmpty()) {
+                items.add(trimmed);
+            }
+        }
+        return Collections.unmodifiableList(items);
+    }
+}
@@ -0,0 +1,957 @@
+
+package common.database;
+
+import common.config.ConfigSnapshot;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A small JDBC connection pool, so parallel scenarios each work on their own connection instead of sharing one.
+ * <p>
+ * Every {@link #getConnection()} hands out a proxy over a pooled physical connection; closing the proxy returns the
+ * connection to the pool after rolling back unfinished work and closing the statements it created. Idle connections
+ * are reused most-recently-used first and validated on borrow unless they were used within the last half second.
+ * Each physical connection keeps a small LRU cache of prepared statements: {@code prepareStatement(sql)} with the same
+ * text on the same connection reuses the driver statement, and closing the borrower's handle only restores its parameters
+ * and settings. A cached statement has one holder at a time; preparing the same text again while it is checked out
+ * gets a separate, uncached statement.
+ * A background housekeeper reports connections held longer than the leak threshold, closes connections idle longer
+ * than the idle timeout, and keeps at least the minimum size open. A borrow only records its start time; the borrower's
+ * stack trace is captured for the leak report only when leakDetectionStackTraces is enabled, since filling in a stack
+ * trace on every borrow is costly.
+ * <p>
+ * Settings are read per pool name with a shared fallback, e.g. {@code mysql.pool.maxSize} then {@code db.pool.maxSize}:
+ * minSize (default 0), maxSize (10), borrowTimeout (30s), validationTimeout (2s), leakDetectionThreshold (60s, 0 disables),
+ * leakDetectionStackTraces (false), idleTimeout (10m) and statementCacheSize (64 per connection, 0 disables).
+ * <p>
+ * Unless {@code db.metrics.enabled} is false, statements handed out are timed: every execution, the rows it returned or
+ * affected, and the time borrowers waited for a connection are recorded in {@link QueryMetrics}.
+ */
+public final class ConnectionPool implements DataSource, AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(ConnectionPool.class);
+
+    // Connections used this recently are handed out without a validation round trip
+    private static final long ALIVE_BYPASS_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    // One daemon thread does the housekeeping of every pool
+    private static final ScheduledExecutorService housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String name;
+    private final String url;
+    private final String username;
+    private final String password;
+
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final int validationTimeoutSeconds;
+    private final long leakThresholdNanos;
+    private final boolean leakStackTraces;
+    private final long idleTimeoutNanos;
+    private final int statementCacheSize;
+    private final boolean metrics;
+
+    // One permit per connection that may be borrowed at the same time
+    private final Semaphore permits;
+
+    // Idle connections, most recently returned first
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+
+    // Connections currently borrowed, for leak detection
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+
+    // Physical connections currently open, idle or borrowed
+    private final AtomicInteger total = new AtomicInteger();
+
+    // Metrics
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+
+    private final ScheduledFuture<?> housekeeping;
+    private volatile boolean closed;
+
+    private ConnectionPool(String name, String url, String username, String password, ConfigSnapshot config) {
+        this.name = name;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.maxSize = Math.max(1, setting(config, "maxSize", 10));
+        this.minSize = Math.min(maxSize, Math.max(0, setting(config, "minSize", 0)));
+        this.borrowTimeoutMillis = duration(config, "borrowTimeout", Duration.ofSeconds(30)).toMillis();
+        this.validationTimeoutSeconds = (int) Math.max(1, duration(config, "validationTimeout", Duration.ofSeconds(2)).getSeconds());
+        this.leakThresholdNanos = duration(config, "leakDetectionThreshold", Duration.ofSeconds(60)).toNanos();
+        this.leakStackTraces = config.getBoolean(name + ".pool.leakDetectionStackTraces",
+                config.getBoolean("db.pool.leakDetectionStackTraces", false));
+        this.idleTimeoutNanos = duration(config, "idleTimeout", Duration.ofMinutes(10)).toNanos();
+        this.statementCacheSize = Math.max(0, setting(config, "statementCacheSize", 64));
+        this.metrics = config.getBoolean("db.metrics.enabled", true);
+        this.permits = new Semaphore(maxSize, true);
+
+        long periodMillis = Math.max(1_000, Math.min(30_000,
+                TimeUnit.NANOSECONDS.toMillis(Math.min(positiveOr(leakThresholdNanos), positiveOr(idleTimeoutNanos))) / 2));
+        this.housekeeping = housekeeper.scheduleWithFixedDelay(this::housekeep, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        logger.info("Connection pool {} created (minSize={}, maxSize={}).", name, minSize, maxSize);
+    }
+
+    /**
+     * Creates a pool whose settings are read from the given configuration.
+     *
+     * @param name     The pool name, also the prefix of its settings, e.g. "mysql".
+     * @param url      The JDBC URL.
+     * @param username The database user.
+     * @param password The database password.
+     * @param config   The configuration to read pool settings from.
+     * @return A new ConnectionPool; connections are opened on demand and by the housekeeper up to minSize.
+     */
+    public static ConnectionPool create(String name, String url, String username, String password, ConfigSnapshot config) {
+        return new ConnectionPool(name, url, username, password, config);
+    }
+
+    private int setting(ConfigSnapshot config, String key, int defaultValue) {
+        return config.getInt(name + ".pool." + key, config.getInt("db.pool." + key, defaultValue));
+    }
+
+    private Duration duration(ConfigSnapshot config, String key, Duration defaultValue) {
+        return config.getDuration(name + ".pool." + key, config.getDuration("db.pool." + key, defaultValue));
+    }
+
+    private static long positiveOr(long nanos) {
+        return nanos > 0 ? nanos : Long.MAX_VALUE;
+    }
+
+    /**
+     * Borrows a connection, waiting up to the borrow timeout when all connections are in use.
+     * Close the returned connection to give it back to the pool.
+     *
+     * @return A connection for the caller's exclusive use.
+     * @throws SQLException If no connection becomes available in time or a new connection cannot be opened.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool " + name + " is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                String errorMsg = "Timed out after " + borrowTimeoutMillis + " ms waiting for a connection from pool " + this;
+                logger.error(errorMsg);
+                throw new SQLTransientConnectionException(errorMsg);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection from pool " + name, e);
+        }
+        long waited = System.nanoTime() - start;
+        borrows.increment();
+        waitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+        try {
+            PooledConnection pooled = takeIdle();
+            if (pooled == null) {
+                pooled = open();
+            }
+            borrowed.add(pooled);
+            if (metrics) {
+                QueryMetrics.recordPoolWait(name, System.nanoTime() - start);
+            }
+            return pooled.lease(leakThresholdNanos > 0 && leakStackTraces
+                    ? new Throwable("Connection borrowed from pool " + name) : null);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Takes the most recently used idle connection that is still alive, discarding dead ones.
+     */
+    private PooledConnection takeIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (System.nanoTime() - pooled.lastUsed < ALIVE_BYPASS_NANOS || isValid(pooled)) {
+                return pooled;
+            }
+            validationFailures.increment();
+            discard(pooled, "failed validation");
+        }
+        return null;
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            return pooled.physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection open() throws SQLException {
+        try {
+            Connection physical = DriverManager.getConnection(url, username, password);
+            total.incrementAndGet();
+            return new PooledConnection(this, physical);
+        } catch (SQLException e) {
+            logger.error("Failed to open a connection for pool {}: {}", name, e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Takes a connection back from its borrower.
+     */
+    private void release(PooledConnection pooled) {
+        borrowed.remove(pooled);
+        try {
+            if (pooled.reset() && !closed && total.get() <= maxSize) {
+                pooled.lastUsed = System.nanoTime();
+                idle.offerFirst(pooled);
+            } else {
+                discard(pooled, closed ? "pool closed" : "not reusable");
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PooledConnection pooled, String reason) {
+        total.decrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            logger.debug("Failed to close a {} connection of pool {}: {}", reason, name, e.getMessage());
+        }
+        logger.debug("Closed a connection of pool {}: {}.", name, reason);
+    }
+
+    /**
+     * Reports leaks, evicts long-idle connections and tops the pool up to its minimum size.
+     */
+    private void housekeep() {
+        try {
+            long now = System.nanoTime();
+            if (leakThresholdNanos > 0) {
+                for (PooledConnection pooled : borrowed) {
+                    if (!pooled.leakReported && now - pooled.leaseStart > leakThresholdNanos) {
+                        pooled.leakReported = true;
+                        leaks.increment();
+                        Throwable trace = pooled.leaseTrace;
+                        if (trace != null) {
+                            logger.warn("Possible connection leak in pool {}: connection held for {} ms without being closed.",
+                                    name, TimeUnit.NANOSECONDS.toMillis(now - pooled.leaseStart), trace);
+                        } else {
+                            logger.warn("Possible connection leak in pool {}: connection held for {} ms without being closed. "
+                                            + "Set {}.pool.leakDetectionStackTraces=true to log where it was borrowed.",
+                                    name, TimeUnit.NANOSECONDS.toMillis(now - pooled.leaseStart), name);
+                        }
+                    }
+                }
+            }
+            if (idleTimeoutNanos > 0) {
+                // Oldest idle connections are at the end of the deque
+                Iterator<PooledConnection> oldest = idle.descendingIterator();
+                while (oldest.hasNext() && total.get() > minSize) {
+                    PooledConnection pooled = oldest.next();
+                    if (now - pooled.lastUsed > idleTimeoutNanos && idle.remove(pooled)) {
+                        discard(pooled, "idle timeout");
+                    }
+                }
+            }
+            while (!closed && total.get() < minSize) {
+                PooledConnection pooled = open();
+                pooled.lastUsed = System.nanoTime();
+                idle.offerLast(pooled);
+            }
+        } catch (SQLException | RuntimeException e) {
+            logger.warn("Housekeeping of connection pool {} failed: {}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * Closes all idle connections and stops housekeeping. Borrowed connections are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        housekeeping.cancel(false);
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled, "pool closed");
+        }
+        if (!borrowed.isEmpty()) {
+            logger.warn("Connection pool {} closed with {} connection(s) still borrowed.", name, borrowed.size());
+        }
+        logger.info("Connection pool closed: {}", this);
+    }
+
+    /**
+     * Returns the pool name.
+     *
+     * @return The name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of open physical connections, idle or borrowed.
+     *
+     * @return The total connection count.
+     */
+    public int getTotalConnections() {
+        return total.get();
+    }
+
+    /**
+     * Returns the number of idle connections.
+     *
+     * @return The idle connection count.
+     */
+    public int getIdleConnections() {
+        return idle.size();
+    }
+
+    /**
+     * Returns the number of borrowed connections.
+     *
+     * @return The active connection count.
+     */
+    public int getActiveConnections() {
+        return borrowed.size();
+    }
+
+    /**
+     * Returns the number of threads waiting for a connection.
+     *
+     * @return The waiting thread count (an estimate).
+     */
+    public int getWaitingThreads() {
+        return permits.getQueueLength();
+    }
+
+    /**
+     * Returns the number of successful borrows.
+     *
+     * @return The borrow count.
+     */
+    public long getBorrowCount() {
+        return borrows.sum();
+    }
+
+    /**
+     * Returns the average time borrowers waited for a free slot.
+     *
+     * @return The average wait in milliseconds.
+     */
+    public double getAverageWaitMillis() {
+        long count = borrows.sum();
+        return count == 0 ? 0 : waitNanos.sum() / 1e6 / count;
+    }
+
+    /**
+     * Returns the longest time a borrower waited for a free slot.
+     *
+     * @return The maximum wait in milliseconds.
+     */
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1e6;
+    }
+
+    /**
+     * Returns the number of borrows that timed out.
+     *
+     * @return The timeout count.
+     */
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+
+    /**
+     * Returns the number of idle connections that failed validation on borrow.
+     *
+     * @return The validation failure count.
+     */
+    public long getValidationFailureCount() {
+        return validationFailures.sum();
+    }
+
+    /**
+     * Returns the number of leaks reported.
+     *
+     * @return The leak count.
+     */
+    public long getLeakCount() {
+        return leaks.sum();
+    }
+
+    /**
+     * Returns the number of prepared statements served from a connection's statement cache.
+     *
+     * @return The cache hit count.
+     */
+    public long getStatementCacheHitCount() {
+        return statementCacheHits.sum();
+    }
+
+    /**
+     * Returns the number of prepared statements that had to be prepared by the driver.
+     *
+     * @return The cache miss count.
+     */
+    public long getStatementCacheMissCount() {
+        return statementCacheMisses.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[total=%d, idle=%d, active=%d, waiting=%d, borrows=%d, avgWait=%.2fms, maxWait=%.2fms, "
+                        + "timeouts=%d, validationFailures=%d, leaks=%d, statementCacheHits=%d, statementCacheMisses=%d]",
+                name, getTotalConnections(), getIdleConnections(), getActiveConnections(), getWaitingThreads(),
+                getBorrowCount(), getAverageWaitMillis(), getMaxWaitMillis(), getTimeoutCount(),
+                getValidationFailureCount(), getLeakCount(), getStatementCacheHitCount(), getStatementCacheMissCount());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Connection pool " + name + " only hands out connections for its configured user");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        // Logging goes through log4j
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return DriverManager.getLoginTimeout();
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException("Connection pool logging goes through log4j");
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Connection pool is not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    /**
+     * A physical connection owned by the pool, and the state of its current lease.
+     */
+    static final class PooledConnection {
+
+        private final ConnectionPool pool;
+        final Connection physical;
+
+        // Statements created during the current lease, closed when the connection is returned
+        private final List<Statement> statements = new ArrayList<>();
+
+        // Prepared statements by SQL text, least recently used first; only touched by the current borrower
+        private final Map<String, CachedPreparedStatement> statementCache;
+
+        volatile long lastUsed;
+        volatile long leaseStart;
+        volatile Throwable leaseTrace;
+        volatile boolean leakReported;
+
+        private PooledConnection(ConnectionPool pool, Connection physical) {
+            this.pool = pool;
+            this.physical = physical;
+            int capacity = pool.statementCacheSize;
+            this.statementCache = new LinkedHashMap<String, CachedPreparedStatement>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedPreparedStatement> eldest) {
+                    if (size() > capacity) {
+                        CachedPreparedStatement cached = eldest.getValue();
+                        cached.evicted = true;
+                        if (cached.holder == null) {
+                            closeQuietly(cached.statement);
+                        } else {
+                            track(cached.statement);  // Closed when its holder gives it back, or at the latest with the lease
+                        }
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        /**
+         * Returns a handle on the cached statement for the SQL text, preparing it on a miss. If the cached statement
+         * is already checked out, e.g. by an open handle with the same SQL, a separate statement is prepared and
+         * tracked like any other statement of the lease, so two handles never share one driver statement.
+         */
+        private PreparedStatement prepareCached(String sql) throws SQLException {
+            CachedPreparedStatement cached = statementCache.get(sql);
+            if (cached != null && cached.holder != null) {
+                pool.statementCacheMisses.increment();
+                PreparedStatement statement = physical.prepareStatement(sql);
+                track(statement);
+                return statement;
+            }
+            if (cached != null && !cached.statement.isClosed()) {
+                pool.statementCacheHits.increment();
+            } else {
+                pool.statementCacheMisses.increment();
+                cached = new CachedPreparedStatement(sql, physical.prepareStatement(sql));
+                statementCache.put(sql, cached);
+            }
+            CachedStatement handle = new CachedStatement(this, cached);
+            cached.holder = handle;
+            return (PreparedStatement) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, handle);
+        }
+
+        /**
+         * Takes a cached statement back from its holder and restores it for the next one. A statement that was
+         * evicted while checked out, or cannot be restored, is closed instead.
+         */
+        private void checkIn(CachedPreparedStatement cached) {
+            cached.holder = null;
+            if (cached.evicted) {
+                closeQuietly(cached.statement);
+                return;
+            }
+            try {
+                cached.restore();
+            } catch (SQLException e) {
+                logger.debug("Dropping a cached statement that could not be restored: {}", e.getMessage());
+                statementCache.remove(cached.sql, cached);
+                closeQuietly(cached.statement);
+            }
+        }
+
+        private static void closeQuietly(Statement statement) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                logger.debug("Failed to close a cached statement: {}", e.getMessage());
+            }
+        }
+
+        /**
+         * Starts a lease and returns the borrower's handle. Each lease gets its own handle, so a handle that was
+         * already closed cannot affect a later borrower of the same physical connection.
+         */
+        private Connection lease(Throwable trace) {
+            leaseStart = System.nanoTime();
+            leaseTrace = trace;
+            leakReported = false;
+            return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Lease(this));
+        }
+
+        void track(Statement statement) {
+            synchronized (statements) {
+                statements.add(statement);
+            }
+        }
+
+        /**
+         * Cleans up after a lease. Returns false if the connection should not be reused.
+         */
+        private boolean reset() {
+            leaseTrace = null;
+            try {
+                for (CachedPreparedStatement cached : new ArrayList<>(statementCache.values())) {
+                    if (cached.holder != null) {
+                        cached.holder.close();  // Handles the borrower left open cannot reach the next lease
+                    }
+                }
+                synchronized (statements) {
+                    for (Statement statement : statements) {
+                        statement.close();
+                    }
+                    statements.clear();
+                }
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();  // Never hand unfinished work to the next borrower
+                    physical.setAutoCommit(true);
+                }
+                if (physical.isReadOnly()) {
+                    physical.setReadOnly(false);
+                }
+                physical.clearWarnings();
+                return !physical.isClosed();
+            } catch (SQLException e) {
+                logger.warn("Discarding a connection of pool {} that could not be reset: {}", pool.name, e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    /**
+     * The borrower's view of a pooled connection: delegates to the physical connection until closed,
+     * then returns it to the pool.
+     */
+    private static final class Lease implements InvocationHandler {
+
+        private final PooledConnection pooled;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (closed.compareAndSet(false, true)) {
+                        pooled.pool.release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed.get() || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled connection of " + pooled.pool.name + (closed.get() ? " (closed)" : "");
+                case "unwrap":
+                    // The borrower's handle is the connection; only vendor interfaces reach the physical connection
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                    break;
+                case "isWrapperFor":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return true;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            if (closed.get()) {
+                throw new SQLException("Connection is closed and was returned to pool " + pooled.pool.name);
+            }
+            if (pooled.pool.statementCacheSize > 0 && method.getName().equals("prepareStatement") && args.length == 1) {
+                return handOut(proxy, pooled.prepareCached((String) args[0]), PreparedStatement.class, (String) args[0]);
+            }
+            try {
+                Object result = method.invoke(pooled.physical, args);
+                if (result instanceof Statement) {
+                    pooled.track((Statement) result);
+                    return handOut(proxy, result, method.getReturnType(),
+                            args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null);
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        /**
+         * Wraps a statement so that getConnection() returns the borrower's handle rather than the physical connection,
+         * and its executions are recorded unless metrics are disabled.
+         */
+        private Object handOut(Object connection, Object statement, Class<?> type, String sql) {
+            String source = pooled.pool.metrics ? pooled.pool.name : null;
+            return Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[]{type},
+                    new TimedStatement((Statement) statement, (Connection) connection, source, sql));
+        }
+    }
+
+    /**
+     * Times the executions of a statement and counts the rows they return or affect, and answers getConnection() with
+     * the borrower's handle.
+     */
+    private static final class TimedStatement implements InvocationHandler {
+
+        private final Statement statement;
+        private final Connection connection;
+        private final String source;  // Null when metrics are disabled
+        private final String sql;
+
+        // Entry of the last execute() call, for the rows of its result sets
+        private QueryMetrics.FingerprintStats lastExecution;
+
+        private TimedStatement(Statement statement, Connection connection, String source, String sql) {
+            this.statement = statement;
+            this.connection = connection;
+            this.source = source;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String methodName = method.getName();
+            switch (methodName) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "getConnection":
+                    return connection;
+                default:
+                    break;
+            }
+            if (source == null || !methodName.startsWith("execute")) {
+                try {
+                    Object result = method.invoke(statement, args);
+                    if (methodName.equals("getResultSet") && result != null && lastExecution != null) {
+                        return counted((ResultSet) result, lastExecution);
+                    }
+                    return result;
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+
+            // Statement.execute*(sql, ...) carries its own SQL; prepared statements were created with theirs
+            String text = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                QueryMetrics.record(source, QueryMetrics.fingerprint(text), text, System.nanoTime() - start, -1, true);
+                throw e.getCause();
+            }
+            QueryMetrics.FingerprintStats entry = QueryMetrics.record(source, QueryMetrics.fingerprint(text), text,
+                    System.nanoTime() - start, affected(result), false);
+            if (result instanceof ResultSet) {
+                return counted((ResultSet) result, entry);
+            }
+            lastExecution = entry;
+            return result;
+        }
+
+        private static long affected(Object result) {
+            if (result instanceof Number) {
+                return ((Number) result).longValue();
+            }
+            long rows = 0;
+            if (result instanceof int[]) {
+                for (int count : (int[]) result) {
+                    rows += Math.max(0, count);  // SUCCESS_NO_INFO and EXECUTE_FAILED are negative
+                }
+                return rows;
+            }
+            if (result instanceof long[]) {
+                for (long count : (long[]) result) {
+                    rows += Math.max(0, count);
+                }
+                return rows;
+            }
+            return -1;  // A result set; its rows are counted as they are read
+        }
+
+        private static ResultSet counted(ResultSet resultSet, QueryMetrics.FingerprintStats entry) {
+            return (ResultSet) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class}, new CountingResultSet(resultSet, entry));
+        }
+    }
+
+    /**
+     * Counts the rows read from a result set and adds them to its query's statistics when the result set is exhausted
+     * or closed.
+     */
+    private static final class CountingResultSet implements InvocationHandler {
+
+        private final ResultSet resultSet;
+        private final QueryMetrics.FingerprintStats entry;
+        private long rows;
+        private boolean reported;
+
+        private CountingResultSet(ResultSet resultSet, QueryMetrics.FingerprintStats entry) {
+            this.resultSet = resultSet;
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next":
+                    boolean hasRow = resultSet.next();
+                    if (hasRow) {
+                        rows++;
+                    } else {
+                        report();
+                    }
+                    return hasRow;
+                case "close":
+                    report();
+                    resultSet.close();
+                    return null;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(resultSet, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private void report() {
+            if (!reported) {
+                reported = true;
+                QueryMetrics.addRows(entry, rows);
+            }
+        }
+    }
+
+    /**
+     * A prepared statement kept open in a connection's statement cache, with the settings the driver created it with.
+     */
+    private static final class CachedPreparedStatement {
+
+        private final String sql;
+        private final PreparedStatement statement;
+        private final int maxRows;
+        private final int fetchSize;
+        private final int queryTimeout;
+
+        // The handle currently using the statement, or null when it is free; only touched by the current borrower
+        private CachedStatement holder;
+        private boolean evicted;
+
+        private CachedPreparedStatement(String sql, PreparedStatement statement) throws SQLException {
+            this.sql = sql;
+            this.statement = statement;
+            this.maxRows = statement.getMaxRows();
+            this.fetchSize = statement.getFetchSize();
+            this.queryTimeout = statement.getQueryTimeout();
+        }
+
+        /**
+         * Clears what a holder may have set, so the next holder starts from the driver's defaults.
+         */
+        private void restore() throws SQLException {
+            statement.clearParameters();
+            statement.clearWarnings();
+            if (statement.getMaxRows() != maxRows) {
+                statement.setMaxRows(maxRows);
+            }
+            if (statement.getFetchSize() != fetchSize) {
+                statement.setFetchSize(fetchSize);
+            }
+            if (statement.getQueryTimeout() != queryTimeout) {
+                statement.setQueryTimeout(queryTimeout);
+            }
+            statement.setEscapeProcessing(true);  // The JDBC default; it has no getter
+        }
+    }
+
+    /**
+     * The borrower's handle on a cached prepared statement: closing it restores the statement and keeps the driver
+     * statement open for the next use of the same SQL on this connection.
+     */
+    private static final class CachedStatement implements InvocationHandler {
+
+        private final PooledConnection pooled;
+        private final CachedPreparedStatement cached;
+        private boolean closed;
+
+        private CachedStatement(PooledConnection pooled, CachedPreparedStatement cached) {
+            this.pooled = pooled;
+            this.cached = cached;
+        }
+
+        private void close() {
+            if (!closed) {
+                closed = true;
+                pooled.checkIn(cached);
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    close();
+                    return null;
+                case "isClosed":
+                    return closed || cached.statement.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Statement is closed");
+            }
+            try {
+                return method.invoke(cached.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,539 @@
+
+package common.database;
+
+import com.mysql.cj.jdbc.JdbcStatement;
+import common.config.ConfigManager;
+import common.datasource.DataSources;
+import common.helpers.DataHeader;
+import common.helpers.DataRow;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Seeds a MySQL or SQL Server table with rows streamed from the test data readers.
+ * <p>
+ * Rows are read once, cut into chunks of {@code seed.batchSize} rows (default 5000) and inserted by
+ * {@code seed.parallelism} workers (default 4), each on its own pooled connection and committing once per chunk.
+ * Three insert paths are available, selected with {@code seed.mode}:
+ * <ul>
+ *   <li>BATCH: one parameterized INSERT per row, sent as a JDBC batch.</li>
+ *   <li>MULTI_ROW: INSERT ... VALUES (...), (...), ... with as many rows per statement as the database allows.</li>
+ *   <li>BULK (default): the native bulk path, {@code LOAD DATA LOCAL INFILE} on MySQL (needs allowLoadLocalInfile=true
+ *   in the URL and local_infile on the server) and bulk copy for batch inserts on SQL Server. A worker falls back to
+ *   MULTI_ROW when the bulk path is not available.</li>
+ * </ul>
+ * Empty values are inserted as NULL unless {@code seed.emptyAsNull} is false. Chunks are committed independently,
+ * so a failed seed leaves the chunks that were already committed in place. Inside {@link DbIsolation} the seed runs
+ * on the thread's isolated connection and is rolled back with the rest of the scenario.
+ */
+public final class DataSeeder {
+
+    private static final Logger logger = LogManager.getLogger(DataSeeder.class);
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)?");
+
+    // Marks the end of the input for a worker
+    private static final List<String[]> END = new ArrayList<>();
+
+    /**
+     * The insert path used to seed a table.
+     */
+    public enum Mode {
+        BATCH,
+        MULTI_ROW,
+        BULK
+    }
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private DataSeeder() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Seeds a table with every row at a test data location, e.g. "users.csv", "users.xlsx#Active" or "orders.jsonl".
+     *
+     * @param database The database, "mysql" or "mssql".
+     * @param table    The target table; its columns are named like the data columns.
+     * @param location The test data location, as accepted by {@link DataSources}.
+     * @return The number of rows inserted.
+     * @throws IOException If the test data cannot be read.
+     */
+    public static long seed(String database, String table, String location) throws IOException {
+        try (Stream<DataRow> rows = DataSources.open(location)) {
+            return seed(database, table, rows);
+        }
+    }
+
+    /**
+     * Seeds a table with a stream of rows using the configured mode.
+     *
+     * @param database The database, "mysql" or "mssql".
+     * @param table    The target table; its columns are named like the data columns.
+     * @param rows     The rows; the columns of the first row are inserted.
+     * @return The number of rows inserted.
+     */
+    public static long seed(String database, String table, Stream<DataRow> rows) {
+        Mode mode = Mode.valueOf(ConfigManager.get("seed.mode", "BULK").trim().toUpperCase(Locale.ROOT));
+        return seed(database, table, rows, mode);
+    }
+
+    /**
+     * Seeds a table with a stream of rows.
+     *
+     * @param database The database, "mysql" or "mssql".
+     * @param table    The target table; its columns are named like the data columns.
+     * @param rows     The rows; the columns of the first row are inserted.
+     * @param mode     The insert path.
+     * @return The number of rows inserted.
+     * @throws RuntimeException If a chunk cannot be inserted.
+     */
+    public static long seed(String database, String table, Stream<DataRow> rows, Mode mode) {
+        String db = database.toLowerCase(Locale.ROOT);
+        identifier(table);
+        int batchSize = Math.max(1, ConfigManager.getInt("seed.batchSize", 5000));
+        // An isolated scenario has one connection per database, so its seed runs on that connection alone
+        int parallelism = DbIsolation.isActive() ? 1 : Math.max(1, ConfigManager.getInt("seed.parallelism", 4));
+        boolean emptyAsNull = ConfigManager.getBoolean("seed.emptyAsNull", true);
+
+        Iterator<DataRow> iterator = rows.iterator();
+        if (!iterator.hasNext()) {
+            logger.info("Nothing to seed into {}.{}.", db, table);
+            return 0;
+        }
+        DataRow first = iterator.next();
+        List<String> columns = first.header().names();
+        columns.forEach(DataSeeder::identifier);
+
+        long start = System.nanoTime();
+        AtomicLong inserted = new AtomicLong();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        BlockingQueue<List<String[]>> chunks = new ArrayBlockingQueue<>(parallelism * 2);
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "data-seeder-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Settings, isolation and metrics are resolved on this thread, so workers use the caller's environment, transaction
+        // and scenario totals
+        Connector connector = connector(db);
+        Object metricsScope = QueryMetrics.currentScenario();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < parallelism; i++) {
+            futures.add(workers.submit(() -> QueryMetrics.runIn(metricsScope, () -> {
+                work(connector, db, table, columns, mode, chunks, inserted, failure);
+                return null;
+            })));
+        }
+
+        try {
+            List<String[]> chunk = new ArrayList<>(batchSize);
+            chunk.add(values(first, first.header(), columns, emptyAsNull));
+            while (iterator.hasNext() && failure.get() == null) {
+                if (chunk.size() == batchSize) {
+                    put(chunks, chunk, failure);
+                    chunk = new ArrayList<>(batchSize);
+                }
+                DataRow row = iterator.next();
+                chunk.add(values(row, first.header(), columns, emptyAsNull));
+            }
+            if (!chunk.isEmpty()) {
+                put(chunks, chunk, failure);
+            }
+            for (int i = 0; i < parallelism; i++) {
+                put(chunks, END, failure);
+            }
+            if (failure.get() == null) {
+                // Every worker has an end marker queued, so each one finishes
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+        } catch (Exception e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            workers.shutdownNow();
+        }
+
+        Throwable error = failure.get();
+        if (error != null) {
+            String errorMsg = "Seeding " + db + "." + table + " failed after " + inserted.get() + " rows: " + error.getMessage();
+            logger.error(errorMsg, error);
+            throw new RuntimeException(errorMsg, error);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        logger.info("Seeded {} rows into {}.{} in {} s ({} rows/s, mode {}, {} partitions).", inserted.get(), db, table,
+                String.format("%.2f", seconds), String.format("%.0f", inserted.get() / Math.max(seconds, 1e-9)), mode, parallelism);
+        return inserted.get();
+    }
+
+    /**
+     * Hands a chunk to the workers, giving up when a worker has failed.
+     */
+    private static void put(BlockingQueue<List<String[]>> chunks, List<String[]> chunk, AtomicReference<Throwable> failure)
+            throws InterruptedException {
+        while (failure.get() == null) {
+            if (chunks.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        }
+    }
+
+    private static String[] values(DataRow row, DataHeader header, List<String> columns, boolean emptyAsNull) {
+        String[] values = new String[columns.size()];
+        boolean sameShape = row.header() == header;
+        for (int i = 0; i < values.length; i++) {
+            String value = sameShape ? row.get(i) : row.get(columns.get(i));
+            values[i] = emptyAsNull && value != null && value.isEmpty() ? null : value;
+        }
+        return values;
+    }
+
+    /**
+     * Inserts chunks on one connection until the end marker arrives.
+     */
+    private static void work(Connector connector, String database, String table, List<String> columns, Mode mode,
+                             BlockingQueue<List<String[]>> chunks, AtomicLong inserted, AtomicReference<Throwable> failure) {
+        try (Connection connection = connector.connect()) {
+            connection.setAutoCommit(false);
+            Inserter inserter = inserter(connection, database, table, columns, mode);
+            try {
+                List<String[]> chunk;
+                while ((chunk = chunks.take()) != END && failure.get() == null) {
+                    inserter = insertChunk(inserter, connection, database, table, columns, chunk);
+                    connection.commit();
+                    inserted.addAndGet(chunk.size());
+                }
+            } finally {
+                inserter.close();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    /**
+     * Inserts one chunk; if a bulk path fails before it has inserted anything, the worker switches to multi-row inserts.
+     */
+    private static Inserter insertChunk(Inserter inserter, Connection connection, String database, String table,
+                                        List<String> columns, List<String[]> chunk) throws SQLException {
+        try {
+            inserter.insert(chunk);
+            inserter.succeeded = true;
+            return inserter;
+        } catch (SQLException e) {
+            if (!inserter.bulk || inserter.succeeded) {
+                throw e;
+            }
+            // A failed LOAD DATA statement leaves no rows behind, so there is nothing to roll back (which would also
+            // undo an isolated scenario's earlier work)
+            inserter.close();
+            logger.warn("Bulk load into {}.{} is not available ({}); using multi-row inserts.", database, table, e.getMessage());
+            Inserter fallback = new MultiRowInserter(connection, database, table, columns);
+            fallback.insert(chunk);
+            fallback.succeeded = true;
+            return fallback;
+        }
+    }
+
+    private static Inserter inserter(Connection connection, String database, String table, List<String> columns, Mode mode)
+            throws SQLException {
+        switch (mode) {
+            case BATCH:
+                return new BatchInserter(connection, table, columns);
+            case MULTI_ROW:
+                return new MultiRowInserter(connection, database, table, columns);
+            default:
+                if (database.equals("mysql")) {
+                    return new LoadDataInserter(connection, table, columns);
+                }
+                Inserter bulkCopy = BatchInserter.withBulkCopy(connection, table, columns);
+                return bulkCopy != null ? bulkCopy : new MultiRowInserter(connection, database, table, columns);
+        }
+    }
+
+    static String insertSql(String table, List<String> columns, int rows) {
+        StringBuilder group = new StringBuilder("(");
+        for (int i = 0; i < columns.size(); i++) {
+            group.append(i > 0 ? ", ?" : "?");
+        }
+        group.append(')');
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table)
+                .append(" (").append(String.join(", ", columns)).append(") VALUES ");
+        for (int i = 0; i < rows; i++) {
+            sql.append(i > 0 ? ", " : "").append(group);
+        }
+        return sql.toString();
+    }
+
+    private static Connector connector(String database) throws SQLException {
+        switch (database) {
+            case "mysql":
+            case "mssql":
+                ConnectionPool pool = DatabaseConnectors.jdbc(database).dataSource();
+                if (DbIsolation.isActive()) {
+                    Connection isolated = DbIsolation.borrow(pool);  // Commits and close are no-ops on this handle
+                    return () -> isolated;
+                }
+                return pool::getConnection;
+            default:
+                throw new IllegalArgumentException("Unsupported database for seeding: " + database);
+        }
+    }
+
+    private static String identifier(String name) {
+        if (!IDENTIFIER.matcher(name).matches()) {
+            String errorMsg = "Invalid table or column name for seeding: " + name;
+            logger.error(errorMsg);
+            throw new IllegalArgumentException(errorMsg);
+        }
+        return name;
+    }
+
+    /**
+     * Opens a connection for a worker.
+     */
+    @FunctionalInterface
+    private interface Connector {
+        Connection connect() throws SQLException;
+    }
+
+    /**
+     * Inserts chunks of rows on one connection; the caller commits.
+     */
+    private abstract static class Inserter {
+
+        // Whether this is a native bulk path that may be unavailable
+        final boolean bulk;
+
+        // Whether a chunk has been inserted successfully
+        boolean succeeded;
+
+        Inserter(boolean bulk) {
+            this.bulk = bulk;
+        }
+
+        abstract void insert(List<String[]> rows) throws SQLException;
+
+        void close() throws SQLException {
+            // Statements are closed with the connection lease
+        }
+    }
+
+    /**
+     * One parameterized INSERT per row, sent as a JDBC batch.
+     */
+    private static final class BatchInserter extends Inserter {
+
+        private final PreparedStatement statement;
+        private final Runnable onClose;
+
+        private BatchInserter(Connection connection, String table, List<String> columns) throws SQLException {
+            this(connection, table, columns, false, null);
+        }
+
+        private BatchInserter(Connection connection, String table, List<String> columns, boolean bulk, Runnable onClose)
+                throws SQLException {
+            super(bulk);
+            this.statement = connection.prepareStatement(insertSql(table, columns, 1));
+            this.onClose = onClose;
+        }
+
+        /**
+         * Turns on the SQL Server driver's bulk copy for batch inserts, which sends the batch with the bulk protocol.
+         * The driver is not a compile-time dependency, so the switch is made reflectively.
+         *
+         * @return The inserter, or null if the connection is not a SQL Server connection that supports it.
+         */
+        static Inserter withBulkCopy(Connection connection, String table, List<String> columns) throws SQLException {
+            try {
+                Class<?> type = Class.forName("com.microsoft.sqlserver.jdbc.ISQLServerConnection");
+                Object physical = connection.unwrap(type);
+                Method setter = type.getMethod("setUseBulkCopyForBatchInsert", boolean.class);
+                setter.invoke(physical, true);
+                return new BatchInserter(connection, table, columns, true, () -> {
+                    try {
+                        setter.invoke(physical, false);  // Pooled connections must not keep the setting
+                    } catch (ReflectiveOperationException e) {
+                        logger.warn("Failed to reset bulk copy for batch insert: {}", e.getMessage());
+                    }
+                });
+            } catch (ReflectiveOperationException | SQLException e) {
+                logger.warn("SQL Server bulk copy is not available ({}); using multi-row inserts.", e.getMessage());
+                return null;
+            }
+        }
+
+        @Override
+        void insert(List<String[]> rows) throws SQLException {
+            for (String[] row : rows) {
+                for (int i = 0; i < row.length; i++) {
+                    statement.setString(i + 1, row[i]);
+                }
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+
+        @Override
+        void close() throws SQLException {
+            statement.close();
+            if (onClose != null) {
+                onClose.run();
+            }
+        }
+    }
+
+    /**
+     * INSERT ... VALUES with many rows per statement; full statements are batched, the remainder goes last.
+     */
+    private static final class MultiRowInserter extends Inserter {
+
+        private final Connection connection;
+        private final String table;
+        private final List<String> columns;
+        private final int rowsPerStatement;
+        private final PreparedStatement full;
+
+        private MultiRowInserter(Connection connection, String database, String table, List<String> columns) throws SQLException {
+            super(false);
+            this.connection = connection;
+            this.table = table;
+            this.columns = columns;
+            // SQL Server allows 2100 parameters and 1000 row constructors; MySQL 65535 placeholders
+            int maxParameters = database.equals("mssql") ? 2000 : 60000;
+            int maxRows = database.equals("mssql") ? 1000 : 5000;
+            this.rowsPerStatement = Math.max(1, Math.min(maxRows, maxParameters / columns.size()));
+            this.full = connection.prepareStatement(insertSql(table, columns, rowsPerStatement));
+        }
+
+        @Override
+        void insert(List<String[]> rows) throws SQLException {
+            int whole = rows.size() / rowsPerStatement * rowsPerStatement;
+            if (whole > 0) {
+                for (int from = 0; from < whole; from += rowsPerStatement) {
+                    bind(full, rows, from, from + rowsPerStatement);
+                    full.addBatch();
+                }
+                full.executeBatch();
+            }
+            if (whole < rows.size()) {
+                try (PreparedStatement rest = connection.prepareStatement(insertSql(table, columns, rows.size() - whole))) {
+                    bind(rest, rows, whole, rows.size());
+                    rest.executeUpdate();
+                }
+            }
+        }
+
+        private static void bind(PreparedStatement statement, List<String[]> rows, int from, int to) throws SQLException {
+            int parameter = 1;
+            for (int r = from; r < to; r++) {
+                for (String value : rows.get(r)) {
+                    statement.setString(parameter++, value);
+                }
+            }
+        }
+
+        @Override
+        void close() throws SQLException {
+            full.close();
+        }
+    }
+
+    /**
+     * MySQL LOAD DATA LOCAL INFILE fed from memory: each chunk is encoded as tab-separated text and streamed to the
+     * server without a temporary file.
+     */
+    private static final class LoadDataInserter extends Inserter {
+
+        private final Statement statement;
+        private final String sql;
+
+        private LoadDataInserter(Connection connection, String table, List<String> columns) throws SQLException {
+            super(true);
+            this.statement = connection.createStatement();
+            this.sql = "LOAD DATA LOCAL INFILE 'seed.tsv' INTO TABLE " + table
+                    + " CHARACTER SET utf8mb4 FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\' LINES TERMINATED BY '\\n' ("
+                    + String.join(", ", columns) + ")";
+        }
+
+        @Override
+        void insert(List<String[]> rows) throws SQLException {
+            StringBuilder text = new StringBuilder(rows.size() * 64);
+            for (String[] row : rows) {
+                for (int i = 0; i < row.length; i++) {
+                    if (i > 0) {
+                        text.append('\t');
+                    }
+                    appendEscaped(text, row[i]);
+                }
+                text.append('\n');
+            }
+            statement.unwrap(JdbcStatement.class)
+                    .setLocalInfileInputStream(new ByteArrayInputStream(text.toString().getBytes(StandardCharsets.UTF_8)));
+            statement.execute(sql);
+        }
+
+        private static void appendEscaped(StringBuilder text, String value) {
+            if (value == null) {
+                text.append("\\N");
+                return;
+            }
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '\\':
+                        text.append("\\\\");
+                        break;
+                    case '\t':
+                        text.append("\\t");
+                        break;
+                    case '\n':
+                        text.append("\\n");
+                        break;
+                    case '\r':
+                        text.append("\\r");
+                        break;
+                    default:
+                        text.append(c);
+                }
+            }
+        }
+
+        @Override
+        void close() throws SQLException {
+            statement.close();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package common.database;
+
+/**
+ * A database the framework can connect to: MySQL, SQL Server or MongoDB.
+ * Implementations resolve their connection details through ConfigManager on every call, so each environment
+ * (see {@link common.config.ConfigScope}) gets its own pools or clients. {@link DatabaseConnectors} lists them and
+ * warms them up at suite start.
+ */
+public interface DatabaseConnector {
+
+    /**
+     * Returns the database name used in configuration keys, tags and steps.
+     *
+     * @return "mysql", "mssql" or "mongodb".
+     */
+    String getName();
+
+    /**
+     * Returns whether the current configuration names this database, or selects the local stand-in for it.
+     *
+     * @return True if the database can be connected to.
+     */
+    boolean isConfigured();
+
+    /**
+     * Opens the pool or client of the current configuration and its first connection, so the cost of the driver,
+     * network and authentication handshake is paid before the first scenario needs the database.
+     *
+     * @throws RuntimeException If the database cannot be reached.
+     */
+    void warmUp();
+
+    /**
+     * Runs a lightweight round trip against the database.
+     *
+     * @throws RuntimeException If the database does not answer.
+     */
+    void checkHealth();
+
+    /**
+     * Closes every pool or client of this database.
+     */
+    void close();
+}
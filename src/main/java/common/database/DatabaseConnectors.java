@@ -0,0 +1,212 @@
+package common.database;
+
+import common.config.ConfigManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testng.SkipException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The database connectors, their suite-level warm-up and their availability.
+ * <p>
+ * {@link #warmUpIfEnabled()} runs once before the first scenario: every configured database is connected to in
+ * parallel and health-checked, so no scenario pays for the first connection, and a database that cannot be reached is
+ * known up front. Scenarios that need it are then skipped at once through {@link #requireAvailable(String)} instead
+ * of each waiting for its own connection timeout. Warm-up covers the default environment; databases of other
+ * environments are connected on first use as before.
+ * <p>
+ * Settings: {@code db.warmUp.enabled} (default true), {@code db.warmUp.timeout} (default 60s for all databases together)
+ * and {@code db.healthCheck.timeout} (default 5s per check).
+ */
+public final class DatabaseConnectors {
+
+    private static final Logger logger = LogManager.getLogger(DatabaseConnectors.class);
+
+    // Why each database is unavailable, by name and environment; only databases that failed warm-up are listed
+    private static final Map<String, String> unavailable = new ConcurrentHashMap<>();
+
+    // Connectors to close when the JVM exits
+    private static final List<DatabaseConnector> opened = new CopyOnWriteArrayList<>();
+
+    static {
+        // One hook closes every connector's pools and clients on application shutdown
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> opened.forEach(DatabaseConnector::close)));
+    }
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private DatabaseConnectors() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Returns every database connector.
+     *
+     * @return The MySQL, MSSQL and MongoDB connectors.
+     */
+    public static List<DatabaseConnector> all() {
+        return Arrays.asList(MySQLConnector.instance(), MSSQLConnector.instance(), MongoDBConnector.instance());
+    }
+
+    /**
+     * Returns a database connector by name.
+     *
+     * @param name "mysql", "mssql" or "mongodb", in any case.
+     * @return The connector.
+     * @throws IllegalArgumentException If there is no such database.
+     */
+    public static DatabaseConnector get(String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "mysql":
+                return MySQLConnector.instance();
+            case "mssql":
+                return MSSQLConnector.instance();
+            case "mongodb":
+                return MongoDBConnector.instance();
+            default:
+                throw new IllegalArgumentException("Unknown database: " + name);
+        }
+    }
+
+    /**
+     * Returns a JDBC connector by name.
+     *
+     * @param name "mysql" or "mssql", in any case.
+     * @return The connector.
+     * @throws IllegalArgumentException If the name is not a JDBC database.
+     */
+    static JdbcConnector jdbc(String name) {
+        DatabaseConnector connector = get(name);
+        if (!(connector instanceof JdbcConnector)) {
+            throw new IllegalArgumentException("Not a SQL database: " + name);
+        }
+        return (JdbcConnector) connector;
+    }
+
+    /**
+     * Registers a connector to be closed when the JVM exits. Called by the connectors when they are created.
+     *
+     * @param connector The connector.
+     */
+    static void closeOnShutdown(DatabaseConnector connector) {
+        opened.add(connector);
+    }
+
+    /**
+     * Warms up and health-checks every configured database unless {@code db.warmUp.enabled} is false.
+     * Called once at suite start.
+     */
+    public static void warmUpIfEnabled() {
+        if (ConfigManager.getBoolean("db.warmUp.enabled", true)) {
+            warmUp();
+        }
+    }
+
+    /**
+     * Warms up and health-checks every configured database in parallel, and records which ones are unavailable.
+     *
+     * @return The outcome per database: "available", or the reason it is not.
+     */
+    public static Map<String, String> warmUp() {
+        List<DatabaseConnector> configured = new ArrayList<>();
+        for (DatabaseConnector connector : all()) {
+            if (connector.isConfigured()) {
+                configured.add(connector);
+            }
+        }
+        Map<String, String> outcome = new LinkedHashMap<>();
+        if (configured.isEmpty()) {
+            logger.info("No databases configured; skipping warm-up.");
+            return outcome;
+        }
+
+        long start = System.nanoTime();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(configured.size(), runnable -> {
+            Thread thread = new Thread(runnable, "db-warm-up-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Map<DatabaseConnector, CompletableFuture<Void>> checks = new LinkedHashMap<>();
+            for (DatabaseConnector connector : configured) {
+                checks.put(connector, CompletableFuture.runAsync(() -> {
+                    connector.warmUp();
+                    connector.checkHealth();
+                }, executor));
+            }
+            long deadline = start + ConfigManager.getDuration("db.warmUp.timeout", Duration.ofSeconds(60)).toNanos();
+            for (Map.Entry<DatabaseConnector, CompletableFuture<Void>> check : checks.entrySet()) {
+                String name = check.getKey().getName();
+                String reason = null;
+                try {
+                    check.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (ExecutionException e) {
+                    reason = e.getCause().getMessage();
+                } catch (TimeoutException e) {
+                    reason = "no answer within the warm-up timeout";
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    reason = "warm-up interrupted";
+                }
+                if (reason == null) {
+                    unavailable.remove(key(name));
+                    outcome.put(name, "available");
+                } else {
+                    unavailable.put(key(name), reason);
+                    outcome.put(name, reason);
+                    logger.error("Database {} is unavailable; scenarios that need it will be skipped: {}", name, reason);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        logger.info("Database warm-up finished in {} ms: {}", (System.nanoTime() - start) / 1_000_000, outcome);
+        return outcome;
+    }
+
+    /**
+     * Returns whether a database is usable in the current environment: true unless it failed warm-up.
+     *
+     * @param name The database name.
+     * @return False if the database is known to be unreachable.
+     */
+    public static boolean isAvailable(String name) {
+        return !unavailable.containsKey(key(name));
+    }
+
+    /**
+     * Skips the current test if a database failed warm-up.
+     *
+     * @param name The database name.
+     * @throws SkipException If the database is known to be unreachable.
+     */
+    public static void requireAvailable(String name) {
+        String reason = unavailable.get(key(name));
+        if (reason != null) {
+            throw new SkipException("Database " + name + " is unavailable: " + reason);
+        }
+    }
+
+    private static String key(String name) {
+        String environment = ConfigManager.currentEnvironment();
+        return name.toLowerCase(Locale.ROOT) + "|" + (environment != null ? environment : "");
+    }
+}
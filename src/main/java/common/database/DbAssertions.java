@@ -0,0 +1,393 @@
+
+package common.database;
+
+import common.helpers.Await;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Assertions on database state for MySQL and SQL Server, selected by the database name "mysql" or "mssql".
+ * <p>
+ * Expected rows are checked with set-based queries instead of one query per row: the rows are identified by key
+ * columns and fetched in chunks with {@code WHERE key IN (?, ?, ...)} (or OR-ed key tuples for composite keys).
+ * IN lists are padded to a power-of-two length so the statement text repeats and the pool's per-connection
+ * prepared-statement cache is reused. On mismatch the assertion lists every missing row and every differing
+ * column, not only the first.
+ * <p>
+ * Expected values are compared as text, except that two numbers compare by value (10 equals 10.00) and an expected
+ * value of "null" (any case) or an empty value matches SQL NULL.
+ * <p>
+ * The {@code await*} variants retry an assertion through {@link Await} for state that is written asynchronously.
+ */
+public final class DbAssertions {
+
+    private static final Logger logger = LogManager.getLogger(DbAssertions.class);
+
+    // Table and column names must be plain (optionally schema-qualified) identifiers; they cannot be bound
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)?");
+
+    // Bind parameters per query; well below the SQL Server limit of 2100
+    private static final int MAX_PARAMETERS = 1000;
+
+    // Mismatches listed in one failure message before the rest are summarized
+    private static final int MAX_REPORTED = 50;
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private DbAssertions() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Asserts that a table contains every expected row, keyed by the first column of the expected rows.
+     *
+     * @param database The database, "mysql" or "mssql".
+     * @param table    The table name.
+     * @param expected The expected rows; columns not listed are not compared.
+     * @throws AssertionError If rows are missing or differ.
+     */
+    public static void assertTableContains(String database, String table, List<Map<String, String>> expected) {
+        if (expected.isEmpty()) {
+            return;
+        }
+        String key = expected.get(0).keySet().iterator().next();
+        assertTableContains(database, table, expected, Collections.singletonList(key));
+    }
+
+    /**
+     * Asserts that a table contains every expected row.
+     *
+     * @param database   The database, "mysql" or "mssql".
+     * @param table      The table name.
+     * @param expected   The expected rows; columns not listed are not compared.
+     * @param keyColumns The columns that identify a row.
+     * @throws AssertionError If rows are missing or differ.
+     */
+    public static void assertTableContains(String database, String table, List<Map<String, String>> expected,
+                                           List<String> keyColumns) {
+        if (expected.isEmpty()) {
+            return;
+        }
+        identifier(table);
+        keyColumns.forEach(DbAssertions::identifier);
+        Set<String> columns = new LinkedHashSet<>(keyColumns);
+        for (Map<String, String> row : expected) {
+            row.keySet().forEach(DbAssertions::identifier);
+            columns.addAll(row.keySet());
+        }
+
+        long start = System.nanoTime();
+        Map<List<String>, Map<String, String>> actual = fetchByKey(database, table, new ArrayList<>(columns), keyColumns, expected);
+
+        List<String> problems = new ArrayList<>();
+        int failedRows = 0;
+        for (Map<String, String> row : expected) {
+            List<String> key = keyOf(row, keyColumns);
+            Map<String, String> found = actual.get(normalizedKey(key));
+            List<String> rowProblems = new ArrayList<>();
+            if (found == null) {
+                rowProblems.add("missing row " + describe(keyColumns, key));
+            } else {
+                for (Map.Entry<String, String> column : row.entrySet()) {
+                    String actualValue = found.get(column.getKey());
+                    if (!matches(column.getValue(), actualValue)) {
+                        rowProblems.add(describe(keyColumns, key) + ": " + column.getKey() + " expected '"
+                                + column.getValue() + "' but was " + (actualValue == null ? "NULL" : "'" + actualValue + "'"));
+                    }
+                }
+            }
+            if (!rowProblems.isEmpty()) {
+                failedRows++;
+                problems.addAll(rowProblems);
+            }
+        }
+        logger.info("Verified {} expected rows of {}.{} in {} ms.", expected.size(), database, table,
+                (System.nanoTime() - start) / 1_000_000);
+
+        if (!problems.isEmpty()) {
+            StringBuilder message = new StringBuilder()
+                    .append(table).append(": ").append(failedRows).append(" of ").append(expected.size())
+                    .append(" expected rows did not match");
+            for (int i = 0; i < problems.size() && i < MAX_REPORTED; i++) {
+                message.append("\n  ").append(problems.get(i));
+            }
+            if (problems.size() > MAX_REPORTED) {
+                message.append("\n  ... and ").append(problems.size() - MAX_REPORTED).append(" more");
+            }
+            logger.error(message.toString());
+            throw new AssertionError(message.toString());
+        }
+    }
+
+    /**
+     * Waits until a table contains every expected row, keyed by the first column of the expected rows.
+     *
+     * @param database The database, "mysql" or "mssql".
+     * @param table    The table name.
+     * @param expected The expected rows; columns not listed are not compared.
+     * @throws AssertionError The last mismatch, if the rows do not appear before the await timeout.
+     */
+    public static void awaitTableContains(String database, String table, List<Map<String, String>> expected) {
+        Await.untilAsserted(database + "." + table + " contains expected rows",
+                () -> assertTableContains(database, table, expected));
+    }
+
+    /**
+     * Waits until a table contains every expected row.
+     *
+     * @param database   The database, "mysql" or "mssql".
+     * @param table      The table name.
+     * @param expected   The expected rows; columns not listed are not compared.
+     * @param keyColumns The columns that identify a row.
+     * @throws AssertionError The last mismatch, if the rows do not appear before the await timeout.
+     */
+    public static void awaitTableContains(String database, String table, List<Map<String, String>> expected,
+                                          List<String> keyColumns) {
+        Await.untilAsserted(database + "." + table + " contains expected rows",
+                () -> assertTableContains(database, table, expected, keyColumns));
+    }
+
+    /**
+     * Runs a query and returns its rows, for use as an {@link Await} probe, e.g.
+     * {@code Await.until("order 42 shipped", () -> DbAssertions.query("mysql", sql, 42), rows -> !rows.isEmpty())}.
+     *
+     * @param database   The database, "mysql" or "mssql".
+     * @param sql        The query, with {@code ?} placeholders.
+     * @param parameters The parameter values.
+     * @return The rows, with case-insensitive column labels and values as text.
+     * @throws RuntimeException If the query fails.
+     */
+    public static List<Map<String, String>> query(String database, String sql, Object... parameters) {
+        try (Connection connection = connect(database);
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            List<Map<String, String>> rows = new ArrayList<>();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                ResultSetMetaData metaData = resultSet.getMetaData();
+                while (resultSet.next()) {
+                    Map<String, String> row = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+                    for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                        row.put(metaData.getColumnLabel(i), resultSet.getString(i));
+                    }
+                    rows.add(row);
+                }
+            }
+            return rows;
+        } catch (SQLException e) {
+            String errorMsg = "Error running query on " + database + ": " + e.getMessage();
+            logger.error(errorMsg, e);
+            throw new RuntimeException(errorMsg, e);
+        }
+    }
+
+    /**
+     * Asserts the number of rows in a table.
+     *
+     * @param database The database, "mysql" or "mssql".
+     * @param table    The table name.
+     * @param expected The expected row count.
+     * @throws AssertionError If the count differs.
+     */
+    public static void assertRowCount(String database, String table, long expected) {
+        identifier(table);
+        long count;
+        try (Connection connection = connect(database);
+             PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM " + table);
+             ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+            count = resultSet.getLong(1);
+        } catch (SQLException e) {
+            String errorMsg = "Error counting rows of " + table + ": " + e.getMessage();
+            logger.error(errorMsg, e);
+            throw new RuntimeException(errorMsg, e);
+        }
+        if (count != expected) {
+            String errorMsg = table + ": expected " + expected + " rows but found " + count;
+            logger.error(errorMsg);
+            throw new AssertionError(errorMsg);
+        }
+    }
+
+    /**
+     * Fetches the rows whose keys appear in the expected rows, in chunks of bounded IN lists.
+     */
+    private static Map<List<String>, Map<String, String>> fetchByKey(String database, String table, List<String> columns,
+                                                                    List<String> keyColumns, List<Map<String, String>> expected) {
+        // Distinct keys only; duplicated expectations need one lookup
+        Set<List<String>> keys = new LinkedHashSet<>();
+        for (Map<String, String> row : expected) {
+            keys.add(keyOf(row, keyColumns));
+        }
+        List<List<String>> keyList = new ArrayList<>(keys);
+        int chunk = Math.max(1, MAX_PARAMETERS / keyColumns.size());
+
+        Map<List<String>, Map<String, String>> actual = new HashMap<>();
+        try (Connection connection = connect(database)) {
+            for (int from = 0; from < keyList.size(); from += chunk) {
+                List<List<String>> batch = keyList.subList(from, Math.min(keyList.size(), from + chunk));
+                int slots = Integer.highestOneBit(batch.size());
+                slots = slots == batch.size() ? slots : slots << 1;  // Round up to a power of two
+                String sql = selectSql(table, columns, keyColumns, Math.min(slots, chunk));
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    int parameter = 1;
+                    for (int i = 0; i < Math.min(slots, chunk); i++) {
+                        // Padding slots repeat the last key, which does not change the result
+                        List<String> key = batch.get(Math.min(i, batch.size() - 1));
+                        for (String value : key) {
+                            statement.setString(parameter++, value);
+                        }
+                    }
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        readRows(resultSet, keyColumns, actual);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            String errorMsg = "Error reading rows of " + table + ": " + e.getMessage();
+            logger.error(errorMsg, e);
+            throw new RuntimeException(errorMsg, e);
+        }
+        return actual;
+    }
+
+    static String selectSql(String table, List<String> columns, List<String> keyColumns, int keys) {
+        StringBuilder sql = new StringBuilder("SELECT ");
+        sql.append(String.join(", ", columns)).append(" FROM ").append(table).append(" WHERE ");
+        if (keyColumns.size() == 1) {
+            sql.append(keyColumns.get(0)).append(" IN (");
+            for (int i = 0; i < keys; i++) {
+                sql.append(i > 0 ? ", ?" : "?");
+            }
+            sql.append(')');
+        } else {
+            String tuple = "(" + String.join(" = ? AND ", keyColumns) + " = ?)";
+            for (int i = 0; i < keys; i++) {
+                sql.append(i > 0 ? " OR " : "").append(tuple);
+            }
+        }
+        return sql.toString();
+    }
+
+    private static void readRows(ResultSet resultSet, List<String> keyColumns,
+                                 Map<List<String>, Map<String, String>> actual) throws SQLException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        String[] labels = new String[metaData.getColumnCount()];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = metaData.getColumnLabel(i + 1);
+        }
+        while (resultSet.next()) {
+            // Databases may return labels in another case than requested
+            Map<String, String> row = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            for (int i = 0; i < labels.length; i++) {
+                row.put(labels[i], resultSet.getString(i + 1));
+            }
+            actual.putIfAbsent(normalizedKey(keyOf(row, keyColumns)), row);
+        }
+    }
+
+    private static List<String> keyOf(Map<String, String> row, List<String> keyColumns) {
+        String[] key = new String[keyColumns.size()];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = row.get(keyColumns.get(i));
+        }
+        return Arrays.asList(key);
+    }
+
+    /**
+     * Normalizes key parts the way the databases compare them in the IN lookup: numbers by value, so an expected "7"
+     * finds a row whose key the driver renders as "7.00", and text without surrounding blanks (CHAR columns are padded)
+     * and case, as under the default case-insensitive collations of MySQL and SQL Server.
+     */
+    private static List<String> normalizedKey(List<String> key) {
+        List<String> normalized = new ArrayList<>(key.size());
+        for (String part : key) {
+            if (part == null) {
+                normalized.add(null);
+                continue;
+            }
+            String trimmed = part.trim();
+            BigDecimal number = number(trimmed);
+            normalized.add(number != null ? number.stripTrailingZeros().toPlainString() : trimmed.toLowerCase(Locale.ROOT));
+        }
+        return normalized;
+    }
+
+    /**
+     * Compares an expected value with an actual one using the rules described on the class; shared with MongoOperations.
+     */
+    static boolean matches(String expected, String actual) {
+        if (actual == null) {
+            return expected == null || expected.isEmpty() || expected.equalsIgnoreCase("null");
+        }
+        if (expected == null) {
+            return false;
+        }
+        if (expected.equals(actual)) {
+            return true;
+        }
+        BigDecimal expectedNumber = number(expected);
+        BigDecimal actualNumber = number(actual);
+        return expectedNumber != null && actualNumber != null && expectedNumber.compareTo(actualNumber) == 0;
+    }
+
+    private static BigDecimal number(String text) {
+        if (text == null || text.isEmpty()) {
+            return null;
+        }
+        char first = text.charAt(0);
+        if (first != '-' && first != '+' && first != '.' && !Character.isDigit(first)) {
+            return null;  // Cheap rejection before the exception path
+        }
+        try {
+            return new BigDecimal(text.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String describe(List<String> keyColumns, List<String> key) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < keyColumns.size(); i++) {
+            text.append(i > 0 ? ", " : "").append(keyColumns.get(i)).append('=').append(key.get(i));
+        }
+        return text.toString();
+    }
+
+    private static Connection connect(String database) {
+        String name = database.toLowerCase(Locale.ROOT);
+        if (!name.equals("mysql") && !name.equals("mssql")) {
+            throw new IllegalArgumentException("Unsupported database for assertions: " + database);
+        }
+        return DatabaseConnectors.jdbc(name).connection();
+    }
+
+    private static String identifier(String name) {
+        if (!IDENTIFIER.matcher(name).matches()) {
+            String errorMsg = "Invalid table or column name for database assertion: " + name;
+            logger.error(errorMsg);
+            throw new IllegalArgumentException(errorMsg);
+        }
+        return name;
+    }
+}
@@ -0,0 +1,288 @@
+
+package common.database;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Transactional isolation of one thread's database work, typically one scenario tagged {@code @db-isolated}.
+ * <p>
+ * While isolation is active, {@link MySQLConnector#getConnection()} and {@link MSSQLConnector#getConnection()} return
+ * the thread's dedicated connection for that database, opened on first use with auto-commit off. Its handle ignores
+ * {@code close()}, {@code commit()} and {@code setAutoCommit(true)}, and {@code rollback()} returns to the point where
+ * the connection was opened, so code written for ordinary connections keeps working while everything it does stays
+ * inside the transaction. Statements created from the handle answer {@code getConnection()} with the handle. {@link #end()} rolls the transactions back and returns
+ * the connections to their pools, which makes cleanup close to free and lets isolated scenarios run in parallel.
+ * <p>
+ * Named savepoints can be set and rolled back to for nested, step-level undo. Statements that commit implicitly
+ * (DDL such as CREATE or TRUNCATE on MySQL) cannot be isolated.
+ */
+public final class DbIsolation {
+
+    private static final Logger logger = LogManager.getLogger(DbIsolation.class);
+
+    // Isolation state of the current thread, or null when the thread is not isolated
+    private static final ThreadLocal<State> state = new ThreadLocal<>();
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private DbIsolation() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Starts isolating the current thread's database work. Connections are opened lazily, per database.
+     *
+     * @throws IllegalStateException If isolation is already active on this thread.
+     */
+    public static void begin() {
+        if (state.get() != null) {
+            throw new IllegalStateException("Database isolation is already active on this thread.");
+        }
+        state.set(new State());
+    }
+
+    /**
+     * Returns whether the current thread's database work is isolated.
+     *
+     * @return True while isolation is active.
+     */
+    public static boolean isActive() {
+        return state.get() != null;
+    }
+
+    /**
+     * Rolls back all work since {@link #begin()} and returns the connections to their pools. Does nothing if
+     * isolation is not active.
+     */
+    public static void end() {
+        State current = state.get();
+        if (current == null) {
+            return;
+        }
+        state.remove();
+        for (Map.Entry<ConnectionPool, Isolated> entry : current.connections.entrySet()) {
+            Connection connection = entry.getValue().connection;
+            try {
+                connection.rollback();
+                logger.info("Rolled back isolated work on {}.", entry.getKey().getName());
+            } catch (SQLException e) {
+                logger.error("Failed to roll back isolated work on " + entry.getKey().getName(), e);
+            } finally {
+                try {
+                    connection.close();  // Returns it to the pool, which resets auto-commit
+                } catch (SQLException e) {
+                    logger.warn("Failed to return isolated connection to {}: {}", entry.getKey().getName(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Borrows a connection from a pool, or returns the thread's isolated connection for it while isolation is active.
+     *
+     * @param pool The pool of the target database.
+     * @return A connection; close it when done, which is a no-op for the isolated connection.
+     * @throws SQLException If a connection cannot be borrowed.
+     */
+    static Connection borrow(ConnectionPool pool) throws SQLException {
+        State current = state.get();
+        if (current == null) {
+            return pool.getConnection();
+        }
+        Isolated isolated = current.connections.get(pool);
+        if (isolated == null) {
+            Connection connection = pool.getConnection();
+            Savepoint start;
+            try {
+                connection.setAutoCommit(false);
+                start = connection.setSavepoint();
+            } catch (SQLException e) {
+                connection.close();
+                throw e;
+            }
+            isolated = new Isolated(connection, start);
+            current.connections.put(pool, isolated);
+            logger.info("Opened isolated connection on {}.", pool.getName());
+        }
+        return isolated.handle;
+    }
+
+    /**
+     * Sets a named savepoint on every isolated connection opened so far.
+     *
+     * @param name The savepoint name; setting an existing name moves it.
+     * @throws IllegalStateException If isolation is not active.
+     * @throws RuntimeException If the database rejects the savepoint.
+     */
+    public static void savepoint(String name) {
+        State current = active();
+        for (Map.Entry<ConnectionPool, Isolated> entry : current.connections.entrySet()) {
+            Isolated isolated = entry.getValue();
+            try {
+                isolated.savepoints.remove(name);
+                isolated.savepoints.put(name, isolated.connection.setSavepoint(name));
+            } catch (SQLException e) {
+                String errorMsg = "Failed to set savepoint " + name + " on " + entry.getKey().getName() + ": " + e.getMessage();
+                logger.error(errorMsg, e);
+                throw new RuntimeException(errorMsg, e);
+            }
+        }
+        current.savepointNames.remove(name);
+        current.savepointNames.add(name);
+        logger.info("Savepoint {} set.", name);
+    }
+
+    /**
+     * Undoes the work done since a savepoint, on every isolated connection. Savepoints set after it are discarded.
+     * Connections opened after the savepoint are rolled back entirely, since all of their work came after it.
+     *
+     * @param name The savepoint name.
+     * @throws IllegalStateException If isolation is not active or the savepoint does not exist.
+     * @throws RuntimeException If the database rejects the rollback.
+     */
+    public static void rollbackTo(String name) {
+        State current = active();
+        int position = current.savepointNames.indexOf(name);
+        if (position < 0) {
+            throw new IllegalStateException("No savepoint named " + name + " is active.");
+        }
+        List<String> later = new ArrayList<>(current.savepointNames.subList(position + 1, current.savepointNames.size()));
+        for (Map.Entry<ConnectionPool, Isolated> entry : current.connections.entrySet()) {
+            Isolated isolated = entry.getValue();
+            try {
+                Savepoint savepoint = isolated.savepoints.get(name);
+                if (savepoint != null) {
+                    isolated.connection.rollback(savepoint);
+                } else {
+                    isolated.connection.rollback(isolated.start);
+                }
+                later.forEach(isolated.savepoints::remove);
+            } catch (SQLException e) {
+                String errorMsg = "Failed to roll back to savepoint " + name + " on " + entry.getKey().getName() + ": " + e.getMessage();
+                logger.error(errorMsg, e);
+                throw new RuntimeException(errorMsg, e);
+            }
+        }
+        current.savepointNames.removeAll(later);
+        logger.info("Rolled back to savepoint {}.", name);
+    }
+
+    private static State active() {
+        State current = state.get();
+        if (current == null) {
+            throw new IllegalStateException("Database isolation is not active; tag the scenario with @db-isolated.");
+        }
+        return current;
+    }
+
+    /**
+     * The isolated connections and savepoints of one thread.
+     */
+    private static final class State {
+
+        // Isolated connections by pool; one per target database
+        private final Map<ConnectionPool, Isolated> connections = new IdentityHashMap<>();
+
+        // Savepoint names, oldest first
+        private final List<String> savepointNames = new ArrayList<>();
+    }
+
+    /**
+     * One isolated connection, the handle given to callers and its savepoints.
+     */
+    private static final class Isolated implements InvocationHandler {
+
+        private final Connection connection;
+        private final Connection handle;
+        private final Savepoint start;  // Set when the connection was opened; rollback() returns to it
+        private final Map<String, Savepoint> savepoints = new LinkedHashMap<>();
+
+        private Isolated(Connection connection, Savepoint start) {
+            this.connection = connection;
+            this.start = start;
+            this.handle = (Connection) Proxy.newProxyInstance(DbIsolation.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                case "commit":
+                    return null;  // The transaction ends with the isolation scope
+                case "rollback":
+                    if (args == null || args.length == 0) {
+                        // Undoes this connection's work without ending the transaction; later savepoints are gone
+                        connection.rollback(start);
+                        savepoints.clear();
+                        return null;
+                    }
+                    break;
+                case "setAutoCommit":
+                    if (Boolean.TRUE.equals(args[0])) {
+                        return null;
+                    }
+                    break;
+                case "isClosed":
+                    return connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            Object result;
+            try {
+                result = method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            return result instanceof Statement ? statement((Statement) result) : result;
+        }
+
+        /**
+         * Wraps a statement so that {@code getConnection()} returns the handle rather than the real connection.
+         */
+        private Statement statement(Statement statement) {
+            Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                    : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+            return (Statement) Proxy.newProxyInstance(DbIsolation.class.getClassLoader(), new Class<?>[]{type},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "getConnection":
+                                return handle;
+                            case "equals":
+                                return proxy == args[0];
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            default:
+                                break;
+                        }
+                        try {
+                            return method.invoke(statement, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+    }
+}
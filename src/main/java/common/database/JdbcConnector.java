@@ -0,0 +1,159 @@
+package common.database;
+
+import common.config.ConfigManager;
+import common.config.ConfigSnapshot;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared implementation of the JDBC connectors, {@link MySQLConnector} and {@link MSSQLConnector}.
+ * Connections come from a {@link ConnectionPool}, so every caller gets its own connection and must close it to return it.
+ * A pool is created lazily and only once per database URL and user, ensuring thread safety with double-checked locking.
+ * The URL and credentials ({@code <name>.url}, {@code <name>.username}, {@code <name>.password}) are resolved through
+ * ConfigManager on every call, so threads bound to different environments each get connections to their own database.
+ * With {@code db.mode=local} the connections go to an in-memory database instead (see {@link LocalDatabases}).
+ * The JDBC driver is loaded when the connector is created, before any connection attempt.
+ */
+public abstract class JdbcConnector implements DatabaseConnector {
+
+    private final Logger logger;
+    private final String name;
+    private final String label;
+
+    // Connection pools by URL and user name, one per target database
+    private final Map<String, ConnectionPool> pools = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the connector and loads its JDBC driver.
+     *
+     * @param name        The name used in configuration keys, e.g. "mysql".
+     * @param label       The name used in messages, e.g. "MySQL".
+     * @param driverClass The JDBC driver class.
+     */
+    protected JdbcConnector(String name, String label, String driverClass) {
+        this.logger = LogManager.getLogger(getClass());
+        this.name = name;
+        this.label = label;
+        try {
+            Class.forName(driverClass);
+        } catch (ClassNotFoundException e) {
+            logger.error(label + " JDBC Driver not found", e);  // Log error if JDBC driver is not found
+        }
+        DatabaseConnectors.closeOnShutdown(this);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Borrows a connection from the pool of the current thread's configuration.
+     * The caller owns the connection until it closes it, which returns it to the pool; use try-with-resources.
+     * While {@link DbIsolation} is active on the thread, this is the thread's isolated connection instead.
+     *
+     * @return A pooled Connection for the caller's exclusive use.
+     * @throws RuntimeException If the connection fails.
+     */
+    public Connection connection() {
+        try {
+            return DbIsolation.borrow(dataSource());
+        } catch (SQLException e) {
+            logger.error("Failed to connect to " + label + " database", e);  // Log error if connection fails
+            throw new RuntimeException(label + " connection failed", e);  // Throw runtime exception if connection fails
+        }
+    }
+
+    /**
+     * Retrieves the connection pool for the current thread's configuration, creating it on first use.
+     *
+     * @return The ConnectionPool instance.
+     * @throws IllegalStateException If the connection details are not configured.
+     */
+    public ConnectionPool dataSource() {
+        // Retrieve connection details from configuration, all from the same snapshot
+        ConfigSnapshot config = ConfigManager.snapshot();
+        String url = config.get(name + ".url");
+        String username = config.get(name + ".username");
+        String password = config.get(name + ".password");
+        boolean local = LocalDatabases.isLocal(config);
+        if (local) {
+            // In-memory stand-in; see LocalDatabases
+            url = LocalDatabases.jdbcUrl(name, config);
+            username = "sa";
+            password = "";
+        }
+        String target = url + "|" + username;
+
+        ConnectionPool pool = pools.get(target);
+        if (pool == null) {
+            synchronized (this) {
+                pool = pools.get(target);
+                if (pool == null) {
+                    // Validate configuration values
+                    if (!local && (isEmpty(url) || isEmpty(username) || isEmpty(password))) {
+                        throw new IllegalStateException(label + " connection details are not properly configured.");
+                    }
+                    pool = ConnectionPool.create(name, url, username, password, config);
+                    if (local) {
+                        LocalDatabases.runScripts(name, pool, config);  // Schema and seed data, once per database
+                    }
+                    pools.put(target, pool);
+                }
+            }
+        }
+        return pool;
+    }
+
+    @Override
+    public boolean isConfigured() {
+        ConfigSnapshot config = ConfigManager.snapshot();
+        return LocalDatabases.isLocal(config) || !isEmpty(config.get(name + ".url"));
+    }
+
+    @Override
+    public void warmUp() {
+        // Borrowing from the pool itself, never an isolated connection, opens and then keeps the first connection
+        try (Connection ignored = dataSource().getConnection()) {
+            logger.info("{} connection pool warmed up.", label);
+        } catch (SQLException e) {
+            throw new IllegalStateException(label + " is unreachable: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void checkHealth() {
+        int timeoutSeconds = (int) Math.max(1, ConfigManager.getDuration("db.healthCheck.timeout", Duration.ofSeconds(5)).getSeconds());
+        try (Connection connection = dataSource().getConnection()) {
+            if (!connection.isValid(timeoutSeconds)) {
+                throw new IllegalStateException(label + " did not answer within " + timeoutSeconds + " s");
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(label + " health check failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Closes the connection pools.
+     * Every idle connection is closed, freeing up resources; borrowed connections are closed when their borrowers
+     * return them.
+     */
+    @Override
+    public void close() {
+        for (ConnectionPool pool : pools.values()) {
+            pool.close();  // Close the pool and its idle connections
+        }
+        pools.clear();
+        logger.info("{} connection pools closed.", label);  // Log closure success
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.isEmpty();
+    }
+}
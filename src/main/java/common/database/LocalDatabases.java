@@ -0,0 +1,193 @@
+package common.database;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import common.config.ConfigSnapshot;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.Document;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * In-process stand-ins for the MySQL, SQL Server and MongoDB test databases, selected with {@code db.mode=local}.
+ * <p>
+ * The SQL connectors then connect to in-memory H2 databases running in MySQL or MSSQLServer compatibility mode,
+ * one per connector and environment. When a database is first used, the classpath scripts listed in
+ * {@code <name>.local.scripts} run in order; by default these are {@code db/<name>/schema.sql} and
+ * {@code db/<name>/data.sql} from the test resources, each skipped if absent.
+ * <p>
+ * MongoDBConnector connects to an in-memory mongo-java-server bound to a free local port. When a database is first
+ * used, it is seeded from {@code mongodb.local.seed}, a list of {@code collection:resource} entries whose resources
+ * hold one JSON document per line, e.g. {@code mongodb.local.seed=users:db/mongodb/users.jsonl}.
+ * <p>
+ * Nothing leaves the process, so DB-backed scenarios run on laptops and in isolated CI without network access.
+ * The engines only emulate their targets: vendor-specific SQL and Mongo features outside their coverage still need
+ * the real databases.
+ */
+public final class LocalDatabases {
+
+    private static final Logger logger = LogManager.getLogger(LocalDatabases.class);
+
+    // In-memory MongoDB server, started on first use
+    private static MongoServer mongoServer;
+    private static String mongoUri;
+
+    // Mongo databases already seeded, by name
+    private static final Set<String> seededMongoDatabases = new HashSet<>();
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private LocalDatabases() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Returns whether the configuration selects the local databases.
+     *
+     * @param config The configuration.
+     * @return True if {@code db.mode} is "local".
+     */
+    public static boolean isLocal(ConfigSnapshot config) {
+        return "local".equalsIgnoreCase(config.get("db.mode", "remote").trim());
+    }
+
+    /**
+     * Returns the JDBC URL of the local stand-in for a SQL database, or {@code <name>.local.url} if configured.
+     *
+     * @param name   The connector name, "mysql" or "mssql".
+     * @param config The configuration.
+     * @return The H2 in-memory URL, kept open until the JVM exits.
+     */
+    static String jdbcUrl(String name, ConfigSnapshot config) {
+        String configured = config.get(name + ".local.url");
+        if (configured != null && !configured.isEmpty()) {
+            return configured;
+        }
+        String database = "local_" + name + (config.environment() != null ? "_" + config.environment() : "");
+        String mode = "mssql".equals(name)
+                ? "MODE=MSSQLServer;DATABASE_TO_UPPER=FALSE;CASE_INSENSITIVE_IDENTIFIERS=TRUE"
+                : "MODE=MySQL;DATABASE_TO_LOWER=TRUE";
+        return "jdbc:h2:mem:" + database + ";" + mode + ";DB_CLOSE_DELAY=-1";
+    }
+
+    /**
+     * Runs the schema and seed scripts of a local SQL database. Called once, when its pool is created.
+     *
+     * @param name   The connector name, "mysql" or "mssql".
+     * @param pool   The pool of the local database.
+     * @param config The configuration.
+     * @throws IllegalStateException If a configured script is missing or fails.
+     */
+    static void runScripts(String name, ConnectionPool pool, ConfigSnapshot config) {
+        List<String> scripts = config.getList(name + ".local.scripts");
+        boolean required = !scripts.isEmpty();
+        if (!required) {
+            scripts = Arrays.asList("db/" + name + "/schema.sql", "db/" + name + "/data.sql");
+        }
+        try (Connection connection = pool.getConnection();
+             Statement statement = connection.createStatement()) {
+            for (String script : scripts) {
+                String resource = script.startsWith("/") ? script.substring(1) : script;
+                if (LocalDatabases.class.getClassLoader().getResource(resource) == null) {
+                    if (required) {
+                        throw new IllegalStateException("Local database script not found on the classpath: " + resource);
+                    }
+                    continue;
+                }
+                long start = System.nanoTime();
+                statement.execute("RUNSCRIPT FROM 'classpath:/" + resource.replace("'", "''") + "'");
+                logger.info("Ran {} on local {} in {} ms.", resource, name, (System.nanoTime() - start) / 1_000_000);
+            }
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+        } catch (SQLException e) {
+            String errorMsg = "Failed to initialize local " + name + " database: " + e.getMessage();
+            logger.error(errorMsg, e);
+            throw new IllegalStateException(errorMsg, e);
+        }
+    }
+
+    /**
+     * Returns the URI of the in-memory MongoDB server, starting it on first use.
+     *
+     * @return A mongodb:// URI on the loopback interface.
+     */
+    static synchronized String mongoUri() {
+        if (mongoServer == null) {
+            MongoServer server = new MongoServer(new MemoryBackend());
+            InetSocketAddress address = server.bind("127.0.0.1", 0);
+            mongoServer = server;
+            mongoUri = "mongodb://" + address.getHostString() + ":" + address.getPort();
+            logger.info("Started in-memory MongoDB server at {}.", mongoUri);
+            Runtime.getRuntime().addShutdownHook(new Thread(server::shutdownNow));
+        }
+        return mongoUri;
+    }
+
+    /**
+     * Seeds a local Mongo database from {@code mongodb.local.seed} the first time it is used.
+     *
+     * @param database The database.
+     * @param config   The configuration.
+     * @throws IllegalStateException If a seed resource is missing or cannot be read.
+     */
+    static synchronized void seedMongo(MongoDatabase database, ConfigSnapshot config) {
+        if (!seededMongoDatabases.add(database.getName())) {
+            return;
+        }
+        for (String entry : config.getList("mongodb.local.seed")) {
+            int separator = entry.indexOf(':');
+            if (separator <= 0) {
+                throw new IllegalStateException("Invalid mongodb.local.seed entry, expected collection:resource: " + entry);
+            }
+            String collection = entry.substring(0, separator).trim();
+            String resource = entry.substring(separator + 1).trim();
+            List<Document> documents = readDocuments(resource);
+            MongoCollection<Document> target = database.getCollection(collection);
+            if (!documents.isEmpty()) {
+                target.insertMany(documents);
+            }
+            logger.info("Seeded {} documents into local {}.{} from {}.", documents.size(), database.getName(), collection, resource);
+        }
+    }
+
+    private static List<Document> readDocuments(String resource) {
+        String path = resource.startsWith("/") ? resource.substring(1) : resource;
+        InputStream input = LocalDatabases.class.getClassLoader().getResourceAsStream(path);
+        if (input == null) {
+            throw new IllegalStateException("Local MongoDB seed not found on the classpath: " + path);
+        }
+        List<Document> documents = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    documents.add(Document.parse(line));
+                }
+            }
+        } catch (IOException e) {
+            String errorMsg = "Failed to read local MongoDB seed " + path + ": " + e.getMessage();
+            logger.error(errorMsg, e);
+            throw new IllegalStateException(errorMsg, e);
+        }
+        return documents;
+    }
+}
@@ -1,112 +1,66 @@
-
 package common.database;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.SQLException;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
-import common.config.ConfigManager;
 
 /**
- * The MSSQLConnector class is responsible for establishing and managing a connection to a Microsoft SQL Server database.
- * It provides methods to retrieve the connection instance and close the connection.
- * The connection is established lazily and only once, ensuring thread safety with double-checked locking.
- * The class also loads the MSSQL JDBC driver during class initialization to ensure the driver is available before any connection attempts.
+ * The MSSQLConnector class is responsible for establishing and managing connections to a Microsoft SQL Server database.
+ * Connections come from a {@link ConnectionPool}, so every caller gets its own connection and must close it to return it.
+ * The pool is created lazily and only once per database URL and user; see {@link JdbcConnector} for the shared behaviour.
+ * The URL and credentials are resolved through ConfigManager on every call, so threads bound to different environments
+ * (see {@link common.config.ConfigScope}) each get connections to their own database.
+ * With {@code db.mode=local} the connections go to an in-memory database instead (see {@link LocalDatabases}).
+ * The static methods delegate to the single instance, which is also listed by {@link DatabaseConnectors}.
  */
-public class MSSQLConnector {
-
-    // Logger for logging information and errors related to MSSQL connection
-    private static final Logger logger = LogManager.getLogger(MSSQLConnector.class);
+public class MSSQLConnector extends JdbcConnector {
 
-    // MSSQL connection instance, using volatile for thread safety
-    private static volatile Connection connection;
+    // The single MSSQL connector; loads the MSSQL JDBC driver when the class is loaded
+    private static final MSSQLConnector INSTANCE = new MSSQLConnector();
 
-    // Static block to load the MSSQL JDBC driver when the class is loaded
-    static {
-        try {
-            // Load MSSQL JDBC driver
-            Class.forName("com.microsoft.sqlserver.jdbc.SQLServerDriver");
-        } catch (ClassNotFoundException e) {
-            logger.error("MSSQL JDBC Driver not found", e);  // Log error if JDBC driver is not found
-        }
+    /**
+     * Private constructor; the connector is used through its static methods or {@link #instance()}.
+     */
+    private MSSQLConnector() {
+        super("mssql", "MSSQL", "com.microsoft.sqlserver.jdbc.SQLServerDriver");
     }
 
     /**
-     * Private constructor to prevent instantiation of this utility class.
-     * This ensures that the class can only be accessed through static methods.
+     * Returns the MSSQL connector.
+     *
+     * @return The single instance.
      */
-    private MSSQLConnector() {
-        // Private constructor to prevent instantiation
+    public static MSSQLConnector instance() {
+        return INSTANCE;
     }
 
     /**
-     * Retrieves the MSSQL connection instance.
-     * This method ensures that the connection is established only once using double-checked locking.
-     * If the connection is not already established, it initializes the connection using the JDBC DriverManager.
-     * The MSSQL connection details (URL, username, and password) are retrieved from the configuration manager.
+     * Borrows an MSSQL connection from the pool of the current thread's configuration.
+     * The caller owns the connection until it closes it, which returns it to the pool; use try-with-resources.
+     * While {@link DbIsolation} is active on the thread, this is the thread's isolated connection instead.
      *
-     * @return The Connection instance.
+     * @return A pooled Connection for the caller's exclusive use.
      * @throws RuntimeException If the MSSQL connection fails.
      */
     public static Connection getConnection() {
-        if (connection == null) {
-            synchronized (MSSQLConnector.class) {
-                if (connection == null) {
-                    initializeConnection();
-                }
-            }
-        }
-        return connection;
+        return INSTANCE.connection();
     }
 
     /**
-     * Initializes the MSSQL connection using the JDBC DriverManager.
-     * This method is synchronized to ensure thread safety during initialization.
+     * Retrieves the MSSQL connection pool for the current thread's configuration.
+     * The MSSQL connection details (URL, username, and password) are retrieved from the configuration manager.
+     *
+     * @return The ConnectionPool instance.
+     * @throws IllegalStateException If the MSSQL connection details are not configured.
      */
-    private static synchronized void initializeConnection() {
-        try {
-            // Retrieve MSSQL connection details from configuration
-            String url = ConfigManager.get("mssql.url");
-            String username = ConfigManager.get("mssql.username");
-            String password = ConfigManager.get("mssql.password");
-
-            // Validate configuration values
-            if (url == null || url.isEmpty() || username == null || username.isEmpty() || password == null || password.isEmpty()) {
-                throw new IllegalStateException("MSSQL connection details are not properly configured.");
-            }
-
-            // Establish the connection using JDBC
-            connection = DriverManager.getConnection(url, username, password);
-        } catch (SQLException e) {
-            logger.error("Failed to connect to MSSQL database", e);  // Log error if connection fails
-            throw new RuntimeException("MSSQL connection failed", e);  // Throw runtime exception if connection fails
-        }
+    public static ConnectionPool getDataSource() {
+        return INSTANCE.dataSource();
     }
 
     /**
-     * Closes the MSSQL connection.
-     * This method ensures that the MSSQL connection is properly closed, freeing up resources.
-     * If the connection is already closed or an error occurs during closure, it is logged.
+     * Closes the MSSQL connection pools.
+     * This method ensures that every idle MSSQL connection is properly closed, freeing up resources;
+     * borrowed connections are closed when their borrowers return them.
      */
     public static void closeConnection() {
-        if (connection != null) {
-            try {
-                // Check if the connection is still open before attempting to close
-                if (!connection.isClosed()) {
-                    connection.close();  // Close the connection
-                    logger.info("MSSQL connection closed.");  // Log closure success
-                }
-            } catch (SQLException e) {
-                logger.error("Failed to close MSSQL connection", e);  // Log error if closing the connection fails
-            }
-        }
-    }
-
-    // Add shutdown hook to close the connection on application exit
-    static {
-        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            closeConnection();  // Ensure MSSQL connection is closed on application shutdown
-        }));
+        INSTANCE.close();
     }
 }
@@ -0,0 +1,138 @@
+package common.database;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the latency and result size of every MongoDB command in {@link QueryMetrics}.
+ * Commands are fingerprinted by name, collection and the shape of their filter or pipeline, with values replaced by
+ * {@code ?}, e.g. {@code find orders {status: ?, total: {$gt: ?}}}. Handshake and authentication commands are skipped.
+ */
+final class MongoCommandMetrics implements CommandListener {
+
+    // Longest fingerprint kept; deeply nested filters are cut off
+    private static final int MAX_FINGERPRINT_LENGTH = 500;
+
+    private static final Set<String> IGNORED_COMMANDS = new HashSet<>(Arrays.asList(
+            "hello", "ismaster", "isMaster", "saslStart", "saslContinue", "buildInfo", "ping", "endSessions"));
+
+    // Fingerprints of commands in flight, by request id
+    private final Map<Integer, String> started = new ConcurrentHashMap<>();
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        if (!IGNORED_COMMANDS.contains(event.getCommandName())) {
+            started.put(event.getRequestId(), fingerprint(event.getCommandName(), event.getCommand()));
+        }
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        String fingerprint = started.remove(event.getRequestId());
+        if (fingerprint != null) {
+            QueryMetrics.record("mongodb", fingerprint, null, event.getElapsedTime(TimeUnit.NANOSECONDS),
+                    rows(event.getResponse()), false);
+        }
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        String fingerprint = started.remove(event.getRequestId());
+        if (fingerprint != null) {
+            QueryMetrics.record("mongodb", fingerprint, null, event.getElapsedTime(TimeUnit.NANOSECONDS), -1, true);
+        }
+    }
+
+    private static String fingerprint(String commandName, BsonDocument command) {
+        StringBuilder text = new StringBuilder(commandName);
+        BsonValue target = command.get(commandName);
+        if (target != null && target.isString()) {
+            text.append(' ').append(target.asString().getValue());
+        }
+        BsonValue filter = firstOf(command, "filter", "query", "pipeline");
+        if (filter == null) {
+            // Writes carry their filters in statement lists, e.g. {updates: [{q: {...}, u: {...}}]}
+            BsonValue statements = firstOf(command, "updates", "deletes");
+            if (statements != null && statements.isArray() && !statements.asArray().isEmpty()
+                    && statements.asArray().get(0).isDocument()) {
+                filter = statements.asArray().get(0).asDocument().get("q");
+            }
+        }
+        if (filter != null) {
+            text.append(' ');
+            shape(filter, text);
+        }
+        return text.length() > MAX_FINGERPRINT_LENGTH ? text.substring(0, MAX_FINGERPRINT_LENGTH) + "..." : text.toString();
+    }
+
+    private static BsonValue firstOf(BsonDocument document, String... keys) {
+        for (String key : keys) {
+            BsonValue value = document.get(key);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Appends the structure of a value: document keys and operators are kept, values become {@code ?}.
+     */
+    private static void shape(BsonValue value, StringBuilder text) {
+        if (text.length() > MAX_FINGERPRINT_LENGTH) {
+            return;
+        }
+        if (value.isDocument()) {
+            text.append('{');
+            boolean first = true;
+            for (Map.Entry<String, BsonValue> entry : value.asDocument().entrySet()) {
+                text.append(first ? "" : ", ").append(entry.getKey()).append(": ");
+                shape(entry.getValue(), text);
+                first = false;
+            }
+            text.append('}');
+        } else if (value.isArray() && !value.asArray().isEmpty() && value.asArray().get(0).isDocument()) {
+            // Pipelines and $and/$or lists: the shape of each element, repeated shapes once
+            BsonArray array = value.asArray();
+            text.append('[');
+            String previous = null;
+            for (BsonValue element : array) {
+                StringBuilder elementShape = new StringBuilder();
+                shape(element, elementShape);
+                String current = elementShape.toString();
+                if (!current.equals(previous)) {
+                    text.append(previous == null ? "" : ", ").append(current);
+                }
+                previous = current;
+            }
+            text.append(']');
+        } else {
+            text.append('?');
+        }
+    }
+
+    /**
+     * Returns the documents returned or affected by a command, or -1 if the reply does not say.
+     */
+    private static long rows(BsonDocument response) {
+        BsonValue cursor = response.get("cursor");
+        if (cursor != null && cursor.isDocument()) {
+            BsonValue batch = firstOf(cursor.asDocument(), "firstBatch", "nextBatch");
+            return batch != null && batch.isArray() ? batch.asArray().size() : -1;
+        }
+        BsonValue count = response.get("n");
+        return count != null && count.isNumber() ? count.asNumber().longValue() : -1;
+    }
+}
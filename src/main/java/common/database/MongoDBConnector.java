@@ -1,73 +1,150 @@
 
 package common.database;
 
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.MongoClients;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.bson.Document;
 import common.config.ConfigManager;
+import common.config.ConfigSnapshot;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The MongoDBConnector class is responsible for establishing and managing a connection to a MongoDB database.
  * It provides methods to retrieve the database instance and close the connection.
- * The connection is established lazily and only once, ensuring thread safety with double-checked locking.
+ * One client is created lazily per connection URI, ensuring thread safety with double-checked locking.
+ * The URI and database name are resolved through ConfigManager on every call, so threads bound to different environments
+ * (see {@link common.config.ConfigScope}) each get their own database.
+ * Connection pool and socket settings can be tuned with {@code mongodb.pool.maxSize}, {@code mongodb.pool.minSize},
+ * {@code mongodb.pool.maxWaitTime}, {@code mongodb.pool.maxIdleTime}, {@code mongodb.connectTimeout} and
+ * {@code mongodb.readTimeout}; settings that are not configured keep the URI's options or the driver defaults.
+ * With {@code db.mode=local} the client connects to an in-memory server instead (see {@link LocalDatabases}).
+ * Every command is timed in {@link QueryMetrics} unless {@code db.metrics.enabled} is false.
  * This class ensures that resources are properly managed and that errors during connection or disconnection are logged.
+ * The static methods are backed by a single {@link DatabaseConnector} instance, which is listed by {@link DatabaseConnectors}.
  */
-public class MongoDBConnector {
+public class MongoDBConnector implements DatabaseConnector {
 
     // Logger for logging information and errors related to MongoDB connection
     private static final Logger logger = LogManager.getLogger(MongoDBConnector.class);
 
-    // MongoDB client and database instances, using volatile for thread safety
-    private static volatile MongoClient mongoClient;
-    private static volatile MongoDatabase database;
+    // MongoDB clients by connection URI, one per target cluster
+    private static final Map<String, MongoClient> clients = new ConcurrentHashMap<>();
+
+    // The single MongoDB connector
+    private static final MongoDBConnector INSTANCE = new MongoDBConnector();
 
     /**
-     * Private constructor to prevent instantiation of this utility class.
-     * This ensures that the class can only be accessed through static methods.
+     * Private constructor; the connector is used through its static methods or {@link #instance()}.
      */
     private MongoDBConnector() {
-        // Private constructor to prevent instantiation
+        DatabaseConnectors.closeOnShutdown(this);
+    }
+
+    /**
+     * Returns the MongoDB connector.
+     *
+     * @return The single instance.
+     */
+    public static MongoDBConnector instance() {
+        return INSTANCE;
     }
 
     /**
      * Retrieves the MongoDatabase instance.
-     * This method ensures that the connection is established only once using double-checked locking.
-     * If the database is not already connected, it initializes the connection and retrieves the database.
+     * This method ensures that the client for the current thread's URI is created only once using double-checked locking.
+     * If the client is not already connected, it initializes the connection and retrieves the database.
      * The MongoDB URI and database name are retrieved from the configuration manager.
      *
      * @return The MongoDatabase instance.
      * @throws RuntimeException If the MongoDB connection fails.
      */
     public static MongoDatabase getDatabase() {
-        if (database == null) {
+        // Retrieve MongoDB URI and database name from configuration, both from the same snapshot
+        ConfigSnapshot config = ConfigManager.snapshot();
+        String uri = config.get("mongodb.uri");
+        String dbName = config.get("mongodb.database");
+        boolean local = LocalDatabases.isLocal(config);
+        if (local) {
+            // In-memory stand-in; see LocalDatabases
+            uri = LocalDatabases.mongoUri();
+            dbName = dbName == null || dbName.isEmpty() ? "test" : dbName;
+        }
+
+        if (uri == null || uri.isEmpty() || dbName == null || dbName.isEmpty()) {
+            throw new IllegalStateException("MongoDB URI or Database name is not configured.");
+        }
+
+        MongoClient mongoClient = clients.get(uri);
+        if (mongoClient == null) {
             synchronized (MongoDBConnector.class) {
-                if (database == null) {
-                    initializeDatabaseConnection();
+                mongoClient = clients.get(uri);
+                if (mongoClient == null) {
+                    mongoClient = initializeClient(uri, config);
+                    clients.put(uri, mongoClient);
                 }
             }
         }
+        MongoDatabase database = mongoClient.getDatabase(dbName);  // Database handles are lightweight and share the client's pool
+        if (local) {
+            LocalDatabases.seedMongo(database, config);  // Seed documents, once per database
+        }
         return database;
     }
 
     /**
-     * Initializes the MongoDB connection and retrieves the database instance.
-     * This method is synchronized to ensure thread safety during initialization.
+     * Creates a MongoDB client for a connection URI, applying the configured pool and socket settings.
+     *
+     * @param uri    The MongoDB connection URI.
+     * @param config The configuration to read client settings from.
+     * @return The new client.
      */
-    private static synchronized void initializeDatabaseConnection() {
+    private static MongoClient initializeClient(String uri, ConfigSnapshot config) {
         try {
-            // Retrieve MongoDB URI and database name from configuration
-            String uri = ConfigManager.get("mongodb.uri");
-            String dbName = ConfigManager.get("mongodb.database");
-
-            if (uri == null || uri.isEmpty() || dbName == null || dbName.isEmpty()) {
-                throw new IllegalStateException("MongoDB URI or Database name is not configured.");
+            MongoClientSettings.Builder builder = MongoClientSettings.builder()
+                    .applyConnectionString(new ConnectionString(uri))
+                    .applyToConnectionPoolSettings(pool -> {
+                        int maxSize = config.getInt("mongodb.pool.maxSize", -1);
+                        if (maxSize > 0) {
+                            pool.maxSize(maxSize);
+                        }
+                        int minSize = config.getInt("mongodb.pool.minSize", -1);
+                        if (minSize >= 0) {
+                            pool.minSize(minSize);
+                        }
+                        Duration maxWait = config.getDuration("mongodb.pool.maxWaitTime", null);
+                        if (maxWait != null) {
+                            pool.maxWaitTime(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+                        }
+                        Duration maxIdle = config.getDuration("mongodb.pool.maxIdleTime", null);
+                        if (maxIdle != null) {
+                            pool.maxConnectionIdleTime(maxIdle.toMillis(), TimeUnit.MILLISECONDS);
+                        }
+                    })
+                    .applyToSocketSettings(socket -> {
+                        Duration connectTimeout = config.getDuration("mongodb.connectTimeout", null);
+                        if (connectTimeout != null) {
+                            socket.connectTimeout((int) connectTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                        }
+                        Duration readTimeout = config.getDuration("mongodb.readTimeout", null);
+                        if (readTimeout != null) {
+                            socket.readTimeout((int) readTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                        }
+                    });
+            if (config.getBoolean("db.metrics.enabled", true)) {
+                builder.addCommandListener(new MongoCommandMetrics());  // Command latencies for QueryMetrics
             }
-
-            mongoClient = MongoClients.create(uri);  // Create MongoClient with the URI
-            database = mongoClient.getDatabase(dbName);  // Get the database instance
+            MongoClient mongoClient = MongoClients.create(builder.build());  // Create MongoClient with the URI and settings
             logger.info("Connected to MongoDB successfully.");  // Log success
+            return mongoClient;
         } catch (Exception e) {
             logger.error("Failed to connect to MongoDB", e);  // Log error if connection fails
             throw new RuntimeException("MongoDB connection failed", e);  // Throw runtime exception if connection fails
@@ -75,12 +152,12 @@ public class MongoDBConnector {
     }
 
     /**
-     * Closes the MongoDB connection.
-     * This method ensures that the MongoDB client is closed properly, freeing up resources.
+     * Closes the MongoDB connections.
+     * This method ensures that every MongoDB client is closed properly, freeing up resources.
      * If an error occurs during the closing process, it is logged.
      */
     public static void closeConnection() {
-        if (mongoClient != null) {
+        for (MongoClient mongoClient : clients.values()) {
             try {
                 mongoClient.close();  // Close the MongoDB client
                 logger.info("MongoDB connection closed.");  // Log closure success
@@ -88,12 +165,38 @@ public class MongoDBConnector {
                 logger.error("Error occurred while closing MongoDB connection", e);  // Log any error during closure
             }
         }
+        clients.clear();
+    }
+
+    @Override
+    public String getName() {
+        return "mongodb";
+    }
+
+    @Override
+    public boolean isConfigured() {
+        ConfigSnapshot config = ConfigManager.snapshot();
+        String uri = config.get("mongodb.uri");
+        return LocalDatabases.isLocal(config) || (uri != null && !uri.isEmpty());
+    }
+
+    @Override
+    public void warmUp() {
+        checkHealth();  // The client connects lazily; the first command opens its pool
+        logger.info("MongoDB client warmed up.");
+    }
+
+    @Override
+    public void checkHealth() {
+        try {
+            getDatabase().runCommand(new Document("ping", 1));
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("MongoDB health check failed: " + e.getMessage(), e);
+        }
     }
 
-    // Add shutdown hook to close the connection on application exit
-    static {
-        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            closeConnection();  // Ensure MongoDB connection is closed on application shutdown
-        }));
+    @Override
+    public void close() {
+        closeConnection();
     }
 }
@@ -0,0 +1,447 @@
+
+package common.database;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.WriteModel;
+import common.config.ConfigManager;
+import common.datasource.DataSources;
+import common.helpers.Await;
+import common.helpers.DataRow;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Bulk seeding, batched lookups and pipelined verification on top of {@link MongoDBConnector}.
+ * <p>
+ * Writes go through unordered {@code bulkWrite} in batches of {@code mongodb.bulk.batchSize} documents (default 1000).
+ * Lookups of many documents are cut into {@code $in} batches with a projection, and the batches run concurrently on
+ * {@code mongodb.async.parallelism} threads (default 8) over the client's connection pool, so verifying thousands of
+ * documents costs a few overlapped round trips instead of one blocking query per document. The same executor backs
+ * the {@code *Async} methods, which return CompletableFutures for callers that pipeline their own queries. Work
+ * started from inside asynchronous work, e.g. a {@code findIn} in an {@code async} callback, runs inline on the calling
+ * thread, since a fixed pool whose threads all wait for queued work of their own would deadlock.
+ * <p>
+ * The database is resolved on the calling thread, so asynchronous work uses the caller's environment scope, and its
+ * queries count towards the caller's scenario in {@link QueryMetrics}.
+ */
+public final class MongoOperations {
+
+    private static final Logger logger = LogManager.getLogger(MongoOperations.class);
+
+    // Mismatches listed in one failure message before the rest are summarized
+    private static final int MAX_REPORTED = 50;
+
+    // Set on the executor's threads, so nested async work runs inline instead of waiting for a free thread
+    private static final ThreadLocal<Boolean> onExecutor = ThreadLocal.withInitial(() -> false);
+
+    private static final ExecutorService executor = createExecutor();
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private MongoOperations() {
+        // Private constructor to prevent instantiation
+    }
+
+    private static ExecutorService createExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(parallelism(), runnable -> {
+            Thread thread = new Thread(() -> {
+                onExecutor.set(true);
+                runnable.run();
+            }, "mongo-async-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static int parallelism() {
+        return Math.max(1, ConfigManager.getInt("mongodb.async.parallelism", 8));
+    }
+
+    private static int batchSize() {
+        return Math.max(1, ConfigManager.getInt("mongodb.bulk.batchSize", 1000));
+    }
+
+    /**
+     * Runs work against the current thread's database on the async executor. Called from the executor itself, the
+     * work runs inline and the returned future is already complete.
+     *
+     * @param work The work to run.
+     * @param <T>  The result type.
+     * @return A future of the result.
+     */
+    public static <T> CompletableFuture<T> async(Function<MongoDatabase, T> work) {
+        MongoDatabase database = MongoDBConnector.getDatabase();
+        if (onExecutor.get()) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            try {
+                future.complete(work.apply(database));
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+            return future;
+        }
+        Object metricsScope = QueryMetrics.currentScenario();
+        return CompletableFuture.supplyAsync(() -> QueryMetrics.runIn(metricsScope, () -> work.apply(database)), executor);
+    }
+
+    /**
+     * Finds documents asynchronously.
+     *
+     * @param collection The collection name.
+     * @param filter     The query filter.
+     * @param projection The projection, or null for whole documents.
+     * @return A future of the matching documents.
+     */
+    public static CompletableFuture<List<Document>> findAsync(String collection, Bson filter, Bson projection) {
+        return async(database -> database.getCollection(collection).find(filter).projection(projection)
+                .into(new ArrayList<>()));
+    }
+
+    /**
+     * Writes a batch of operations as one unordered bulk write asynchronously.
+     *
+     * @param collection The collection name.
+     * @param models     The write operations.
+     * @return A future of the number of documents inserted, updated or deleted.
+     */
+    public static CompletableFuture<Long> bulkWriteAsync(String collection, List<? extends WriteModel<Document>> models) {
+        return async(database -> affected(database.getCollection(collection), models));
+    }
+
+    private static long affected(MongoCollection<Document> collection, List<? extends WriteModel<Document>> models) {
+        BulkWriteResult result = collection.bulkWrite(models, new BulkWriteOptions().ordered(false));
+        if (!result.wasAcknowledged()) {
+            return models.size();
+        }
+        return (long) result.getInsertedCount() + result.getModifiedCount() + result.getDeletedCount() + result.getUpserts().size();
+    }
+
+    /**
+     * Seeds a collection with every row at a test data location, e.g. "orders.jsonl" or "users.csv".
+     *
+     * @param collection The collection name.
+     * @param location   The test data location, as accepted by {@link DataSources}.
+     * @return The number of documents inserted.
+     * @throws IOException If the test data cannot be read.
+     */
+    public static long seed(String collection, String location) throws IOException {
+        try (Stream<DataRow> rows = DataSources.open(location)) {
+            return seed(collection, rows);
+        }
+    }
+
+    /**
+     * Seeds a collection with rows, one document per row. Dotted column names such as {@code address.city}
+     * (as produced by the flattening JSON reader) become nested documents; values are stored as strings.
+     * Batches are written with unordered bulk writes, several at a time.
+     *
+     * @param collection The collection name.
+     * @param rows       The rows to insert.
+     * @return The number of documents inserted.
+     * @throws RuntimeException If a bulk write fails.
+     */
+    public static long seed(String collection, Stream<DataRow> rows) {
+        long start = System.nanoTime();
+        int batchSize = batchSize();
+        int parallelism = parallelism();
+        Deque<CompletableFuture<Long>> inFlight = new ArrayDeque<>();
+        long inserted = 0;
+        List<InsertOneModel<Document>> batch = new ArrayList<>(batchSize);
+        Iterator<DataRow> iterator = rows.iterator();
+        try {
+            while (iterator.hasNext()) {
+                batch.add(new InsertOneModel<>(toDocument(iterator.next())));
+                if (batch.size() == batchSize || !iterator.hasNext()) {
+                    inFlight.addLast(bulkWriteAsync(collection, batch));
+                    batch = new ArrayList<>(batchSize);
+                    if (inFlight.size() >= parallelism) {
+                        inserted += inFlight.removeFirst().join();  // Bound the number of batches held in memory
+                    }
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                inserted += inFlight.removeFirst().join();
+            }
+        } catch (CompletionException e) {
+            String errorMsg = "Seeding MongoDB collection " + collection + " failed after " + inserted + " documents: "
+                    + e.getCause().getMessage();
+            logger.error(errorMsg, e.getCause());
+            throw new RuntimeException(errorMsg, e.getCause());
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        logger.info("Seeded {} documents into {} in {} s ({} docs/s).", inserted, collection,
+                String.format("%.2f", seconds), String.format("%.0f", inserted / Math.max(seconds, 1e-9)));
+        return inserted;
+    }
+
+    /**
+     * Finds the documents whose field has one of the given values, in concurrent {@code $in} batches.
+     *
+     * @param collection The collection name.
+     * @param field      The field to match, e.g. "_id" or "orderId".
+     * @param values     The values to look up.
+     * @param projection The fields to return, or an empty list for whole documents; a field inside another listed
+     *                   field, such as "address.city" next to "address", is already returned with it.
+     * @return The matching documents, in no particular order.
+     */
+    public static List<Document> findIn(String collection, String field, Collection<?> values, List<String> projection) {
+        Bson fields = projection.isEmpty() ? null : Projections.include(outermostPaths(projection));
+        List<Object> all = new ArrayList<>(values);
+        int batchSize = batchSize();
+        List<CompletableFuture<List<Document>>> batches = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += batchSize) {
+            List<Object> batch = all.subList(from, Math.min(all.size(), from + batchSize));
+            batches.add(findAsync(collection, Filters.in(field, batch), fields));
+        }
+        List<Document> documents = new ArrayList<>(values.size());
+        try {
+            for (CompletableFuture<List<Document>> batch : batches) {
+                documents.addAll(batch.join());
+            }
+        } catch (CompletionException e) {
+            String errorMsg = "Error reading documents of " + collection + ": " + e.getCause().getMessage();
+            logger.error(errorMsg, e.getCause());
+            throw new RuntimeException(errorMsg, e.getCause());
+        }
+        return documents;
+    }
+
+    /**
+     * Asserts that a collection contains every expected document, keyed by the first field of the expected rows.
+     *
+     * @param collection The collection name.
+     * @param expected   The expected field values; dotted names address nested fields.
+     * @throws AssertionError If documents are missing or differ.
+     */
+    public static void assertContains(String collection, List<Map<String, String>> expected) {
+        if (!expected.isEmpty()) {
+            assertContains(collection, expected, expected.get(0).keySet().iterator().next());
+        }
+    }
+
+    /**
+     * Asserts that a collection contains every expected document. Values compare as in {@link DbAssertions}.
+     *
+     * @param collection The collection name.
+     * @param expected   The expected field values; dotted names address nested fields.
+     * @param keyField   The field that identifies a document.
+     * @throws AssertionError If documents are missing or differ.
+     */
+    public static void assertContains(String collection, List<Map<String, String>> expected, String keyField) {
+        if (expected.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        Set<String> fields = new LinkedHashSet<>();
+        fields.add(keyField);
+        Set<Object> keys = new LinkedHashSet<>();
+        for (Map<String, String> row : expected) {
+            fields.addAll(row.keySet());
+            keys.addAll(keyCandidates(row.get(keyField)));
+        }
+
+        Map<String, Document> actual = new HashMap<>();
+        for (Document document : findIn(collection, keyField, keys, new ArrayList<>(fields))) {
+            actual.putIfAbsent(normalized(text(valueAt(document, keyField))), document);
+        }
+
+        List<String> problems = new ArrayList<>();
+        int failed = 0;
+        for (Map<String, String> row : expected) {
+            String key = row.get(keyField);
+            Document document = actual.get(normalized(key));
+            int before = problems.size();
+            if (document == null) {
+                problems.add("missing document " + keyField + "=" + key);
+            } else {
+                for (Map.Entry<String, String> field : row.entrySet()) {
+                    String value = text(valueAt(document, field.getKey()));
+                    if (!DbAssertions.matches(field.getValue(), value)) {
+                        problems.add(keyField + "=" + key + ": " + field.getKey() + " expected '" + field.getValue()
+                                + "' but was " + (value == null ? "missing" : "'" + value + "'"));
+                    }
+                }
+            }
+            if (problems.size() > before) {
+                failed++;
+            }
+        }
+        logger.info("Verified {} expected documents of {} in {} ms.", expected.size(), collection,
+                (System.nanoTime() - start) / 1_000_000);
+
+        if (!problems.isEmpty()) {
+            StringBuilder message = new StringBuilder()
+                    .append(collection).append(": ").append(failed).append(" of ").append(expected.size())
+                    .append(" expected documents did not match");
+            for (int i = 0; i < problems.size() && i < MAX_REPORTED; i++) {
+                message.append("\n  ").append(problems.get(i));
+            }
+            if (problems.size() > MAX_REPORTED) {
+                message.append("\n  ... and ").append(problems.size() - MAX_REPORTED).append(" more");
+            }
+            logger.error(message.toString());
+            throw new AssertionError(message.toString());
+        }
+    }
+
+    /**
+     * Waits until a collection contains every expected document, keyed by the first field of the expected rows.
+     *
+     * @param collection The collection name.
+     * @param expected   The expected field values; dotted names address nested fields.
+     * @throws AssertionError The last mismatch, if the documents do not appear before the await timeout.
+     */
+    public static void awaitContains(String collection, List<Map<String, String>> expected) {
+        Await.untilAsserted("mongodb." + collection + " contains expected documents",
+                () -> assertContains(collection, expected));
+    }
+
+    /**
+     * Counts the documents matching a filter, for use as an {@link Await} probe, e.g.
+     * {@code Await.until("order 42 stored", () -> MongoOperations.count("orders", Filters.eq("orderId", 42)), n -> n > 0)}.
+     *
+     * @param collection The collection name.
+     * @param filter     The query filter.
+     * @return The number of matching documents.
+     */
+    public static long count(String collection, Bson filter) {
+        return MongoDBConnector.getDatabase().getCollection(collection).countDocuments(filter);
+    }
+
+    /**
+     * Converts a row to a document, nesting dotted column names.
+     *
+     * @param row The row.
+     * @return The document.
+     */
+    static Document toDocument(DataRow row) {
+        Document document = new Document();
+        for (int i = 0; i < row.width(); i++) {
+            String name = row.header().name(i);
+            Document target = document;
+            int dot;
+            while ((dot = name.indexOf('.')) > 0) {
+                String parent = name.substring(0, dot);
+                Object child = target.get(parent);
+                if (!(child instanceof Document)) {
+                    child = new Document();
+                    target.put(parent, child);
+                }
+                target = (Document) child;
+                name = name.substring(dot + 1);
+            }
+            target.put(name, row.get(i));
+        }
+        return document;
+    }
+
+    /**
+     * Drops duplicate paths and paths inside another listed path, which MongoDB rejects as a path collision.
+     */
+    private static List<String> outermostPaths(List<String> paths) {
+        Set<String> distinct = new LinkedHashSet<>(paths);
+        List<String> outermost = new ArrayList<>(distinct.size());
+        for (String path : distinct) {
+            boolean covered = false;
+            for (int dot = path.indexOf('.'); dot > 0 && !covered; dot = path.indexOf('.', dot + 1)) {
+                covered = distinct.contains(path.substring(0, dot));
+            }
+            if (!covered) {
+                outermost.add(path);
+            }
+        }
+        return outermost;
+    }
+
+    /**
+     * Key values to query for: the text itself, plus its numeric forms, since seeded and application-written
+     * documents may store the same key as a string or a number.
+     */
+    private static List<Object> keyCandidates(String key) {
+        List<Object> candidates = new ArrayList<>(3);
+        candidates.add(key);
+        if (key != null) {
+            try {
+                long number = Long.parseLong(key.trim());
+                candidates.add(number);
+                if (number >= Integer.MIN_VALUE && number <= Integer.MAX_VALUE) {
+                    candidates.add((int) number);
+                }
+            } catch (NumberFormatException e) {
+                // Not an integer key
+            }
+        }
+        return candidates;
+    }
+
+    private static Object valueAt(Document document, String path) {
+        Object current = document;
+        for (String part : path.split("\\.")) {
+            if (current instanceof Document) {
+                current = ((Document) current).get(part);
+            } else if (current instanceof List && part.chars().allMatch(Character::isDigit)) {
+                List<?> list = (List<?>) current;
+                int index = Integer.parseInt(part);
+                current = index < list.size() ? list.get(index) : null;
+            } else {
+                return null;
+            }
+        }
+        return current;
+    }
+
+    private static String text(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Document) {
+            return ((Document) value).toJson();
+        }
+        if (value instanceof List) {
+            return ((List<?>) value).stream().map(String::valueOf).collect(Collectors.joining(",", "[", "]"));
+        }
+        return value.toString();
+    }
+
+    private static String normalized(String key) {
+        if (key == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(key.trim()).stripTrailingZeros().toPlainString();
+        } catch (NumberFormatException e) {
+            return key;
+        }
+    }
+}
@@ -1,112 +1,66 @@
-
 package common.database;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.SQLException;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
-import common.config.ConfigManager;
 
 /**
- * The MySQLConnector class is responsible for establishing and managing a connection to a MySQL database.
- * It provides methods to retrieve the connection instance and close the connection.
- * The connection is established lazily and only once, ensuring thread safety with double-checked locking.
- * The class also loads the MySQL JDBC driver during class initialization to ensure the driver is available before any connection attempts.
+ * The MySQLConnector class is responsible for establishing and managing connections to a MySQL database.
+ * Connections come from a {@link ConnectionPool}, so every caller gets its own connection and must close it to return it.
+ * The pool is created lazily and only once per database URL and user; see {@link JdbcConnector} for the shared behaviour.
+ * The URL and credentials are resolved through ConfigManager on every call, so threads bound to different environments
+ * (see {@link common.config.ConfigScope}) each get connections to their own database.
+ * With {@code db.mode=local} the connections go to an in-memory database instead (see {@link LocalDatabases}).
+ * The static methods delegate to the single instance, which is also listed by {@link DatabaseConnectors}.
  */
-public class MySQLConnector {
-
-    // Logger for logging information and errors related to MySQL connection
-    private static final Logger logger = LogManager.getLogger(MySQLConnector.class);
+public class MySQLConnector extends JdbcConnector {
 
-    // MySQL connection instance, using volatile for thread safety
-    private static volatile Connection connection;
+    // The single MySQL connector; loads the MySQL JDBC driver when the class is loaded
+    private static final MySQLConnector INSTANCE = new MySQLConnector();
 
-    // Static block to load the MySQL JDBC driver when the class is loaded
-    static {
-        try {
-            // Load MySQL JDBC driver
-            Class.forName("com.mysql.cj.jdbc.Driver");
-        } catch (ClassNotFoundException e) {
-            logger.error("MySQL JDBC Driver not found", e); // Log error if JDBC driver is not found
-        }
+    /**
+     * Private constructor; the connector is used through its static methods or {@link #instance()}.
+     */
+    private MySQLConnector() {
+        super("mysql", "MySQL", "com.mysql.cj.jdbc.Driver");
     }
 
     /**
-     * Private constructor to prevent instantiation of this utility class.
-     * This ensures that the class can only be accessed through static methods.
+     * Returns the MySQL connector.
+     *
+     * @return The single instance.
      */
-    private MySQLConnector() {
-        // Private constructor to prevent instantiation
+    public static MySQLConnector instance() {
+        return INSTANCE;
     }
 
     /**
-     * Retrieves the MySQL connection instance.
-     * This method ensures that the connection is established only once using double-checked locking.
-     * If the connection is not already established, it initializes the connection using the JDBC DriverManager.
-     * The MySQL connection details (URL, username, and password) are retrieved from the configuration manager.
+     * Borrows a MySQL connection from the pool of the current thread's configuration.
+     * The caller owns the connection until it closes it, which returns it to the pool; use try-with-resources.
+     * While {@link DbIsolation} is active on the thread, this is the thread's isolated connection instead.
      *
-     * @return The Connection instance.
+     * @return A pooled Connection for the caller's exclusive use.
      * @throws RuntimeException If the MySQL connection fails.
      */
     public static Connection getConnection() {
-        if (connection == null) {
-            synchronized (MySQLConnector.class) {
-                if (connection == null) {
-                    initializeConnection();
-                }
-            }
-        }
-        return connection; // Return the established connection
+        return INSTANCE.connection();
     }
 
     /**
-     * Initializes the MySQL connection using the JDBC DriverManager.
-     * This method is synchronized to ensure thread safety during initialization.
+     * Retrieves the MySQL connection pool for the current thread's configuration.
+     * The MySQL connection details (URL, username, and password) are retrieved from the configuration manager.
+     *
+     * @return The ConnectionPool instance.
+     * @throws IllegalStateException If the MySQL connection details are not configured.
      */
-    private static synchronized void initializeConnection() {
-        try {
-            // Retrieve MySQL connection details from configuration
-            String url = ConfigManager.get("mysql.url");
-            String username = ConfigManager.get("mysql.username");
-            String password = ConfigManager.get("mysql.password");
-
-            // Validate configuration values
-            if (url == null || url.isEmpty() || username == null || username.isEmpty() || password == null || password.isEmpty()) {
-                throw new IllegalStateException("MySQL connection details are not properly configured.");
-            }
-
-            // Establish the connection using JDBC
-            connection = DriverManager.getConnection(url, username, password);
-        } catch (SQLException e) {
-            logger.error("Failed to connect to MySQL database", e); // Log error if connection fails
-            throw new RuntimeException("MySQL connection failed", e); // Throw runtime exception if connection fails
-        }
+    public static ConnectionPool getDataSource() {
+        return INSTANCE.dataSource();
     }
 
     /**
-     * Closes the MySQL connection.
-     * This method ensures that the MySQL connection is properly closed, freeing up resources.
-     * If the connection is already closed or an error occurs during closure, it is logged.
+     * Closes the MySQL connection pools.
+     * This method ensures that every idle MySQL connection is properly closed, freeing up resources;
+     * borrowed connections are closed when their borrowers return them.
      */
     public static void closeConnection() {
-        if (connection != null) {
-            try {
-                // Check if the connection is still open before attempting to close
-                if (!connection.isClosed()) {
-                    connection.close(); // Close the connection
-                    logger.info("MySQL connection closed."); // Log closure success
-                }
-            } catch (SQLException e) {
-                logger.error("Failed to close MySQL connection", e); // Log error if closing the connection fails
-            }
-        }
-    }
-
-    // Add shutdown hook to ensure the MySQL connection is closed properly when the application exits
-    static {
-        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            closeConnection(); // Ensure MySQL connection is closed on application shutdown
-        }));
+        INSTANCE.close();
     }
 }
@@ -0,0 +1,379 @@
+package common.database;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import common.config.ConfigManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Latency metrics of the queries run through the database connectors.
+ * <p>
+ * {@link ConnectionPool} times every statement execution of the MySQL and MSSQL connectors, and
+ * {@link MongoDBConnector} times every MongoDB command. Queries are grouped by fingerprint: the SQL text with literals
+ * replaced by {@code ?} and repeated IN-list, VALUES and OR-ed tuple groups collapsed, or the Mongo command, collection
+ * and filter shape. Each fingerprint keeps a count, rows returned or affected, and a log-scale latency histogram from
+ * which percentiles are estimated.
+ * <p>
+ * Queries slower than {@code db.slowQueryThreshold} (default 1s) are written to the slow-query log. The current
+ * scenario's database time, rows and connection-pool wait time are totalled separately, see {@link #beginScenario()},
+ * and the run-wide statistics are written to {@code db.metrics.statsFile} (default {@code target/db-query-stats.json}).
+ */
+public final class QueryMetrics {
+
+    private static final Logger logger = LogManager.getLogger(QueryMetrics.class);
+
+    // Dedicated logger, so slow queries can be routed to their own file
+    private static final Logger slowQueryLogger = LogManager.getLogger(QueryMetrics.class.getName() + ".slow");
+
+    // Fingerprints tracked before further ones are counted under one overflow entry
+    private static final int MAX_FINGERPRINTS = 1000;
+
+    // Histogram buckets: bucket i counts latencies in [2^(i-1), 2^i) microseconds; the last one is open-ended
+    private static final int BUCKETS = 28;
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern REPEATED_GROUP = Pattern.compile("(\\([^()]*\\))(?:\\s*,\\s*\\1)+");
+    private static final Pattern REPEATED_OR_GROUP = Pattern.compile("(\\([^()]*\\))(?:\\s+OR\\s+\\1)+", Pattern.CASE_INSENSITIVE);
+
+    // Fingerprints of recently seen SQL texts; prepared statements repeat, so most lookups hit
+    private static final Map<String, String> fingerprints = new ConcurrentHashMap<>();
+
+    // Run-wide statistics by source and fingerprint
+    private static final Map<String, FingerprintStats> stats = new ConcurrentHashMap<>();
+
+    // Totals of the current thread's scenario, or null outside a scenario
+    private static final ThreadLocal<ScenarioTotals> scenario = new ThreadLocal<>();
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private QueryMetrics() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Returns whether query metrics are enabled ({@code db.metrics.enabled}, default true).
+     *
+     * @return True if queries should be timed.
+     */
+    public static boolean isEnabled() {
+        return ConfigManager.getBoolean("db.metrics.enabled", true);
+    }
+
+    /**
+     * Returns the fingerprint of a SQL text.
+     *
+     * @param sql The SQL text.
+     * @return The normalized text, shared by all executions that differ only in literal values or list lengths.
+     */
+    public static String fingerprint(String sql) {
+        if (sql == null) {
+            return "(unknown)";
+        }
+        String fingerprint = fingerprints.get(sql);
+        if (fingerprint == null) {
+            fingerprint = STRING_LITERAL.matcher(sql).replaceAll("?");
+            fingerprint = NUMBER_LITERAL.matcher(fingerprint).replaceAll("?");
+            fingerprint = WHITESPACE.matcher(fingerprint).replaceAll(" ").trim();
+            fingerprint = PLACEHOLDER_LIST.matcher(fingerprint).replaceAll("(?+)");
+            fingerprint = REPEATED_GROUP.matcher(fingerprint).replaceAll("$1, ...");
+            fingerprint = REPEATED_OR_GROUP.matcher(fingerprint).replaceAll("$1 OR ...");
+            if (fingerprints.size() < 10_000) {
+                fingerprints.put(sql, fingerprint);
+            }
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Records one query execution.
+     *
+     * @param source      The database, e.g. "mysql", "mssql" or "mongodb".
+     * @param fingerprint The query fingerprint.
+     * @param detail      The query text for the slow-query log, or null to log the fingerprint.
+     * @param nanos       The execution time.
+     * @param rows        Rows returned or affected, or a negative number if not known yet (see {@link #addRows}).
+     * @param failed      Whether the query failed.
+     * @return The statistics entry, to which rows read later can be added.
+     */
+    static FingerprintStats record(String source, String fingerprint, String detail, long nanos, long rows, boolean failed) {
+        FingerprintStats entry = entry(source, fingerprint);
+        entry.add(nanos, Math.max(0, rows), failed);
+        ScenarioTotals totals = scenario.get();
+        if (totals != null) {
+            totals.add(entry, nanos, Math.max(0, rows));
+        }
+        long thresholdNanos = ConfigManager.getDuration("db.slowQueryThreshold", Duration.ofSeconds(1)).toNanos();
+        if (thresholdNanos > 0 && nanos >= thresholdNanos) {
+            slowQueryLogger.warn("Slow query on {} ({} ms{}{}): {}", source, TimeUnit.NANOSECONDS.toMillis(nanos),
+                    rows >= 0 ? ", " + rows + " rows" : "", failed ? ", failed" : "", detail != null ? detail : fingerprint);
+        }
+        return entry;
+    }
+
+    /**
+     * Adds rows read after execution, e.g. from a result set, to a recorded query.
+     *
+     * @param recorded The entry returned by {@link #record}.
+     * @param rows     The number of rows.
+     */
+    static void addRows(FingerprintStats recorded, long rows) {
+        recorded.rows.add(rows);
+        ScenarioTotals totals = scenario.get();
+        if (totals != null) {
+            totals.addRows(rows);
+        }
+    }
+
+    /**
+     * Records the time a borrower waited for a pooled connection.
+     *
+     * @param source The pool name.
+     * @param nanos  The wait time, including opening or validating the connection.
+     */
+    static void recordPoolWait(String source, long nanos) {
+        ScenarioTotals totals = scenario.get();
+        if (totals != null) {
+            totals.addPoolWait(nanos);
+        }
+    }
+
+    private static FingerprintStats entry(String source, String fingerprint) {
+        String key = source + '\u0000' + fingerprint;
+        FingerprintStats entry = stats.get(key);
+        if (entry == null) {
+            if (stats.size() >= MAX_FINGERPRINTS) {
+                return stats.computeIfAbsent(source + '\u0000', k -> new FingerprintStats(source, "(other queries)"));
+            }
+            entry = stats.computeIfAbsent(key, k -> new FingerprintStats(source, fingerprint));
+        }
+        return entry;
+    }
+
+    /**
+     * Starts totalling the database work of the current thread's scenario.
+     */
+    public static void beginScenario() {
+        scenario.set(new ScenarioTotals());
+    }
+
+    /**
+     * Returns the current thread's scenario totals, to hand to worker threads with {@link #runIn}.
+     *
+     * @return An opaque handle, or null outside a scenario.
+     */
+    public static Object currentScenario() {
+        return scenario.get();
+    }
+
+    /**
+     * Runs work on another thread so that its queries count towards a scenario.
+     *
+     * @param handle The handle from {@link #currentScenario()}, or null.
+     * @param work   The work.
+     * @param <T>    The result type.
+     * @return The work's result.
+     */
+    public static <T> T runIn(Object handle, Supplier<T> work) {
+        if (handle == null) {
+            return work.get();
+        }
+        ScenarioTotals previous = scenario.get();
+        scenario.set((ScenarioTotals) handle);
+        try {
+            return work.get();
+        } finally {
+            if (previous != null) {
+                scenario.set(previous);
+            } else {
+                scenario.remove();
+            }
+        }
+    }
+
+    /**
+     * Stops totalling the current thread's scenario and returns a summary, e.g. for the report.
+     *
+     * @return The summary, or null if the scenario ran no queries.
+     */
+    public static String endScenario() {
+        ScenarioTotals totals = scenario.get();
+        scenario.remove();
+        return totals != null && totals.queries > 0 ? totals.summary() : null;
+    }
+
+    /**
+     * Returns the run-wide statistics per fingerprint, slowest total first.
+     *
+     * @return One map per fingerprint with source, count, errors, rows, total, mean, p50, p95, p99 and max milliseconds.
+     */
+    public static List<Map<String, Object>> statistics() {
+        List<FingerprintStats> entries = new ArrayList<>(stats.values());
+        entries.sort(Comparator.comparingLong((FingerprintStats entry) -> entry.totalNanos.sum()).reversed());
+        List<Map<String, Object>> result = new ArrayList<>(entries.size());
+        for (FingerprintStats entry : entries) {
+            long count = entry.count.sum();
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("source", entry.source);
+            values.put("fingerprint", entry.fingerprint);
+            values.put("count", count);
+            values.put("errors", entry.errors.sum());
+            values.put("rows", entry.rows.sum());
+            values.put("totalMillis", entry.totalNanos.sum() / 1_000_000);
+            values.put("meanMillis", count == 0 ? 0.0 : entry.totalNanos.sum() / 1e6 / count);
+            values.put("p50Millis", entry.percentileMillis(0.50));
+            values.put("p95Millis", entry.percentileMillis(0.95));
+            values.put("p99Millis", entry.percentileMillis(0.99));
+            values.put("maxMillis", entry.maxNanos.get() / 1e6);
+            result.add(values);
+        }
+        return result;
+    }
+
+    /**
+     * Logs the slowest fingerprints and writes all statistics as JSON to {@code db.metrics.statsFile}
+     * (default {@code target/db-query-stats.json}). Called at the end of the run; does nothing if no query ran.
+     */
+    public static void exportStatistics() {
+        if (stats.isEmpty()) {
+            return;
+        }
+        List<Map<String, Object>> result = statistics();
+        for (Map<String, Object> entry : result.subList(0, Math.min(10, result.size()))) {
+            logger.info("Query statistics: {}", entry);
+        }
+        File statsFile = new File(ConfigManager.get("db.metrics.statsFile", "target/db-query-stats.json"));
+        try {
+            File parent = statsFile.getAbsoluteFile().getParentFile();
+            if (parent != null) {
+                parent.mkdirs();
+            }
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(statsFile, result);
+        } catch (IOException e) {
+            logger.warn("Failed to write query statistics to {}: {}", statsFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Run-wide counters and latency histogram of one fingerprint.
+     */
+    static final class FingerprintStats {
+        private final String source;
+        private final String fingerprint;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+        private FingerprintStats(String source, String fingerprint) {
+            this.source = source;
+            this.fingerprint = fingerprint;
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        private void add(long nanos, long rowCount, boolean failed) {
+            count.increment();
+            if (failed) {
+                errors.increment();
+            }
+            rows.add(rowCount);
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            long micros = nanos / 1_000;
+            buckets[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros))].increment();
+        }
+
+        /**
+         * Estimates a percentile as the upper bound of the histogram bucket it falls in, capped at the maximum.
+         */
+        private double percentileMillis(double quantile) {
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets[i].sum();
+                total += counts[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min((1L << i) / 1e3, maxNanos.get() / 1e6);
+                }
+            }
+            return maxNanos.get() / 1e6;
+        }
+    }
+
+    /**
+     * Database work of one scenario. Only touched by the scenario's thread, or by workers it hands the totals to.
+     */
+    private static final class ScenarioTotals {
+        private final Map<FingerprintStats, long[]> byFingerprint = new HashMap<>();
+        private long queries;
+        private long nanos;
+        private long rows;
+        private long poolWaitNanos;
+        private long borrows;
+
+        private synchronized void add(FingerprintStats entry, long queryNanos, long rowCount) {
+            queries++;
+            nanos += queryNanos;
+            rows += rowCount;
+            long[] totals = byFingerprint.computeIfAbsent(entry, key -> new long[2]);
+            totals[0]++;
+            totals[1] += queryNanos;
+        }
+
+        private synchronized void addRows(long rowCount) {
+            rows += rowCount;
+        }
+
+        private synchronized void addPoolWait(long waitNanos) {
+            poolWaitNanos += waitNanos;
+            borrows++;
+        }
+
+        private synchronized String summary() {
+            StringBuilder text = new StringBuilder()
+                    .append("Database time: ").append(TimeUnit.NANOSECONDS.toMillis(nanos)).append(" ms in ")
+                    .append(queries).append(" queries, ").append(rows).append(" rows\n")
+                    .append("Connection pool wait: ").append(TimeUnit.NANOSECONDS.toMillis(poolWaitNanos)).append(" ms over ")
+                    .append(borrows).append(" borrows\n");
+            List<Map.Entry<FingerprintStats, long[]>> entries = new ArrayList<>(byFingerprint.entrySet());
+            entries.sort((a, b) -> Long.compare(b.getValue()[1], a.getValue()[1]));
+            for (Map.Entry<FingerprintStats, long[]> entry : entries.subList(0, Math.min(20, entries.size()))) {
+                text.append(String.format("%n%8.1f ms %5dx  %s  %s", entry.getValue()[1] / 1e6, entry.getValue()[0],
+                        entry.getKey().source, entry.getKey().fingerprint));
+            }
+            return text.toString();
+        }
+    }
+}
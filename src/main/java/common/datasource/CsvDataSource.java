@@ -0,0 +1,35 @@
+
+package common.datasource;
+
+import common.config.ConfigManager;
+import common.helpers.CsvReader;
+import common.helpers.DataRow;
+import common.helpers.TestDataPaths;
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * CSV files ({@code .csv}) in the test data folder.
+ * Files are read with the plain streaming reader. Setting {@code dataSource.csv.mappedThresholdMB} opts files at or
+ * above that size into the memory-mapped parallel parser, which differs from OpenCSV at the edges: it splits records
+ * only on LF (a file using bare CR line endings becomes one chunk) and skips blank lines, which OpenCSV reports as
+ * single-field rows. Either way only matching rows are projected.
+ */
+public class CsvDataSource implements DataSource {
+
+    @Override
+    public boolean supports(String location) {
+        return location.toLowerCase(Locale.ROOT).endsWith(".csv");
+    }
+
+    @Override
+    public Stream<DataRow> open(String location, DataQuery query) throws IOException {
+        // Negative means unset: the mapped parser is opt-in
+        long thresholdMB = ConfigManager.getLong("dataSource.csv.mappedThresholdMB", -1);
+        boolean large = thresholdMB >= 0 && new File(TestDataPaths.resolve(location)).length() >= thresholdMB << 20;
+        Stream<DataRow> rows = large ? CsvReader.streamMapped(location) : CsvReader.stream(location);
+        return query.apply(rows);
+    }
+}
@@ -0,0 +1,294 @@
+
+package common.datasource;
+
+import common.helpers.DataHeader;
+import common.helpers.DataRow;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Immutable column projection and row predicate pushed down to a {@link DataSource}.
+ * The predicate is a conjunction of equality tests written as {@code env=qa and active=true};
+ * {@code !=} negates a test and values may be single-quoted to keep spaces, e.g. {@code name='Jane Doe'}.
+ *
+ * <p>File sources evaluate the predicate against the positional values of each parsed row, with column positions
+ * resolved once per header, and project only the rows that match. Database sources translate it to SQL instead.</p>
+ */
+public final class DataQuery {
+
+    private static final Logger logger = LogManager.getLogger(DataQuery.class);
+
+    private static final DataQuery ALL = new DataQuery(Collections.<String>emptyList(), Collections.<Condition>emptyList());
+
+    // Upper bound on distinct headers planned per stream
+    private static final int MAX_CACHED_PLANS = 256;
+
+    private final List<String> columns;
+    private final List<Condition> conditions;
+
+    private DataQuery(List<String> columns, List<Condition> conditions) {
+        this.columns = columns;
+        this.conditions = conditions;
+    }
+
+    /**
+     * Returns the query that selects every column of every row.
+     *
+     * @return The shared unrestricted query.
+     */
+    public static DataQuery all() {
+        return ALL;
+    }
+
+    /**
+     * Returns a copy of this query that keeps only the given columns, in the given order.
+     *
+     * @param columns The columns to keep; none keeps every column.
+     * @return A new DataQuery.
+     */
+    public DataQuery withColumns(String... columns) {
+        return new DataQuery(Collections.unmodifiableList(new ArrayList<>(Arrays.asList(columns))), conditions);
+    }
+
+    /**
+     * Returns a copy of this query that also requires the given predicate.
+     *
+     * @param predicate Equality tests joined with {@code and}, e.g. {@code env=qa and active=true}.
+     * @return A new DataQuery.
+     * @throws IllegalArgumentException If the predicate cannot be parsed.
+     */
+    public DataQuery withFilter(String predicate) {
+        List<Condition> combined = new ArrayList<>(conditions);
+        combined.addAll(parse(predicate));
+        return new DataQuery(columns, Collections.unmodifiableList(combined));
+    }
+
+    /**
+     * Returns the projected columns.
+     *
+     * @return An unmodifiable list of column names; empty means every column.
+     */
+    public List<String> columns() {
+        return columns;
+    }
+
+    /**
+     * Returns the row conditions, all of which must hold.
+     *
+     * @return An unmodifiable list of conditions.
+     */
+    public List<Condition> conditions() {
+        return conditions;
+    }
+
+    /**
+     * Returns whether this query selects every column of every row.
+     *
+     * @return true if there is neither a projection nor a predicate.
+     */
+    public boolean isUnrestricted() {
+        return columns.isEmpty() && conditions.isEmpty();
+    }
+
+    /**
+     * Filters and projects a row stream. Column positions are resolved once per distinct header,
+     * and non-matching rows are dropped before any projected row is built.
+     *
+     * @param rows The source rows.
+     * @return The matching, projected rows; closing it closes the source stream.
+     */
+    public Stream<DataRow> apply(Stream<DataRow> rows) {
+        if (isUnrestricted()) {
+            return rows;
+        }
+        PlanCache plans = new PlanCache();
+        return rows.filter(row -> plans.plan(row.header()).matches(row))
+                .map(row -> plans.plan(row.header()).project(row));
+    }
+
+    @Override
+    public String toString() {
+        return "select " + (columns.isEmpty() ? "*" : String.join(",", columns))
+                + (conditions.isEmpty() ? "" : " where " + conditions);
+    }
+
+    private static List<Condition> parse(String predicate) {
+        List<Condition> parsed = new ArrayList<>();
+        if (predicate == null || predicate.trim().isEmpty()) {
+            return parsed;
+        }
+        for (String term : splitTerms(predicate)) {
+            boolean negated = term.contains("!=");
+            int split = negated ? term.indexOf("!=") : term.indexOf('=');
+            if (split <= 0) {
+                String errorMsg = "Invalid data filter term '" + term + "' in: " + predicate;
+                logger.error(errorMsg);
+                throw new IllegalArgumentException(errorMsg);
+            }
+            String column = term.substring(0, split).trim();
+            String value = term.substring(split + (negated ? 2 : 1)).trim();
+            if (value.length() >= 2 && value.startsWith("'") && value.endsWith("'")) {
+                value = value.substring(1, value.length() - 1);
+            }
+            parsed.add(new Condition(column, value, negated));
+        }
+        return parsed;
+    }
+
+    /**
+     * Splits on the word "and" (any case) outside single quotes.
+     */
+    private static List<String> splitTerms(String predicate) {
+        List<String> terms = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+        while (i < predicate.length()) {
+            char c = predicate.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (!quoted && Character.isWhitespace(c) && predicate.regionMatches(true, i + 1, "and", 0, 3)
+                    && i + 4 < predicate.length() && Character.isWhitespace(predicate.charAt(i + 4))) {
+                terms.add(current.toString().trim());
+                current.setLength(0);
+                i += 5;
+                continue;
+            }
+            current.append(c);
+            i++;
+        }
+        terms.add(current.toString().trim());
+        return terms;
+    }
+
+    /**
+     * One equality (or inequality) test on a column.
+     */
+    public static final class Condition {
+        private final String column;
+        private final String value;
+        private final boolean negated;
+
+        private Condition(String column, String value, boolean negated) {
+            this.column = column;
+            this.value = value;
+            this.negated = negated;
+        }
+
+        /**
+         * Returns the tested column.
+         *
+         * @return The column name.
+         */
+        public String column() {
+            return column;
+        }
+
+        /**
+         * Returns the value the column is compared with.
+         *
+         * @return The expected value.
+         */
+        public String value() {
+            return value;
+        }
+
+        /**
+         * Returns whether the test is an inequality.
+         *
+         * @return true for {@code !=}, false for {@code =}.
+         */
+        public boolean negated() {
+            return negated;
+        }
+
+        @Override
+        public String toString() {
+            return column + (negated ? "!=" : "=") + value;
+        }
+    }
+
+    /**
+     * The query bound to one header: condition and projection positions resolved up front.
+     */
+    private final class Plan {
+        private final int[] conditionColumns;
+        private final DataHeader projectedHeader;
+        private final int[] projectedColumns;
+
+        private Plan(DataHeader header) {
+            conditionColumns = new int[conditions.size()];
+            for (int i = 0; i < conditionColumns.length; i++) {
+                conditionColumns[i] = header.indexOf(conditions.get(i).column);
+            }
+            if (columns.isEmpty()) {
+                projectedHeader = header;
+                projectedColumns = null;
+            } else {
+                projectedHeader = DataHeader.of(columns.toArray(new String[0]));
+                projectedColumns = new int[columns.size()];
+                for (int i = 0; i < projectedColumns.length; i++) {
+                    projectedColumns[i] = header.indexOf(columns.get(i));
+                    if (projectedColumns[i] < 0) {
+                        logger.warn("Projected column '{}' is not present in {}; it will be empty.", columns.get(i), header);
+                    }
+                }
+            }
+        }
+
+        private boolean matches(DataRow row) {
+            for (int i = 0; i < conditionColumns.length; i++) {
+                Condition condition = conditions.get(i);
+                // A missing column never equals anything
+                boolean equal = conditionColumns[i] >= 0 && condition.value.equals(row.get(conditionColumns[i]));
+                if (equal == condition.negated) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private DataRow project(DataRow row) {
+            if (projectedColumns == null) {
+                return row;
+            }
+            String[] values = new String[projectedColumns.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = projectedColumns[i] >= 0 ? row.get(projectedColumns[i]) : "";
+            }
+            return new DataRow(projectedHeader, values);
+        }
+    }
+
+    /**
+     * Plans per header identity. File sources share one header across rows, so this is almost always a single entry;
+     * JSON record streams intern one header per record shape.
+     */
+    private final class PlanCache {
+        private DataHeader lastHeader;
+        private Plan lastPlan;
+        private final Map<DataHeader, Plan> plans = new IdentityHashMap<>();
+
+        private Plan plan(DataHeader header) {
+            if (header != lastHeader) {
+                Plan plan = plans.get(header);
+                if (plan == null) {
+                    plan = new Plan(header);
+                    if (plans.size() < MAX_CACHED_PLANS) {
+                        plans.put(header, plan);
+                    }
+                }
+                lastHeader = header;
+                lastPlan = plan;
+            }
+            return lastPlan;
+        }
+    }
+}
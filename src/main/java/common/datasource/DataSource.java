@@ -0,0 +1,35 @@
+
+package common.datasource;
+
+import common.helpers.DataRow;
+import java.io.IOException;
+import java.util.stream.Stream;
+
+/**
+ * Service provider interface for test data sources.
+ * A source recognizes the locations it can read (usually by file extension or scheme prefix) and streams their rows
+ * with a {@link DataQuery} applied as early as the format allows. Built-in sources cover CSV, XLSX, JSON and JDBC;
+ * further sources are discovered through {@link java.util.ServiceLoader} from
+ * {@code META-INF/services/common.datasource.DataSource}. See {@link DataSources}.
+ */
+public interface DataSource {
+
+    /**
+     * Returns whether this source can read the given location.
+     *
+     * @param location A test data file name, optionally with a {@code #fragment}, or a scheme-prefixed location.
+     * @return true if {@link #open(String, DataQuery)} accepts the location.
+     */
+    boolean supports(String location);
+
+    /**
+     * Opens a lazy stream over the rows at a location that satisfy the query, projected to its columns.
+     * Closing the stream releases the underlying file or statement; use try-with-resources.
+     *
+     * @param location The location accepted by {@link #supports(String)}.
+     * @param query    The projection and predicate to apply.
+     * @return A sequential stream of matching rows.
+     * @throws IOException If the location cannot be read.
+     */
+    Stream<DataRow> open(String location, DataQuery query) throws IOException;
+}
@@ -0,0 +1,113 @@
+
+package common.datasource;
+
+import common.helpers.DataRow;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.stream.Stream;
+
+/**
+ * Entry point for reading test data through the {@link DataSource} SPI.
+ * A location is matched against sources discovered with {@link ServiceLoader} first, so projects can override
+ * a built-in format, and then against the built-in CSV, XLSX, JSON and JDBC sources.
+ *
+ * <pre>
+ *   try (Stream&lt;DataRow&gt; users = DataSources.open("users.csv", "email,role", "env=qa and active=true")) {
+ *       ...
+ *   }
+ * </pre>
+ */
+public final class DataSources {
+
+    private static final Logger logger = LogManager.getLogger(DataSources.class);
+
+    private static final List<DataSource> sources = discover();
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private DataSources() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Returns the source that reads the given location.
+     *
+     * @param location A test data file name or scheme-prefixed location.
+     * @return The first matching source.
+     * @throws IOException If no source supports the location.
+     */
+    public static DataSource forLocation(String location) throws IOException {
+        for (DataSource source : sources) {
+            if (source.supports(location)) {
+                return source;
+            }
+        }
+        String errorMsg = "No test data source supports: " + location;
+        logger.error(errorMsg);
+        throw new IOException(errorMsg);
+    }
+
+    /**
+     * Opens every row and column at a location.
+     *
+     * @param location A test data file name or scheme-prefixed location.
+     * @return A sequential stream of rows; close it to release the source.
+     * @throws IOException If the location cannot be read.
+     */
+    public static Stream<DataRow> open(String location) throws IOException {
+        return open(location, DataQuery.all());
+    }
+
+    /**
+     * Opens the rows at a location that satisfy a query.
+     *
+     * @param location A test data file name or scheme-prefixed location.
+     * @param query    The projection and predicate to push down.
+     * @return A sequential stream of matching rows; close it to release the source.
+     * @throws IOException If the location cannot be read.
+     */
+    public static Stream<DataRow> open(String location, DataQuery query) throws IOException {
+        logger.info("Opening test data {} ({})", location, query);
+        return forLocation(location).open(location, query);
+    }
+
+    /**
+     * Opens the rows at a location with a projection and predicate given as text, as they appear in feature files.
+     *
+     * @param location  A test data file name or scheme-prefixed location.
+     * @param columns   Comma-separated columns to keep; null or empty keeps every column.
+     * @param predicate Equality tests joined with {@code and}; null or empty keeps every row.
+     * @return A sequential stream of matching rows; close it to release the source.
+     * @throws IOException If the location cannot be read.
+     */
+    public static Stream<DataRow> open(String location, String columns, String predicate) throws IOException {
+        DataQuery query = DataQuery.all();
+        if (columns != null && !columns.trim().isEmpty()) {
+            String[] names = columns.split(",");
+            for (int i = 0; i < names.length; i++) {
+                names[i] = names[i].trim();
+            }
+            query = query.withColumns(names);
+        }
+        return open(location, query.withFilter(predicate));
+    }
+
+    private static List<DataSource> discover() {
+        List<DataSource> discovered = new ArrayList<>();
+        for (DataSource source : ServiceLoader.load(DataSource.class)) {
+            logger.info("Registered test data source: {}", source.getClass().getName());
+            discovered.add(source);
+        }
+        discovered.add(new CsvDataSource());
+        discovered.add(new ExcelDataSource());
+        discovered.add(new JsonDataSource());
+        discovered.add(new JdbcDataSource());
+        return Collections.unmodifiableList(discovered);
+    }
+}
@@ -0,0 +1,41 @@
+
+package common.datasource;
+
+import common.helpers.DataRow;
+import common.helpers.TestDataPaths;
+import common.helpers.XlsxStreamReader;
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Excel workbooks ({@code .xlsx}) in the test data folder, streamed with {@link XlsxStreamReader}.
+ * The first sheet is read unless the location names one, e.g. {@code users.xlsx#Admins}.
+ */
+public class ExcelDataSource implements DataSource {
+
+    @Override
+    public boolean supports(String location) {
+        return fileName(location).toLowerCase(Locale.ROOT).endsWith(".xlsx");
+    }
+
+    @Override
+    public Stream<DataRow> open(String location, DataQuery query) throws IOException {
+        int hash = location.indexOf('#');
+        String sheetName = hash >= 0 ? location.substring(hash + 1) : null;
+        XlsxStreamReader reader = XlsxStreamReader.open(new File(TestDataPaths.resolve(fileName(location))));
+        try {
+            Stream<DataRow> rows = sheetName != null ? reader.rows(sheetName) : reader.rows(0);
+            return query.apply(rows.onClose(reader::close));
+        } catch (IOException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    private static String fileName(String location) {
+        int hash = location.indexOf('#');
+        return hash >= 0 ? location.substring(0, hash) : location;
+    }
+}
@@ -0,0 +1,210 @@
+
+package common.datasource;
+
+import common.database.DbIsolation;
+import common.database.MSSQLConnector;
+import common.database.MySQLConnector;
+import common.helpers.DataHeader;
+import common.helpers.DataRow;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Database rows from a SQL query, addressed as {@code mysql:<select>} or {@code mssql:<select>}.
+ * The query's projection and predicate are pushed into SQL by wrapping the statement as a derived table
+ * ({@code SELECT cols FROM (<select>) q WHERE col = ? AND ...}), so the database returns only matching rows.
+ * Values are bound as parameters; column names must be plain identifiers.
+ * On SQL Server the inner select must not contain ORDER BY unless it also uses TOP.
+ * <p>
+ * Rows are streamed rather than buffered. MySQL Connector/J ignores ordinary fetch sizes and reads the whole result
+ * into memory, so MySQL statements use its streaming mode (fetch size {@link Integer#MIN_VALUE} on a forward-only,
+ * read-only statement), which holds the connection until the stream is closed. While {@link DbIsolation} is active
+ * the connection is shared with the scenario's other database work, so results are buffered instead.
+ */
+public class JdbcDataSource implements DataSource {
+
+    private static final Logger logger = LogManager.getLogger(JdbcDataSource.class);
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    // Rows fetched per round trip; small enough to keep memory flat on large results
+    private static final int FETCH_SIZE = 500;
+
+    // Fetch size that switches MySQL Connector/J to row-by-row streaming
+    private static final int MYSQL_STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    @Override
+    public boolean supports(String location) {
+        return location.startsWith("mysql:") || location.startsWith("mssql:");
+    }
+
+    @Override
+    public Stream<DataRow> open(String location, DataQuery query) throws IOException {
+        int colon = location.indexOf(':');
+        String sql = location.substring(colon + 1).trim();
+        boolean mysql = location.startsWith("mysql:");
+        Connection connection = mysql ? MySQLConnector.getConnection() : MSSQLConnector.getConnection();
+        String statementSql = toSql(sql, query);
+        logger.info("Streaming database rows: {}", statementSql);
+
+        PreparedStatement statement = null;
+        try {
+            statement = connection.prepareStatement(statementSql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            if (!mysql) {
+                statement.setFetchSize(FETCH_SIZE);
+            } else if (!DbIsolation.isActive()) {
+                // A streaming result blocks other statements on the connection until it is closed
+                statement.setFetchSize(MYSQL_STREAMING_FETCH_SIZE);
+            }
+            List<DataQuery.Condition> conditions = query.conditions();
+            for (int i = 0; i < conditions.size(); i++) {
+                statement.setString(i + 1, conditions.get(i).value());
+            }
+            ResultSet resultSet = statement.executeQuery();
+            RowIterator iterator = new RowIterator(connection, statement, resultSet);
+            return StreamSupport.stream(
+                            Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE),
+                            false)
+                    .onClose(iterator::close);
+        } catch (SQLException e) {
+            closeQuietly(statement);
+            closeQuietly(connection);
+            String errorMsg = "Error querying test data from database: " + e.getMessage();
+            logger.error(errorMsg, e);
+            throw new IOException(errorMsg, e);
+        }
+    }
+
+    /**
+     * Wraps a select so the query's projection and predicate run in the database.
+     *
+     * @param sql   The user select statement.
+     * @param query The projection and predicate.
+     * @return The statement text with one {@code ?} per condition.
+     */
+    static String toSql(String sql, DataQuery query) {
+        if (query.isUnrestricted()) {
+            return sql;
+        }
+        StringBuilder wrapped = new StringBuilder("SELECT ");
+        if (query.columns().isEmpty()) {
+            wrapped.append('*');
+        } else {
+            for (int i = 0; i < query.columns().size(); i++) {
+                wrapped.append(i > 0 ? ", " : "").append(identifier(query.columns().get(i)));
+            }
+        }
+        wrapped.append(" FROM (").append(sql).append(") q");
+        List<DataQuery.Condition> conditions = query.conditions();
+        for (int i = 0; i < conditions.size(); i++) {
+            DataQuery.Condition condition = conditions.get(i);
+            wrapped.append(i == 0 ? " WHERE " : " AND ")
+                    .append(identifier(condition.column()))
+                    .append(condition.negated() ? " <> ?" : " = ?");
+        }
+        return wrapped.toString();
+    }
+
+    private static String identifier(String name) {
+        if (!IDENTIFIER.matcher(name).matches()) {
+            String errorMsg = "Invalid column name for database data source: " + name;
+            logger.error(errorMsg);
+            throw new IllegalArgumentException(errorMsg);
+        }
+        return name;
+    }
+
+    private static void closeQuietly(AutoCloseable resource) {
+        if (resource == null) {
+            return;
+        }
+        try {
+            resource.close();
+        } catch (Exception e) {
+            logger.warn("Failed to close database resource: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Pulls rows from the result set one at a time. The result set, statement and pooled connection
+     * are closed when the rows run out or the stream is closed.
+     */
+    private static final class RowIterator implements Iterator<DataRow> {
+
+        private final Connection connection;
+        private final PreparedStatement statement;
+        private final ResultSet resultSet;
+        private final DataHeader header;
+        private DataRow next;
+        private boolean finished;
+
+        private RowIterator(Connection connection, PreparedStatement statement, ResultSet resultSet) throws SQLException {
+            this.connection = connection;
+            this.statement = statement;
+            this.resultSet = resultSet;
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            String[] names = new String[metaData.getColumnCount()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = metaData.getColumnLabel(i + 1);
+            }
+            this.header = DataHeader.of(names);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !finished) {
+                next = advance();
+            }
+            return next != null;
+        }
+
+        @Override
+        public DataRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            DataRow row = next;
+            next = null;
+            return row;
+        }
+
+        private DataRow advance() {
+            try {
+                if (resultSet.next()) {
+                    String[] values = new String[header.size()];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = resultSet.getString(i + 1);
+                    }
+                    return new DataRow(header, values);
+                }
+            } catch (SQLException e) {
+                close();
+                throw new UncheckedIOException(new IOException("Error reading database rows: " + e.getMessage(), e));
+            }
+            close();
+            return null;
+        }
+
+        private void close() {
+            finished = true;
+            closeQuietly(resultSet);
+            closeQuietly(statement);
+            closeQuietly(connection);  // Returns the connection to its pool
+        }
+    }
+}
@@ -0,0 +1,27 @@
+
+package common.datasource;
+
+import common.helpers.DataRow;
+import common.helpers.JsonReader;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * JSON record files in the test data folder: a top-level array or single object ({@code .json}),
+ * or JSON Lines ({@code .jsonl}, {@code .ndjson}). Nested fields are flattened, so filters and projections can
+ * address them with dotted keys such as {@code address.city}.
+ */
+public class JsonDataSource implements DataSource {
+
+    @Override
+    public boolean supports(String location) {
+        String name = location.toLowerCase(Locale.ROOT);
+        return name.endsWith(".json") || name.endsWith(".jsonl") || name.endsWith(".ndjson");
+    }
+
+    @Override
+    public Stream<DataRow> open(String location, DataQuery query) throws IOException {
+        return query.apply(JsonReader.stream(location, true));
+    }
+}
@@ -0,0 +1,259 @@
+package common.helpers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import common.config.ConfigManager;
+import common.config.ConfigSnapshot;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Polls eventually-consistent state until a condition holds, in place of fixed sleeps.
+ * <p>
+ * The first poll runs immediately and the next {@code await.fastPolls} (default 3) follow after
+ * {@code await.pollDelay} (default 50ms), so state that is already or almost there costs next to nothing. After that
+ * the delay doubles up to {@code await.maxPollInterval} (default 2s), with equal jitter so that parallel scenarios do
+ * not poll a backend in lockstep. A wait gives up after {@code await.timeout} (default 30s) or at the scenario
+ * deadline set by {@link #beginScenario(Duration)}, whichever comes first.
+ * <p>
+ * Time spent waiting is recorded per condition, both for the current scenario ({@link #endScenario()}) and for the
+ * whole run ({@link #statistics()}), which shows which backends are slow to converge.
+ */
+public final class Await {
+
+    private static final Logger logger = LogManager.getLogger(Await.class);
+
+    // Deadline of the current thread's scenario, in System.nanoTime() terms, or null when there is none
+    private static final ThreadLocal<Long> scenarioDeadline = new ThreadLocal<>();
+
+    // Waits of the current thread's scenario, in the order they finished
+    private static final ThreadLocal<List<String>> scenarioWaits = new ThreadLocal<>();
+
+    // Run-wide statistics by condition description
+    private static final Map<String, ConditionStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private Await() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Polls until a probed value satisfies a condition, within the configured timeout.
+     *
+     * @param condition A short description of the condition, e.g. "order 42 is SHIPPED"; statistics are kept per description.
+     * @param probe     Reads the current state; an exception counts as "not yet".
+     * @param accept    Decides whether the state is the awaited one.
+     * @param <T>       The probed value type.
+     * @return The first value that satisfied the condition.
+     * @throws AssertionError If the condition does not hold before the timeout or the scenario deadline.
+     */
+    public static <T> T until(String condition, Callable<T> probe, Predicate<? super T> accept) {
+        return until(condition, probe, accept, ConfigManager.getDuration("await.timeout", Duration.ofSeconds(30)));
+    }
+
+    /**
+     * Polls until a probed value satisfies a condition, within the given timeout.
+     *
+     * @param condition A short description of the condition; statistics are kept per description.
+     * @param probe     Reads the current state; an exception counts as "not yet".
+     * @param accept    Decides whether the state is the awaited one.
+     * @param timeout   The longest time to wait; the scenario deadline still applies.
+     * @param <T>       The probed value type.
+     * @return The first value that satisfied the condition.
+     * @throws AssertionError If the condition does not hold before the timeout or the scenario deadline.
+     */
+    public static <T> T until(String condition, Callable<T> probe, Predicate<? super T> accept, Duration timeout) {
+        ConfigSnapshot config = ConfigManager.snapshot();
+        long delay = config.getDuration("await.pollDelay", Duration.ofMillis(50)).toNanos();
+        long maxDelay = Math.max(delay, config.getDuration("await.maxPollInterval", Duration.ofSeconds(2)).toNanos());
+        int fastPolls = config.getInt("await.fastPolls", 3);
+
+        long start = System.nanoTime();
+        long deadline = start + timeout.toNanos();
+        Long scenarioLimit = scenarioDeadline.get();
+        if (scenarioLimit != null && scenarioLimit - deadline < 0) {
+            deadline = scenarioLimit;
+        }
+
+        int polls = 0;
+        T last = null;
+        Throwable lastFailure = null;
+        while (true) {
+            polls++;
+            try {
+                last = probe.call();
+                lastFailure = null;
+                if (accept.test(last)) {
+                    record(condition, start, polls, true);
+                    return last;
+                }
+            } catch (Exception | AssertionError e) {
+                lastFailure = e;
+            }
+
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            long pause = delay;
+            if (polls > fastPolls) {
+                delay = Math.min(maxDelay, delay * 2);
+                pause = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);  // Equal jitter
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(Math.min(pause, remaining));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                record(condition, start, polls, false);
+                throw new IllegalStateException("Interrupted while waiting until " + condition, e);
+            }
+        }
+
+        long waited = record(condition, start, polls, false);
+        String errorMsg = "Condition not met within " + waited + " ms (" + polls + " polls"
+                + (scenarioLimit != null && deadline == scenarioLimit ? ", scenario deadline reached" : "") + "): " + condition
+                + (lastFailure != null ? "; last error: " + lastFailure.getMessage() : "; last value: " + last);
+        logger.error(errorMsg);
+        AssertionError error = new AssertionError(errorMsg);
+        if (lastFailure != null) {
+            error.initCause(lastFailure);
+        }
+        throw error;
+    }
+
+    /**
+     * Polls an assertion until it passes, within the configured timeout. Useful to retry existing assertions such as
+     * set-based database checks.
+     *
+     * @param condition A short description of the condition; statistics are kept per description.
+     * @param assertion The assertion; throwing AssertionError or any exception counts as "not yet".
+     * @throws AssertionError The assertion's last failure, if it does not pass before the timeout or the scenario deadline.
+     */
+    public static void untilAsserted(String condition, Runnable assertion) {
+        until(condition, () -> {
+            assertion.run();
+            return Boolean.TRUE;
+        }, passed -> true);
+    }
+
+    /**
+     * Sets a deadline for all waits of the current thread's scenario, so a scenario cannot spend more than its budget
+     * waiting no matter how many conditions it awaits.
+     *
+     * @param budget The scenario's total time budget, or null or zero for no deadline.
+     */
+    public static void beginScenario(Duration budget) {
+        if (budget != null && !budget.isZero() && !budget.isNegative()) {
+            scenarioDeadline.set(System.nanoTime() + budget.toNanos());
+        } else {
+            scenarioDeadline.remove();
+        }
+        scenarioWaits.set(new ArrayList<>());
+    }
+
+    /**
+     * Clears the current thread's scenario deadline and returns its waits.
+     *
+     * @return One line per wait of the scenario, e.g. "order 42 is SHIPPED: met after 850 ms, 6 polls".
+     */
+    public static List<String> endScenario() {
+        List<String> waits = scenarioWaits.get();
+        scenarioDeadline.remove();
+        scenarioWaits.remove();
+        return waits != null ? waits : Collections.emptyList();
+    }
+
+    private static long record(String condition, long start, int polls, boolean met) {
+        long nanos = System.nanoTime() - start;
+        long millis = nanos / 1_000_000;
+        stats.computeIfAbsent(condition, key -> new ConditionStats()).add(nanos, polls, met);
+        List<String> waits = scenarioWaits.get();
+        if (waits != null) {
+            waits.add(condition + ": " + (met ? "met" : "timed out") + " after " + millis + " ms, " + polls + " polls");
+        }
+        logger.info("Waited {} ms ({} polls) until {}: {}", millis, polls, condition, met ? "met" : "timed out");
+        return millis;
+    }
+
+    /**
+     * Returns run-wide wait statistics per condition: waits, timeouts, polls, total and longest wait time.
+     *
+     * @return The statistics, by condition description.
+     */
+    public static Map<String, Object> statistics() {
+        Map<String, Object> result = new TreeMap<>();
+        for (Map.Entry<String, ConditionStats> entry : stats.entrySet()) {
+            ConditionStats condition = entry.getValue();
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("waits", condition.waits.sum());
+            values.put("timeouts", condition.timeouts.sum());
+            values.put("polls", condition.polls.sum());
+            values.put("totalWaitMillis", condition.totalNanos.sum() / 1_000_000);
+            values.put("maxWaitMillis", condition.maxNanos.get() / 1_000_000);
+            result.put(entry.getKey(), values);
+        }
+        return result;
+    }
+
+    /**
+     * Logs the wait statistics and writes them as JSON to {@code await.statsFile} (default
+     * {@code target/await-stats.json}). Called at the end of the run; does nothing if no condition was awaited.
+     */
+    public static void exportStatistics() {
+        if (stats.isEmpty()) {
+            return;
+        }
+        Map<String, Object> result = statistics();
+        logger.info("Await statistics: {}", result);
+        File statsFile = new File(ConfigManager.get("await.statsFile", "target/await-stats.json"));
+        try {
+            File parent = statsFile.getAbsoluteFile().getParentFile();
+            if (parent != null) {
+                parent.mkdirs();
+            }
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(statsFile, result);
+        } catch (IOException e) {
+            logger.warn("Failed to write await statistics to {}: {}", statsFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Run-wide counters of one condition.
+     */
+    private static final class ConditionStats {
+        private final LongAdder waits = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder polls = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private void add(long nanos, int pollCount, boolean met) {
+            waits.increment();
+            if (!met) {
+                timeouts.increment();
+            }
+            polls.add(pollCount);
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+}
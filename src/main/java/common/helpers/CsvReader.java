@@ -3,70 +3,198 @@ package common.helpers;
 
 import com.opencsv.CSVReader;
 import com.opencsv.exceptions.CsvValidationException;
-import common.config.ConfigManager;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.HashMap;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Reads data from a CSV file using OpenCSV.
  * The file path is dynamically built using the ConfigManager to get the base directory and the file name passed by the Step Definitions (SDs).
+ * When a fresh build-time {@link DataSnapshot} of the file exists, {@link #readCsv(String)} serves it instead of parsing.
+ * Large files should be consumed through {@link #stream(String)}, which reads one row at a time and shares a single header across all rows.
  */
 public class CsvReader {
 
     private static final Logger logger = LogManager.getLogger(CsvReader.class);
 
+    /**
+     * Reads every row of a CSV file.
+     * Results are served from the shared {@link TestDataCache} while the file is unchanged, so the returned list
+     * and its rows are immutable and shared with other callers.
+     *
+     * @param fileName The CSV file name relative to the test data folder.
+     * @return An unmodifiable list of rows.
+     * @throws IOException If the file cannot be read.
+     */
     public static List<Map<String, String>> readCsv(String fileName) throws IOException {
-        // Get the base directory path for the test data folder
-        String basePath = ConfigManager.get("testDataFolderLocation");
-        if (basePath == null || basePath.isEmpty()) {
-            String errorMsg = "Base directory for test data folder is not defined in config.properties.";
-            logger.error(errorMsg);
-            throw new IOException(errorMsg);
+        String filePath = TestDataPaths.resolve(fileName);
+        Path source = Paths.get(filePath);
+        return TestDataCache.get(source, "csv", () -> {
+            DataSnapshot snapshot = DataSnapshot.forSource(fileName, source);
+            return snapshot != null ? snapshot.rows() : loadCsv(filePath);
+        });
+    }
+
+    /**
+     * Parses every row of a CSV file into an unmodifiable list.
+     *
+     * @param filePath The complete file path.
+     * @return An unmodifiable list of rows.
+     * @throws IOException If the file cannot be read.
+     */
+    static List<Map<String, String>> loadCsv(String filePath) throws IOException {
+        List<Map<String, String>> data = new ArrayList<>();
+        try (Stream<DataRow> rows = streamFile(filePath)) {
+            rows.forEach(data::add);
+        } catch (UncheckedIOException e) {
+            String errorMsg = "Error reading CSV file: " + e.getCause().getMessage();
+            logger.error(errorMsg, e);
+            throw e.getCause();
         }
 
-        // Append the file name to the base path to form the complete file path
-        String filePath = basePath + fileName;
-        logger.info("Reading CSV file from: {}", filePath);
+        logger.info("CSV file successfully read with {} rows.", data.size());
+        return Collections.unmodifiableList(data);
+    }
 
-        List<Map<String, String>> data = new ArrayList<>();
-        try (CSVReader reader = new CSVReader(new FileReader(filePath))) {
-            String[] headers = reader.readNext();
-            if (headers == null) {
-                String errorMsg = "CSV file is empty.";
-                logger.error(errorMsg);
-                throw new IOException(errorMsg);
-            }
+    /**
+     * Opens a lazy stream over the rows of a CSV file.
+     * Rows are parsed on demand and all of them share one {@link DataHeader}, so memory use does not grow with the file size.
+     * The underlying file is closed when the stream is exhausted or closed; use try-with-resources when the stream may be abandoned early.
+     *
+     * @param fileName The CSV file name relative to the test data folder.
+     * @return A sequential stream of rows.
+     * @throws IOException If the file cannot be opened or has no header row.
+     */
+    public static Stream<DataRow> stream(String fileName) throws IOException {
+        return streamFile(TestDataPaths.resolve(fileName));
+    }
 
-            String[] row;
-            while ((row = reader.readNext()) != null) {
-                if (row.length != headers.length) {
-                    logger.warn("Row length does not match header length: {}", String.join(",", row));
-                    continue;
-                }
+    private static Stream<DataRow> streamFile(String filePath) throws IOException {
+        logger.info("Streaming CSV file from: {}", filePath);
 
-                Map<String, String> rowData = new HashMap<>();
-                for (int i = 0; i < headers.length; i++) {
-                    rowData.put(headers[i], row[i]);
-                }
-                data.add(rowData);
-            }
+        CSVReader reader = new CSVReader(new FileReader(filePath));
+        String[] headers;
+        try {
+            headers = reader.readNext();
         } catch (CsvValidationException e) {
+            closeQuietly(reader);
             String errorMsg = "Error validating CSV file: " + e.getMessage();
             logger.error(errorMsg, e);
             throw new IOException(errorMsg, e);
         } catch (IOException e) {
-            String errorMsg = "Error reading CSV file: " + e.getMessage();
-            logger.error(errorMsg, e);
+            closeQuietly(reader);
             throw e;
         }
 
-        logger.info("CSV file successfully read with {} rows.", data.size());
-        return data;
+        if (headers == null) {
+            closeQuietly(reader);
+            String errorMsg = "CSV file is empty.";
+            logger.error(errorMsg);
+            throw new IOException(errorMsg);
+        }
+
+        Iterator<DataRow> iterator = new RowIterator(reader, DataHeader.of(headers));
+        return StreamSupport.stream(
+                        Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE),
+                        false)
+                .onClose(() -> closeQuietly(reader));
+    }
+
+    /**
+     * Opens an ordered stream over a large CSV file using the memory-mapped, parallel {@link MappedCsvParser}.
+     * Prefer this over {@link #stream(String)} for multi-GB files; small files are faster through the plain stream.
+     *
+     * @param fileName The CSV file name relative to the test data folder.
+     * @return A sequential stream of rows in file order.
+     * @throws IOException If the file cannot be opened or has no header row.
+     */
+    public static Stream<DataRow> streamMapped(String fileName) throws IOException {
+        String filePath = TestDataPaths.resolve(fileName);
+        logger.info("Streaming CSV file with memory-mapped parser from: {}", filePath);
+        return new MappedCsvParser().stream(Paths.get(filePath));
+    }
+
+    private static void closeQuietly(CSVReader reader) {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close CSV reader: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Pulls rows from OpenCSV one at a time, skipping rows whose length does not match the header.
+     * The reader is closed as soon as the last row has been consumed.
+     */
+    private static final class RowIterator implements Iterator<DataRow> {
+
+        private final CSVReader reader;
+        private final DataHeader header;
+        private DataRow next;
+        private boolean finished;
+
+        private RowIterator(CSVReader reader, DataHeader header) {
+            this.reader = reader;
+            this.header = header;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !finished) {
+                next = advance();
+            }
+            return next != null;
+        }
+
+        @Override
+        public DataRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            DataRow row = next;
+            next = null;
+            return row;
+        }
+
+        private DataRow advance() {
+            try {
+                String[] row;
+                while ((row = reader.readNext()) != null) {
+                    if (row.length != header.size()) {
+                        logger.warn("Row length does not match header length: {}", String.join(",", row));
+                        continue;
+                    }
+                    // OpenCSV allocates a fresh array per row, so it can back the row directly
+                    return new DataRow(header, row);
+                }
+            } catch (CsvValidationException e) {
+                finish();
+                throw new UncheckedIOException(new IOException("Error validating CSV file: " + e.getMessage(), e));
+            } catch (IOException e) {
+                finish();
+                throw new UncheckedIOException(e);
+            }
+            finish();
+            return null;
+        }
+
+        private void finish() {
+            finished = true;
+            closeQuietly(reader);
+        }
     }
 }
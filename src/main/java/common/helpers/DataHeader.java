@@ -0,0 +1,114 @@
+
+package common.helpers;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable column table shared by every {@link DataRow} read from the same source.
+ * The header strings and the name-to-index lookup are held once per file instead of once per row,
+ * which keeps large data files cheap to hold in memory.
+ */
+public final class DataHeader {
+
+    // Column names in file order
+    private final String[] names;
+
+    // Column name to position lookup, built once for the whole file
+    private final Map<String, Integer> index;
+
+    // Positions of the columns a row exposes as map keys, in file order; a duplicated name appears once
+    private final int[] keyColumns;
+
+    private DataHeader(String[] names) {
+        this.names = names;
+        this.index = new HashMap<>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            // Last occurrence wins for duplicated column names, as when each row was filled into a HashMap
+            index.put(names[i], i);
+        }
+        this.keyColumns = new int[index.size()];
+        int key = 0;
+        for (int i = 0; i < names.length; i++) {
+            if (index.get(names[i]) == i) {
+                keyColumns[key++] = i;
+            }
+        }
+    }
+
+    /**
+     * Creates a header from the given column names.
+     *
+     * @param names The column names in file order.
+     * @return A new DataHeader instance.
+     */
+    public static DataHeader of(String... names) {
+        return new DataHeader(names.clone());
+    }
+
+    /**
+     * Returns the number of columns.
+     *
+     * @return The column count.
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Returns the number of distinct column names, i.e. the size of a row seen as a map.
+     *
+     * @return The distinct column count.
+     */
+    int keyCount() {
+        return keyColumns.length;
+    }
+
+    /**
+     * Returns the position of the n-th distinct column name: the column a row's map entry reads from.
+     *
+     * @param key The zero-based key number.
+     * @return The zero-based column position.
+     */
+    int keyColumn(int key) {
+        return keyColumns[key];
+    }
+
+    /**
+     * Returns the column name at the given position.
+     *
+     * @param column The zero-based column position.
+     * @return The column name.
+     */
+    public String name(int column) {
+        return names[column];
+    }
+
+    /**
+     * Returns the position of the given column.
+     *
+     * @param name The column name.
+     * @return The zero-based column position, or -1 if the column does not exist.
+     */
+    public int indexOf(Object name) {
+        Integer position = index.get(name);
+        return position != null ? position : -1;
+    }
+
+    /**
+     * Returns the column names as an unmodifiable list.
+     *
+     * @return The column names in file order.
+     */
+    public List<String> names() {
+        return Collections.unmodifiableList(Arrays.asList(names));
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(names);
+    }
+}
@@ -0,0 +1,113 @@
+
+package common.helpers;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Flyweight, read-only row of test data.
+ * Every row of a file references the same {@link DataHeader} and keeps only its own values in a compact array,
+ * so a row costs one array instead of a HashMap with a copy of every header string.
+ * The class implements {@code Map<String, String>} so existing Step Definitions keep working unchanged.
+ */
+public final class DataRow extends AbstractMap<String, String> {
+
+    private final DataHeader header;
+    private final String[] values;
+
+    /**
+     * Creates a row backed by the given values array.
+     * The array is not copied; callers hand over ownership and must not modify it afterwards.
+     *
+     * @param header The header shared by all rows of the source.
+     * @param values The row values, one per header column.
+     */
+    public DataRow(DataHeader header, String[] values) {
+        if (values.length != header.size()) {
+            throw new IllegalArgumentException("Row has " + values.length + " values but header has " + header.size() + " columns.");
+        }
+        this.header = header;
+        this.values = values;
+    }
+
+    /**
+     * Returns the header shared by this row.
+     *
+     * @return The DataHeader instance.
+     */
+    public DataHeader header() {
+        return header;
+    }
+
+    /**
+     * Returns the number of columns, the bound for {@link #get(int)}.
+     * This can exceed {@link #size()}, which counts distinct column names.
+     *
+     * @return The number of values in the row.
+     */
+    public int width() {
+        return values.length;
+    }
+
+    /**
+     * Returns the value at the given column position.
+     *
+     * @param column The zero-based column position.
+     * @return The column value.
+     */
+    public String get(int column) {
+        return values[column];
+    }
+
+    @Override
+    public String get(Object key) {
+        int column = header.indexOf(key);
+        return column >= 0 ? values[column] : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return header.indexOf(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return header.keyCount();
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+        return new AbstractSet<Map.Entry<String, String>>() {
+            @Override
+            public Iterator<Map.Entry<String, String>> iterator() {
+                return new Iterator<Map.Entry<String, String>>() {
+                    private int key;
+
+                    @Override
+                    public boolean hasNext() {
+                        return key < header.keyCount();
+                    }
+
+                    @Override
+                    public Map.Entry<String, String> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        // Duplicated column names yield one entry, holding the value get() returns
+                        int column = header.keyColumn(key++);
+                        return new SimpleImmutableEntry<>(header.name(column), values[column]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return header.keyCount();
+            }
+        };
+    }
+}
@@ -0,0 +1,327 @@
+
+package common.helpers;
+
+import common.config.ConfigManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Compact, memory-mappable binary snapshot of a tabular test data file.
+ * Snapshots are produced at build time by {@link SnapshotCompiler} and picked up transparently by the readers
+ * whenever they were compiled from the current version of the source file.
+ *
+ * <p>Layout (big-endian):</p>
+ * <pre>
+ *   magic "UTFSNAP" + version byte
+ *   long  source last-modified millis, long source size
+ *   int   column count, int row count, int dictionary size
+ *   long  dictionary offset, long columns offset          (offset index)
+ *   int[] column-name dictionary ids
+ *   dictionary: int[size + 1] byte offsets, then the UTF-8 bytes of every distinct string
+ *   columns:    one int[rowCount] of dictionary ids per column, column after column
+ * </pre>
+ * Every distinct string is stored once, so repetitive data (environments, flags, statuses) collapses to a few ids.
+ * Opening a snapshot only maps the file; strings are decoded on first use and rows are materialized on access.
+ */
+public final class DataSnapshot {
+
+    private static final Logger logger = LogManager.getLogger(DataSnapshot.class);
+
+    private static final byte[] MAGIC = {'U', 'T', 'F', 'S', 'N', 'A', 'P', 1};
+    private static final int FIXED_HEADER_BYTES = MAGIC.length + 8 + 8 + 4 + 4 + 4 + 8 + 8;
+
+    /** File name suffix appended to the source file name. */
+    public static final String SUFFIX = ".snap";
+
+    private final MappedByteBuffer buffer;
+    private final long sourceLastModified;
+    private final long sourceSize;
+    private final int rowCount;
+    private final int dictionarySize;
+    private final int dictionaryOffset;
+    private final int columnsOffset;
+    private final DataHeader header;
+
+    // Decoded dictionary strings; filled lazily and racily, which is safe because Strings are immutable
+    private final String[] strings;
+
+    private DataSnapshot(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        byte[] magic = new byte[MAGIC.length];
+        bytesAt(0, magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a test data snapshot or unsupported snapshot version.");
+        }
+        int position = MAGIC.length;
+        this.sourceLastModified = buffer.getLong(position);
+        this.sourceSize = buffer.getLong(position + 8);
+        int columnCount = buffer.getInt(position + 16);
+        this.rowCount = buffer.getInt(position + 20);
+        this.dictionarySize = buffer.getInt(position + 24);
+        this.dictionaryOffset = (int) buffer.getLong(position + 28);
+        this.columnsOffset = (int) buffer.getLong(position + 36);
+        this.strings = new String[dictionarySize];
+
+        String[] names = new String[columnCount];
+        for (int c = 0; c < columnCount; c++) {
+            names[c] = string(buffer.getInt(FIXED_HEADER_BYTES + 4 * c));
+        }
+        this.header = DataHeader.of(names);
+    }
+
+    /**
+     * Maps a snapshot file.
+     *
+     * @param file The snapshot file.
+     * @return The mapped snapshot.
+     * @throws IOException If the file cannot be mapped or is not a snapshot.
+     */
+    public static DataSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot larger than 2 GB: " + file);
+            }
+            // The mapping stays valid after the channel is closed
+            return new DataSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Opens the snapshot of a source file if one exists and was compiled from the current version of the source.
+     *
+     * @param snapshotFile The candidate snapshot file.
+     * @param sourceFile   The source data file.
+     * @return The snapshot, or null if it is missing, stale or unreadable.
+     */
+    public static DataSnapshot openIfFresh(Path snapshotFile, Path sourceFile) {
+        if (!Files.isRegularFile(snapshotFile)) {
+            return null;
+        }
+        try {
+            BasicFileAttributes source = Files.readAttributes(sourceFile, BasicFileAttributes.class);
+            DataSnapshot snapshot = open(snapshotFile);
+            if (snapshot.sourceLastModified != source.lastModifiedTime().toMillis() || snapshot.sourceSize != source.size()) {
+                logger.info("Ignoring stale snapshot {}; source {} has changed.", snapshotFile, sourceFile);
+                return null;
+            }
+            logger.info("Using snapshot {} for {}.", snapshotFile, sourceFile);
+            return snapshot;
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable snapshot {}: {}", snapshotFile, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Opens the build-time snapshot of a test data file if it is fresh.
+     * Snapshots live under {@code testDataSnapshotLocation} (default {@code target/test-data-snapshots/}),
+     * mirroring the file names used under the test data folder. A relative location is resolved against the project
+     * directory Maven passes as {@code basedir}, falling back to the working directory.
+     *
+     * @param fileName   The file name relative to the test data folder, as passed by the Step Definitions.
+     * @param sourceFile The resolved source data file.
+     * @return The snapshot, or null if none matches the current source.
+     */
+    public static DataSnapshot forSource(String fileName, Path sourceFile) {
+        Path snapshotFolder = Paths.get(ConfigManager.get("testDataSnapshotLocation", "target/test-data-snapshots/"));
+        if (!snapshotFolder.isAbsolute()) {
+            snapshotFolder = Paths.get(System.getProperty("basedir", "")).toAbsolutePath().resolve(snapshotFolder);
+        }
+        return openIfFresh(snapshotFolder.resolve(fileName + SUFFIX), sourceFile);
+    }
+
+    /**
+     * Returns the shared header of the snapshot rows.
+     *
+     * @return The DataHeader instance.
+     */
+    public DataHeader header() {
+        return header;
+    }
+
+    /**
+     * Returns the number of rows.
+     *
+     * @return The row count.
+     */
+    public int rowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Returns the value of one cell without materializing its row.
+     *
+     * @param row    The zero-based row index.
+     * @param column The zero-based column index.
+     * @return The cell value.
+     */
+    public String value(int row, int column) {
+        return string(buffer.getInt(columnsOffset + 4 * (column * rowCount + row)));
+    }
+
+    /**
+     * Returns an immutable, random-access view of the rows. Rows are materialized on access.
+     *
+     * @return An unmodifiable list of rows backed by the mapped file.
+     */
+    public List<Map<String, String>> rows() {
+        return new RowList();
+    }
+
+    private String string(int id) {
+        String value = strings[id];
+        if (value == null) {
+            int start = buffer.getInt(dictionaryOffset + 4 * id);
+            int end = buffer.getInt(dictionaryOffset + 4 * (id + 1));
+            byte[] bytes = new byte[end - start];
+            bytesAt(dictionaryOffset + 4 * (dictionarySize + 1) + start, bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+            strings[id] = value;
+        }
+        return value;
+    }
+
+    private void bytesAt(int position, byte[] target) {
+        // Absolute reads on a private duplicate keep the shared buffer free of position state
+        ByteBuffer view = buffer.duplicate();
+        view.position(position);
+        view.get(target);
+    }
+
+    /**
+     * Writes a snapshot of the given rows. The file is written to a temporary sibling and moved into place,
+     * so readers never observe a half-written snapshot.
+     *
+     * @param target             The snapshot file to write.
+     * @param header             The column header.
+     * @param rows               The rows, each with one value per header column.
+     * @param sourceLastModified The last-modified time of the source file, in millis.
+     * @param sourceSize         The size of the source file in bytes.
+     * @return The number of rows written.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    public static int write(Path target, DataHeader header, Iterator<? extends Map<String, String>> rows,
+                            long sourceLastModified, long sourceSize) throws IOException {
+        Map<String, Integer> ids = new HashMap<>();
+        List<byte[]> dictionary = new ArrayList<>();
+        int columnCount = header.size();
+        int[] names = new int[columnCount];
+        for (int c = 0; c < columnCount; c++) {
+            names[c] = intern(header.name(c), ids, dictionary);
+        }
+
+        int capacity = 64;
+        int[][] columns = new int[columnCount][capacity];
+        int rowCount = 0;
+        while (rows.hasNext()) {
+            Map<String, String> row = rows.next();
+            if (rowCount == capacity) {
+                capacity *= 2;
+                for (int c = 0; c < columnCount; c++) {
+                    columns[c] = Arrays.copyOf(columns[c], capacity);
+                }
+            }
+            for (int c = 0; c < columnCount; c++) {
+                String value = row.get(header.name(c));
+                columns[c][rowCount] = intern(value != null ? value : "", ids, dictionary);
+            }
+            rowCount++;
+        }
+
+        long dictionaryBytes = 0;
+        for (byte[] bytes : dictionary) {
+            dictionaryBytes += bytes.length;
+        }
+        long dictionaryOffset = FIXED_HEADER_BYTES + 4L * columnCount;
+        long columnsOffset = dictionaryOffset + 4L * (dictionary.size() + 1) + dictionaryBytes;
+        long total = columnsOffset + 4L * columnCount * rowCount;
+        if (total > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot would exceed 2 GB: " + target);
+        }
+
+        ByteBuffer out = ByteBuffer.allocate((int) total);
+        out.put(MAGIC);
+        out.putLong(sourceLastModified).putLong(sourceSize);
+        out.putInt(columnCount).putInt(rowCount).putInt(dictionary.size());
+        out.putLong(dictionaryOffset).putLong(columnsOffset);
+        for (int name : names) {
+            out.putInt(name);
+        }
+        int offset = 0;
+        for (byte[] bytes : dictionary) {
+            out.putInt(offset);
+            offset += bytes.length;
+        }
+        out.putInt(offset);
+        for (byte[] bytes : dictionary) {
+            out.put(bytes);
+        }
+        for (int c = 0; c < columnCount; c++) {
+            for (int r = 0; r < rowCount; r++) {
+                out.putInt(columns[c][r]);
+            }
+        }
+
+        Path parent = target.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, target.getFileName().toString(), ".tmp");
+        try (OutputStream stream = Files.newOutputStream(temp)) {
+            stream.write(out.array());
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return rowCount;
+    }
+
+    private static int intern(String value, Map<String, Integer> ids, List<byte[]> dictionary) {
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = dictionary.size();
+            ids.put(value, id);
+            dictionary.add(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return id;
+    }
+
+    /**
+     * Random-access row view over the mapped columns.
+     */
+    final class RowList extends AbstractList<Map<String, String>> implements RandomAccess {
+
+        @Override
+        public Map<String, String> get(int index) {
+            if (index < 0 || index >= rowCount) {
+                throw new IndexOutOfBoundsException("Row " + index + " of " + rowCount);
+            }
+            String[] values = new String[header.size()];
+            for (int c = 0; c < values.length; c++) {
+                values[c] = value(index, c);
+            }
+            return new DataRow(header, values);
+        }
+
+        @Override
+        public int size() {
+            return rowCount;
+        }
+    }
+}
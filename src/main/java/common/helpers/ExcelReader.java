@@ -3,37 +3,85 @@ package common.helpers;
 
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-import common.config.ConfigManager;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * Reads data from an Excel file using Apache POI.
  * The file path is dynamically built using the ConfigManager to get the base directory and the file name passed by the Step Definitions (SDs).
+ * When a fresh build-time {@link DataSnapshot} of the file exists, {@link #readExcel(String)} serves it instead of parsing.
  */
 public class ExcelReader {
 
     private static final Logger logger = LogManager.getLogger(ExcelReader.class);
 
+    /**
+     * Reads every row of the first sheet of an Excel file.
+     * Results are served from the shared {@link TestDataCache} while the file is unchanged, so the returned list
+     * and its rows are immutable and shared with other callers.
+     *
+     * @param fileName The Excel file name relative to the test data folder.
+     * @return An unmodifiable list of rows.
+     * @throws IOException If the file cannot be read.
+     */
     public static List<Map<String, String>> readExcel(String fileName) throws IOException {
-        // Get the base directory path for the test data folder
-        String basePath = ConfigManager.get("testDataFolderLocation");
-        if (basePath == null || basePath.isEmpty()) {
-            String errorMsg = "Base directory for test data folder is not defined in config.properties.";
-            logger.error(errorMsg);
-            throw new IOException(errorMsg);
+        return readExcel(fileName, FormulaMode.FORMULA_TEXT);
+    }
+
+    /**
+     * Reads every row of the first sheet of an Excel file, reporting formula cells as the given mode requires.
+     * Results are cached per mode; build-time snapshots hold formula text and are only used for {@link FormulaMode#FORMULA_TEXT}.
+     *
+     * @param fileName    The Excel file name relative to the test data folder.
+     * @param formulaMode How formula cells are reported.
+     * @return An unmodifiable list of rows.
+     * @throws IOException If the file cannot be read.
+     */
+    public static List<Map<String, String>> readExcel(String fileName, FormulaMode formulaMode) throws IOException {
+        String filePath = TestDataPaths.resolve(fileName);
+        Path source = Paths.get(filePath);
+        if (formulaMode != FormulaMode.FORMULA_TEXT) {
+            return TestDataCache.get(source, "excel:" + formulaMode, () -> loadExcel(filePath, formulaMode));
         }
+        return TestDataCache.get(source, "excel", () -> {
+            DataSnapshot snapshot = DataSnapshot.forSource(fileName, source);
+            return snapshot != null ? snapshot.rows() : loadExcel(filePath);
+        });
+    }
+
+    /**
+     * Parses every row of the first sheet of an Excel file into an unmodifiable list.
+     *
+     * @param filePath The complete file path.
+     * @return An unmodifiable list of rows.
+     * @throws IOException If the file cannot be read.
+     */
+    static List<Map<String, String>> loadExcel(String filePath) throws IOException {
+        return loadExcel(filePath, FormulaMode.FORMULA_TEXT);
+    }
 
-        // Append the file name to the base path to form the complete file path
-        String filePath = basePath + fileName;
-        logger.info("Reading Excel file from: {}", filePath);
+    /**
+     * Parses every row of the first sheet of an Excel file into an unmodifiable list.
+     * For {@link FormulaMode#EVALUATED} one evaluator serves the whole workbook, so cells that feed several
+     * formulas are evaluated once.
+     *
+     * @param filePath    The complete file path.
+     * @param formulaMode How formula cells are reported.
+     * @return An unmodifiable list of rows.
+     * @throws IOException If the file cannot be read.
+     */
+    static List<Map<String, String>> loadExcel(String filePath, FormulaMode formulaMode) throws IOException {
+        logger.info("Reading Excel file from: {} (formulas as {})", filePath, formulaMode);
 
         List<Map<String, String>> data = new ArrayList<>();
 
@@ -58,6 +106,8 @@ public class ExcelReader {
             for (Cell cell : headerRow) {
                 headers.add(cell.getStringCellValue());
             }
+            DataHeader header = DataHeader.of(headers.toArray(new String[0]));
+            CellConverter converter = new CellConverter(workbook, formulaMode);
 
             for (int i = 1; i <= sheet.getLastRowNum(); i++) {
                 Row row = sheet.getRow(i);
@@ -66,23 +116,89 @@ public class ExcelReader {
                     continue;
                 }
 
-                Map<String, String> rowData = new HashMap<>();
+                String[] values = new String[headers.size()];
                 for (int j = 0; j < headers.size(); j++) {
                     Cell cell = row.getCell(j);
-                    String cellValue = (cell != null) ? getCellValueAsString(cell) : "";
-                    rowData.put(headers.get(j), cellValue);
+                    values[j] = (cell != null) ? converter.convert(cell) : "";
                 }
-                data.add(rowData);
+                data.add(new DataRow(header, values));
             }
 
             logger.info("Excel file successfully read. Total rows processed: {}", data.size());
+            if (converter.fallbacks > 0) {
+                logger.warn("{} formula cells could not be evaluated and use their cached results.", converter.fallbacks);
+            }
         } catch (IOException e) {
             String errorMsg = "Error reading Excel file: " + e.getMessage();
             logger.error(errorMsg, e);
             throw e;
         }
 
-        return data;
+        return Collections.unmodifiableList(data);
+    }
+
+    /**
+     * Opens a lazy stream over the rows of the first sheet without building the workbook DOM.
+     * Rows are parsed on demand with the event-based {@link XlsxStreamReader}, so memory use stays constant
+     * regardless of sheet size. The workbook is closed when the stream is closed; use try-with-resources.
+     *
+     * @param fileName The Excel file name relative to the test data folder.
+     * @return A sequential stream of rows from the first sheet.
+     * @throws IOException If the file cannot be opened or the first sheet has no header row.
+     */
+    public static Stream<DataRow> streamExcel(String fileName) throws IOException {
+        return streamExcel(fileName, FormulaMode.FORMULA_TEXT);
+    }
+
+    /**
+     * Opens a lazy stream over the rows of the first sheet, reporting formula cells as the given mode requires.
+     * Streaming cannot evaluate formulas, so {@link FormulaMode#EVALUATED} reports the cached results.
+     *
+     * @param fileName    The Excel file name relative to the test data folder.
+     * @param formulaMode How formula cells are reported.
+     * @return A sequential stream of rows from the first sheet.
+     * @throws IOException If the file cannot be opened or the first sheet has no header row.
+     */
+    public static Stream<DataRow> streamExcel(String fileName, FormulaMode formulaMode) throws IOException {
+        String filePath = TestDataPaths.resolve(fileName);
+        logger.info("Streaming Excel file from: {}", filePath);
+
+        XlsxStreamReader reader = XlsxStreamReader.open(new File(filePath), formulaMode);
+        try {
+            return reader.rows(0).onClose(reader::close);
+        } catch (IOException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a workbook for sheet-by-name, named-range and table access.
+     * Sheets are loaded lazily on first access, so scenarios only pay for the sheets they use.
+     *
+     * @param fileName The Excel file name relative to the test data folder.
+     * @return A new ExcelWorkbook; close it to release the file.
+     * @throws IOException If the file cannot be opened.
+     */
+    public static ExcelWorkbook openWorkbook(String fileName) throws IOException {
+        return ExcelWorkbook.open(new File(TestDataPaths.resolve(fileName)));
+    }
+
+    /**
+     * Reads a single sheet by name. Only that sheet is parsed, and the result is cached like {@link #readExcel(String)}.
+     *
+     * @param fileName  The Excel file name relative to the test data folder.
+     * @param sheetName The sheet name as shown on the workbook tab.
+     * @return The rows of the sheet, the first row being the header.
+     * @throws IOException If the file or sheet cannot be read.
+     */
+    public static List<Map<String, String>> readSheet(String fileName, String sheetName) throws IOException {
+        String filePath = TestDataPaths.resolve(fileName);
+        return TestDataCache.get(Paths.get(filePath), "sheet:" + sheetName, () -> {
+            try (ExcelWorkbook workbook = ExcelWorkbook.open(new File(filePath))) {
+                return Collections.<Map<String, String>>unmodifiableList(workbook.sheet(sheetName));
+            }
+        });
     }
 
     private static String getCellValueAsString(Cell cell) {
@@ -105,4 +221,78 @@ public class ExcelReader {
                 return "";
         }
     }
+
+    /**
+     * Converts the cells of one workbook, holding the workbook's single formula evaluator.
+     * POI's evaluator keeps every computed cell value in its evaluation cache, so shared precedents
+     * (a rate table feeding thousands of totals) are computed once per workbook.
+     */
+    private static final class CellConverter {
+
+        private final FormulaMode formulaMode;
+        private final FormulaEvaluator evaluator;
+        private final boolean date1904;
+        private int fallbacks;
+
+        private CellConverter(Workbook workbook, FormulaMode formulaMode) {
+            this.formulaMode = formulaMode;
+            this.evaluator = formulaMode == FormulaMode.EVALUATED ? workbook.getCreationHelper().createFormulaEvaluator() : null;
+            this.date1904 = workbook instanceof XSSFWorkbook && ((XSSFWorkbook) workbook).isDate1904();
+        }
+
+        private String convert(Cell cell) {
+            if (cell.getCellType() != CellType.FORMULA || formulaMode == FormulaMode.FORMULA_TEXT) {
+                return getCellValueAsString(cell);
+            }
+            if (formulaMode == FormulaMode.EVALUATED) {
+                try {
+                    return evaluatedValue(cell, evaluator.evaluate(cell));
+                } catch (RuntimeException e) {
+                    // Unsupported functions and external references cannot be evaluated; Excel's cached result still can be read
+                    fallbacks++;
+                    logger.debug("Falling back to cached result for {}: {}", cell.getAddress(), e.getMessage());
+                }
+            }
+            return cachedValue(cell);
+        }
+
+        private String evaluatedValue(Cell cell, CellValue value) {
+            if (value == null) {
+                return "";
+            }
+            switch (value.getCellType()) {
+                case NUMERIC:
+                    if (DateUtil.isCellDateFormatted(cell) && DateUtil.isValidExcelDate(value.getNumberValue())) {
+                        return DateUtil.getJavaDate(value.getNumberValue(), date1904).toString();
+                    }
+                    return String.valueOf(value.getNumberValue());
+                case STRING:
+                    return value.getStringValue();
+                case BOOLEAN:
+                    return String.valueOf(value.getBooleanValue());
+                case ERROR:
+                    return FormulaError.forInt(value.getErrorValue()).getString();
+                default:
+                    return "";
+            }
+        }
+
+        private String cachedValue(Cell cell) {
+            switch (cell.getCachedFormulaResultType()) {
+                case NUMERIC:
+                    if (DateUtil.isCellDateFormatted(cell)) {
+                        return cell.getDateCellValue().toString();
+                    }
+                    return String.valueOf(cell.getNumericCellValue());
+                case STRING:
+                    return cell.getStringCellValue();
+                case BOOLEAN:
+                    return String.valueOf(cell.getBooleanCellValue());
+                case ERROR:
+                    return FormulaError.forInt(cell.getErrorCellValue()).getString();
+                default:
+                    return "";
+            }
+        }
+    }
 }
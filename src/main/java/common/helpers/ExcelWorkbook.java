@@ -0,0 +1,263 @@
+
+package common.helpers;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Multi-sheet view of an .xlsx workbook for test data kept as one sheet per entity (users, orders, products).
+ * Opening a workbook only reads its metadata: sheet list, defined names, shared strings and styles.
+ * Each sheet, named range or table is parsed with the streaming {@link XlsxStreamReader} the first time it is requested
+ * and then kept, so a scenario that needs one sheet never pays for the rest of the workbook.
+ * Instances are thread-safe; concurrent requests for the same sheet share a single load, and sheets are parsed one
+ * at a time because they are all read from the same open package.
+ */
+public class ExcelWorkbook implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger(ExcelWorkbook.class);
+
+    private final File file;
+    private final XlsxStreamReader reader;
+
+    // Loaded rows per sheet name, and per "range:" / "table:" key for named ranges and tables
+    private final Map<String, CompletableFuture<List<DataRow>>> loaded = new ConcurrentHashMap<>();
+
+    // Table name to sheet name and cell range, discovered on first table lookup
+    private volatile Map<String, String[]> tableIndex;
+
+    private ExcelWorkbook(File file, XlsxStreamReader reader) {
+        this.file = file;
+        this.reader = reader;
+    }
+
+    /**
+     * Opens a workbook. Only workbook metadata is read; sheets are loaded on demand.
+     *
+     * @param file The .xlsx file.
+     * @return A new ExcelWorkbook; close it to release the file.
+     * @throws IOException If the file is not a readable .xlsx workbook.
+     */
+    public static ExcelWorkbook open(File file) throws IOException {
+        return open(file, FormulaMode.FORMULA_TEXT);
+    }
+
+    /**
+     * Opens a workbook whose formula cells are reported as the given mode requires.
+     * Sheets are streamed, so {@link FormulaMode#EVALUATED} reports the results cached in the file.
+     *
+     * @param file        The .xlsx file.
+     * @param formulaMode How formula cells are reported.
+     * @return A new ExcelWorkbook; close it to release the file.
+     * @throws IOException If the file is not a readable .xlsx workbook.
+     */
+    public static ExcelWorkbook open(File file, FormulaMode formulaMode) throws IOException {
+        logger.info("Opening Excel workbook: {}", file);
+        return new ExcelWorkbook(file, XlsxStreamReader.open(file, formulaMode));
+    }
+
+    /**
+     * Returns the sheet names in workbook order.
+     *
+     * @return An unmodifiable list of sheet names.
+     */
+    public List<String> sheetNames() {
+        return reader.sheetNames();
+    }
+
+    /**
+     * Returns the rows of the sheet with the given name, loading it on first access.
+     * The first row of the sheet is the header.
+     *
+     * @param sheetName The sheet name as shown on the workbook tab.
+     * @return An unmodifiable list of rows.
+     * @throws IOException If the sheet does not exist or cannot be parsed.
+     */
+    public List<DataRow> sheet(String sheetName) throws IOException {
+        return load(sheetName, () -> reader.rows(sheetName));
+    }
+
+    /**
+     * Returns the rows of the sheet at the given position, loading it on first access.
+     *
+     * @param sheetIndex The zero-based sheet position.
+     * @return An unmodifiable list of rows.
+     * @throws IOException If the sheet does not exist or cannot be parsed.
+     */
+    public List<DataRow> sheet(int sheetIndex) throws IOException {
+        List<String> names = sheetNames();
+        if (sheetIndex < 0 || sheetIndex >= names.size()) {
+            String errorMsg = "The Excel file does not contain a sheet at index " + sheetIndex + ".";
+            logger.error(errorMsg);
+            throw new IOException(errorMsg);
+        }
+        return sheet(names.get(sheetIndex));
+    }
+
+    /**
+     * Returns the workbook-scoped named ranges and their references.
+     *
+     * @return An unmodifiable map of range name to reference, e.g. {@code Users!$A$1:$C$20}.
+     */
+    public Map<String, String> namedRanges() {
+        return reader.definedNames();
+    }
+
+    /**
+     * Returns the rows of a named range, loading it on first access. The first row of the range is the header.
+     *
+     * @param rangeName The defined name.
+     * @return An unmodifiable list of rows.
+     * @throws IOException If the name does not exist, does not point at a single sheet area, or cannot be parsed.
+     */
+    public List<DataRow> namedRange(String rangeName) throws IOException {
+        String reference = reader.definedNames().get(rangeName);
+        if (reference == null) {
+            String errorMsg = "The Excel file does not contain a named range '" + rangeName + "'.";
+            logger.error(errorMsg);
+            throw new IOException(errorMsg);
+        }
+        String sheetName = XlsxStreamReader.Region.sheetOf(reference);
+        if (sheetName == null || reference.indexOf(',') >= 0) {
+            String errorMsg = "Named range '" + rangeName + "' is not a single sheet area: " + reference;
+            logger.error(errorMsg);
+            throw new IOException(errorMsg);
+        }
+        XlsxStreamReader.Region region = XlsxStreamReader.Region.parse(reference);
+        return load("range:" + rangeName, () -> reader.rows(sheetName, region));
+    }
+
+    /**
+     * Returns the names of all tables (ListObjects) in the workbook.
+     *
+     * @return An unmodifiable list of table names.
+     * @throws IOException If table parts cannot be read.
+     */
+    public List<String> tableNames() throws IOException {
+        return Collections.unmodifiableList(new ArrayList<>(tableIndex().keySet()));
+    }
+
+    /**
+     * Returns the rows of a table, loading it on first access. The table header row is the header.
+     *
+     * @param tableName The table name.
+     * @return An unmodifiable list of rows.
+     * @throws IOException If the table does not exist or cannot be parsed.
+     */
+    public List<DataRow> table(String tableName) throws IOException {
+        String[] location = tableIndex().get(tableName);
+        if (location == null) {
+            String errorMsg = "The Excel file does not contain a table named '" + tableName + "'.";
+            logger.error(errorMsg);
+            throw new IOException(errorMsg);
+        }
+        XlsxStreamReader.Region region = XlsxStreamReader.Region.parse(location[1]);
+        return load("table:" + tableName, () -> reader.rows(location[0], region));
+    }
+
+    /**
+     * Loads every sheet that has not been loaded yet, one after another.
+     * Sheets that are already loaded are returned as they are.
+     *
+     * @return An unmodifiable map of sheet name to rows, in workbook order.
+     * @throws IOException If any sheet cannot be parsed.
+     */
+    public Map<String, List<DataRow>> loadAllSheets() throws IOException {
+        List<String> names = sheetNames();
+        long start = System.currentTimeMillis();
+        // All sheets are read through the one open package, whose parts must not be streamed concurrently
+        Map<String, List<DataRow>> result = new LinkedHashMap<>();
+        for (String name : names) {
+            result.put(name, sheet(name));
+        }
+        logger.info("Loaded {} sheets from {} in {} ms.", names.size(), file.getName(), System.currentTimeMillis() - start);
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Releases the workbook file. Rows already loaded remain usable.
+     */
+    @Override
+    public void close() {
+        reader.close();
+    }
+
+    private List<DataRow> load(String key, RowSource source) throws IOException {
+        CompletableFuture<List<DataRow>> future = loaded.get(key);
+        if (future == null) {
+            CompletableFuture<List<DataRow>> created = new CompletableFuture<>();
+            future = loaded.putIfAbsent(key, created);
+            if (future == null) {
+                future = created;
+                // This thread won the race and parses; everyone else waits on the same future.
+                // Parts of the shared package are streamed one at a time.
+                synchronized (reader) {
+                    try (Stream<DataRow> rows = source.open()) {
+                        List<DataRow> data = rows.collect(Collectors.toList());
+                        created.complete(Collections.unmodifiableList(data));
+                        logger.info("Loaded '{}' from {} with {} rows.", key, file.getName(), data.size());
+                    } catch (IOException | RuntimeException e) {
+                        loaded.remove(key, created);
+                        created.completeExceptionally(e);
+                    }
+                }
+            }
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private Map<String, String[]> tableIndex() throws IOException {
+        Map<String, String[]> index = tableIndex;
+        if (index == null) {
+            synchronized (reader) {
+                index = tableIndex;
+                if (index == null) {
+                    index = new LinkedHashMap<>();
+                    for (String sheetName : sheetNames()) {
+                        for (Map.Entry<String, String> table : reader.tables(sheetName).entrySet()) {
+                            index.put(table.getKey(), new String[]{sheetName, table.getValue()});
+                        }
+                    }
+                    tableIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    private static IOException unwrap(Throwable e) {
+        Throwable cause = e;
+        while ((cause instanceof CompletionException || cause instanceof UncheckedIOException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        return new IOException("Error reading Excel data: " + cause.getMessage(), cause);
+    }
+
+    /**
+     * Opens the row stream of a sheet, named range or table.
+     */
+    @FunctionalInterface
+    private interface RowSource {
+        Stream<DataRow> open() throws IOException;
+    }
+}
@@ -0,0 +1,21 @@
+
+package common.helpers;
+
+/**
+ * Produces the value of one synthetic data field for a given row.
+ * Implementations must be pure functions of the row number and the seed, holding no mutable state,
+ * so rows can be generated in any order, on any thread or shard, and always come out the same.
+ * See {@link FieldGenerators} for the built-in generators.
+ */
+@FunctionalInterface
+public interface FieldGenerator {
+
+    /**
+     * Appends the value for a row.
+     *
+     * @param row  The zero-based row number within the entity.
+     * @param seed The seed of this field, derived from the schema seed and the field name.
+     * @param out  The buffer to append the value to.
+     */
+    void append(long row, long seed, StringBuilder out);
+}
@@ -0,0 +1,265 @@
+
+package common.helpers;
+
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * Built-in {@link FieldGenerator}s for synthetic test data.
+ * Random choices come from a SplitMix64 hash of the field seed and the row number rather than from a shared
+ * {@code Random}, so every value depends only on (seed, row). Unique generators pass the row number through a
+ * 64-bit bijection, which guarantees distinct values without tracking what has already been produced.
+ */
+public final class FieldGenerators {
+
+    private static final String[] FIRST_NAMES = {
+            "James", "Mary", "Robert", "Patricia", "John", "Jennifer", "Michael", "Linda", "David", "Elizabeth",
+            "William", "Barbara", "Richard", "Susan", "Joseph", "Jessica", "Thomas", "Sarah", "Charles", "Karen",
+            "Aarav", "Priya", "Wei", "Mei", "Carlos", "Sofia", "Ahmed", "Fatima", "Yuki", "Olga"};
+
+    private static final String[] LAST_NAMES = {
+            "Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis", "Rodriguez", "Martinez",
+            "Hernandez", "Lopez", "Gonzalez", "Wilson", "Anderson", "Thomas", "Taylor", "Moore", "Jackson", "Martin",
+            "Sharma", "Patel", "Wang", "Li", "Kim", "Nguyen", "Silva", "Khan", "Sato", "Ivanova"};
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    // Lower-case forms for e-mail local parts, computed once
+    private static final String[] FIRST_NAMES_LOWER = lowerCase(FIRST_NAMES);
+    private static final String[] LAST_NAMES_LOWER = lowerCase(LAST_NAMES);
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private FieldGenerators() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * SplitMix64 finalizer: a fast, well-distributed 64-bit hash.
+     *
+     * @param z The input.
+     * @return The mixed value.
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Returns the pseudo-random value of a row for a seed.
+     *
+     * @param seed The field seed.
+     * @param row  The row number.
+     * @return A uniformly distributed 64-bit value.
+     */
+    static long random(long seed, long row) {
+        return mix(seed + mix(row + 0x9E3779B97F4A7C15L));
+    }
+
+    /**
+     * Scrambles a row number with a bijection on 64-bit values, so distinct rows always give distinct results.
+     */
+    private static long permute(long seed, long row) {
+        long x = row ^ seed;
+        x *= 0x9E3779B97F4A7C15L;  // Odd multiplier: invertible modulo 2^64
+        x ^= x >>> 32;             // Xor-shift: invertible
+        x *= 0xD6E8FEB86659FD93L;
+        x ^= x >>> 29;
+        return x;
+    }
+
+    /**
+     * Consecutive integers: start, start + 1, ... Unique.
+     *
+     * @param start The value of row 0.
+     * @return The generator.
+     */
+    public static FieldGenerator sequence(long start) {
+        return (row, seed, out) -> out.append(start + row);
+    }
+
+    /**
+     * Opaque unique identifiers such as {@code ORD-5f1c9a03be7d2e48}, scrambled so consecutive rows look unrelated.
+     *
+     * @param prefix The identifier prefix.
+     * @return The generator.
+     */
+    public static FieldGenerator uniqueId(String prefix) {
+        return (row, seed, out) -> appendHex(out.append(prefix), permute(seed, row));
+    }
+
+    /**
+     * Unique e-mail addresses such as {@code james.smith.5f1c9a03be7d2e48@example.test}.
+     *
+     * @param domain The mail domain.
+     * @return The generator.
+     */
+    public static FieldGenerator uniqueEmail(String domain) {
+        return (row, seed, out) -> {
+            long r = random(seed, row);
+            out.append(FIRST_NAMES_LOWER[(int) Math.floorMod(r, (long) FIRST_NAMES.length)]).append('.')
+                    .append(LAST_NAMES_LOWER[(int) Math.floorMod(r >>> 20, (long) LAST_NAMES.length)]).append('.');
+            appendHex(out, permute(seed, row));
+            out.append('@').append(domain);
+        };
+    }
+
+    /**
+     * Integers uniformly distributed in [min, max].
+     *
+     * @param min The smallest value.
+     * @param max The largest value.
+     * @return The generator.
+     */
+    public static FieldGenerator intRange(long min, long max) {
+        long span = max - min + 1;
+        return (row, seed, out) -> out.append(min + Math.floorMod(random(seed, row), span));
+    }
+
+    /**
+     * Non-negative decimals uniformly distributed in [min, max] with a fixed number of fraction digits, e.g. prices.
+     *
+     * @param min   The smallest value, at least 0.
+     * @param max   The largest value.
+     * @param scale The number of fraction digits.
+     * @return The generator.
+     */
+    public static FieldGenerator decimal(long min, long max, int scale) {
+        if (min < 0 || max < min) {
+            throw new IllegalArgumentException("decimal needs 0 <= min <= max but got " + min + ".." + max);
+        }
+        long factor = 1;
+        for (int i = 0; i < scale; i++) {
+            factor *= 10;
+        }
+        long unit = factor;
+        long span = (max - min) * unit + 1;
+        return (row, seed, out) -> {
+            long scaled = min * unit + Math.floorMod(random(seed, row), span);
+            out.append(scaled / unit);
+            if (scale > 0) {
+                out.append('.');
+                appendPadded(out, scaled % unit, scale);
+            }
+        };
+    }
+
+    /**
+     * One of the given values, uniformly chosen.
+     *
+     * @param values The candidate values.
+     * @return The generator.
+     */
+    public static FieldGenerator oneOf(String... values) {
+        String[] choices = values.clone();
+        return (row, seed, out) -> out.append(choices[(int) Math.floorMod(random(seed, row), (long) choices.length)]);
+    }
+
+    /**
+     * "true" with the given probability, otherwise "false".
+     *
+     * @param probability The probability of "true", between 0 and 1.
+     * @return The generator.
+     */
+    public static FieldGenerator bool(double probability) {
+        long threshold = (long) (probability * (1L << 53));
+        return (row, seed, out) -> out.append((random(seed, row) >>> 11) < threshold);
+    }
+
+    /**
+     * Realistic first names.
+     *
+     * @return The generator.
+     */
+    public static FieldGenerator firstName() {
+        return oneOf(FIRST_NAMES);
+    }
+
+    /**
+     * Realistic last names.
+     *
+     * @return The generator.
+     */
+    public static FieldGenerator lastName() {
+        return oneOf(LAST_NAMES);
+    }
+
+    /**
+     * ISO dates uniformly distributed between two dates, inclusive.
+     *
+     * @param from The earliest date.
+     * @param to   The latest date.
+     * @return The generator.
+     */
+    public static FieldGenerator date(LocalDate from, LocalDate to) {
+        long first = from.toEpochDay();
+        long span = to.toEpochDay() - first + 1;
+        return (row, seed, out) -> appendIsoDate(out, first + Math.floorMod(random(seed, row), span));
+    }
+
+    /**
+     * A link to a random row of another entity, rendered as that row's value of the referenced field.
+     * Because every value is a pure function of its row, the link always resolves to a row the parent generator
+     * produces, without the parent rows being held in memory.
+     *
+     * @param parent     The referenced entity.
+     * @param field      The referenced field, usually the parent's key.
+     * @param parentRows The number of parent rows that exist.
+     * @return The generator.
+     */
+    public static FieldGenerator reference(SyntheticSchema parent, String field, long parentRows) {
+        int column = parent.indexOf(field);
+        if (column < 0) {
+            throw new IllegalArgumentException("Entity " + parent.name() + " has no field " + field);
+        }
+        return (row, seed, out) -> parent.appendValue(column, Math.floorMod(random(seed, row), parentRows), out);
+    }
+
+    /**
+     * Appends a 64-bit value as 16 lower-case hex digits, so distinct values give distinct text of equal length.
+     */
+    private static void appendHex(StringBuilder out, long value) {
+        for (int shift = 60; shift >= 0; shift -= 4) {
+            out.append(HEX[(int) (value >>> shift) & 0xF]);
+        }
+    }
+
+    private static void appendPadded(StringBuilder out, long value, int width) {
+        for (long limit = 10; width > 1; width--, limit *= 10) {
+            if (value < limit) {
+                out.append('0');
+            }
+        }
+        out.append(value);
+    }
+
+    /**
+     * Appends an epoch day as yyyy-MM-dd without allocating a LocalDate (civil-from-days conversion).
+     */
+    private static void appendIsoDate(StringBuilder out, long epochDay) {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        long day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        long month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        appendPadded(out, year, 4);
+        out.append('-');
+        appendPadded(out, month, 2);
+        out.append('-');
+        appendPadded(out, day, 2);
+    }
+
+    private static String[] lowerCase(String[] names) {
+        String[] lower = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            lower[i] = names[i].toLowerCase(Locale.ROOT);
+        }
+        return lower;
+    }
+}
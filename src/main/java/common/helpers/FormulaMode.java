@@ -0,0 +1,22 @@
+
+package common.helpers;
+
+/**
+ * How the Excel readers report cells that contain a formula.
+ */
+public enum FormulaMode {
+
+    /** The formula text, e.g. {@code SUM(B2:B9)}. This is the historical behaviour and the default. */
+    FORMULA_TEXT,
+
+    /**
+     * The value computed by a formula evaluator that is created once per workbook, so intermediate results
+     * are cached and shared across cells. Falls back to the cached result stored in the file when a formula
+     * cannot be evaluated (unsupported functions, external links). The streaming reader cannot evaluate
+     * and treats this mode as {@link #CACHED}.
+     */
+    EVALUATED,
+
+    /** The result Excel stored in the file when it was last saved, without evaluating anything. */
+    CACHED
+}
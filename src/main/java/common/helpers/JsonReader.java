@@ -3,52 +3,131 @@ package common.helpers;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import common.config.ConfigManager;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * Reads data from a JSON file using Jackson.
  * The file path is dynamically built using the ConfigManager to get the base directory and the file name passed by the Step Definitions (SDs).
+ * When a fresh build-time {@link DataSnapshot} of the file exists, {@link #readJson(String)} serves it instead of parsing.
+ * Large record files (top-level arrays or JSON Lines) should be consumed through {@link #stream(String, boolean)}.
  */
 public class JsonReader {
 
     private static final Logger logger = LogManager.getLogger(JsonReader.class);
     private static final ObjectMapper objectMapper = new ObjectMapper();
 
+    /**
+     * Reads the top-level fields of a JSON object file.
+     * Results are served from the shared {@link TestDataCache} while the file is unchanged, so the returned map
+     * is immutable and shared with other callers.
+     *
+     * @param fileName The JSON file name relative to the test data folder.
+     * @return An unmodifiable map of field name to text value.
+     * @throws IOException If the file cannot be read or parsed.
+     */
     public static Map<String, String> readJson(String fileName) throws IOException {
-        // Get the base directory path for the test data folder
-        String basePath = ConfigManager.get("testDataFolderLocation");
-        if (basePath == null || basePath.isEmpty()) {
-            String errorMsg = "Base directory for test data folder is not defined in config.properties.";
-            logger.error(errorMsg);
-            throw new IOException(errorMsg);
+        File jsonFile = resolveFile(fileName);
+        String filePath = jsonFile.getPath();
+        logger.info("Reading JSON file from: {}", filePath);
+
+        try {
+            return TestDataCache.get(jsonFile.toPath(), "json", () -> {
+                DataSnapshot snapshot = DataSnapshot.forSource(fileName, jsonFile.toPath());
+                return snapshot != null && snapshot.rowCount() == 1 ? snapshot.rows().get(0) : loadJson(jsonFile);
+            });
+        } catch (IOException e) {
+            String errorMsg = "Error reading or parsing JSON file: " + filePath;
+            logger.error(errorMsg, e);
+            throw e;
         }
+    }
 
-        // Append the file name to the base path to form the complete file path
-        String filePath = basePath + fileName;
-        logger.info("Reading JSON file from: {}", filePath);
+    /**
+     * Reads every record of a JSON array or JSON Lines file. Nested objects and arrays are kept as JSON text.
+     * Results are served from the shared {@link TestDataCache} while the file is unchanged; when
+     * {@link TestDataWatcher} sees records appended to a JSON Lines file, only the new lines are parsed.
+     *
+     * @param fileName The JSON file name relative to the test data folder.
+     * @return An unmodifiable list of records.
+     * @throws IOException If the file cannot be read or parsed.
+     */
+    public static List<Map<String, String>> readRecords(String fileName) throws IOException {
+        File jsonFile = resolveFile(fileName);
+        return TestDataCache.get(jsonFile.toPath(), "records", () -> {
+            List<Map<String, String>> records = new ArrayList<>();
+            try (Stream<DataRow> rows = JsonStreamReader.stream(jsonFile, false)) {
+                rows.forEach(records::add);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            logger.info("JSON file {} successfully read with {} records.", jsonFile, records.size());
+            return Collections.unmodifiableList(records);
+        });
+    }
 
+    /**
+     * Opens a lazy stream over the records of a JSON file holding a top-level array of objects, or of a JSON Lines file.
+     * Nested objects and arrays are kept as JSON text.
+     *
+     * @param fileName The JSON file name relative to the test data folder.
+     * @return A sequential stream of records.
+     * @throws IOException If the file cannot be opened.
+     */
+    public static Stream<DataRow> stream(String fileName) throws IOException {
+        return stream(fileName, false);
+    }
+
+    /**
+     * Opens a lazy stream over the records of a JSON array or JSON Lines file.
+     * Only the current record is held in memory; see {@link JsonStreamReader}.
+     *
+     * @param fileName The JSON file name relative to the test data folder.
+     * @param flatten  Whether nested fields are flattened into dotted keys such as {@code address.city}.
+     * @return A sequential stream of records.
+     * @throws IOException If the file cannot be opened.
+     */
+    public static Stream<DataRow> stream(String fileName, boolean flatten) throws IOException {
+        return JsonStreamReader.stream(resolveFile(fileName), flatten);
+    }
+
+    /**
+     * Builds the readable file for a name inside the configured test data folder.
+     *
+     * @param fileName The file name passed by the Step Definitions.
+     * @return The JSON file.
+     * @throws IOException If the test data folder is not configured or the file is missing or unreadable.
+     */
+    private static File resolveFile(String fileName) throws IOException {
+        String filePath = TestDataPaths.resolve(fileName);
         File jsonFile = new File(filePath);
         if (!jsonFile.exists() || !jsonFile.canRead()) {
             String errorMsg = "JSON file not found or not readable at path: " + filePath;
             logger.error(errorMsg);
             throw new IOException(errorMsg);
         }
+        return jsonFile;
+    }
 
-        try {
-            JsonNode rootNode = objectMapper.readTree(jsonFile);
-            return jsonNodeToMap(rootNode);
-        } catch (IOException e) {
-            String errorMsg = "Error reading or parsing JSON file: " + filePath;
-            logger.error(errorMsg, e);
-            throw e;
-        }
+    /**
+     * Parses the top-level fields of a JSON object file into an unmodifiable map.
+     *
+     * @param jsonFile The JSON file.
+     * @return An unmodifiable map of field name to text value.
+     * @throws IOException If the file cannot be read or parsed.
+     */
+    static Map<String, String> loadJson(File jsonFile) throws IOException {
+        return Collections.unmodifiableMap(jsonNodeToMap(objectMapper.readTree(jsonFile)));
     }
 
     private static Map<String, String> jsonNodeToMap(JsonNode jsonNode) {
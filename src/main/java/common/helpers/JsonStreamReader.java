@@ -0,0 +1,225 @@
+
+package common.helpers;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Streaming reader for JSON record files: either a top-level array of objects or JSON Lines (one object per line).
+ * Records are pulled token by token with the Jackson streaming parser, so only the current record is held in memory.
+ * Nested objects and arrays are kept as JSON text, or flattened into dotted keys ({@code address.city},
+ * {@code items.0.sku}) when requested. Records with the same fields in the same order share one {@link DataHeader}.
+ */
+public final class JsonStreamReader {
+
+    private static final Logger logger = LogManager.getLogger(JsonStreamReader.class);
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final JsonFactory jsonFactory = objectMapper.getFactory();
+
+    // Upper bound on distinct record shapes whose headers are interned per file
+    private static final int MAX_INTERNED_HEADERS = 256;
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private JsonStreamReader() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Opens a lazy stream over the records of a JSON array or JSON Lines file.
+     * The file is closed when the stream is exhausted or closed; use try-with-resources when the stream may be abandoned early.
+     *
+     * @param file    The JSON or JSON Lines file.
+     * @param flatten Whether nested fields are flattened into dotted keys instead of being kept as JSON text.
+     * @return A sequential stream of records.
+     * @throws IOException If the file cannot be opened.
+     */
+    public static Stream<DataRow> stream(File file, boolean flatten) throws IOException {
+        logger.info("Streaming JSON records from: {} (flatten={})", file, flatten);
+        return stream(jsonFactory.createParser(file), flatten);
+    }
+
+    /**
+     * Opens a lazy stream over the records in an input stream, e.g. the appended tail of a JSON Lines file.
+     * The input is closed when the stream is exhausted or closed.
+     *
+     * @param input   The JSON or JSON Lines content.
+     * @param flatten Whether nested fields are flattened into dotted keys instead of being kept as JSON text.
+     * @return A sequential stream of records.
+     * @throws IOException If the input cannot be read.
+     */
+    public static Stream<DataRow> stream(InputStream input, boolean flatten) throws IOException {
+        return stream(jsonFactory.createParser(input), flatten);
+    }
+
+    private static Stream<DataRow> stream(JsonParser parser, boolean flatten) {
+        Iterator<DataRow> iterator = new RecordIterator(parser, flatten);
+        return StreamSupport.stream(
+                        Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE),
+                        false)
+                .onClose(() -> closeQuietly(parser));
+    }
+
+    private static void closeQuietly(JsonParser parser) {
+        try {
+            parser.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close JSON parser: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Walks the root of the file: a single array of records, or a whitespace-separated sequence of records.
+     */
+    private static final class RecordIterator implements Iterator<DataRow> {
+
+        private final JsonParser parser;
+        private final boolean flatten;
+        private final Map<String, DataHeader> headers = new HashMap<>();
+        private final List<String> keys = new ArrayList<>();
+        private final List<String> values = new ArrayList<>();
+        private final StringBuilder shape = new StringBuilder();
+
+        private boolean started;
+        private boolean inArray;
+        private DataRow next;
+        private boolean finished;
+
+        private RecordIterator(JsonParser parser, boolean flatten) {
+            this.parser = parser;
+            this.flatten = flatten;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !finished) {
+                next = advance();
+            }
+            return next != null;
+        }
+
+        @Override
+        public DataRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            DataRow row = next;
+            next = null;
+            return row;
+        }
+
+        private DataRow advance() {
+            try {
+                JsonToken token = parser.nextToken();
+                if (!started) {
+                    started = true;
+                    if (token == JsonToken.START_ARRAY) {
+                        inArray = true;
+                        token = parser.nextToken();
+                    }
+                }
+                if (token == null || (inArray && token == JsonToken.END_ARRAY)) {
+                    finish();
+                    return null;
+                }
+                if (token != JsonToken.START_OBJECT) {
+                    throw new IOException("Expected a JSON object record but found " + token
+                            + " at " + parser.getCurrentLocation());
+                }
+                keys.clear();
+                values.clear();
+                readObject("");
+                return new DataRow(header(), values.toArray(new String[0]));
+            } catch (IOException e) {
+                finish();
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Reads the fields of the current object; the parser is positioned on its START_OBJECT.
+         */
+        private void readObject(String prefix) throws IOException {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String key = prefix + parser.getCurrentName();
+                readValue(key, parser.nextToken());
+            }
+        }
+
+        private void readArray(String prefix) throws IOException {
+            int index = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                readValue(prefix + index++, token);
+            }
+        }
+
+        private void readValue(String key, JsonToken token) throws IOException {
+            if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+                if (!flatten) {
+                    // Keep the nested value intact as JSON text; only this subtree is materialized
+                    add(key, objectMapper.writeValueAsString(parser.readValueAsTree()));
+                    return;
+                }
+                int before = keys.size();
+                if (token == JsonToken.START_OBJECT) {
+                    readObject(key + ".");
+                } else {
+                    readArray(key + ".");
+                }
+                if (keys.size() == before) {
+                    add(key, token == JsonToken.START_OBJECT ? "{}" : "[]");  // Keep empty containers visible
+                }
+                return;
+            }
+            // Scalars keep their source text; null becomes "null" as JsonNode.asText() does
+            add(key, parser.getText());
+        }
+
+        private void add(String key, String value) {
+            keys.add(key);
+            values.add(value);
+        }
+
+        private DataHeader header() {
+            shape.setLength(0);
+            for (String key : keys) {
+                shape.append(key).append('\u0000');
+            }
+            String signature = shape.toString();
+            DataHeader header = headers.get(signature);
+            if (header == null) {
+                header = DataHeader.of(keys.toArray(new String[0]));
+                if (headers.size() < MAX_INTERNED_HEADERS) {
+                    headers.put(signature, header);
+                }
+            }
+            return header;
+        }
+
+        private void finish() {
+            finished = true;
+            closeQuietly(parser);
+        }
+    }
+}
@@ -0,0 +1,524 @@
+
+package common.helpers;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * High-throughput CSV parser for multi-GB data files.
+ * The file is memory-mapped in fixed-size chunks that are parsed in parallel on a fork-join pool.
+ * Chunk boundaries are moved to the first line break outside a quoted field, using a parallel quote-count
+ * pre-pass, so quoted values containing newlines are never split. RFC 4180 quoting is assumed.
+ * Rows can be consumed unordered (fastest) through {@link #forEachRow(Path, Consumer)} or in file order through {@link #stream(Path)}.
+ */
+public class MappedCsvParser {
+
+    private static final Logger logger = LogManager.getLogger(MappedCsvParser.class);
+
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+
+    // Window used when scanning forward from a tentative chunk boundary
+    private static final int BOUNDARY_WINDOW = 1 << 20;
+
+    private final Options options;
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a parser with default options on the common fork-join pool.
+     */
+    public MappedCsvParser() {
+        this(Options.defaults());
+    }
+
+    /**
+     * Creates a parser with the given options on the common fork-join pool.
+     *
+     * @param options The parsing options.
+     */
+    public MappedCsvParser(Options options) {
+        this(options, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a parser with the given options on a caller-supplied fork-join pool.
+     *
+     * @param options The parsing options.
+     * @param pool    The pool used to parse chunks.
+     */
+    public MappedCsvParser(Options options, ForkJoinPool pool) {
+        this.options = options;
+        this.pool = pool;
+    }
+
+    /**
+     * Parses the whole file in parallel and hands every row to the given action.
+     * Rows arrive in no particular order and from several threads, so the action must be thread-safe.
+     *
+     * @param file   The CSV file.
+     * @param action The action invoked for every row.
+     * @throws IOException If the file cannot be read.
+     */
+    public void forEachRow(Path file, Consumer<DataRow> action) throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Layout layout = layout(channel);
+            List<ForkJoinTask<Integer>> tasks = new ArrayList<>(layout.chunkCount());
+            for (int i = 0; i < layout.chunkCount(); i++) {
+                final int chunk = i;
+                tasks.add(pool.submit(() -> parseChunk(channel, layout, chunk, action)));
+            }
+            long rows = 0;
+            for (ForkJoinTask<Integer> task : tasks) {
+                rows += join(task);
+            }
+            logThroughput(file, layout.size, rows, start);
+        }
+    }
+
+    /**
+     * Opens an ordered stream over the rows of the file.
+     * Chunks are still parsed in parallel, a bounded number ahead of the consumer, and handed out in file order.
+     * The file is closed when the stream is exhausted or closed.
+     *
+     * @param file The CSV file.
+     * @return A sequential stream of rows in file order.
+     * @throws IOException If the file cannot be read.
+     */
+    public Stream<DataRow> stream(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        Layout layout;
+        try {
+            layout = layout(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        OrderedIterator iterator = new OrderedIterator(channel, layout);
+        return StreamSupport.stream(
+                        Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE),
+                        false)
+                .onClose(iterator::close);
+    }
+
+    /**
+     * Reads the header record and splits the remaining bytes into chunks that start on record boundaries.
+     */
+    private Layout layout(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            throw new IOException("CSV file is empty.");
+        }
+
+        // Parse the first record sequentially; it is either the header or fixes the column count
+        long firstEnd = findRecordEnd(channel, 0, false, size);
+        MappedByteBuffer firstBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, firstEnd);
+        List<String[]> first = new ArrayList<>(1);
+        new RecordParser(options).parse(firstBuffer, 0, (int) firstEnd, first::add);
+        if (first.isEmpty()) {
+            throw new IOException("CSV file does not start with a record.");
+        }
+
+        DataHeader header;
+        long dataStart;
+        if (options.header) {
+            header = DataHeader.of(first.get(0));
+            dataStart = firstEnd;
+        } else {
+            String[] names = new String[first.get(0).length];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = "column" + (i + 1);
+            }
+            header = DataHeader.of(names);
+            dataStart = 0;
+        }
+
+        long[] boundaries = boundaries(channel, dataStart, size);
+        logger.info("Split {} bytes into {} chunks for parallel parsing.", size, boundaries.length - 1);
+        return new Layout(header, boundaries, size);
+    }
+
+    /**
+     * Computes chunk boundaries. A parallel pass counts quote bytes per tentative chunk; the prefix parity tells whether
+     * each tentative boundary falls inside a quoted field, and the boundary is then moved to the next unquoted line break.
+     */
+    private long[] boundaries(FileChannel channel, long dataStart, long size) throws IOException {
+        long chunkSize = options.chunkSize;
+        int tentative = (int) Math.max(1, (size - dataStart + chunkSize - 1) / chunkSize);
+
+        List<ForkJoinTask<Long>> counts = new ArrayList<>(tentative);
+        for (int i = 0; i < tentative - 1; i++) {
+            final long from = dataStart + i * chunkSize;
+            final long to = from + chunkSize;
+            counts.add(pool.submit(() -> countQuotes(channel, from, to)));
+        }
+
+        long[] boundaries = new long[tentative + 1];
+        boundaries[0] = dataStart;
+        boundaries[tentative] = size;
+        long quotes = 0;
+        for (int i = 1; i < tentative; i++) {
+            quotes += join(counts.get(i - 1));
+            long candidate = dataStart + i * chunkSize;
+            long boundary = Math.max(boundaries[i - 1], findRecordEnd(channel, candidate, (quotes & 1) == 1, size));
+            boundaries[i] = Math.min(boundary, size);
+        }
+        return boundaries;
+    }
+
+    private long countQuotes(FileChannel channel, long from, long to) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        byte quote = options.quoteByte();
+        long count = 0;
+        int limit = buffer.limit();
+        for (int i = 0; i < limit; i++) {
+            if (buffer.get(i) == quote) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the position just after the first line break at or after {@code from} that is outside a quoted field.
+     */
+    private long findRecordEnd(FileChannel channel, long from, boolean inQuotes, long size) throws IOException {
+        byte quote = options.quoteByte();
+        long position = from;
+        while (position < size) {
+            long length = Math.min(BOUNDARY_WINDOW, size - position);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            for (int i = 0; i < length; i++) {
+                byte b = window.get(i);
+                if (b == quote) {
+                    inQuotes = !inQuotes;
+                } else if (b == LF && !inQuotes) {
+                    return position + i + 1;
+                }
+            }
+            position += length;
+        }
+        return size;
+    }
+
+    private int parseChunk(FileChannel channel, Layout layout, int chunk, Consumer<DataRow> action) throws IOException {
+        long from = layout.boundaries[chunk];
+        long to = layout.boundaries[chunk + 1];
+        if (to <= from) {
+            return 0;
+        }
+        if (to - from > Integer.MAX_VALUE) {
+            throw new IOException("CSV record spanning more than 2 GB starting at byte " + from);
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        DataHeader header = layout.header;
+        int[] rows = new int[1];
+        new RecordParser(options).parse(buffer, 0, (int) (to - from), values -> {
+            if (values.length != header.size()) {
+                logger.warn("Row length does not match header length: {}", String.join(",", values));
+                return;
+            }
+            action.accept(new DataRow(header, values));
+            rows[0]++;
+        });
+        return rows[0];
+    }
+
+    private List<DataRow> parseChunk(FileChannel channel, Layout layout, int chunk) throws IOException {
+        List<DataRow> rows = new ArrayList<>();
+        parseChunk(channel, layout, chunk, rows::add);
+        return rows;
+    }
+
+    private static <T> T join(ForkJoinTask<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing CSV chunks", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Error parsing CSV chunk: " + cause.getMessage(), cause);
+        }
+    }
+
+    private static void logThroughput(Path file, long bytes, long rows, long startNanos) {
+        double seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+        logger.info("Parsed {} rows ({} MB) from {} in {} s ({} MB/s).", rows, bytes >> 20, file,
+                String.format("%.2f", seconds), String.format("%.1f", (bytes / 1048576.0) / Math.max(seconds, 1e-9)));
+    }
+
+    /**
+     * Header plus the byte offsets of every chunk; chunk {@code i} spans {@code [boundaries[i], boundaries[i + 1])}.
+     */
+    private static final class Layout {
+        private final DataHeader header;
+        private final long[] boundaries;
+        private final long size;
+
+        private Layout(DataHeader header, long[] boundaries, long size) {
+            this.header = header;
+            this.boundaries = boundaries;
+            this.size = size;
+        }
+
+        private int chunkCount() {
+            return boundaries.length - 1;
+        }
+    }
+
+    /**
+     * Hands out rows in file order while keeping a bounded window of chunks parsing ahead.
+     * Every chunk in the window is held as parsed rows, so the window is one chunk per pool thread plus the one
+     * being consumed, which keeps at most {@code (parallelism + 2) * chunkSize} of rows alive.
+     */
+    private final class OrderedIterator implements Iterator<DataRow> {
+
+        private final FileChannel channel;
+        private final Layout layout;
+        private final Deque<ForkJoinTask<List<DataRow>>> pending = new ArrayDeque<>();
+        private final int lookAhead = pool.getParallelism() + 1;
+        private int nextChunk;
+        private Iterator<DataRow> current = Collections.emptyIterator();
+        private boolean closed;
+
+        private OrderedIterator(FileChannel channel, Layout layout) {
+            this.channel = channel;
+            this.layout = layout;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext()) {
+                fill();
+                if (pending.isEmpty()) {
+                    close();
+                    return false;
+                }
+                try {
+                    current = join(pending.removeFirst()).iterator();
+                } catch (IOException e) {
+                    close();
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public DataRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+
+        private void fill() {
+            while (!closed && pending.size() < lookAhead && nextChunk < layout.chunkCount()) {
+                final int chunk = nextChunk++;
+                pending.addLast(pool.submit(() -> parseChunk(channel, layout, chunk)));
+            }
+        }
+
+        private void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (ForkJoinTask<List<DataRow>> task : pending) {
+                task.cancel(true);
+            }
+            pending.clear();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close CSV file channel: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Byte-level RFC 4180 record parser. Delimiter, quote and line breaks are matched as single bytes,
+     * which is safe for ASCII-compatible encodings such as UTF-8 and ISO-8859-1.
+     */
+    private static final class RecordParser {
+
+        private final byte delimiter;
+        private final byte quote;
+        private final Charset charset;
+        private final List<String> fields = new ArrayList<>();
+        private byte[] scratch = new byte[256];
+        private int length;
+
+        private RecordParser(Options options) {
+            this.delimiter = options.delimiterByte();
+            this.quote = options.quoteByte();
+            this.charset = options.charset;
+        }
+
+        private void parse(MappedByteBuffer buffer, int from, int limit, Consumer<String[]> sink) {
+            int position = from;
+            while (position < limit) {
+                fields.clear();
+                boolean endOfRecord = false;
+                while (!endOfRecord) {
+                    length = 0;
+                    if (position < limit && buffer.get(position) == quote) {
+                        position++;
+                        while (position < limit) {
+                            byte b = buffer.get(position++);
+                            if (b == quote) {
+                                if (position < limit && buffer.get(position) == quote) {
+                                    append(quote);
+                                    position++;
+                                } else {
+                                    break;
+                                }
+                            } else {
+                                append(b);
+                            }
+                        }
+                    }
+                    // Unquoted field, or any stray bytes following a closing quote
+                    while (position < limit) {
+                        byte b = buffer.get(position);
+                        if (b == delimiter || b == LF || b == CR) {
+                            break;
+                        }
+                        append(b);
+                        position++;
+                    }
+                    fields.add(new String(scratch, 0, length, charset));
+
+                    if (position >= limit) {
+                        endOfRecord = true;
+                    } else {
+                        byte b = buffer.get(position++);
+                        if (b == CR) {
+                            if (position < limit && buffer.get(position) == LF) {
+                                position++;
+                            }
+                            endOfRecord = true;
+                        } else if (b == LF) {
+                            endOfRecord = true;
+                        }
+                    }
+                }
+
+                // Blank lines produce a single empty field and are ignored
+                if (fields.size() == 1 && fields.get(0).isEmpty()) {
+                    continue;
+                }
+                sink.accept(fields.toArray(new String[0]));
+            }
+        }
+
+        private void append(byte b) {
+            if (length == scratch.length) {
+                scratch = Arrays.copyOf(scratch, length * 2);
+            }
+            scratch[length++] = b;
+        }
+    }
+
+    /**
+     * Immutable parser options. Start from {@link #defaults()} and derive variants with the {@code with*} methods.
+     */
+    public static final class Options {
+
+        private final char delimiter;
+        private final char quote;
+        private final Charset charset;
+        private final boolean header;
+        private final long chunkSize;
+
+        private Options(char delimiter, char quote, Charset charset, boolean header, long chunkSize) {
+            this.delimiter = delimiter;
+            this.quote = quote;
+            this.charset = charset;
+            this.header = header;
+            this.chunkSize = chunkSize;
+            validate();
+        }
+
+        /**
+         * Comma-delimited, double-quoted, UTF-8 with a header row and 8 MB chunks.
+         * Small enough that the ordered stream's parsed look-ahead stays well below a GB on many-core agents.
+         *
+         * @return The default options.
+         */
+        public static Options defaults() {
+            return new Options(',', '"', StandardCharsets.UTF_8, true, 8L << 20);
+        }
+
+        public Options withDelimiter(char delimiter) {
+            return new Options(delimiter, quote, charset, header, chunkSize);
+        }
+
+        public Options withQuote(char quote) {
+            return new Options(delimiter, quote, charset, header, chunkSize);
+        }
+
+        public Options withCharset(Charset charset) {
+            return new Options(delimiter, quote, charset, header, chunkSize);
+        }
+
+        public Options withHeader(boolean header) {
+            return new Options(delimiter, quote, charset, header, chunkSize);
+        }
+
+        public Options withChunkSize(long chunkSize) {
+            return new Options(delimiter, quote, charset, header, chunkSize);
+        }
+
+        private byte delimiterByte() {
+            return (byte) delimiter;
+        }
+
+        private byte quoteByte() {
+            return (byte) quote;
+        }
+
+        private void validate() {
+            if (chunkSize < 1024 || chunkSize > Integer.MAX_VALUE / 2) {
+                throw new IllegalArgumentException("Chunk size must be between 1 KB and 1 GB: " + chunkSize);
+            }
+            if (delimiter == quote || delimiter > 0x7F || quote > 0x7F) {
+                throw new IllegalArgumentException("Delimiter and quote must be distinct ASCII characters.");
+            }
+            // Byte-level scanning only works when the structural characters encode to themselves
+            String structural = "" + delimiter + quote + '\n' + '\r';
+            byte[] encoded = structural.getBytes(charset);
+            if (!Arrays.equals(encoded, structural.getBytes(StandardCharsets.US_ASCII))) {
+                throw new IllegalArgumentException("Charset is not ASCII-compatible: " + charset);
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+
+package common.helpers;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Build-time compiler that turns every CSV, XLSX and JSON file under a test data folder into a {@link DataSnapshot}.
+ * It runs from the Maven build when the {@code snapshots} profile is active ({@code mvn -Psnapshots test}), with the
+ * source folder and the snapshot folder as arguments. Snapshots keep the relative file names of their sources plus
+ * {@link DataSnapshot#SUFFIX}.
+ * Files whose snapshot is already up to date are skipped.
+ * Compilation is best-effort: a file that cannot be parsed is logged and left without a snapshot, so the readers keep
+ * parsing it at runtime, and the build goes on.
+ */
+public final class SnapshotCompiler {
+
+    private static final Logger logger = LogManager.getLogger(SnapshotCompiler.class);
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private SnapshotCompiler() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Compiles all supported files.
+     *
+     * @param args The test data source folder and the snapshot output folder.
+     * @throws IOException If a folder cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: SnapshotCompiler <test-data folder> <snapshot folder>");
+        }
+        Path sourceRoot = Paths.get(args[0]);
+        Path targetRoot = Paths.get(args[1]);
+        if (!Files.isDirectory(sourceRoot)) {
+            logger.info("No test data folder at {}; nothing to compile.", sourceRoot);
+            return;
+        }
+
+        List<Path> sources;
+        try (Stream<Path> files = Files.walk(sourceRoot)) {
+            sources = files.filter(Files::isRegularFile).filter(SnapshotCompiler::isSupported).collect(Collectors.toList());
+        }
+
+        List<String> skipped = new ArrayList<>();
+        int compiled = 0;
+        for (Path source : sources) {
+            Path relative = sourceRoot.relativize(source);
+            Path target = targetRoot.resolve(relative.toString() + DataSnapshot.SUFFIX);
+            try {
+                if (compile(source, target)) {
+                    compiled++;
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Skipping snapshot for {}; it will be parsed at runtime: {}", source, e.getMessage());
+                skipped.add(relative.toString());
+            }
+        }
+        logger.info("Compiled {} of {} test data files into snapshots under {}.", compiled, sources.size(), targetRoot);
+        if (!skipped.isEmpty()) {
+            logger.warn("No snapshots for files that could not be parsed: {}", skipped);
+        }
+    }
+
+    /**
+     * Compiles one file unless its snapshot is already fresh.
+     *
+     * @param source The source data file.
+     * @param target The snapshot file to write.
+     * @return true if a snapshot was written, false if it was already up to date.
+     * @throws IOException If the source cannot be parsed or the snapshot cannot be written.
+     */
+    static boolean compile(Path source, Path target) throws IOException {
+        if (DataSnapshot.openIfFresh(target, source) != null) {
+            return false;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+        List<Map<String, String>> rows = parse(source);
+        DataHeader header = rows.isEmpty() ? headerOf(source) : headerOf(rows.get(0));
+        int written = DataSnapshot.write(target, header, rows.iterator(),
+                attributes.lastModifiedTime().toMillis(), attributes.size());
+        logger.info("Wrote snapshot {} ({} rows).", target, written);
+        return true;
+    }
+
+    private static List<Map<String, String>> parse(Path source) throws IOException {
+        String name = source.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return CsvReader.loadCsv(source.toString());
+        }
+        if (name.endsWith(".xlsx")) {
+            return ExcelReader.loadExcel(source.toString());
+        }
+        return Collections.singletonList(JsonReader.loadJson(source.toFile()));
+    }
+
+    private static DataHeader headerOf(Map<String, String> row) {
+        if (row instanceof DataRow) {
+            return ((DataRow) row).header();
+        }
+        return DataHeader.of(row.keySet().toArray(new String[0]));
+    }
+
+    private static DataHeader headerOf(Path source) throws IOException {
+        // Empty CSV/XLSX files still carry a header that readers expect to see
+        String name = source.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            try (Stream<String> lines = Files.lines(source)) {
+                return DataHeader.of(lines.findFirst().orElse("").split(",", -1));
+            }
+        }
+        return DataHeader.of();
+    }
+
+    private static boolean isSupported(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".csv") || name.endsWith(".xlsx") || name.endsWith(".json");
+    }
+}
@@ -0,0 +1,262 @@
+
+package common.helpers;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Generates synthetic test data from a {@link SyntheticSchema}, for load and soak scenarios that need millions of rows.
+ * Rows are generated in fixed-size blocks on the common fork-join pool and written in row order, straight to CSV or
+ * NDJSON, or used to fill request templates. A row range {@code [from, to)} always yields the same data, so shards
+ * can each generate their own slice and together match a single full run.
+ */
+public final class SyntheticData {
+
+    private static final Logger logger = LogManager.getLogger(SyntheticData.class);
+
+    // Rows per block; one block is encoded by one worker into one buffer
+    private static final int BLOCK_ROWS = 16_384;
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\$\\{([^}]+)}");
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private SyntheticData() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Returns a lazy stream of generated rows. The stream may be made parallel; row values do not depend on order.
+     *
+     * @param schema The entity schema.
+     * @param from   The first row number, inclusive.
+     * @param to     The last row number, exclusive.
+     * @return An ordered stream of rows.
+     */
+    public static Stream<DataRow> rows(SyntheticSchema schema, long from, long to) {
+        return LongStream.range(from, to).mapToObj(schema::row);
+    }
+
+    /**
+     * Writes rows as CSV with a header line.
+     *
+     * @param schema The entity schema.
+     * @param from   The first row number, inclusive.
+     * @param to     The last row number, exclusive.
+     * @param target The file to write.
+     * @return The number of rows written.
+     * @throws IOException If the file cannot be written.
+     */
+    public static long writeCsv(SyntheticSchema schema, long from, long to, Path target) throws IOException {
+        StringBuilder header = new StringBuilder();
+        List<String> names = schema.fieldNames();
+        for (int i = 0; i < names.size(); i++) {
+            if (i > 0) {
+                header.append(',');
+            }
+            appendCsv(header, names.get(i));
+        }
+        header.append('\n');
+        return write(schema, from, to, target, header.toString(), SyntheticData::encodeCsv);
+    }
+
+    /**
+     * Writes rows as NDJSON, one JSON object per line, readable with {@link JsonStreamReader}.
+     *
+     * @param schema The entity schema.
+     * @param from   The first row number, inclusive.
+     * @param to     The last row number, exclusive.
+     * @param target The file to write.
+     * @return The number of rows written.
+     * @throws IOException If the file cannot be written.
+     */
+    public static long writeNdjson(SyntheticSchema schema, long from, long to, Path target) throws IOException {
+        return write(schema, from, to, target, "", SyntheticData::encodeJson);
+    }
+
+    /**
+     * Fills a request template once per row. Placeholders are written as {@code ${fieldName}}.
+     *
+     * @param schema   The entity schema.
+     * @param template The template text, e.g. a JSON request body.
+     * @param from     The first row number, inclusive.
+     * @param to       The last row number, exclusive.
+     * @return An ordered stream of filled templates; it may be made parallel.
+     * @throws IllegalArgumentException If a placeholder names an unknown field.
+     */
+    public static Stream<String> fillTemplate(SyntheticSchema schema, String template, long from, long to) {
+        // Split the template once into literal parts and field positions
+        List<String> literals = new ArrayList<>();
+        List<Integer> fields = new ArrayList<>();
+        Matcher matcher = PLACEHOLDER.matcher(template);
+        int last = 0;
+        while (matcher.find()) {
+            int field = schema.indexOf(matcher.group(1));
+            if (field < 0) {
+                throw new IllegalArgumentException("Template placeholder ${" + matcher.group(1) + "} is not a field of " + schema.name());
+            }
+            literals.add(template.substring(last, matcher.start()));
+            fields.add(field);
+            last = matcher.end();
+        }
+        String tail = template.substring(last);
+        return LongStream.range(from, to).mapToObj(row -> {
+            StringBuilder out = new StringBuilder(template.length() + 64);
+            for (int i = 0; i < fields.size(); i++) {
+                out.append(literals.get(i));
+                schema.appendValue(fields.get(i), row, out);
+            }
+            return out.append(tail).toString();
+        });
+    }
+
+    private static long write(SyntheticSchema schema, long from, long to, Path target, String preamble,
+                              BlockEncoder encoder) throws IOException {
+        long start = System.nanoTime();
+        long total = to - from;
+        long blocks = (total + BLOCK_ROWS - 1) / BLOCK_ROWS;
+        // Encode a bounded wave of blocks in parallel, then write them in order before starting the next wave
+        int wave = ForkJoinPool.getCommonPoolParallelism() * 2;
+
+        Path parent = target.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        try (OutputStream out = Files.newOutputStream(target)) {
+            out.write(preamble.getBytes(StandardCharsets.UTF_8));
+            for (long first = 0; first < blocks; first += wave) {
+                long firstBlock = first;
+                int count = (int) Math.min(wave, blocks - first);
+                List<byte[]> encoded = IntStream.range(0, count).parallel()
+                        .mapToObj(i -> {
+                            long blockFrom = from + (firstBlock + i) * BLOCK_ROWS;
+                            long blockTo = Math.min(to, blockFrom + BLOCK_ROWS);
+                            StringBuilder buffer = new StringBuilder((int) (blockTo - blockFrom) * 64);
+                            encoder.encode(schema, blockFrom, blockTo, buffer);
+                            return buffer.toString().getBytes(StandardCharsets.UTF_8);
+                        })
+                        .collect(Collectors.toList());
+                for (byte[] block : encoded) {
+                    out.write(block);
+                }
+            }
+        } catch (IOException e) {
+            String errorMsg = "Error writing synthetic data to " + target + ": " + e.getMessage();
+            logger.error(errorMsg, e);
+            throw new IOException(errorMsg, e);
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        logger.info("Generated {} {} rows into {} in {} s ({} rows/s).", total, schema.name(), target,
+                String.format("%.2f", seconds), String.format("%.0f", total / Math.max(seconds, 1e-9)));
+        return total;
+    }
+
+    private static void encodeCsv(SyntheticSchema schema, long from, long to, StringBuilder out) {
+        int fields = schema.fieldNames().size();
+        for (long row = from; row < to; row++) {
+            for (int f = 0; f < fields; f++) {
+                if (f > 0) {
+                    out.append(',');
+                }
+                int mark = out.length();
+                schema.appendValue(f, row, out);
+                quoteCsvIfNeeded(out, mark);
+            }
+            out.append('\n');
+        }
+    }
+
+    private static void encodeJson(SyntheticSchema schema, long from, long to, StringBuilder out) {
+        List<String> names = schema.fieldNames();
+        // Field name prefixes are the same for every row, so build them once per block
+        String[] prefixes = new String[names.size()];
+        for (int f = 0; f < prefixes.length; f++) {
+            StringBuilder prefix = new StringBuilder(f == 0 ? "{\"" : ",\"");
+            appendJsonEscaped(prefix, names.get(f));
+            prefixes[f] = prefix.append("\":\"").toString();
+        }
+        for (long row = from; row < to; row++) {
+            for (int f = 0; f < prefixes.length; f++) {
+                out.append(prefixes[f]);
+                int mark = out.length();
+                schema.appendValue(f, row, out);
+                escapeJsonIfNeeded(out, mark);
+                out.append('"');
+            }
+            out.append(prefixes.length == 0 ? "{}\n" : "}\n");
+        }
+    }
+
+    private static void appendCsv(StringBuilder out, String value) {
+        int mark = out.length();
+        out.append(value);
+        quoteCsvIfNeeded(out, mark);
+    }
+
+    /**
+     * Quotes the value appended since mark if it contains a delimiter, quote or line break.
+     */
+    private static void quoteCsvIfNeeded(StringBuilder out, int mark) {
+        for (int i = mark; i < out.length(); i++) {
+            char c = out.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                String value = out.substring(mark);
+                out.setLength(mark);
+                out.append('"').append(value.replace("\"", "\"\"")).append('"');
+                return;
+            }
+        }
+    }
+
+    private static void appendJsonEscaped(StringBuilder out, String value) {
+        int mark = out.length();
+        out.append(value);
+        escapeJsonIfNeeded(out, mark);
+    }
+
+    /**
+     * Escapes the value appended since mark if it contains characters that JSON strings cannot hold verbatim.
+     */
+    private static void escapeJsonIfNeeded(StringBuilder out, int mark) {
+        for (int i = mark; i < out.length(); i++) {
+            char c = out.charAt(i);
+            if (c == '"' || c == '\\' || c < 0x20) {
+                String value = out.substring(mark);
+                out.setLength(mark);
+                for (int j = 0; j < value.length(); j++) {
+                    char v = value.charAt(j);
+                    if (v == '"' || v == '\\') {
+                        out.append('\\').append(v);
+                    } else if (v < 0x20) {
+                        out.append(String.format("\\u%04x", (int) v));
+                    } else {
+                        out.append(v);
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Encodes a block of rows into a buffer.
+     */
+    @FunctionalInterface
+    private interface BlockEncoder {
+        void encode(SyntheticSchema schema, long from, long to, StringBuilder out);
+    }
+}
@@ -0,0 +1,139 @@
+
+package common.helpers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable description of one synthetic entity: its name, seed and typed fields.
+ * The same schema and seed always produce the same rows, on any machine and in any shard.
+ *
+ * <pre>
+ *   SyntheticSchema users = SyntheticSchema.of("users", 42)
+ *           .withField("id", FieldGenerators.sequence(1))
+ *           .withField("email", FieldGenerators.uniqueEmail("example.test"))
+ *           .withField("plan", FieldGenerators.oneOf("free", "pro", "enterprise"));
+ *   SyntheticSchema orders = SyntheticSchema.of("orders", 42)
+ *           .withField("orderId", FieldGenerators.uniqueId("ORD-"))
+ *           .withField("userId", FieldGenerators.reference(users, "id", 1_000_000));
+ * </pre>
+ */
+public final class SyntheticSchema {
+
+    private final String name;
+    private final long seed;
+    private final String[] fieldNames;
+    private final FieldGenerator[] generators;
+    private final long[] fieldSeeds;
+    private final DataHeader header;
+
+    private SyntheticSchema(String name, long seed, String[] fieldNames, FieldGenerator[] generators) {
+        this.name = name;
+        this.seed = seed;
+        this.fieldNames = fieldNames;
+        this.generators = generators;
+        this.fieldSeeds = new long[fieldNames.length];
+        for (int i = 0; i < fieldNames.length; i++) {
+            // Field seeds depend on the names, so adding a field does not change the values of the others
+            fieldSeeds[i] = FieldGenerators.mix(seed ^ FieldGenerators.mix(name.hashCode()) ^ fieldNames[i].hashCode());
+        }
+        this.header = DataHeader.of(fieldNames);
+    }
+
+    /**
+     * Creates an entity with no fields.
+     *
+     * @param name The entity name, e.g. "users".
+     * @param seed The seed; runs with the same seed produce the same data.
+     * @return A new SyntheticSchema.
+     */
+    public static SyntheticSchema of(String name, long seed) {
+        return new SyntheticSchema(name, seed, new String[0], new FieldGenerator[0]);
+    }
+
+    /**
+     * Returns a copy of this schema with one more field.
+     *
+     * @param fieldName The field name.
+     * @param generator The generator of its values.
+     * @return A new SyntheticSchema.
+     * @throws IllegalArgumentException If the field already exists.
+     */
+    public SyntheticSchema withField(String fieldName, FieldGenerator generator) {
+        if (indexOf(fieldName) >= 0) {
+            throw new IllegalArgumentException("Entity " + name + " already has a field " + fieldName);
+        }
+        String[] names = Arrays.copyOf(fieldNames, fieldNames.length + 1);
+        FieldGenerator[] gens = Arrays.copyOf(generators, generators.length + 1);
+        names[fieldNames.length] = fieldName;
+        gens[generators.length] = generator;
+        return new SyntheticSchema(name, seed, names, gens);
+    }
+
+    /**
+     * Returns the entity name.
+     *
+     * @return The name.
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Returns the shared header of the generated rows.
+     *
+     * @return The DataHeader instance.
+     */
+    public DataHeader header() {
+        return header;
+    }
+
+    /**
+     * Returns the position of a field.
+     *
+     * @param fieldName The field name.
+     * @return The zero-based position, or -1 if the field does not exist.
+     */
+    public int indexOf(String fieldName) {
+        return header.indexOf(fieldName);
+    }
+
+    /**
+     * Returns the field names in order.
+     *
+     * @return An unmodifiable list of field names.
+     */
+    public List<String> fieldNames() {
+        return Collections.unmodifiableList(new ArrayList<>(Arrays.asList(fieldNames)));
+    }
+
+    /**
+     * Appends one field value of a row.
+     *
+     * @param field The zero-based field position.
+     * @param row   The zero-based row number.
+     * @param out   The buffer to append to.
+     */
+    public void appendValue(int field, long row, StringBuilder out) {
+        generators[field].append(row, fieldSeeds[field], out);
+    }
+
+    /**
+     * Generates one row.
+     *
+     * @param row The zero-based row number.
+     * @return The row.
+     */
+    public DataRow row(long row) {
+        String[] values = new String[fieldNames.length];
+        StringBuilder buffer = new StringBuilder(32);
+        for (int i = 0; i < values.length; i++) {
+            buffer.setLength(0);
+            appendValue(i, row, buffer);
+            values[i] = buffer.toString();
+        }
+        return new DataRow(header, values);
+    }
+}
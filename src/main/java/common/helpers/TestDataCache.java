@@ -0,0 +1,383 @@
+
+package common.helpers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import common.config.ConfigManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide cache of parsed test data shared by {@link CsvReader}, {@link ExcelReader} and {@link JsonReader}.
+ * Entries are keyed by file path, last-modified time and size, so an edited file is re-parsed on its next read.
+ * Cached values are immutable and handed out as-is to every caller without defensive copies.
+ * Concurrent callers asking for the same file share a single load. Entries are evicted least-recently-used first
+ * once their estimated size exceeds the configured budget ({@code testData.cache.maxMB}, default 256).
+ * Lookups never take a lock; only eviction is serialized.
+ */
+public final class TestDataCache {
+
+    private static final Logger logger = LogManager.getLogger(TestDataCache.class);
+
+    private static final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private static final AtomicLong clock = new AtomicLong();
+    private static final AtomicLong weight = new AtomicLong();
+
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+    private static final LongAdder loadFailures = new LongAdder();
+    private static final LongAdder evictions = new LongAdder();
+    private static final LongAdder loadNanos = new LongAdder();
+
+    private static final boolean enabled = Boolean.parseBoolean(ConfigManager.get("testData.cache.enabled", "true"));
+    private static final long budget = Long.parseLong(ConfigManager.get("testData.cache.maxMB", "256")) << 20;
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private TestDataCache() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Parses a file into an immutable value.
+     *
+     * @param <T> The parsed value type.
+     */
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load() throws IOException;
+    }
+
+    /**
+     * Returns the cached value for a file, loading it if the file is not cached or has changed since it was cached.
+     * The loader must return an immutable value; it is shared with every other caller.
+     *
+     * @param file    The data file.
+     * @param variant Distinguishes different parses of the same file, e.g. "csv" or "sheet:Users".
+     * @param loader  Parses the file on a cache miss.
+     * @param <T>     The parsed value type.
+     * @return The shared, immutable value.
+     * @throws IOException If the file cannot be read or parsed.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T get(Path file, String variant, Loader<T> loader) throws IOException {
+        if (!enabled) {
+            return loader.load();
+        }
+
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        Key key = new Key(file.toAbsolutePath().normalize().toString(), variant,
+                attributes.lastModifiedTime().toMillis(), attributes.size());
+
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            hits.increment();
+        } else {
+            Entry created = new Entry();
+            entry = entries.putIfAbsent(key, created);
+            if (entry != null) {
+                hits.increment();  // Another thread is loading or has loaded it; share that load
+            } else {
+                misses.increment();
+                entry = created;
+                load(key, created, loader);
+            }
+        }
+        entry.lastAccess = clock.incrementAndGet();
+
+        try {
+            return (T) entry.value.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            throw new IOException("Error loading test data from " + file + ": " + cause.getMessage(), cause);
+        }
+    }
+
+    private static <T> void load(Key key, Entry entry, Loader<T> loader) {
+        long start = System.nanoTime();
+        try {
+            T value = loader.load();
+            entry.weight = estimateWeight(value);
+            // Stamp before eviction runs, so the value just loaded counts as the most recently used
+            entry.lastAccess = clock.incrementAndGet();
+            entry.value.complete(value);
+            weight.addAndGet(entry.weight);
+            loadNanos.add(System.nanoTime() - start);
+            dropStaleVersions(key);
+            if (weight.get() > budget) {
+                evict();
+            }
+        } catch (IOException | RuntimeException e) {
+            loadFailures.increment();
+            entries.remove(key, entry);
+            entry.value.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Publishes a value parsed outside the cache, e.g. by {@link TestDataWatcher} after an incremental re-parse,
+     * as the current version of a file. Readers pick it up on their next lookup without taking a lock.
+     * Nothing is published if that version is already cached or being loaded.
+     *
+     * @param file         The data file.
+     * @param variant      The parse variant the value belongs to.
+     * @param lastModified The last-modified time of the file version the value was parsed from, in millis.
+     * @param size         The size of that file version in bytes.
+     * @param value        The immutable value.
+     */
+    public static void publish(Path file, String variant, long lastModified, long size, Object value) {
+        if (!enabled) {
+            return;
+        }
+        Key key = new Key(file.toAbsolutePath().normalize().toString(), variant, lastModified, size);
+        Entry entry = new Entry();
+        entry.weight = estimateWeight(value);
+        entry.lastAccess = clock.incrementAndGet();
+        entry.value.complete(value);
+        if (entries.putIfAbsent(key, entry) == null) {
+            weight.addAndGet(entry.weight);
+            dropStaleVersions(key);
+            if (weight.get() > budget) {
+                evict();
+            }
+        }
+    }
+
+    /**
+     * Returns the most recently loaded version of a file that is still cached.
+     *
+     * @param file    The data file.
+     * @param variant The parse variant.
+     * @return The cached version, or null if the file is not cached under that variant.
+     */
+    static Version latest(Path file, String variant) {
+        String path = file.toAbsolutePath().normalize().toString();
+        Version latest = null;
+        for (Map.Entry<Key, Entry> candidate : entries.entrySet()) {
+            Key key = candidate.getKey();
+            CompletableFuture<Object> value = candidate.getValue().value;
+            if (key.path.equals(path) && key.variant.equals(variant) && value.isDone() && !value.isCompletedExceptionally()
+                    && (latest == null || key.lastModified > latest.lastModified)) {
+                latest = new Version(value.join(), key.lastModified, key.size);
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Removes older versions of a file once a newer one has been loaded.
+     */
+    private static void dropStaleVersions(Key current) {
+        for (Map.Entry<Key, Entry> candidate : entries.entrySet()) {
+            Key key = candidate.getKey();
+            if (key.path.equals(current.path) && key.variant.equals(current.variant) && !key.equals(current)) {
+                if (entries.remove(key, candidate.getValue())) {
+                    weight.addAndGet(-candidate.getValue().weight);
+                }
+            }
+        }
+    }
+
+    /**
+     * Evicts least-recently-used entries until the cache fits the budget again.
+     */
+    private static synchronized void evict() {
+        if (weight.get() <= budget) {
+            return;
+        }
+        List<Map.Entry<Key, Entry>> candidates = new ArrayList<>();
+        for (Map.Entry<Key, Entry> candidate : entries.entrySet()) {
+            if (candidate.getValue().value.isDone()) {
+                candidates.add(candidate);
+            }
+        }
+        candidates.sort(Comparator.comparingLong(candidate -> candidate.getValue().lastAccess));
+        for (Map.Entry<Key, Entry> candidate : candidates) {
+            if (weight.get() <= budget) {
+                break;
+            }
+            if (entries.remove(candidate.getKey(), candidate.getValue())) {
+                weight.addAndGet(-candidate.getValue().weight);
+                evictions.increment();
+                logger.debug("Evicted {} from test data cache.", candidate.getKey());
+            }
+        }
+    }
+
+    /**
+     * Rough retained-size estimate in bytes for rows, maps and strings, used only for budgeting.
+     */
+    static long estimateWeight(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String) {
+            return 40 + 2L * ((String) value).length();
+        }
+        if (value instanceof DataSnapshot.RowList) {
+            return 64;  // Rows stay in the mapped snapshot file, off the heap
+        }
+        if (value instanceof DataRow) {
+            DataRow row = (DataRow) value;
+            long size = 32 + 4L * row.width();
+            for (int i = 0; i < row.width(); i++) {
+                size += estimateWeight(row.get(i));
+            }
+            return size;
+        }
+        if (value instanceof Map) {
+            long size = 48;
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+                size += 32 + estimateWeight(e.getKey()) + estimateWeight(e.getValue());
+            }
+            return size;
+        }
+        if (value instanceof Collection) {
+            long size = 24;
+            for (Object element : (Collection<?>) value) {
+                size += 8 + estimateWeight(element);
+            }
+            return size;
+        }
+        return 64;
+    }
+
+    /**
+     * Removes every cached entry. Statistics are kept.
+     */
+    public static void clear() {
+        entries.clear();
+        weight.set(0);
+    }
+
+    /**
+     * Returns a snapshot of the cache statistics.
+     *
+     * @return An ordered map of statistic name to value.
+     */
+    public static Map<String, Object> statistics() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRatio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("loadFailures", loadFailures.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("entries", entries.size());
+        stats.put("estimatedBytes", weight.get());
+        stats.put("budgetBytes", budget);
+        stats.put("totalLoadMillis", loadNanos.sum() / 1_000_000);
+        return stats;
+    }
+
+    /**
+     * Logs the cache statistics and writes them as JSON to {@code testData.cache.statsFile}
+     * (default {@code target/test-data-cache-stats.json}). Called at the end of the run.
+     */
+    public static void exportStatistics() {
+        Map<String, Object> stats = statistics();
+        logger.info("Test data cache statistics: {}", stats);
+        File statsFile = new File(ConfigManager.get("testData.cache.statsFile", "target/test-data-cache-stats.json"));
+        try {
+            File parent = statsFile.getAbsoluteFile().getParentFile();
+            if (parent != null) {
+                parent.mkdirs();
+            }
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(statsFile, stats);
+        } catch (IOException e) {
+            logger.warn("Failed to write test data cache statistics to {}: {}", statsFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Cache key: one parse variant of one version of a file.
+     */
+    private static final class Key {
+        private final String path;
+        private final String variant;
+        private final long lastModified;
+        private final long size;
+
+        private Key(String path, String variant, long lastModified, long size) {
+            this.path = path;
+            this.variant = variant;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return lastModified == other.lastModified && size == other.size
+                    && path.equals(other.path) && variant.equals(other.variant);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = path.hashCode();
+            result = 31 * result + variant.hashCode();
+            result = 31 * result + Long.hashCode(lastModified);
+            return 31 * result + Long.hashCode(size);
+        }
+
+        @Override
+        public String toString() {
+            return path + " [" + variant + "]";
+        }
+    }
+
+    /**
+     * One cached version of a file: the parsed value and the file attributes it was parsed from.
+     */
+    static final class Version {
+        final Object value;
+        final long lastModified;
+        final long size;
+
+        private Version(Object value, long lastModified, long size) {
+            this.value = value;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+    }
+
+    /**
+     * A loaded or in-flight value with its LRU stamp and estimated size.
+     */
+    private static final class Entry {
+        private final CompletableFuture<Object> value = new CompletableFuture<>();
+        private volatile long lastAccess;
+        private volatile long weight;
+    }
+}
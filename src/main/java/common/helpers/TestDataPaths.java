@@ -0,0 +1,43 @@
+
+package common.helpers;
+
+import common.config.ConfigManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import java.io.IOException;
+
+/**
+ * Resolves test data file names passed by the Step Definitions (SDs) against the configured test data folder
+ * ({@code testDataFolderLocation} in config.properties). Shared by every reader and data source.
+ */
+public final class TestDataPaths {
+
+    private static final Logger logger = LogManager.getLogger(TestDataPaths.class);
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private TestDataPaths() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Builds the full path of a file inside the configured test data folder.
+     *
+     * @param fileName The file name passed by the Step Definitions.
+     * @return The complete file path.
+     * @throws IOException If the test data folder is not configured.
+     */
+    public static String resolve(String fileName) throws IOException {
+        // Get the base directory path for the test data folder
+        String basePath = ConfigManager.get("testDataFolderLocation");
+        if (basePath == null || basePath.isEmpty()) {
+            String errorMsg = "Base directory for test data folder is not defined in config.properties.";
+            logger.error(errorMsg);
+            throw new IOException(errorMsg);
+        }
+
+        // Append the file name to the base path to form the complete file path
+        return basePath + fileName;
+    }
+}
@@ -0,0 +1,434 @@
+
+package common.helpers;
+
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+import common.config.ConfigManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Watches the test data folder and config.properties during long-lived sessions and reloads what changed.
+ * Only files that are already cached are re-parsed; everything else is picked up lazily on its next read anyway,
+ * because {@link TestDataCache} keys entries by modification time and size.
+ *
+ * <p>When a cached CSV or JSON Lines file grows and its previous content is unchanged, which is checked against a
+ * content hash the watcher took of that version, the edit is treated as an append: only the new bytes are parsed and
+ * the new rows are added to the previous rows. Any other change, and the first change of a file the watcher has not
+ * hashed yet, re-parses the whole file. The result is published to the cache as a new immutable version, so running threads
+ * switch over on their next lookup without any locking on the read path.</p>
+ *
+ * <p>config.properties is watched in its source folder, {@code testData.watch.configDir} (default
+ * src/main/resources), when it exists there, since the classpath copy only changes on a build; reloads then read the
+ * configuration from that folder. Otherwise the classpath copy is watched.</p>
+ *
+ * <p>Enabled with {@code testData.watch.enabled=true}; the listener starts it with the suite and stops it at the end.</p>
+ */
+public final class TestDataWatcher {
+
+    private static final Logger logger = LogManager.getLogger(TestDataWatcher.class);
+
+    // Editors often save in several writes; changes are collected for this long before they are processed
+    private static final long SETTLE_MILLIS = 200;
+
+    // Content hash of the file versions the watcher has parsed, used to confirm that a later change only appended
+    private static final Map<Path, Fingerprint> fingerprints = new ConcurrentHashMap<>();
+
+    private static volatile Thread thread;
+    private static volatile WatchService watchService;
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private TestDataWatcher() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Starts watching if {@code testData.watch.enabled} is true. Calling it again while running has no effect.
+     */
+    public static synchronized void startIfEnabled() {
+        if (!Boolean.parseBoolean(ConfigManager.get("testData.watch.enabled", "false")) || thread != null) {
+            return;
+        }
+        try {
+            String basePath = TestDataPaths.resolve("");
+            Path dataRoot = Paths.get(basePath).toAbsolutePath().normalize();
+            Path configFile = configFile();
+            WatchService service = FileSystems.getDefault().newWatchService();
+            registerTree(service, dataRoot);
+            if (configFile != null && !configFile.getParent().startsWith(dataRoot)) {
+                configFile.getParent().register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+            watchService = service;
+            Thread watcher = new Thread(() -> watch(service, dataRoot, configFile), "test-data-watcher");
+            watcher.setDaemon(true);
+            thread = watcher;
+            watcher.start();
+            logger.info("Watching {} and {} for changes.", dataRoot, configFile != null ? configFile : "(no config file)");
+        } catch (IOException e) {
+            logger.error("Failed to start test data watcher: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Stops watching.
+     */
+    public static synchronized void stop() {
+        WatchService service = watchService;
+        if (service != null) {
+            try {
+                service.close();  // Wakes the watcher thread, which then exits
+            } catch (IOException e) {
+                logger.warn("Failed to close test data watch service: {}", e.getMessage());
+            }
+        }
+        watchService = null;
+        thread = null;
+    }
+
+    private static void watch(WatchService service, Path dataRoot, Path configFile) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = service.take();
+                Set<Path> changed = new LinkedHashSet<>();
+                collect(service, key, changed);
+                // Let the writer finish, then drain whatever else arrived meanwhile
+                TimeUnit.MILLISECONDS.sleep(SETTLE_MILLIS);
+                WatchKey more;
+                while ((more = service.poll()) != null) {
+                    collect(service, more, changed);
+                }
+                for (Path path : changed) {
+                    if (configFile != null && isConfigLayer(path, configFile)) {
+                        reloadConfig(configFile);
+                    } else if (path.startsWith(dataRoot) && Files.isRegularFile(path)) {
+                        refresh(dataRoot.relativize(path).toString().replace('\\', '/'), path);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Stopped
+        }
+        logger.info("Test data watcher stopped.");
+    }
+
+    private static void collect(WatchService service, WatchKey key, Set<Path> changed) {
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                continue;
+            }
+            Path path = directory.resolve((Path) event.context()).toAbsolutePath().normalize();
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                try {
+                    registerTree(service, path);
+                } catch (IOException e) {
+                    logger.warn("Failed to watch new folder {}: {}", path, e.getMessage());
+                }
+                continue;
+            }
+            changed.add(path);
+        }
+        key.reset();
+    }
+
+    /**
+     * Whether a path is config.properties or one of its sibling layers (config-defaults, config-&lt;profile&gt;).
+     */
+    private static boolean isConfigLayer(Path path, Path configFile) {
+        String name = path.getFileName().toString();
+        return path.getParent().equals(configFile.getParent())
+                && (name.equals("config.properties") || (name.startsWith("config-") && name.endsWith(".properties")));
+    }
+
+    private static void reloadConfig(Path configFile) {
+        try {
+            // Read the edited files, not the classpath copies a build would refresh
+            ConfigManager.useConfigDirectory(configFile.getParent());
+            ConfigManager.reloadProperties();
+        } catch (RuntimeException e) {
+            logger.error("Keeping the previous configuration; reload failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Re-parses a changed data file if any of its parse variants is cached.
+     */
+    private static void refresh(String fileName, Path path) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        long start = System.currentTimeMillis();
+        try {
+            boolean reloaded = false;
+            if (name.endsWith(".csv") && TestDataCache.latest(path, "csv") != null) {
+                if (!appendCsv(path)) {
+                    CsvReader.readCsv(fileName);
+                }
+                reloaded = true;
+            }
+            if ((name.endsWith(".jsonl") || name.endsWith(".ndjson") || name.endsWith(".json"))
+                    && TestDataCache.latest(path, "records") != null) {
+                if (!appendJsonLines(path)) {
+                    JsonReader.readRecords(fileName);
+                }
+                reloaded = true;
+            }
+            if (name.endsWith(".json") && TestDataCache.latest(path, "json") != null) {
+                JsonReader.readJson(fileName);
+                reloaded = true;
+            }
+            if (name.endsWith(".xlsx") && TestDataCache.latest(path, "excel") != null) {
+                ExcelReader.readExcel(fileName);
+                reloaded = true;
+            }
+            // Files that are not cached are re-parsed lazily on first use
+            if (reloaded) {
+                remember(path);
+                logger.info("Reloaded {} in {} ms.", fileName, System.currentTimeMillis() - start);
+            }
+        } catch (IOException | RuntimeException e) {
+            // A half-saved file fails to parse; the next save triggers another reload
+            logger.warn("Failed to reload {}: {}", fileName, e.getMessage());
+        }
+    }
+
+    /**
+     * Parses only the rows appended to a cached CSV file. Returns false if the change is not a clean append.
+     */
+    private static boolean appendCsv(Path path) throws IOException {
+        TestDataCache.Version previous = TestDataCache.latest(path, "csv");
+        Tail tail = Tail.read(path, previous, fingerprints.get(path));
+        if (tail == null || !(lastOf(previous.value) instanceof DataRow)) {
+            return false;
+        }
+        DataRow last = (DataRow) lastOf(previous.value);
+        List<Map<String, String>> rows = new ArrayList<>();
+        addAll(rows, previous.value);
+        int before = rows.size();
+        try (CSVReader reader = new CSVReader(new InputStreamReader(new ByteArrayInputStream(tail.appended), StandardCharsets.UTF_8))) {
+            String[] values;
+            while ((values = reader.readNext()) != null) {
+                if (values.length != last.header().size()) {
+                    logger.warn("Row length does not match header length: {}", String.join(",", values));
+                    continue;
+                }
+                rows.add(new DataRow(last.header(), values));
+            }
+        } catch (CsvValidationException e) {
+            return false;
+        }
+        TestDataCache.publish(path, "csv", tail.lastModified, tail.size, Collections.unmodifiableList(rows));
+        logger.info("Appended {} rows to {}.", rows.size() - before, path);
+        return true;
+    }
+
+    /**
+     * Parses only the records appended to a cached JSON Lines file. Returns false if the change is not a clean append.
+     */
+    private static boolean appendJsonLines(Path path) throws IOException {
+        TestDataCache.Version previous = TestDataCache.latest(path, "records");
+        Tail tail = Tail.read(path, previous, fingerprints.get(path));
+        if (tail == null) {
+            return false;
+        }
+        List<Map<String, String>> records = new ArrayList<>();
+        addAll(records, previous.value);
+        int before = records.size();
+        try (Stream<DataRow> appended = JsonStreamReader.stream(new ByteArrayInputStream(tail.appended), false)) {
+            appended.forEach(records::add);
+        } catch (UncheckedIOException e) {
+            return false;
+        }
+        TestDataCache.publish(path, "records", tail.lastModified, tail.size, Collections.unmodifiableList(records));
+        logger.info("Appended {} records to {}.", records.size() - before, path);
+        return true;
+    }
+
+    /**
+     * Hashes the version of a file that was just parsed, so a later append to it can be recognized.
+     * Nothing is recorded if the file changes while it is hashed.
+     */
+    private static void remember(Path path) {
+        try {
+            BasicFileAttributes before = Files.readAttributes(path, BasicFileAttributes.class);
+            long hash = Fingerprint.hash(path, before.size());
+            BasicFileAttributes after = Files.readAttributes(path, BasicFileAttributes.class);
+            if (before.size() == after.size() && before.lastModifiedTime().equals(after.lastModifiedTime())) {
+                fingerprints.put(path, new Fingerprint(after.lastModifiedTime().toMillis(), after.size(), hash));
+            } else {
+                fingerprints.remove(path);
+            }
+        } catch (IOException e) {
+            fingerprints.remove(path);
+        }
+    }
+
+    private static Object lastOf(Object value) {
+        if (!(value instanceof List) || ((List<?>) value).isEmpty()) {
+            return null;
+        }
+        List<?> list = (List<?>) value;
+        return list.get(list.size() - 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void addAll(List<Map<String, String>> target, Object rows) {
+        target.addAll((List<Map<String, String>>) rows);
+    }
+
+    private static void registerTree(WatchService service, Path root) throws IOException {
+        try (Stream<Path> folders = Files.walk(root)) {
+            for (Path folder : (Iterable<Path>) folders.filter(Files::isDirectory)::iterator) {
+                folder.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+        }
+    }
+
+    private static Path configFile() {
+        Path directory = ConfigManager.configDirectory();
+        if (directory == null) {
+            directory = Paths.get(ConfigManager.get("testData.watch.configDir", "src/main/resources"));
+        }
+        Path source = directory.resolve("config.properties").toAbsolutePath().normalize();
+        if (Files.isRegularFile(source)) {
+            return source;
+        }
+        URL resource = ConfigManager.class.getClassLoader().getResource("config.properties");
+        if (resource == null || !"file".equals(resource.getProtocol())) {
+            return null;  // Packaged in a jar; nothing to watch
+        }
+        try {
+            return Paths.get(resource.toURI()).toAbsolutePath().normalize();
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Size, modification time and CRC-32 of the content of one version of a file.
+     */
+    private static final class Fingerprint {
+        private final long lastModified;
+        private final long size;
+        private final long hash;
+
+        private Fingerprint(long lastModified, long size, long hash) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.hash = hash;
+        }
+
+        /**
+         * Returns the CRC-32 of the first {@code length} bytes of a file.
+         */
+        private static long hash(Path path, long length) throws IOException {
+            CRC32 crc = new CRC32();
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long position = 0;
+                while (position < length) {
+                    buffer.clear();
+                    buffer.limit((int) Math.min(buffer.capacity(), length - position));
+                    int read = channel.read(buffer, position);
+                    if (read < 0) {
+                        throw new IOException("File shrank while reading");
+                    }
+                    crc.update(buffer.array(), 0, read);
+                    position += read;
+                }
+            }
+            return crc.getValue();
+        }
+    }
+
+    /**
+     * The bytes appended to a file since a cached version.
+     */
+    private static final class Tail {
+        private final byte[] appended;
+        private final long lastModified;
+        private final long size;
+
+        private Tail(byte[] appended, long lastModified, long size) {
+            this.appended = appended;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+
+        /**
+         * Reads the tail, or returns null if the file did not simply grow by whole lines: the cached version must be
+         * the hashed one, and the file must still start with exactly that content.
+         */
+        private static Tail read(Path path, TestDataCache.Version previous, Fingerprint fingerprint) throws IOException {
+            if (previous == null || fingerprint == null || fingerprint.size != previous.size
+                    || fingerprint.lastModified != previous.lastModified) {
+                return null;
+            }
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            long oldSize = previous.size;
+            long newSize = attributes.size();
+            if (newSize <= oldSize || oldSize == 0 || newSize - oldSize > Integer.MAX_VALUE) {
+                return null;
+            }
+            if (Fingerprint.hash(path, oldSize) != fingerprint.hash) {
+                return null;  // An earlier line was edited
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                // The old content must have ended with a complete line, and the new content must too
+                ByteBuffer lastByte = ByteBuffer.allocate(1);
+                readFully(channel, lastByte, oldSize - 1);
+                if (lastByte.get(0) != '\n') {
+                    return null;
+                }
+                ByteBuffer appended = ByteBuffer.allocate((int) (newSize - oldSize));
+                readFully(channel, appended, oldSize);
+                byte[] bytes = appended.array();
+                if (bytes[bytes.length - 1] != '\n') {
+                    return null;  // Still being written
+                }
+                return new Tail(bytes, attributes.lastModifiedTime().toMillis(), newSize);
+            }
+        }
+
+        private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("File shrank while reading");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,805 @@
+
+package common.helpers;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageRelationship;
+import org.apache.poi.openxml4j.opc.PackageRelationshipTypes;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Streaming reader for .xlsx workbooks built on the POI event model.
+ * Sheet XML is pulled element by element with StAX, strings are resolved through the read-only shared-strings table,
+ * and only the current row is ever held in memory, so memory use is constant regardless of sheet size.
+ * Cell values are converted exactly like {@code ExcelReader.getCellValueAsString}.
+ */
+public class XlsxStreamReader implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger(XlsxStreamReader.class);
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLHelper.newXMLInputFactory();
+
+    // A1 references as they appear in formula text: a cell (B2, $B$2), a cell range (B2:C9), a column range (B:C)
+    // or a row range (2:9)
+    private static final String CELL = "\\$?[A-Za-z]{1,3}\\$?[0-9]{1,7}";
+    private static final Pattern REFERENCE = Pattern.compile(CELL + "(:" + CELL + ")?"
+            + "|\\$?[A-Za-z]{1,3}:\\$?[A-Za-z]{1,3}|\\$?[0-9]{1,7}:\\$?[0-9]{1,7}");
+    private static final Pattern REFERENCE_PART = Pattern.compile("(\\$?)([A-Za-z]{0,3})(\\$?)([0-9]{0,7})");
+
+    // Last column (XFD) and row of an .xlsx sheet
+    private static final int MAX_COLUMN = 16383;
+    private static final int MAX_ROW = 1048576;
+
+    private final OPCPackage pkg;
+    private final XSSFReader reader;
+    private final ReadOnlySharedStringsTable sharedStrings;
+
+    // Date detection per cell style index, resolved once so sheet parsing never touches the styles DOM
+    private final boolean[] dateStyles;
+    private final boolean date1904;
+
+    // Sheet name to relationship id, in workbook order, plus workbook-scoped defined names
+    private final Map<String, String> sheetRelIds = new LinkedHashMap<>();
+    private final Map<String, String> definedNames = new LinkedHashMap<>();
+
+    // FORMULA_TEXT reports <f>; the other modes report the cached <v> result, since streaming cannot evaluate
+    private final FormulaMode formulaMode;
+
+    private XlsxStreamReader(OPCPackage pkg, FormulaMode formulaMode) throws IOException {
+        this.pkg = pkg;
+        this.formulaMode = formulaMode;
+        try {
+            this.reader = new XSSFReader(pkg);
+            this.sharedStrings = new ReadOnlySharedStringsTable(pkg);
+            this.dateStyles = resolveDateStyles(reader.getStylesTable());
+            this.date1904 = readWorkbookInfo(reader.getWorkbookData());
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Error opening workbook for streaming: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Opens a workbook for streaming. The file is opened read-only and is never modified.
+     *
+     * @param file The .xlsx file.
+     * @return A new XlsxStreamReader; close it to release the file.
+     * @throws IOException If the file is not a readable .xlsx workbook.
+     */
+    public static XlsxStreamReader open(File file) throws IOException {
+        return open(file, FormulaMode.FORMULA_TEXT);
+    }
+
+    /**
+     * Opens a workbook for streaming with the given formula handling.
+     * {@link FormulaMode#EVALUATED} is reported as {@link FormulaMode#CACHED}, because evaluation needs the whole workbook model.
+     *
+     * @param file        The .xlsx file.
+     * @param formulaMode How formula cells are reported.
+     * @return A new XlsxStreamReader; close it to release the file.
+     * @throws IOException If the file is not a readable .xlsx workbook.
+     */
+    public static XlsxStreamReader open(File file, FormulaMode formulaMode) throws IOException {
+        OPCPackage pkg;
+        try {
+            pkg = OPCPackage.open(file, PackageAccess.READ);
+        } catch (Exception e) {
+            String errorMsg = "Error opening Excel file: " + file + " - " + e.getMessage();
+            logger.error(errorMsg, e);
+            throw new IOException(errorMsg, e);
+        }
+        try {
+            return new XlsxStreamReader(pkg, formulaMode);
+        } catch (IOException e) {
+            pkg.revert();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a lazy stream over the rows of the sheet at the given position.
+     * The first row of the sheet is used as the header; physically missing rows are skipped.
+     *
+     * @param sheetIndex The zero-based sheet position.
+     * @return A sequential stream of rows. Close it to release the sheet XML stream.
+     * @throws IOException If the sheet does not exist or has no header row.
+     */
+    public Stream<DataRow> rows(int sheetIndex) throws IOException {
+        List<String> names = sheetNames();
+        if (sheetIndex < 0 || sheetIndex >= names.size()) {
+            String errorMsg = "The Excel file does not contain a sheet at index " + sheetIndex + ".";
+            logger.error(errorMsg);
+            throw new IOException(errorMsg);
+        }
+        return rows(names.get(sheetIndex));
+    }
+
+    /**
+     * Opens a lazy stream over the rows of the sheet with the given name.
+     * The first row of the sheet is used as the header; physically missing rows are skipped.
+     *
+     * @param sheetName The sheet name as shown on the workbook tab.
+     * @return A sequential stream of rows. Close it to release the sheet XML stream.
+     * @throws IOException If the sheet does not exist or has no header row.
+     */
+    public Stream<DataRow> rows(String sheetName) throws IOException {
+        return rows(sheetName, Region.WHOLE_SHEET);
+    }
+
+    /**
+     * Opens a lazy stream over a rectangular region of a sheet. The first row of the region is used as the header.
+     * Sheet streams are independent, so several sheets of the same workbook may be read concurrently.
+     *
+     * @param sheetName The sheet name as shown on the workbook tab.
+     * @param region    The region to read.
+     * @return A sequential stream of rows. Close it to release the sheet XML stream.
+     * @throws IOException If the sheet does not exist or the region has no header row.
+     */
+    public Stream<DataRow> rows(String sheetName, Region region) throws IOException {
+        InputStream sheetXml = openSheet(sheetName);
+        RowIterator iterator;
+        try {
+            iterator = new RowIterator(sheetXml, region);
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(sheetXml);
+            throw e;
+        }
+        return StreamSupport.stream(
+                        Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE),
+                        false)
+                .onClose(iterator::close);
+    }
+
+    /**
+     * Returns the sheet names in workbook order.
+     *
+     * @return An unmodifiable list of sheet names.
+     */
+    public List<String> sheetNames() {
+        return Collections.unmodifiableList(new ArrayList<>(sheetRelIds.keySet()));
+    }
+
+    /**
+     * Returns the workbook-scoped defined names (named ranges) and their reference formulas, e.g. {@code Users!$A$1:$C$20}.
+     *
+     * @return An unmodifiable map of range name to reference.
+     */
+    public Map<String, String> definedNames() {
+        return Collections.unmodifiableMap(definedNames);
+    }
+
+    /**
+     * Returns the tables (ListObjects) defined on a sheet, keyed by table name, with their cell ranges, e.g. {@code A1:D50}.
+     *
+     * @param sheetName The sheet name.
+     * @return A map of table name to cell range, in part order.
+     * @throws IOException If the sheet does not exist or its table parts cannot be read.
+     */
+    public Map<String, String> tables(String sheetName) throws IOException {
+        Map<String, String> tables = new LinkedHashMap<>();
+        try {
+            PackagePart sheetPart = sheetPart(sheetName);
+            for (PackageRelationship tableRel : sheetPart.getRelationshipsByType(XSSFRelation.TABLE.getRelation())) {
+                PackagePart tablePart = sheetPart.getRelatedPart(tableRel);
+                try (InputStream tableXml = tablePart.getInputStream()) {
+                    XMLStreamReader xml = XML_INPUT_FACTORY.createXMLStreamReader(tableXml);
+                    try {
+                        while (xml.hasNext()) {
+                            if (xml.next() == XMLStreamConstants.START_ELEMENT && "table".equals(xml.getLocalName())) {
+                                String name = xml.getAttributeValue(null, "name");
+                                tables.put(name != null ? name : xml.getAttributeValue(null, "displayName"), xml.getAttributeValue(null, "ref"));
+                                break;
+                            }
+                        }
+                    } finally {
+                        xml.close();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Error reading tables of sheet '" + sheetName + "': " + e.getMessage(), e);
+        }
+        return tables;
+    }
+
+    private InputStream openSheet(String sheetName) throws IOException {
+        String relId = sheetRelIds.get(sheetName);
+        if (relId == null) {
+            String errorMsg = "The Excel file does not contain a sheet named '" + sheetName + "'.";
+            logger.error(errorMsg);
+            throw new IOException(errorMsg);
+        }
+        try {
+            return reader.getSheet(relId);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Error opening sheet '" + sheetName + "': " + e.getMessage(), e);
+        }
+    }
+
+    private PackagePart sheetPart(String sheetName) throws Exception {
+        String relId = sheetRelIds.get(sheetName);
+        if (relId == null) {
+            throw new IOException("The Excel file does not contain a sheet named '" + sheetName + "'.");
+        }
+        PackageRelationship documentRel = pkg.getRelationshipsByType(PackageRelationshipTypes.CORE_DOCUMENT).getRelationship(0);
+        PackagePart workbookPart = pkg.getPart(documentRel);
+        return workbookPart.getRelatedPart(workbookPart.getRelationship(relId));
+    }
+
+    /**
+     * Releases the workbook file without writing anything back to it.
+     */
+    @Override
+    public void close() {
+        pkg.revert();
+    }
+
+    private static boolean[] resolveDateStyles(StylesTable styles) {
+        if (styles == null) {
+            return new boolean[0];
+        }
+        boolean[] result = new boolean[styles.getNumCellStyles()];
+        for (int i = 0; i < result.length; i++) {
+            XSSFCellStyle style = styles.getStyleAt(i);
+            result[i] = style != null && DateUtil.isADateFormat(style.getDataFormat(), style.getDataFormatString());
+        }
+        return result;
+    }
+
+    /**
+     * Reads the sheet list and defined names from workbook.xml and returns whether the workbook uses the 1904 date system.
+     */
+    private boolean readWorkbookInfo(InputStream workbookXml) throws IOException, XMLStreamException {
+        XMLStreamReader xml = XML_INPUT_FACTORY.createXMLStreamReader(workbookXml);
+        boolean uses1904 = false;
+        try {
+            while (xml.hasNext()) {
+                if (xml.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                switch (xml.getLocalName()) {
+                    case "workbookPr":
+                        String value = xml.getAttributeValue(null, "date1904");
+                        uses1904 = "1".equals(value) || "true".equalsIgnoreCase(value);
+                        break;
+                    case "sheet":
+                        sheetRelIds.put(xml.getAttributeValue(null, "name"), relationshipId(xml));
+                        break;
+                    case "definedName":
+                        // Sheet-local names are left out; their names may repeat across sheets
+                        boolean local = xml.getAttributeValue(null, "localSheetId") != null;
+                        String name = xml.getAttributeValue(null, "name");
+                        String reference = xml.getElementText();
+                        if (!local && !name.startsWith("_xlnm.")) {
+                            definedNames.put(name, reference);
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+            return uses1904;
+        } finally {
+            xml.close();
+            workbookXml.close();
+        }
+    }
+
+    private static String relationshipId(XMLStreamReader xml) {
+        for (int i = 0; i < xml.getAttributeCount(); i++) {
+            if ("id".equals(xml.getAttributeLocalName(i))) {
+                return xml.getAttributeValue(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Converts a zero-based column index from a cell reference such as "BC12".
+     */
+    static int columnIndex(String cellRef) {
+        int column = 0;
+        for (int i = 0; i < cellRef.length(); i++) {
+            char c = cellRef.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                break;
+            }
+            column = column * 26 + (c - 'A' + 1);
+        }
+        return column - 1;
+    }
+
+    private static void closeQuietly(InputStream stream) {
+        try {
+            stream.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close sheet stream: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Converts a raw cell the same way {@code ExcelReader.getCellValueAsString} converts a DOM cell.
+     */
+    private String cellValue(String type, int styleIndex, String value, String formula, String inlineText) {
+        if (formula != null) {
+            if (formulaMode == FormulaMode.FORMULA_TEXT && !formula.isEmpty()) {
+                return formula;  // FORMULA cells report their formula text
+            }
+            if ("e".equals(type) && value != null) {
+                return value;  // Cached formula errors such as #DIV/0!
+            }
+        }
+        if ("inlineStr".equals(type)) {
+            return inlineText != null ? inlineText : "";
+        }
+        if (value == null) {
+            return "";  // BLANK
+        }
+        if (type == null || "n".equals(type)) {
+            double number = Double.parseDouble(value);
+            boolean dateStyle = styleIndex >= 0 && styleIndex < dateStyles.length && dateStyles[styleIndex];
+            if (dateStyle && DateUtil.isValidExcelDate(number)) {
+                return DateUtil.getJavaDate(number, date1904).toString();
+            }
+            return String.valueOf(number);
+        }
+        switch (type) {
+            case "s":
+                return sharedStrings.getItemAt(Integer.parseInt(value)).getString();
+            case "str":
+                return value;
+            case "b":
+                return String.valueOf("1".equals(value) || "true".equalsIgnoreCase(value));
+            default:
+                return "";  // ERROR and unknown types
+        }
+    }
+
+    /**
+     * Moves the relative cell references of a formula by the given offset, leaving {@code $}-anchored parts,
+     * string literals and quoted sheet names untouched. A reference moved off the sheet becomes {@code #REF!}.
+     *
+     * @param formula     The formula text, without the leading "=".
+     * @param rowDelta    The number of rows to move down.
+     * @param columnDelta The number of columns to move right.
+     * @return The moved formula text.
+     */
+    static String shiftFormula(String formula, int rowDelta, int columnDelta) {
+        StringBuilder shifted = new StringBuilder(formula.length() + 8);
+        Matcher matcher = REFERENCE.matcher(formula);
+        int position = 0;
+        while (position < formula.length()) {
+            char c = formula.charAt(position);
+            if (c == '"' || c == '\'') {
+                // String literal or quoted sheet name; a doubled quote is an escaped quote
+                int end = position + 1;
+                while (end < formula.length()) {
+                    if (formula.charAt(end) == c) {
+                        if (end + 1 < formula.length() && formula.charAt(end + 1) == c) {
+                            end += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    end++;
+                }
+                end = Math.min(end + 1, formula.length());
+                shifted.append(formula, position, end);
+                position = end;
+                continue;
+            }
+            if (!isNamePart(c) && c != '$') {
+                shifted.append(c);
+                position++;
+                continue;
+            }
+            // A name, number or reference token
+            int end = position;
+            while (end < formula.length() && (isNamePart(formula.charAt(end)) || formula.charAt(end) == '$'
+                    || formula.charAt(end) == ':')) {
+                end++;
+            }
+            String token = formula.substring(position, end);
+            char following = end < formula.length() ? formula.charAt(end) : ' ';
+            // Function names, sheet prefixes and structured references are followed by "(", "!" or "["
+            boolean reference = following != '(' && following != '!' && following != '['
+                    && matcher.region(position, end).matches();
+            shifted.append(reference ? shiftReference(token, rowDelta, columnDelta) : token);
+            position = end;
+        }
+        return shifted.toString();
+    }
+
+    private static boolean isNamePart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '.';
+    }
+
+    /**
+     * Moves a cell reference, cell range, column range or row range, part by part.
+     */
+    private static String shiftReference(String reference, int rowDelta, int columnDelta) {
+        StringBuilder shifted = new StringBuilder();
+        for (String part : reference.split(":", -1)) {
+            if (shifted.length() > 0) {
+                shifted.append(':');
+            }
+            Matcher cell = REFERENCE_PART.matcher(part);
+            if (!cell.matches()) {
+                return "#REF!";
+            }
+            boolean fixedColumn = !cell.group(1).isEmpty();
+            String columnLetters = cell.group(2);
+            boolean fixedRow = !cell.group(3).isEmpty();
+            String rowDigits = cell.group(4);
+            if (!columnLetters.isEmpty()) {
+                int column = columnIndex(columnLetters.toUpperCase()) + (fixedColumn ? 0 : columnDelta);
+                if (column < 0 || column > MAX_COLUMN) {
+                    return "#REF!";
+                }
+                shifted.append(fixedColumn ? "$" : "").append(columnLetters(column));
+            }
+            if (!rowDigits.isEmpty()) {
+                int row = Integer.parseInt(rowDigits) + (fixedRow ? 0 : rowDelta);
+                if (row < 1 || row > MAX_ROW) {
+                    return "#REF!";
+                }
+                shifted.append(fixedRow ? "$" : "").append(row);
+            }
+        }
+        return shifted.toString();
+    }
+
+    private static String columnLetters(int column) {
+        StringBuilder letters = new StringBuilder();
+        for (int value = column + 1; value > 0; value = (value - 1) / 26) {
+            letters.insert(0, (char) ('A' + (value - 1) % 26));
+        }
+        return letters.toString();
+    }
+
+    /**
+     * The first cell of a shared formula range and its formula text.
+     */
+    private static final class SharedFormula {
+        private final String formula;
+        private final int row;
+        private final int column;
+
+        private SharedFormula(String formula, int row, int column) {
+            this.formula = formula;
+            this.row = row;
+            this.column = column;
+        }
+    }
+
+    /**
+     * Pulls one {@code <row>} element at a time from the sheet XML.
+     */
+    private final class RowIterator implements Iterator<DataRow> {
+
+        private final InputStream sheetXml;
+        private final XMLStreamReader xml;
+        private final Region region;
+        private final DataHeader header;
+        private DataRow next;
+        private boolean finished;
+
+        // First cells of shared formulas seen so far, by shared index
+        private final Map<String, SharedFormula> sharedFormulas = new HashMap<>();
+        private int lastRowNumber;
+
+        private RowIterator(InputStream sheetXml, Region region) throws IOException {
+            this.sheetXml = sheetXml;
+            this.region = region;
+            try {
+                this.xml = XML_INPUT_FACTORY.createXMLStreamReader(sheetXml);
+                List<String> headerCells = new ArrayList<>();
+                int headerRow;
+                do {
+                    headerCells.clear();
+                    headerRow = nextRow(headerCells);
+                } while (headerRow >= 0 && headerRow < region.firstRow);
+                if (headerRow != region.firstRow) {
+                    String errorMsg = "The Excel sheet does not contain a header row.";
+                    logger.error(errorMsg);
+                    throw new IOException(errorMsg);
+                }
+                String[] names = new String[headerCells.size()];
+                for (int i = 0; i < names.length; i++) {
+                    names[i] = headerCells.get(i) != null ? headerCells.get(i) : "";
+                }
+                this.header = DataHeader.of(names);
+            } catch (XMLStreamException e) {
+                throw new IOException("Error parsing sheet XML: " + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !finished) {
+                next = advance();
+            }
+            return next != null;
+        }
+
+        @Override
+        public DataRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            DataRow row = next;
+            next = null;
+            return row;
+        }
+
+        private DataRow advance() {
+            try {
+                List<String> cells = new ArrayList<>(header.size());
+                int rowNumber = nextRow(cells);
+                if (rowNumber < 0 || rowNumber > region.lastRow) {
+                    close();
+                    return null;
+                }
+                String[] values = new String[header.size()];
+                for (int i = 0; i < values.length; i++) {
+                    String cell = i < cells.size() ? cells.get(i) : null;
+                    values[i] = cell != null ? cell : "";
+                }
+                return new DataRow(header, values);
+            } catch (XMLStreamException e) {
+                close();
+                throw new UncheckedIOException(new IOException("Error parsing sheet XML: " + e.getMessage(), e));
+            }
+        }
+
+        /**
+         * Reads the next {@code <row>} into {@code cells}, indexed by column, and returns its 1-based row number or -1 at the end of the sheet.
+         */
+        private int nextRow(List<String> cells) throws XMLStreamException {
+            while (xml.hasNext()) {
+                if (xml.next() == XMLStreamConstants.START_ELEMENT && "row".equals(xml.getLocalName())) {
+                    String rowRef = xml.getAttributeValue(null, "r");
+                    int rowNumber = rowRef != null ? Integer.parseInt(rowRef) : lastRowNumber + 1;
+                    lastRowNumber = rowNumber;
+                    readCells(cells, rowNumber);
+                    return rowNumber;
+                }
+            }
+            return -1;
+        }
+
+        private void readCells(List<String> cells, int rowNumber) throws XMLStreamException {
+            int column = -1;
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.END_ELEMENT && "row".equals(xml.getLocalName())) {
+                    return;
+                }
+                if (event != XMLStreamConstants.START_ELEMENT || !"c".equals(xml.getLocalName())) {
+                    continue;
+                }
+                String ref = xml.getAttributeValue(null, "r");
+                column = ref != null ? columnIndex(ref) : column + 1;
+                if (column < region.firstColumn || column > region.lastColumn) {
+                    if (formulaMode == FormulaMode.FORMULA_TEXT) {
+                        readSharedFormulaMaster(rowNumber, column);  // Cells in the region may share its formula
+                    } else {
+                        skipElement();
+                    }
+                    continue;
+                }
+                String type = xml.getAttributeValue(null, "t");
+                String style = xml.getAttributeValue(null, "s");
+                String value = null;
+                String formula = null;
+                StringBuilder inline = null;
+
+                while (xml.hasNext()) {
+                    event = xml.next();
+                    if (event == XMLStreamConstants.END_ELEMENT && "c".equals(xml.getLocalName())) {
+                        break;
+                    }
+                    if (event != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    switch (xml.getLocalName()) {
+                        case "v":
+                            value = xml.getElementText();
+                            break;
+                        case "f":
+                            String formulaType = xml.getAttributeValue(null, "t");
+                            String sharedIndex = xml.getAttributeValue(null, "si");
+                            formula = xml.getElementText();
+                            if ("shared".equals(formulaType) && sharedIndex != null) {
+                                formula = sharedFormula(sharedIndex, formula, rowNumber, column);
+                            }
+                            break;
+                        case "t":
+                            // Text runs of an inline string, possibly split across rich-text runs
+                            if (inline == null) {
+                                inline = new StringBuilder();
+                            }
+                            inline.append(xml.getElementText());
+                            break;
+                        default:
+                            break;
+                    }
+                }
+
+                int position = column - region.firstColumn;
+                while (cells.size() <= position) {
+                    cells.add(null);
+                }
+                int styleIndex = style != null ? Integer.parseInt(style) : 0;
+                cells.set(position, cellValue(type, styleIndex, value, formula, inline != null ? inline.toString() : null));
+            }
+        }
+
+        /**
+         * Returns the text of a shared formula cell. The first cell of a shared range carries the formula and is
+         * remembered; the other cells carry only its index and get the formula with relative references moved by
+         * their offset from the first cell, as {@code XSSFCell.getCellFormula()} reports it.
+         * Returns the empty text, i.e. the cached value is used, if the first cell was never seen.
+         */
+        private String sharedFormula(String sharedIndex, String formula, int rowNumber, int column) {
+            if (!formula.isEmpty()) {
+                sharedFormulas.put(sharedIndex, new SharedFormula(formula, rowNumber, column));
+                return formula;
+            }
+            SharedFormula master = sharedFormulas.get(sharedIndex);
+            if (master == null || formulaMode != FormulaMode.FORMULA_TEXT) {
+                return formula;
+            }
+            return shiftFormula(master.formula, rowNumber - master.row, column - master.column);
+        }
+
+        /**
+         * Skips a cell outside the region, but remembers it if it starts a shared formula.
+         */
+        private void readSharedFormulaMaster(int rowNumber, int column) throws XMLStreamException {
+            int depth = 1;
+            while (depth > 0 && xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String sharedIndex = xml.getAttributeValue(null, "si");
+                    if ("f".equals(xml.getLocalName()) && "shared".equals(xml.getAttributeValue(null, "t"))
+                            && sharedIndex != null) {
+                        sharedFormula(sharedIndex, xml.getElementText(), rowNumber, column);  // Consumes </f>
+                    } else {
+                        depth++;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+            }
+        }
+
+        private void skipElement() throws XMLStreamException {
+            int depth = 1;
+            while (depth > 0 && xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+            }
+        }
+
+        private void close() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            try {
+                xml.close();
+            } catch (XMLStreamException e) {
+                logger.warn("Failed to close sheet XML reader: {}", e.getMessage());
+            }
+            closeQuietly(sheetXml);
+        }
+    }
+
+    /**
+     * Rectangular cell region using 1-based row numbers and 0-based column indexes, inclusive on both ends.
+     */
+    public static final class Region {
+
+        public static final Region WHOLE_SHEET = new Region(1, Integer.MAX_VALUE, 0, Integer.MAX_VALUE);
+
+        private final int firstRow;
+        private final int lastRow;
+        private final int firstColumn;
+        private final int lastColumn;
+
+        public Region(int firstRow, int lastRow, int firstColumn, int lastColumn) {
+            this.firstRow = firstRow;
+            this.lastRow = lastRow;
+            this.firstColumn = firstColumn;
+            this.lastColumn = lastColumn;
+        }
+
+        /**
+         * Parses an A1-style range such as {@code $A$1:$C$20}, {@code B2:D10} or a single cell {@code A1}.
+         * A sheet prefix ({@code Users!}) is ignored; use {@link #sheetOf(String)} to read it.
+         *
+         * @param reference The range reference.
+         * @return The parsed region.
+         */
+        public static Region parse(String reference) {
+            String range = reference.substring(reference.lastIndexOf('!') + 1).replace("$", "");
+            String[] corners = range.split(":");
+            String from = corners[0];
+            String to = corners.length > 1 ? corners[1] : corners[0];
+            // Whole-column (A:C) and whole-row (2:9) references leave the other dimension open
+            int firstColumn = columnIndex(from);
+            int lastColumn = columnIndex(to);
+            return new Region(rowNumber(from, 1), rowNumber(to, Integer.MAX_VALUE),
+                    firstColumn >= 0 ? firstColumn : 0, lastColumn >= 0 ? lastColumn : Integer.MAX_VALUE);
+        }
+
+        /**
+         * Returns the sheet name of a reference such as {@code 'Order Lines'!$A$1:$C$9}, or null if it has no sheet prefix.
+         *
+         * @param reference The range reference.
+         * @return The unquoted sheet name, or null.
+         */
+        public static String sheetOf(String reference) {
+            int bang = reference.lastIndexOf('!');
+            if (bang < 0) {
+                return null;
+            }
+            String sheet = reference.substring(0, bang);
+            if (sheet.startsWith("'") && sheet.endsWith("'")) {
+                sheet = sheet.substring(1, sheet.length() - 1).replace("''", "'");
+            }
+            return sheet;
+        }
+
+        private static int rowNumber(String cellRef, int openValue) {
+            int i = 0;
+            while (i < cellRef.length() && Character.isLetter(cellRef.charAt(i))) {
+                i++;
+            }
+            return i < cellRef.length() ? Integer.parseInt(cellRef.substring(i)) : openValue;
+        }
+    }
+}
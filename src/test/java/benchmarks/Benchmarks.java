@@ -0,0 +1,114 @@
+package benchmarks;
+
+import common.config.ConfigManager;
+import common.config.ConfigScope;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.Callable;
+import java.util.stream.Stream;
+
+/**
+ * Timing and heap measurement shared by the benchmark main classes in this package.
+ * Benchmarks are run from the test classpath, e.g.
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=benchmarks.CsvReaderBenchmark}.
+ */
+final class Benchmarks {
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private Benchmarks() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Runs a task once to warm up, then the given number of times, and returns the fastest run.
+     *
+     * @param passes The measured runs, at least 1.
+     * @param task   The task.
+     * @return The fastest run in nanoseconds.
+     * @throws Exception If the task fails.
+     */
+    static long bestOf(int passes, Callable<?> task) throws Exception {
+        task.call();
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < passes; i++) {
+            long start = System.nanoTime();
+            task.call();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    /**
+     * Returns the heap in use after a full collection, as a baseline for retained-size measurements.
+     *
+     * @return The used heap in bytes.
+     */
+    static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);  // Let finalization and concurrent collectors settle
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Returns the heap retained by the value a task builds, measured while the value is still reachable.
+     *
+     * @param task Builds the value.
+     * @return The retained size in bytes, approximately.
+     * @throws Exception If the task fails.
+     */
+    static long retainedBytes(Callable<?> task) throws Exception {
+        long before = usedHeap();
+        Object value = task.call();
+        long after = usedHeap();
+        if (value == null) {
+            throw new IllegalStateException("Benchmark task returned nothing to measure");
+        }
+        return after - before;
+    }
+
+    /**
+     * Points the test data folder at a directory for the current thread, so readers resolve generated files.
+     *
+     * @param directory The directory.
+     * @return The open scope.
+     */
+    static ConfigScope testDataFolder(Path directory) {
+        return ConfigManager.withOverrides(Collections.singletonMap("testDataFolderLocation",
+                directory.toAbsolutePath() + directory.getFileSystem().getSeparator()));
+    }
+
+    /**
+     * Deletes a generated directory and everything in it.
+     *
+     * @param directory The directory.
+     * @throws IOException If it cannot be deleted.
+     */
+    static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    static String megabytes(long bytes) {
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
+    static String perSecond(long count, long nanos) {
+        return String.format("%,.0f/s", count * 1_000_000_000.0 / Math.max(1, nanos));
+    }
+}
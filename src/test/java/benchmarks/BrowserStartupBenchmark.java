@@ -0,0 +1,81 @@
+package benchmarks;
+
+import common.config.ConfigManager;
+import common.config.ConfigScope;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.WebDriver;
+import testrunners.BrowserStartupTimes;
+import testrunners.DriverFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Measures how long browsers take to start, per browser and profile.
+ * <p>
+ * Each browser is launched and quit a number of times with the standard and the fast {@code BrowserProfile}, the same
+ * way {@link DriverFactory} launches them. The cold start is the first launch with a profile; for the fast profile it
+ * also creates the user-data template, and the first launch of a browser also resolves its driver binary. Warm starts
+ * are the launches after it. Run it with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=benchmarks.BrowserStartupBenchmark
+ * -Dexec.args="chrome,firefox 10"}. The arguments are the browsers (default: the configured browser) and the
+ * launches per browser and profile (default 5). Pages load {@code baseURL}, or about:blank if it is not configured.
+ */
+public final class BrowserStartupBenchmark {
+
+    private static final Logger logger = LogManager.getLogger(BrowserStartupBenchmark.class);
+
+    private static final List<String> PROFILES = Arrays.asList("standard", "fast");
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private BrowserStartupBenchmark() {
+        // Private constructor to prevent instantiation
+    }
+
+    public static void main(String[] args) {
+        List<String> browsers = Arrays.asList((args.length > 0 ? args[0] : ConfigManager.get("browser", "chrome")).split(","));
+        int launches = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        if (launches < 1) {
+            throw new IllegalArgumentException("Launches must be at least 1");
+        }
+        String baseURL = ConfigManager.get("baseURL", "about:blank");
+
+        StringBuilder report = new StringBuilder(String.format("%n%-10s %-10s %10s %10s %10s %10s%n",
+                "browser", "profile", "cold ms", "warm p50", "warm min", "warm max"));
+        for (String browser : browsers) {
+            for (String profile : PROFILES) {
+                List<Long> millis = new ArrayList<>();
+                try (ConfigScope ignored = ConfigManager.withOverrides(Collections.singletonMap("browser.profile", profile))) {
+                    for (int i = 0; i < launches; i++) {
+                        long start = System.nanoTime();
+                        WebDriver driver = DriverFactory.createDriver(browser.trim(), baseURL);
+                        millis.add((System.nanoTime() - start) / 1_000_000);
+                        DriverFactory.quit(driver);
+                    }
+                } catch (RuntimeException e) {
+                    logger.error("Benchmark of {} with the {} profile failed: {}", browser, profile, e.getMessage());
+                    report.append(String.format("%-10s %-10s failed: %s%n", browser.trim(), profile, e.getMessage()));
+                    continue;
+                }
+                report.append(row(browser.trim(), profile, millis));
+            }
+        }
+        logger.info("Browser startup benchmark ({} launches per browser and profile):{}", launches, report);
+        BrowserStartupTimes.exportStatistics();
+    }
+
+    private static String row(String browser, String profile, List<Long> millis) {
+        List<Long> warm = new ArrayList<>(millis.subList(1, millis.size()));
+        if (warm.isEmpty()) {
+            return String.format("%-10s %-10s %10d %10s %10s %10s%n", browser, profile, millis.get(0), "-", "-", "-");
+        }
+        Collections.sort(warm);
+        return String.format("%-10s %-10s %10d %10d %10d %10d%n", browser, profile, millis.get(0),
+                warm.get(warm.size() / 2), warm.get(0), warm.get(warm.size() - 1));
+    }
+}
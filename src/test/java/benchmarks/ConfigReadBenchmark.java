@@ -0,0 +1,124 @@
+package benchmarks;
+
+import common.config.ConfigManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Throughput of configuration reads from many threads at once, as when hundreds of scenarios run in parallel.
+ * <p>
+ * {@link ConfigManager} reads from an immutable snapshot and parses typed values once per snapshot. The baselines read
+ * the same values the way it originally did: {@link Properties#getProperty} on a shared table, with the caller parsing
+ * the string on every call. On JDK 9 and later Properties is backed by a ConcurrentHashMap, so its lookups do not lock
+ * either; the difference measured is the repeated parsing and the default-chain lookup, not contention. The
+ * configuration is written to a temporary folder selected with {@code config.dir}, so no config.properties is needed
+ * on the classpath. The arguments are the reading threads (default 256), the reads per thread (default 100,000) and
+ * the measured passes (default 3). Run it with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=benchmarks.ConfigReadBenchmark
+ * -Dexec.args="256 100000 3"}; a single thread gives the uncontended figures.
+ */
+public final class ConfigReadBenchmark {
+
+    private static final Logger logger = LogManager.getLogger(ConfigReadBenchmark.class);
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private ConfigReadBenchmark() {
+        // Private constructor to prevent instantiation
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        int reads = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int passes = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        if (threads < 1 || reads < 1 || passes < 1) {
+            throw new IllegalArgumentException("Threads, reads and passes must be at least 1");
+        }
+
+        Properties properties = new Properties();
+        properties.setProperty("baseURL", "https://example.com");
+        properties.setProperty("explicitWait", "30");
+        properties.setProperty("browser.pool.borrowTimeout", "5m");
+        properties.setProperty("browsers", "chrome, firefox, edge");
+
+        Path directory = Files.createTempDirectory("config-benchmark-");
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            try (Writer writer = Files.newBufferedWriter(directory.resolve("config.properties"))) {
+                properties.store(writer, "ConfigReadBenchmark");
+            }
+            // Read before ConfigManager loads; the reload covers the case where it was already loaded
+            System.setProperty("config.dir", directory.toString());
+            ConfigManager.useConfigDirectory(directory);
+            ConfigManager.reloadProperties();
+
+            long total = (long) threads * reads;
+            StringBuilder report = new StringBuilder(String.format("%n%-24s %16s%n", "read", "reads/s"));
+            report.append(row("get", total, measure(executor, threads, reads, passes,
+                    () -> ConfigManager.get("baseURL"))));
+            report.append(row("get baseline", total, measure(executor, threads, reads, passes,
+                    () -> properties.getProperty("baseURL"))));
+            report.append(row("getInt", total, measure(executor, threads, reads, passes,
+                    () -> ConfigManager.getInt("explicitWait", 10))));
+            report.append(row("getInt baseline", total, measure(executor, threads, reads, passes,
+                    () -> Integer.parseInt(properties.getProperty("explicitWait", "10")))));
+            report.append(row("getDuration", total, measure(executor, threads, reads, passes,
+                    () -> ConfigManager.getDuration("browser.pool.borrowTimeout", Duration.ofMinutes(1)))));
+            report.append(row("getList", total, measure(executor, threads, reads, passes,
+                    () -> ConfigManager.getList("browsers"))));
+            report.append(row("getList baseline", total, measure(executor, threads, reads, passes,
+                    () -> Arrays.asList(properties.getProperty("browsers").trim().split("\\s*,\\s*")))));
+            logger.info("Config read benchmark ({} threads, {} reads each, best of {} passes):{}", threads, reads, passes, report);
+        } finally {
+            executor.shutdownNow();
+            Benchmarks.delete(directory);
+        }
+    }
+
+    private static String row(String read, long count, long nanos) {
+        return String.format("%-24s %16s%n", read, Benchmarks.perSecond(count, nanos));
+    }
+
+    /**
+     * Times the given read on every thread at once, released together, and returns the fastest pass.
+     */
+    private static long measure(ExecutorService executor, int threads, int reads, int passes, Supplier<Object> read)
+            throws Exception {
+        return Benchmarks.bestOf(passes, () -> {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Integer>> results = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    // Combine the results so the reads cannot be optimized away
+                    int sink = 0;
+                    for (int i = 0; i < reads; i++) {
+                        sink += read.get().hashCode();
+                    }
+                    return sink;
+                }));
+            }
+            start.countDown();
+            int sink = 0;
+            for (Future<Integer> result : results) {
+                sink += result.get();
+            }
+            return sink;
+        });
+    }
+}
@@ -0,0 +1,132 @@
+package benchmarks;
+
+import com.opencsv.CSVReader;
+import common.config.ConfigScope;
+import common.helpers.CsvReader;
+import common.helpers.DataRow;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Memory and throughput of the CSV readers on a generated file.
+ * <p>
+ * Compares the original approach (OpenCSV with a new HashMap per row) with the streaming {@link CsvReader#stream(String)}
+ * of shared-header {@link DataRow}s and the memory-mapped {@link CsvReader#streamMapped(String)}. Throughput is the best
+ * of several full passes that drop each row after reading it; memory is the heap retained by all rows held in a list.
+ * The arguments are the rows to generate (default 1,000,000) and the measured passes (default 3). Run it with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=benchmarks.CsvReaderBenchmark
+ * -Dexec.args="1000000 3"} and a heap large enough for the HashMap rows, e.g. MAVEN_OPTS=-Xmx4g.
+ */
+public final class CsvReaderBenchmark {
+
+    private static final Logger logger = LogManager.getLogger(CsvReaderBenchmark.class);
+
+    private static final String FILE_NAME = "benchmark.csv";
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private CsvReaderBenchmark() {
+        // Private constructor to prevent instantiation
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int passes = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        if (rows < 1 || passes < 1) {
+            throw new IllegalArgumentException("Rows and passes must be at least 1");
+        }
+
+        Path directory = Files.createTempDirectory("csv-benchmark-");
+        try (ConfigScope ignored = Benchmarks.testDataFolder(directory)) {
+            Path file = directory.resolve(FILE_NAME);
+            generate(file, rows);
+            logger.info("Generated {} rows ({}) in {}", rows, Benchmarks.megabytes(Files.size(file)), file);
+
+            StringBuilder report = new StringBuilder(String.format("%n%-22s %14s %14s%n", "reader", "rows/s", "retained"));
+            report.append(row("HashMap per row", rows,
+                    Benchmarks.bestOf(passes, () -> countHashMapRows(file)),
+                    Benchmarks.retainedBytes(() -> readHashMapRows(file))));
+            report.append(row("CsvReader.stream", rows,
+                    Benchmarks.bestOf(passes, () -> count(CsvReader.stream(FILE_NAME))),
+                    Benchmarks.retainedBytes(() -> collect(CsvReader.stream(FILE_NAME)))));
+            report.append(row("CsvReader.streamMapped", rows,
+                    Benchmarks.bestOf(passes, () -> count(CsvReader.streamMapped(FILE_NAME))),
+                    Benchmarks.retainedBytes(() -> collect(CsvReader.streamMapped(FILE_NAME)))));
+            logger.info("CSV reader benchmark ({} rows, best of {} passes):{}", rows, passes, report);
+        } finally {
+            Benchmarks.delete(directory);
+        }
+    }
+
+    /**
+     * Writes a file of eight columns with mostly distinct values, like an exported user table.
+     */
+    private static void generate(Path file, int rows) throws Exception {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("id,username,email,firstName,lastName,city,country,balance\n");
+            for (int i = 0; i < rows; i++) {
+                writer.write(i + ",user" + i + ",user" + i + "@example.com,First" + (i % 5000) + ",Last" + (i % 7000)
+                        + ",City" + (i % 300) + ",Country" + (i % 40) + "," + (i * 7 % 100000) + "." + (i % 100) + "\n");
+            }
+        }
+    }
+
+    private static String row(String reader, int rows, long nanos, long retained) {
+        return String.format("%-22s %14s %14s%n", reader, Benchmarks.perSecond(rows, nanos), Benchmarks.megabytes(retained));
+    }
+
+    private static long count(Stream<DataRow> rows) {
+        try (Stream<DataRow> stream = rows) {
+            return stream.count();
+        }
+    }
+
+    private static List<DataRow> collect(Stream<DataRow> rows) {
+        try (Stream<DataRow> stream = rows) {
+            return stream.collect(Collectors.toList());
+        }
+    }
+
+    private static long countHashMapRows(Path file) throws Exception {
+        long[] count = new long[1];
+        readHashMapRows(file, row -> count[0]++);
+        return count[0];
+    }
+
+    private static List<Map<String, String>> readHashMapRows(Path file) throws Exception {
+        List<Map<String, String>> data = new ArrayList<>();
+        readHashMapRows(file, data::add);
+        return data;
+    }
+
+    /**
+     * Reads rows the way CsvReader.readCsv originally did: one HashMap per row, keyed by the header strings.
+     */
+    private static void readHashMapRows(Path file, Consumer<Map<String, String>> action) throws Exception {
+        try (CSVReader reader = new CSVReader(new FileReader(file.toFile()))) {
+            String[] headers = reader.readNext();
+            String[] row;
+            while ((row = reader.readNext()) != null) {
+                Map<String, String> rowData = new HashMap<>();
+                for (int i = 0; i < headers.length; i++) {
+                    rowData.put(headers[i], row[i]);
+                }
+                action.accept(rowData);
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package benchmarks;
+
+import common.config.ConfigScope;
+import common.helpers.ExcelReader;
+import common.helpers.FormulaMode;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFFormulaEvaluator;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reading a workbook with tens of thousands of formulas in each {@link FormulaMode}.
+ * <p>
+ * The generated sheet has two formulas per row: a total that looks its rate up in a shared rate table, and a discount
+ * on that total, so every row shares precedents with other rows. {@link ExcelReader#readExcel(String, FormulaMode)} is
+ * timed in every mode, and EVALUATED is compared with creating a new evaluator per cell, which recomputes every
+ * precedent instead of reusing the workbook's evaluation cache. The test data cache is turned off so that every pass
+ * parses the file. The arguments are the rows (default 20,000, i.e. 40,000 formulas) and the measured passes
+ * (default 3). Run it with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=benchmarks.FormulaEvaluationBenchmark
+ * -Dexec.args="20000 3"}.
+ */
+public final class FormulaEvaluationBenchmark {
+
+    private static final Logger logger = LogManager.getLogger(FormulaEvaluationBenchmark.class);
+
+    private static final String FILE_NAME = "formulas.xlsx";
+
+    private static final int RATES = 50;
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private FormulaEvaluationBenchmark() {
+        // Private constructor to prevent instantiation
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int passes = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        if (rows < 1 || passes < 1) {
+            throw new IllegalArgumentException("Rows and passes must be at least 1");
+        }
+        // Read before the test data cache is first used; every pass must parse the workbook
+        System.setProperty("utf.testData.cache.enabled", "false");
+
+        Path directory = Files.createTempDirectory("formula-benchmark-");
+        try (ConfigScope ignored = Benchmarks.testDataFolder(directory)) {
+            Path file = directory.resolve(FILE_NAME);
+            generate(file, rows);
+            logger.info("Generated {} formulas in {}", rows * 2, file);
+
+            StringBuilder report = new StringBuilder(String.format("%n%-26s %12s %14s%n", "mode", "ms", "formulas/s"));
+            for (FormulaMode mode : FormulaMode.values()) {
+                long nanos = Benchmarks.bestOf(passes, () -> ExcelReader.readExcel(FILE_NAME, mode));
+                report.append(row("readExcel " + mode, rows * 2, nanos));
+            }
+            report.append(row("evaluator per cell", rows * 2, Benchmarks.bestOf(passes, () -> evaluatePerCell(file))));
+            logger.info("Formula evaluation benchmark ({} formulas, best of {} passes):{}", rows * 2, passes, report);
+        } finally {
+            Benchmarks.delete(directory);
+        }
+    }
+
+    private static String row(String mode, int formulas, long nanos) {
+        return String.format("%-26s %12.1f %14s%n", mode, nanos / 1e6, Benchmarks.perSecond(formulas, nanos));
+    }
+
+    /**
+     * Evaluates every formula with its own evaluator, so nothing computed for one cell is reused for another.
+     */
+    private static int evaluatePerCell(Path file) throws Exception {
+        int evaluated = 0;
+        try (InputStream input = Files.newInputStream(file); Workbook workbook = new XSSFWorkbook(input)) {
+            for (Row row : workbook.getSheetAt(0)) {
+                for (Cell cell : row) {
+                    if (cell.getCellType() == CellType.FORMULA) {
+                        workbook.getCreationHelper().createFormulaEvaluator().evaluate(cell);
+                        evaluated++;
+                    }
+                }
+            }
+        }
+        return evaluated;
+    }
+
+    /**
+     * Writes the data sheet first, so ExcelReader reads it, and the rate table second. Cached results are stored
+     * for the CACHED mode.
+     */
+    private static void generate(Path file, int rows) throws Exception {
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream output = Files.newOutputStream(file)) {
+            Sheet orders = workbook.createSheet("Orders");
+            Sheet rates = workbook.createSheet("Rates");
+            for (int i = 0; i < RATES; i++) {
+                rates.createRow(i).createCell(0).setCellValue(0.01 * i);
+            }
+            Row header = orders.createRow(0);
+            String[] names = {"id", "quantity", "price", "total", "discounted"};
+            for (int c = 0; c < names.length; c++) {
+                header.createCell(c).setCellValue(names[c]);
+            }
+            for (int i = 1; i <= rows; i++) {
+                Row row = orders.createRow(i);
+                int excelRow = i + 1;
+                row.createCell(0).setCellValue(i);
+                row.createCell(1).setCellValue(1 + i % 20);
+                row.createCell(2).setCellValue(5 + (i * 37 % 500) / 10.0);
+                row.createCell(3).setCellFormula("B" + excelRow + "*C" + excelRow
+                        + "*(1+INDEX(Rates!$A$1:$A$" + RATES + ",MOD(A" + excelRow + "," + RATES + ")+1))");
+                row.createCell(4).setCellFormula("IF(D" + excelRow + ">1000,D" + excelRow + "*0.9,D" + excelRow + ")");
+            }
+            XSSFFormulaEvaluator.evaluateAllFormulaCells(workbook);
+            workbook.write(output);
+        }
+    }
+}
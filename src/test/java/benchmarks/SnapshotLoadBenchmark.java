@@ -0,0 +1,148 @@
+package benchmarks;
+
+import common.config.ConfigScope;
+import common.helpers.CsvReader;
+import common.helpers.DataRow;
+import common.helpers.DataSnapshot;
+import common.helpers.SnapshotCompiler;
+import common.helpers.XlsxStreamReader;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Load time of test data with and without a build-time {@link DataSnapshot}.
+ * <p>
+ * Generates a CSV file and an XLSX workbook with the same rows, compiles both with {@link SnapshotCompiler} as the
+ * Maven build does, and compares parsing each source with opening its snapshot, and with opening it and reading every
+ * value. Each figure is the best of several passes after a warm-up. The arguments are the rows to generate
+ * (default 100,000) and the measured passes (default 5). Run it with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=benchmarks.SnapshotLoadBenchmark
+ * -Dexec.args="100000 5"}.
+ */
+public final class SnapshotLoadBenchmark {
+
+    private static final Logger logger = LogManager.getLogger(SnapshotLoadBenchmark.class);
+
+    private static final String[] HEADER = {"id", "username", "email", "city", "country", "balance"};
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private SnapshotLoadBenchmark() {
+        // Private constructor to prevent instantiation
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int passes = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        if (rows < 1 || passes < 1) {
+            throw new IllegalArgumentException("Rows and passes must be at least 1");
+        }
+
+        Path directory = Files.createTempDirectory("snapshot-benchmark-");
+        Path sources = Files.createDirectory(directory.resolve("test-data"));
+        Path snapshots = directory.resolve("snapshots");
+        try (ConfigScope ignored = Benchmarks.testDataFolder(sources)) {
+            Path csv = sources.resolve("users.csv");
+            Path xlsx = sources.resolve("users.xlsx");
+            writeCsv(csv, rows);
+            writeXlsx(xlsx, rows);
+            SnapshotCompiler.main(new String[]{sources.toString(), snapshots.toString()});
+
+            StringBuilder report = new StringBuilder(String.format("%n%-6s %14s %14s %14s%n",
+                    "source", "parse ms", "open ms", "open+read ms"));
+            report.append(row("csv", csv, snapshots.resolve("users.csv" + DataSnapshot.SUFFIX), passes,
+                    () -> collect(CsvReader.stream("users.csv"))));
+            report.append(row("xlsx", xlsx, snapshots.resolve("users.xlsx" + DataSnapshot.SUFFIX), passes, () -> {
+                try (XlsxStreamReader reader = XlsxStreamReader.open(xlsx.toFile())) {
+                    return collect(reader.rows(0));
+                }
+            }));
+            logger.info("Snapshot load benchmark ({} rows, best of {} passes):{}", rows, passes, report);
+        } finally {
+            Benchmarks.delete(directory);
+        }
+    }
+
+    private static String row(String source, Path file, Path snapshot, int passes,
+                              Callable<List<DataRow>> parse) throws Exception {
+        long parseNanos = Benchmarks.bestOf(passes, parse);
+        long openNanos = Benchmarks.bestOf(passes, () -> open(snapshot, file).rowCount());
+        long readNanos = Benchmarks.bestOf(passes, () -> readAll(open(snapshot, file)));
+        return String.format("%-6s %14.1f %14.1f %14.1f%n", source,
+                parseNanos / 1e6, openNanos / 1e6, readNanos / 1e6);
+    }
+
+    private static DataSnapshot open(Path snapshot, Path source) {
+        DataSnapshot opened = DataSnapshot.openIfFresh(snapshot, source);
+        if (opened == null) {
+            throw new IllegalStateException("No fresh snapshot at " + snapshot);
+        }
+        return opened;
+    }
+
+    /**
+     * Touches every value the way a scenario iterating all rows would.
+     */
+    private static long readAll(DataSnapshot snapshot) {
+        long characters = 0;
+        for (Map<String, String> row : snapshot.rows()) {
+            for (String value : row.values()) {
+                characters += value.length();
+            }
+        }
+        return characters;
+    }
+
+    private static List<DataRow> collect(Stream<DataRow> rows) {
+        try (Stream<DataRow> stream = rows) {
+            return stream.collect(Collectors.toList());
+        }
+    }
+
+    private static String[] values(int i) {
+        return new String[]{String.valueOf(i), "user" + i, "user" + i + "@example.com", "City" + (i % 300),
+                "Country" + (i % 40), (i * 7 % 100000) + "." + (i % 100)};
+    }
+
+    private static void writeCsv(Path file, int rows) throws Exception {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(String.join(",", HEADER) + "\n");
+            for (int i = 0; i < rows; i++) {
+                writer.write(String.join(",", values(i)) + "\n");
+            }
+        }
+    }
+
+    private static void writeXlsx(Path file, int rows) throws Exception {
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(1000); OutputStream output = Files.newOutputStream(file)) {
+            Sheet sheet = workbook.createSheet("Users");
+            write(sheet.createRow(0), HEADER);
+            for (int i = 0; i < rows; i++) {
+                write(sheet.createRow(i + 1), values(i));
+            }
+            workbook.write(output);
+            workbook.dispose();
+        }
+    }
+
+    private static void write(Row row, String[] values) {
+        for (int c = 0; c < values.length; c++) {
+            row.createCell(c).setCellValue(values[c]);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package benchmarks;
+
+import common.helpers.FieldGenerators;
+import common.helpers.SyntheticData;
+import common.helpers.SyntheticSchema;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+/**
+ * Throughput of the synthetic data generator for an 8-field CSV entity, per core and in total.
+ * <p>
+ * The single-thread figure encodes rows into a buffer on the calling thread, which is what one worker of
+ * {@link SyntheticData#writeCsv} does per block. The parallel figure writes the whole file with
+ * {@link SyntheticData#writeCsv}, which encodes blocks on the common fork-join pool, and is divided by the available
+ * processors for the per-core rate. The arguments are the rows to generate (default 1,000,000) and the measured passes
+ * (default 3). Run it with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=benchmarks.SyntheticDataBenchmark -Dexec.args="1000000 3"}.
+ */
+public final class SyntheticDataBenchmark {
+
+    private static final Logger logger = LogManager.getLogger(SyntheticDataBenchmark.class);
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private SyntheticDataBenchmark() {
+        // Private constructor to prevent instantiation
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int passes = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        if (rows < 1 || passes < 1) {
+            throw new IllegalArgumentException("Rows and passes must be at least 1");
+        }
+
+        SyntheticSchema schema = SyntheticSchema.of("users", 42)
+                .withField("id", FieldGenerators.uniqueId("U"))
+                .withField("email", FieldGenerators.uniqueEmail("example.com"))
+                .withField("name", FieldGenerators.firstName())
+                .withField("status", FieldGenerators.oneOf("active", "suspended", "closed"))
+                .withField("age", FieldGenerators.intRange(18, 90))
+                .withField("balance", FieldGenerators.decimal(0, 100_000, 2))
+                .withField("joined", FieldGenerators.date(LocalDate.of(2015, 1, 1), LocalDate.of(2025, 12, 31)))
+                .withField("verified", FieldGenerators.bool(0.8));
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        Path directory = Files.createTempDirectory("synthetic-benchmark-");
+        try {
+            Path file = directory.resolve("users.csv");
+            long sequential = Benchmarks.bestOf(passes, () -> encode(schema, rows));
+            long parallel = Benchmarks.bestOf(passes, () -> SyntheticData.writeCsv(schema, 0, rows, file));
+            logger.info("Generated {} rows ({}) in {}", rows, Benchmarks.megabytes(Files.size(file)), file);
+
+            StringBuilder report = new StringBuilder(String.format("%n%-22s %6s %14s %14s%n", "generator", "cores", "rows/s", "rows/s/core"));
+            report.append(row("encode, one thread", 1, rows, sequential));
+            report.append(row("SyntheticData.writeCsv", cores, rows, parallel));
+            logger.info("Synthetic data benchmark ({} rows, 8 fields, best of {} passes):{}", rows, passes, report);
+        } finally {
+            Benchmarks.delete(directory);
+        }
+    }
+
+    /**
+     * Encodes rows as CSV lines into one buffer on the calling thread, without writing them anywhere.
+     */
+    private static int encode(SyntheticSchema schema, int rows) {
+        int fields = schema.fieldNames().size();
+        StringBuilder out = new StringBuilder(64 * 1024);
+        int length = 0;
+        for (long row = 0; row < rows; row++) {
+            for (int f = 0; f < fields; f++) {
+                if (f > 0) {
+                    out.append(',');
+                }
+                schema.appendValue(f, row, out);
+            }
+            out.append('\n');
+            if (out.length() > 60 * 1024) {
+                length += out.length();
+                out.setLength(0);
+            }
+        }
+        return length + out.length();
+    }
+
+    private static String row(String generator, int cores, int rows, long nanos) {
+        return String.format("%-22s %6d %14s %14s%n", generator, cores, Benchmarks.perSecond(rows, nanos),
+                Benchmarks.perSecond(rows, nanos * cores));
+    }
+}
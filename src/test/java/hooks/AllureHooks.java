@@ -5,11 +5,13 @@ import io.cucumber.java.Before;
 import io.cucumber.java.After;
 import io.cucumber.java.Scenario;
 import io.qameta.allure.Allure;
+import io.qameta.allure.util.ResultsUtils;
 import io.restassured.RestAssured;
 import io.restassured.filter.log.RequestLoggingFilter;
 import io.restassured.filter.log.ResponseLoggingFilter;
 import io.restassured.response.Response;
 import testrunners.DriverFactory;
+import testrunners.ExamplesExpander;
 
 import org.apache.commons.io.output.WriterOutputStream;
 import org.openqa.selenium.OutputType;
@@ -47,6 +49,13 @@ public class AllureHooks {
 
         // Capture test data dynamically from the scenario's step arguments
         captureTestData(scenario);
+
+        // Rows of external examples share the Examples header line; give each its own history and parameters
+        ExamplesExpander.ExpandedRow row = ExamplesExpander.takeRow(scenario.getUri(), scenario.getLine());
+        if (row != null) {
+            Allure.getLifecycle().updateTestCase(result -> result.setHistoryId(ResultsUtils.md5(row.key())));
+            row.values().forEach(Allure::parameter);
+        }
     }
 
     @After
@@ -59,9 +68,10 @@ public class AllureHooks {
             attachUiDetails(scenario);
         }
 
-        // Cleanup WebDriver after UI test
+        // Return the WebDriver to the pool after UI test; a failed scenario's browser is not reused
         if (driver.get() != null) {
-            driver.get().quit();
+            DriverFactory.releaseDriver(scenario.isFailed());
+            driver.remove();
         }
     }
 
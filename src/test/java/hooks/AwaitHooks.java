@@ -0,0 +1,32 @@
+package hooks;
+
+import common.config.ConfigManager;
+import common.helpers.Await;
+import io.cucumber.java.After;
+import io.cucumber.java.Before;
+import io.cucumber.java.Scenario;
+import io.qameta.allure.Allure;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Gives every scenario a deadline for its waits ({@code await.scenarioTimeout}, none by default) and attaches the
+ * time the scenario spent waiting on each condition to the report.
+ */
+public class AwaitHooks {
+
+    // Runs after the environment hook, so the budget can be set per environment
+    @Before(order = 1)
+    public void startScenarioClock() {
+        Await.beginScenario(ConfigManager.getDuration("await.scenarioTimeout", Duration.ZERO));
+    }
+
+    @After(order = 1)
+    public void attachWaits(Scenario scenario) {
+        List<String> waits = Await.endScenario();
+        if (!waits.isEmpty()) {
+            Allure.addAttachment("Awaited Conditions", String.join("\n", waits));
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package hooks;
+
+import common.database.DatabaseConnectors;
+import io.cucumber.java.Before;
+import io.cucumber.java.Scenario;
+
+/**
+ * Skips scenarios tagged with a database that failed the warm-up at suite start, e.g. {@code @mysql}, {@code @mssql}
+ * or {@code @mongodb}, instead of letting each one wait for its own connection timeout.
+ */
+public class DatabaseAvailabilityHooks {
+
+    // Runs after the environment hook, so availability is looked up for the scenario's environment
+    @Before(order = 1)
+    public void skipIfDatabaseUnavailable(Scenario scenario) {
+        for (String tag : scenario.getSourceTagNames()) {
+            switch (tag) {
+                case "@mysql":
+                case "@mssql":
+                case "@mongodb":
+                    DatabaseConnectors.requireAvailable(tag.substring(1));
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+}
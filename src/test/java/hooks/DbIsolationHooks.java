@@ -0,0 +1,31 @@
+
+package hooks;
+
+import common.database.DbIsolation;
+import io.cucumber.java.After;
+import io.cucumber.java.Before;
+import io.cucumber.java.Scenario;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Runs scenarios tagged {@code @db-isolated} inside database transactions that are rolled back when the scenario ends,
+ * so their data never needs deleting and isolated scenarios can run in parallel.
+ */
+public class DbIsolationHooks {
+
+    private static final Logger logger = LogManager.getLogger(DbIsolationHooks.class);
+
+    // Runs after the environment hook, so connections are opened against the scenario's environment
+    @Before(value = "@db-isolated", order = 1)
+    public void beginIsolation(Scenario scenario) {
+        logger.info("Isolating database work of scenario '{}'.", scenario.getName());
+        DbIsolation.begin();
+    }
+
+    // After hooks run in reverse order, so this one runs before the environment scope is closed
+    @After(value = "@db-isolated", order = 1)
+    public void rollbackIsolation() {
+        DbIsolation.end();
+    }
+}
@@ -0,0 +1,26 @@
+package hooks;
+
+import common.database.QueryMetrics;
+import io.cucumber.java.After;
+import io.cucumber.java.Before;
+import io.qameta.allure.Allure;
+
+/**
+ * Totals each scenario's database work and attaches the summary, time per query fingerprint and connection-pool
+ * wait, to the report, so a slow scenario shows whether the time went to the database or elsewhere.
+ */
+public class DbMetricsHooks {
+
+    @Before(order = 1)
+    public void startDbTotals() {
+        QueryMetrics.beginScenario();
+    }
+
+    @After(order = 1)
+    public void attachDbTotals() {
+        String summary = QueryMetrics.endScenario();
+        if (summary != null) {
+            Allure.addAttachment("Database Time", summary);
+        }
+    }
+}
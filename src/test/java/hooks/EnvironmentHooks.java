@@ -0,0 +1,48 @@
+
+package hooks;
+
+import common.config.ConfigManager;
+import common.config.ConfigScope;
+import io.cucumber.java.After;
+import io.cucumber.java.Before;
+import io.cucumber.java.Scenario;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Binds a scenario to the environment named by its {@code @env=<name>} tag, e.g. {@code @env=staging}.
+ * The scenario's thread resolves configuration through "config-&lt;name&gt;.properties" until the scenario ends,
+ * so APIBase, DriverFactory and the database connectors target that environment while other scenarios running
+ * in parallel keep their own.
+ */
+public class EnvironmentHooks {
+
+    private static final Logger logger = LogManager.getLogger(EnvironmentHooks.class);
+
+    private static final String ENV_TAG = "@env=";
+
+    private static final ThreadLocal<ConfigScope> scope = new ThreadLocal<>();
+
+    // Runs before the other hooks so they already see the scenario's environment
+    @Before(order = 0)
+    public void enterEnvironment(Scenario scenario) {
+        for (String tag : scenario.getSourceTagNames()) {
+            if (tag.startsWith(ENV_TAG)) {
+                String environment = tag.substring(ENV_TAG.length());
+                logger.info("Scenario '{}' runs against environment '{}'.", scenario.getName(), environment);
+                scope.set(ConfigManager.withEnvironment(environment));
+                return;
+            }
+        }
+    }
+
+    // After hooks run in reverse order, so this one runs last and the other hooks still see the environment
+    @After(order = 0)
+    public void leaveEnvironment() {
+        ConfigScope current = scope.get();
+        if (current != null) {
+            current.close();
+            scope.remove();
+        }
+    }
+}
@@ -7,10 +7,18 @@ import org.apache.logging.log4j.Logger;
 import org.openqa.selenium.OutputType;
 import org.openqa.selenium.TakesScreenshot;
 import org.openqa.selenium.WebDriver;
+import common.database.DatabaseConnectors;
+import common.database.QueryMetrics;
+import common.helpers.Await;
+import common.helpers.TestDataCache;
+import common.helpers.TestDataWatcher;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
 import org.testng.ITestContext;
 import org.testng.ITestListener;
 import org.testng.ITestResult;
 import org.testng.Reporter;
+import testrunners.BrowserStartupTimes;
 import testrunners.DriverFactory;
 
 import java.util.Arrays;
@@ -19,7 +27,7 @@ import java.util.Arrays;
  * TestNGListener class to handle TestNG test events.
  * This class integrates with Allure for reporting and uses a logger for logging.
  */
-public class TestNGListener implements ITestListener {
+public class TestNGListener implements ITestListener, ISuiteListener {
 
     private static final Logger logger = LogManager.getLogger(TestNGListener.class);
 
@@ -108,6 +116,38 @@ public class TestNGListener implements ITestListener {
         logger.info("Test Suite Finished: {}", context.getName());
     }
 
+    /**
+     * Method to be executed when the whole suite starts.
+     * Starts the test data watcher when hot reload is enabled, and warms up and health-checks the configured databases
+     * in parallel so that no scenario pays for the first connection.
+     *
+     * @param suite the suite that is starting
+     */
+    @Override
+    public void onStart(ISuite suite) {
+        logger.info("Suite Started: {}", suite.getName());
+        TestDataWatcher.startIfEnabled();
+        DatabaseConnectors.warmUpIfEnabled();
+    }
+
+    /**
+     * Method to be executed when the whole suite finishes.
+     * Stops the test data watcher and exports run-wide statistics such as test data cache hits and misses
+     * the time spent awaiting each condition and database query latencies.
+     *
+     * @param suite the suite that is finishing
+     */
+    @Override
+    public void onFinish(ISuite suite) {
+        logger.info("Suite Finished: {}", suite.getName());
+        TestDataWatcher.stop();
+        TestDataCache.exportStatistics();
+        Await.exportStatistics();
+        QueryMetrics.exportStatistics();
+        BrowserStartupTimes.exportStatistics();
+        DriverFactory.shutdownPool();
+    }
+
     @Attachment(value = "{0}", type = "text/plain")
     public String attachTextToReport(String name, String content) {
         return content;
@@ -49,6 +49,19 @@ public class GetUserStepDefinitions {
         }
     }
 
+    /**
+     * Sends GET requests to the previously set endpoint until the expected status code is returned,
+     * e.g. while a user created asynchronously becomes visible.
+     *
+     * @param expectedStatusCode The status code to wait for.
+     */
+    @When("a GET request is sent to the endpoint until the status code is {int}")
+    public void sendGetRequestUntilStatus(int expectedStatusCode) {
+        logger.info("Polling GET {} until status code {}", endpoint, expectedStatusCode);
+        apiBase.sendRequestUntil("GET", endpoint, HeaderManager.getHeaders(), params,
+                response -> response.statusCode() == expectedStatusCode);
+    }
+
     /**
      * Verifies that the response status code matches the expected status code.
      *
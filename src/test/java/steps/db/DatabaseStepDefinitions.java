@@ -0,0 +1,184 @@
+package steps.db;
+
+import common.database.DatabaseConnectors;
+import common.database.DbAssertions;
+import common.database.DbIsolation;
+import common.database.MongoOperations;
+import common.datasource.DataSources;
+import common.helpers.CsvReader;
+import common.helpers.DataRow;
+import io.cucumber.datatable.DataTable;
+import io.cucumber.java.en.Given;
+import io.cucumber.java.en.Then;
+import io.cucumber.java.en.When;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Step definitions for verifying database state after API or UI actions.
+ * Expected rows are checked in set-based queries through {@link DbAssertions}; the database is "mysql" or "mssql".
+ * MongoDB documents are checked in concurrent batched lookups through {@link MongoOperations}.
+ * Steps against a database that failed the suite's warm-up skip the scenario instead of waiting for a timeout.
+ */
+public class DatabaseStepDefinitions {
+
+    private static final Logger logger = LogManager.getLogger(DatabaseStepDefinitions.class);
+
+    /**
+     * Verifies that a table contains the rows of a CSV test data file, keyed by the file's first column.
+     * For example: {@code Then the users table in mysql should contain rows matching "expected/users.csv"}
+     *
+     * @param table    The table name.
+     * @param database The database, "mysql" or "mssql".
+     * @param fileName The CSV file, relative to the test data folder.
+     * @throws IOException If the CSV file cannot be read.
+     */
+    @Then("the {word} table in {word} should contain rows matching {string}")
+    public void verifyTableContainsCsv(String table, String database, String fileName) throws IOException {
+        DatabaseConnectors.requireAvailable(database);
+        logger.info("Verifying {}.{} against {}", database, table, fileName);
+        DbAssertions.assertTableContains(database, table, CsvReader.readCsv(fileName));
+    }
+
+    /**
+     * Verifies that a table contains the rows of a CSV test data file, keyed by the given columns.
+     * For example: {@code Then the order_items table in mssql should contain rows matching "items.csv" keyed by "order_id,sku"}
+     *
+     * @param table      The table name.
+     * @param database   The database, "mysql" or "mssql".
+     * @param fileName   The CSV file, relative to the test data folder.
+     * @param keyColumns Comma-separated key columns.
+     * @throws IOException If the CSV file cannot be read.
+     */
+    @Then("the {word} table in {word} should contain rows matching {string} keyed by {string}")
+    public void verifyTableContainsCsvByKey(String table, String database, String fileName, String keyColumns) throws IOException {
+        DatabaseConnectors.requireAvailable(database);
+        logger.info("Verifying {}.{} against {} keyed by {}", database, table, fileName, keyColumns);
+        DbAssertions.assertTableContains(database, table, CsvReader.readCsv(fileName), split(keyColumns));
+    }
+
+    /**
+     * Verifies that a table contains the rows of a data table, keyed by its first column.
+     *
+     * @param table    The table name.
+     * @param database The database, "mysql" or "mssql".
+     * @param rows     The expected rows, with a header row.
+     */
+    @Then("the {word} table in {word} should contain:")
+    public void verifyTableContainsRows(String table, String database, DataTable rows) {
+        DatabaseConnectors.requireAvailable(database);
+        List<Map<String, String>> expected = rows.asMaps(String.class, String.class);
+        logger.info("Verifying {} expected rows of {}.{}", expected.size(), database, table);
+        DbAssertions.assertTableContains(database, table, expected);
+    }
+
+    /**
+     * Waits until a table contains the rows of a CSV test data file, for data written asynchronously.
+     * For example: {@code Then the orders table in mysql should eventually contain rows matching "expected/orders.csv"}
+     *
+     * @param table    The table name.
+     * @param database The database, "mysql" or "mssql".
+     * @param fileName The CSV file, relative to the test data folder.
+     * @throws IOException If the CSV file cannot be read.
+     */
+    @Then("the {word} table in {word} should eventually contain rows matching {string}")
+    public void awaitTableContainsCsv(String table, String database, String fileName) throws IOException {
+        DatabaseConnectors.requireAvailable(database);
+        logger.info("Waiting until {}.{} matches {}", database, table, fileName);
+        DbAssertions.awaitTableContains(database, table, CsvReader.readCsv(fileName));
+    }
+
+    /**
+     * Verifies the number of rows in a table.
+     *
+     * @param table    The table name.
+     * @param database The database, "mysql" or "mssql".
+     * @param count    The expected number of rows.
+     */
+    @Then("the {word} table in {word} should have {long} rows")
+    public void verifyRowCount(String table, String database, long count) {
+        DatabaseConnectors.requireAvailable(database);
+        logger.info("Verifying that {}.{} has {} rows", database, table, count);
+        DbAssertions.assertRowCount(database, table, count);
+    }
+
+    /**
+     * Verifies that a MongoDB collection contains the documents of a test data file, keyed by the file's first field.
+     * For example: {@code Then the orders collection in mongodb should contain documents matching "expected/orders.jsonl"}
+     *
+     * @param collection The collection name.
+     * @param location   The test data file (CSV, JSON or JSON lines), relative to the test data folder.
+     * @throws IOException If the file cannot be read.
+     */
+    @Then("the {word} collection in mongodb should contain documents matching {string}")
+    public void verifyCollectionContains(String collection, String location) throws IOException {
+        DatabaseConnectors.requireAvailable("mongodb");
+        logger.info("Verifying mongodb.{} against {}", collection, location);
+        MongoOperations.assertContains(collection, readExpected(location));
+    }
+
+    /**
+     * Waits until a MongoDB collection contains the documents of a test data file, for data written asynchronously.
+     *
+     * @param collection The collection name.
+     * @param location   The test data file (CSV, JSON or JSON lines), relative to the test data folder.
+     * @throws IOException If the file cannot be read.
+     */
+    @Then("the {word} collection in mongodb should eventually contain documents matching {string}")
+    public void awaitCollectionContains(String collection, String location) throws IOException {
+        DatabaseConnectors.requireAvailable("mongodb");
+        logger.info("Waiting until mongodb.{} matches {}", collection, location);
+        MongoOperations.awaitContains(collection, readExpected(location));
+    }
+
+    /**
+     * Verifies that a MongoDB collection contains the documents of a data table, keyed by its first column.
+     *
+     * @param collection The collection name.
+     * @param rows       The expected field values, with a header row; dotted names address nested fields.
+     */
+    @Then("the {word} collection in mongodb should contain:")
+    public void verifyCollectionContainsRows(String collection, DataTable rows) {
+        DatabaseConnectors.requireAvailable("mongodb");
+        List<Map<String, String>> expected = rows.asMaps(String.class, String.class);
+        logger.info("Verifying {} expected documents of mongodb.{}", expected.size(), collection);
+        MongoOperations.assertContains(collection, expected);
+    }
+
+    /**
+     * Sets a savepoint in a {@code @db-isolated} scenario, so later steps can be undone.
+     *
+     * @param name The savepoint name.
+     */
+    @Given("a database savepoint {string}")
+    public void setSavepoint(String name) {
+        DbIsolation.savepoint(name);
+    }
+
+    /**
+     * Undoes the database work of a {@code @db-isolated} scenario since a savepoint.
+     *
+     * @param name The savepoint name.
+     */
+    @When("the database is rolled back to savepoint {string}")
+    public void rollbackToSavepoint(String name) {
+        DbIsolation.rollbackTo(name);
+    }
+
+    private static List<Map<String, String>> readExpected(String location) throws IOException {
+        try (Stream<DataRow> rows = DataSources.open(location)) {
+            return rows.collect(Collectors.<Map<String, String>>toList());
+        }
+    }
+
+    private static List<String> split(String columns) {
+        return Arrays.asList(columns.trim().split("\\s*,\\s*"));
+    }
+}
@@ -10,10 +10,11 @@ import org.apache.logging.log4j.Logger;
 /**
  * APITestRunner class to run API tests using Cucumber and TestNG.
  * This class integrates with Allure for reporting and uses a logger for logging.
+ * Scenario Outline examples that come from external test data files are expanded by {@link ExamplesExpander}.
  */
 @CucumberOptions(
     features = "src/test/resources/features",  // Path to feature files
-    glue = {"steps.api", "hooks"}, 
+    glue = {"steps.api", "steps.db", "hooks"}, 
     tags = "@API or @api",// Path to step definitions and hooks
     plugin = {
         "pretty",                              // Console output
@@ -35,7 +36,7 @@ public class APITestRunner extends AbstractTestNGCucumberTests {
     public Object[][] scenarios() {
         try {
             logger.info("Fetching scenarios for parallel execution");
-            return super.scenarios();
+            return ExamplesExpander.expand(getClass(), super.scenarios());
         } catch (Exception e) {
             logger.error("Error fetching scenarios: {}", e.getMessage(), e);
             throw e;
@@ -0,0 +1,267 @@
+package testrunners;
+
+import common.config.ConfigManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chromium.ChromiumOptions;
+import org.openqa.selenium.firefox.FirefoxOptions;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * How browsers are launched, selected with {@code browser.profile}.
+ * <p>
+ * The "standard" profile (the default) opens a maximized, headed browser as before. The "fast" profile is tuned for
+ * startup time: headless, a fixed viewport, and extensions, GPU, background networking, sync, component updates and
+ * first-run pages disabled. It also starts every browser from a copy of a user-data template that is created once and
+ * kept under {@code browser.userDataTemplate} (default target/browser-templates), so the browser does not build a
+ * fresh profile on every launch. A session's copy is deleted when the session quits; copies still present when the
+ * JVM exits, e.g. because the browser held files open, are deleted then.
+ * <p>
+ * Settings: {@code browser.profile}, {@code browser.headless} (default true for the fast profile),
+ * {@code browser.viewport} (default 1920x1080) and {@code browser.userDataTemplate}.
+ */
+final class BrowserProfile {
+
+    private static final Logger logger = LogManager.getLogger(BrowserProfile.class);
+
+    // Marks a template the browser finished creating; a template without it is rebuilt
+    private static final String TEMPLATE_READY = ".template-ready";
+
+    // Per-session copies of templates not deleted yet; whatever is left is deleted when the JVM exits
+    private static final Set<Path> copies = ConcurrentHashMap.newKeySet();
+
+    // The copy each running browser was launched from
+    private static final Map<WebDriver, Path> copiesByDriver = new ConcurrentHashMap<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> copies.forEach(BrowserProfile::deleteQuietly)));
+    }
+
+    private final String name;
+    private final boolean headless;
+    private final int width;
+    private final int height;
+    private final String userDataTemplate;
+
+    private BrowserProfile(String name, boolean headless, int width, int height, String userDataTemplate) {
+        this.name = name;
+        this.headless = headless;
+        this.width = width;
+        this.height = height;
+        this.userDataTemplate = userDataTemplate;
+    }
+
+    /**
+     * Resolves the profile from the current configuration.
+     *
+     * @return The profile.
+     * @throws IllegalArgumentException If the profile or viewport is invalid.
+     */
+    static BrowserProfile fromConfig() {
+        String name = ConfigManager.get("browser.profile", "standard").trim().toLowerCase(Locale.ROOT);
+        if (!name.equals("standard") && !name.equals("fast")) {
+            throw new IllegalArgumentException("Unsupported browser profile: " + name + " (expected standard or fast)");
+        }
+        boolean fast = name.equals("fast");
+        String viewport = ConfigManager.get("browser.viewport", "1920x1080").trim();
+        String[] size = viewport.toLowerCase(Locale.ROOT).split("x");
+        if (size.length != 2) {
+            throw new IllegalArgumentException("Invalid browser.viewport: " + viewport + " (expected e.g. 1920x1080)");
+        }
+        String template = fast ? ConfigManager.get("browser.userDataTemplate", "target/browser-templates") : null;
+        return new BrowserProfile(name, ConfigManager.getBoolean("browser.headless", fast),
+                Integer.parseInt(size[0].trim()), Integer.parseInt(size[1].trim()),
+                template == null || template.trim().isEmpty() ? null : template.trim());
+    }
+
+    String name() {
+        return name;
+    }
+
+    boolean isFast() {
+        return name.equals("fast");
+    }
+
+    /**
+     * Applies the profile to Chrome or Edge options.
+     *
+     * @param options     The options.
+     * @param userDataDir The user-data directory to launch with, or null for a throwaway one.
+     */
+    void applyTo(ChromiumOptions<?> options, Path userDataDir) {
+        options.addArguments("--disable-notifications"); // Disable notifications
+        if (!isFast()) {
+            options.addArguments("--start-maximized"); // Open in maximized mode
+            return;
+        }
+        if (headless) {
+            options.addArguments("--headless=new");
+        }
+        options.addArguments("--window-size=" + width + "," + height,
+                "--disable-extensions",
+                "--disable-gpu",
+                "--disable-background-networking",
+                "--disable-component-update",
+                "--disable-default-apps",
+                "--disable-sync",
+                "--no-first-run",
+                "--no-default-browser-check");
+        if (userDataDir != null) {
+            options.addArguments("--user-data-dir=" + userDataDir.toAbsolutePath());
+        }
+    }
+
+    /**
+     * Applies the profile to Firefox options.
+     *
+     * @param options     The options.
+     * @param userDataDir The profile directory to launch with, or null for a throwaway one.
+     */
+    void applyTo(FirefoxOptions options, Path userDataDir) {
+        if (!isFast()) {
+            options.addArguments("--width=1920", "--height=1080"); // Set window size
+            return;
+        }
+        if (headless) {
+            options.addArguments("-headless");
+        }
+        options.addArguments("--width=" + width, "--height=" + height);
+        options.addPreference("app.update.auto", false);
+        options.addPreference("extensions.update.enabled", false);
+        options.addPreference("browser.shell.checkDefaultBrowser", false);
+        options.addPreference("datareporting.healthreport.uploadEnabled", false);
+        options.addPreference("network.prefetch-next", false);
+        if (userDataDir != null) {
+            options.addArguments("-profile", userDataDir.toAbsolutePath().toString());
+        }
+    }
+
+    /**
+     * Returns a fresh copy of the browser's user-data template, creating the template first if it does not exist.
+     * Every session gets its own copy because a browser locks the directory it runs from.
+     *
+     * @param browser The browser, e.g. "chrome".
+     * @param creator Launches and quits the browser once with the given directory, which fills it in.
+     * @return The directory to launch with, or null if the profile uses no template.
+     */
+    Path userDataDir(String browser, Consumer<Path> creator) {
+        if (userDataTemplate == null || browser.equalsIgnoreCase("safari")) {
+            return null;
+        }
+        Path template = Paths.get(userDataTemplate, browser.toLowerCase(Locale.ROOT));
+        try {
+            synchronized (BrowserProfile.class) {
+                if (!Files.exists(template.resolve(TEMPLATE_READY))) {
+                    logger.info("Creating {} user-data template in {}.", browser, template);
+                    deleteQuietly(template);
+                    Files.createDirectories(template);
+                    creator.accept(template);
+                    Files.createFile(template.resolve(TEMPLATE_READY));
+                }
+            }
+            Path copy = Files.createTempDirectory("browser-profile-");
+            copies.add(copy);
+            copyTemplate(template, copy);
+            return copy;
+        } catch (IOException e) {
+            logger.error("Failed to prepare {} user-data directory from {}: {}", browser, template, e.getMessage());
+            throw new RuntimeException("Failed to prepare " + browser + " user-data directory", e);
+        }
+    }
+
+    /**
+     * Records the user-data copy a browser was launched from, so that it is deleted when the browser quits.
+     *
+     * @param driver The browser.
+     * @param copy   The directory returned by {@link #userDataDir(String, Consumer)}, or null.
+     */
+    static void attach(WebDriver driver, Path copy) {
+        if (copy != null) {
+            copiesByDriver.put(driver, copy);
+        }
+    }
+
+    /**
+     * Deletes the user-data copy of a browser that has quit.
+     *
+     * @param driver The browser.
+     */
+    static void release(WebDriver driver) {
+        Path copy = copiesByDriver.remove(driver);
+        if (copy != null) {
+            deleteCopy(copy);
+        }
+    }
+
+    /**
+     * Deletes a user-data copy that is no longer used, e.g. after the browser failed to launch with it.
+     * A copy that cannot be deleted completely is retried when the JVM exits.
+     *
+     * @param copy The directory returned by {@link #userDataDir(String, Consumer)}.
+     */
+    static void deleteCopy(Path copy) {
+        deleteQuietly(copy);
+        if (!Files.exists(copy)) {
+            copies.remove(copy);
+        }
+    }
+
+    private static void copyTemplate(Path template, Path target) throws IOException {
+        Files.walkFileTree(template, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+                Files.createDirectories(target.resolve(template.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                String fileName = file.getFileName().toString();
+                // Lock files and sockets belong to the browser that created the template
+                if (attributes.isRegularFile() && !fileName.startsWith("Singleton") && !fileName.equals("lock")
+                        && !fileName.equals(".parentlock") && !fileName.equals(TEMPLATE_READY)) {
+                    Files.copy(file, target.resolve(template.relativize(file).toString()),
+                            StandardCopyOption.REPLACE_EXISTING);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static void deleteQuietly(Path directory) {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted((a, b) -> b.getNameCount() - a.getNameCount()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    // Still in use by a browser that has not exited yet; left behind
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Failed to delete {}: {}", directory, e.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return isFast() ? name + " (" + (headless ? "headless" : "headed") + ", " + width + "x" + height + ")" : name;
+    }
+}
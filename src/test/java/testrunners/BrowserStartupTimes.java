@@ -0,0 +1,114 @@
+package testrunners;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import common.config.ConfigManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Browser launch times by browser and profile, split into the cold start (the first launch in the JVM, which also
+ * resolves the driver binary and creates the user-data template) and warm starts (every later launch).
+ * Written to {@code browser.startupStatsFile} (default target/browser-startup-stats.json) when the suite finishes.
+ */
+public final class BrowserStartupTimes {
+
+    private static final Logger logger = LogManager.getLogger(BrowserStartupTimes.class);
+
+    // Launch times by "browser/profile"
+    private static final Map<String, LaunchStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private BrowserStartupTimes() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Records one browser launch.
+     *
+     * @param browser The browser.
+     * @param profile The profile name.
+     * @param nanos   The time from the start of the launch until the base URL was loaded.
+     * @return True if this was the cold start of the browser and profile.
+     */
+    static boolean record(String browser, String profile, long nanos) {
+        return stats.computeIfAbsent(browser + "/" + profile, key -> new LaunchStats()).add(nanos);
+    }
+
+    /**
+     * Returns the launch times recorded so far.
+     *
+     * @return Per browser and profile: coldStartMillis, warmStarts, and the average, minimum and maximum warm start.
+     */
+    public static Map<String, Object> statistics() {
+        Map<String, Object> result = new TreeMap<>();
+        for (Map.Entry<String, LaunchStats> entry : stats.entrySet()) {
+            LaunchStats launches = entry.getValue();
+            long warmStarts = launches.warmStarts.sum();
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("coldStartMillis", launches.coldNanos.get() / 1_000_000);
+            values.put("warmStarts", warmStarts);
+            if (warmStarts > 0) {
+                values.put("averageWarmStartMillis", launches.warmNanos.sum() / warmStarts / 1_000_000);
+                values.put("minWarmStartMillis", launches.minWarmNanos.get() / 1_000_000);
+                values.put("maxWarmStartMillis", launches.maxWarmNanos.get() / 1_000_000);
+            }
+            result.put(entry.getKey(), values);
+        }
+        return result;
+    }
+
+    /**
+     * Logs the launch times and writes them to {@code browser.startupStatsFile}. Called when the suite finishes.
+     */
+    public static void exportStatistics() {
+        if (stats.isEmpty()) {
+            return;
+        }
+        Map<String, Object> result = statistics();
+        logger.info("Browser startup times: {}", result);
+        File statsFile = new File(ConfigManager.get("browser.startupStatsFile", "target/browser-startup-stats.json"));
+        try {
+            File parent = statsFile.getAbsoluteFile().getParentFile();
+            if (parent != null) {
+                parent.mkdirs();
+            }
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(statsFile, result);
+        } catch (IOException e) {
+            logger.warn("Failed to write browser startup times to {}: {}", statsFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Launch times of one browser and profile.
+     */
+    private static final class LaunchStats {
+        private final AtomicLong coldNanos = new AtomicLong(-1);
+        private final LongAdder warmStarts = new LongAdder();
+        private final LongAdder warmNanos = new LongAdder();
+        private final AtomicLong minWarmNanos = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong maxWarmNanos = new AtomicLong();
+
+        private boolean add(long nanos) {
+            if (coldNanos.compareAndSet(-1, nanos)) {
+                return true;
+            }
+            warmStarts.increment();
+            warmNanos.add(nanos);
+            minWarmNanos.accumulateAndGet(nanos, Math::min);
+            maxWarmNanos.accumulateAndGet(nanos, Math::max);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package testrunners;
+
+import common.config.ConfigManager;
+import io.github.bonigarcia.wdm.WebDriverManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves browser driver binaries (chromedriver, geckodriver, msedgedriver) once per JVM.
+ * <p>
+ * WebDriverManager detects the browser version and may look up the matching driver online, so it runs at most once per
+ * browser and JVM. The resolved path is also kept in {@code browser.driver.cacheFile} (default
+ * ~/.cache/unified-test-framework/drivers.properties); later runs use it without WebDriverManager, offline, until it is
+ * older than {@code browser.driver.cacheTtl} (default 7d) or the browser rejects it after an upgrade.
+ */
+final class DriverBinaries {
+
+    private static final Logger logger = LogManager.getLogger(DriverBinaries.class);
+
+    // Browsers resolved in this JVM, and whether the path came from the offline cache
+    private static final Map<String, Boolean> resolved = new ConcurrentHashMap<>();
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private DriverBinaries() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Makes the driver binary for a browser available to Selenium, resolving it on the first call only.
+     *
+     * @param browser The browser, e.g. "chrome".
+     * @return True if the path came from the offline cache rather than WebDriverManager.
+     */
+    static boolean resolve(String browser) {
+        String key = browser.toLowerCase(Locale.ROOT);
+        if (systemProperty(key) == null) {
+            return false;  // Safari ships its own driver
+        }
+        return resolved.computeIfAbsent(key, DriverBinaries::load);
+    }
+
+    /**
+     * Forgets a cached driver path, e.g. because the browser was upgraded and no longer accepts it.
+     * The next {@link #resolve(String)} runs WebDriverManager again.
+     *
+     * @param browser The browser.
+     */
+    static synchronized void invalidate(String browser) {
+        String key = browser.toLowerCase(Locale.ROOT);
+        resolved.remove(key);
+        System.clearProperty(systemProperty(key));
+        Properties cache = readCache();
+        if (cache.remove(key + ".path") != null) {
+            cache.remove(key + ".resolvedAt");
+            writeCache(cache);
+        }
+        logger.info("Discarded the cached {} driver binary.", key);
+    }
+
+    private static synchronized boolean load(String browser) {
+        String property = systemProperty(browser);
+        if (System.getProperty(property) != null) {
+            logger.info("Using {} driver binary from -D{}.", browser, property);
+            return false;
+        }
+
+        Properties cache = readCache();
+        String path = cache.getProperty(browser + ".path");
+        long resolvedAt = Long.parseLong(cache.getProperty(browser + ".resolvedAt", "0"));
+        long ttl = ConfigManager.getDuration("browser.driver.cacheTtl", Duration.ofDays(7)).toMillis();
+        if (path != null && new File(path).canExecute() && System.currentTimeMillis() - resolvedAt < ttl) {
+            System.setProperty(property, path);
+            logger.info("Using cached {} driver binary {}.", browser, path);
+            return true;
+        }
+
+        long start = System.nanoTime();
+        WebDriverManager manager = manager(browser);
+        manager.setup();
+        path = manager.getDownloadedDriverPath();
+        logger.info("Resolved {} driver binary {} in {} ms.", browser, path, (System.nanoTime() - start) / 1_000_000);
+        if (path != null) {
+            cache.setProperty(browser + ".path", path);
+            cache.setProperty(browser + ".resolvedAt", String.valueOf(System.currentTimeMillis()));
+            writeCache(cache);
+        }
+        return false;
+    }
+
+    private static WebDriverManager manager(String browser) {
+        switch (browser) {
+            case "chrome":
+                return WebDriverManager.chromedriver();
+            case "firefox":
+                return WebDriverManager.firefoxdriver();
+            case "edge":
+                return WebDriverManager.edgedriver();
+            default:
+                throw new IllegalArgumentException("Unsupported browser: " + browser);
+        }
+    }
+
+    /**
+     * Returns the system property Selenium reads the driver path from, or null if the browser needs none.
+     */
+    private static String systemProperty(String browser) {
+        switch (browser) {
+            case "chrome":
+                return "webdriver.chrome.driver";
+            case "firefox":
+                return "webdriver.gecko.driver";
+            case "edge":
+                return "webdriver.edge.driver";
+            default:
+                return null;
+        }
+    }
+
+    private static File cacheFile() {
+        String defaultPath = System.getProperty("user.home") + "/.cache/unified-test-framework/drivers.properties";
+        return new File(ConfigManager.get("browser.driver.cacheFile", defaultPath));
+    }
+
+    private static Properties readCache() {
+        Properties cache = new Properties();
+        File file = cacheFile();
+        if (file.isFile()) {
+            try (InputStream input = new FileInputStream(file)) {
+                cache.load(input);
+            } catch (IOException e) {
+                logger.warn("Failed to read driver cache {}: {}", file, e.getMessage());
+            }
+        }
+        return cache;
+    }
+
+    private static void writeCache(Properties cache) {
+        File file = cacheFile();
+        try {
+            File parent = file.getAbsoluteFile().getParentFile();
+            if (parent != null) {
+                parent.mkdirs();
+            }
+            try (OutputStream output = new FileOutputStream(file)) {
+                cache.store(output, "Resolved browser driver binaries");
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to write driver cache {}: {}", file, e.getMessage());
+        }
+    }
+}
@@ -1,16 +1,18 @@
 package testrunners;
 
-import io.github.bonigarcia.wdm.WebDriverManager;
+import org.openqa.selenium.SessionNotCreatedException;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.firefox.FirefoxDriver;
 import org.openqa.selenium.edge.EdgeDriver;
+import org.openqa.selenium.edge.EdgeOptions;
 import org.openqa.selenium.safari.SafariDriver;
 
 import common.config.ConfigManager;
 
 import org.openqa.selenium.chrome.ChromeOptions;
 import org.openqa.selenium.firefox.FirefoxOptions;
+import java.nio.file.Path;
 import java.time.Duration;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -18,13 +20,22 @@ import org.apache.logging.log4j.Logger;
 /**
  * DriverFactory class to manage WebDriver instances.
  * This class initializes WebDriver based on the browser specified in the configuration file.
+ * The browser and base URL are resolved on every call, so a thread inside a {@link common.config.ConfigScope}
+ * (e.g. a scenario tagged {@code @env=staging}) gets a driver for its own environment.
  * It also handles the setup and teardown of WebDriver instances.
+ * <p>
+ * Browsers are pooled: {@link #releaseDriver(boolean)} resets the session and keeps it for the next scenario instead
+ * of quitting it. Browsers are launched with the {@link BrowserProfile} selected by {@code browser.profile}.
+ * Pool settings: {@code browser.pool.enabled} (default true), {@code browser.pool.maxSize} (sessions alive at
+ * once, default the number of processors), {@code browser.pool.maxUses} (scenarios per session before it is replaced,
+ * default 25) and {@code browser.pool.borrowTimeout} (wait for a free session, default 5m).
  */
 public class DriverFactory {
 
-    private static final ThreadLocal<WebDriver> driverThreadLocal = new ThreadLocal<>();
-    private static String baseURL = ConfigManager.get("baseURL");
-    private static String browser = ConfigManager.get("browser");
+    // The pooled session the current thread is using, with the browser and base URL it was created for
+    private static final ThreadLocal<DriverPool.Session> sessionThreadLocal = new ThreadLocal<>();
+
+    private static volatile DriverPool pool;
 
     // Initialize Logger
     private static final Logger logger = LogManager.getLogger(DriverFactory.class);
@@ -36,20 +47,55 @@ public class DriverFactory {
      * @return the WebDriver instance
      */
     public static WebDriver getDriver() {
+        String browser = ConfigManager.get("browser");
+        String baseURL = ConfigManager.get("baseURL");
+
         // Validate configuration
-        validateConfiguration();
+        validateConfiguration(browser, baseURL);
 
-        if (driverThreadLocal.get() == null) {
+        String target = browser + "|" + baseURL;
+        DriverPool.Session session = sessionThreadLocal.get();
+        if (session != null && !target.equals(session.target)) {
+            logger.info("Configuration changed to {} on this thread; replacing the driver.", target);
+            releaseDriver(false);
+            session = null;
+        }
+        if (session == null) {
             logger.info("Initializing driver...");
-            driverThreadLocal.set(createDriver(browser, baseURL));  // Initialize driver based on browser
+            session = pool().acquire(target, baseURL, () -> createDriver(browser, baseURL));
+            sessionThreadLocal.set(session);
         }
-        return driverThreadLocal.get();
+        return session.driver;
+    }
+
+    /**
+     * Returns the session pool, creating it from the configuration on first use.
+     */
+    private static DriverPool pool() {
+        if (pool == null) {
+            synchronized (DriverFactory.class) {
+                if (pool == null) {
+                    boolean enabled = ConfigManager.getBoolean("browser.pool.enabled", true);
+                    // A disabled pool quits every session on release and never bounds how many run at once
+                    pool = new DriverPool(
+                            enabled ? ConfigManager.getInt("browser.pool.maxSize", Runtime.getRuntime().availableProcessors())
+                                    : Integer.MAX_VALUE,
+                            enabled ? ConfigManager.getInt("browser.pool.maxUses", 25) : 1,
+                            ConfigManager.getDuration("browser.pool.borrowTimeout", Duration.ofMinutes(5)).toMillis());
+                    Runtime.getRuntime().addShutdownHook(new Thread(DriverFactory::shutdownPool));
+                }
+            }
+        }
+        return pool;
     }
 
     /**
      * Validates the configuration to ensure necessary values are provided.
+     *
+     * @param browser the configured browser
+     * @param baseURL the configured base URL
      */
-    private static void validateConfiguration() {
+    private static void validateConfiguration(String browser, String baseURL) {
         if (browser == null || browser.isEmpty()) {
             throw new IllegalArgumentException("Browser configuration is missing or empty.");
         }
@@ -61,57 +107,128 @@ public class DriverFactory {
 
     /**
      * Creates a WebDriver instance based on the specified browser and baseURL.
+     * The driver binary is resolved once per JVM, and the browser is launched with the configured {@link BrowserProfile}.
+     * Scenarios take their driver from {@link #getDriver()}; this is public for tools such as the startup benchmark.
      *
      * @param browser the browser to use (chrome, firefox, edge, safari)
      * @param baseURL the base URL to navigate to
      * @return the WebDriver instance
      */
-    private static WebDriver createDriver(String browser, String baseURL) {
+    public static WebDriver createDriver(String browser, String baseURL) {
+        BrowserProfile profile = BrowserProfile.fromConfig();
+        long start = System.nanoTime();
+
+        logger.info("Creating driver for browser: {} with profile {}", browser, profile);
+
         WebDriver driver;
-        String os = System.getProperty("os.name").toLowerCase(); // Get OS Name
+        boolean cachedBinary = DriverBinaries.resolve(browser);
+        try {
+            driver = launch(browser, profile);
+        } catch (SessionNotCreatedException e) {
+            if (!cachedBinary) {
+                throw e;
+            }
+            // The cached driver no longer matches the installed browser, e.g. after a browser update
+            logger.warn("Browser rejected the cached driver binary; resolving it again: {}", e.getMessage());
+            DriverBinaries.invalidate(browser);
+            DriverBinaries.resolve(browser);
+            driver = launch(browser, profile);
+        }
+
+        // Set implicit wait
+        driver.manage().timeouts().implicitlyWait(Duration.ofSeconds(10));
+        driver.get(baseURL);
+        long nanos = System.nanoTime() - start;
+        boolean cold = BrowserStartupTimes.record(browser.toLowerCase(), profile.name(), nanos);
+        logger.info("Driver initialized and navigated to base URL: {} ({} start, {} ms)", baseURL,
+                cold ? "cold" : "warm", nanos / 1_000_000);
+        return driver;
+    }
+
+    /**
+     * Launches the browser, starting it from a copy of the profile's user-data template if it has one.
+     */
+    private static WebDriver launch(String browser, BrowserProfile profile) {
+        Path userDataDir = profile.userDataDir(browser.toLowerCase(),
+                template -> launch(browser, profile, template).quit());
+        try {
+            WebDriver driver = launch(browser, profile, userDataDir);
+            BrowserProfile.attach(driver, userDataDir);
+            return driver;
+        } catch (RuntimeException e) {
+            if (userDataDir != null) {
+                BrowserProfile.deleteCopy(userDataDir);
+            }
+            throw e;
+        }
+    }
 
-        logger.info("Creating driver for browser: " + browser);
+    private static WebDriver launch(String browser, BrowserProfile profile, Path userDataDir) {
+        String os = System.getProperty("os.name").toLowerCase(); // Get OS Name
 
         switch (browser.toLowerCase()) {
             case "chrome":
-                WebDriverManager.chromedriver().setup();
                 ChromeOptions chromeOptions = new ChromeOptions();
-                chromeOptions.addArguments("--start-maximized"); // Open in maximized mode
-                chromeOptions.addArguments("--disable-notifications"); // Disable notifications
-                driver = new ChromeDriver(chromeOptions);
-                break;
+                profile.applyTo(chromeOptions, userDataDir);
+                return new ChromeDriver(chromeOptions);
 
             case "firefox":
-                WebDriverManager.firefoxdriver().setup();
                 FirefoxOptions firefoxOptions = new FirefoxOptions();
-                firefoxOptions.addArguments("--width=1920", "--height=1080"); // Set window size
-                driver = new FirefoxDriver(firefoxOptions);
-                break;
+                profile.applyTo(firefoxOptions, userDataDir);
+                return new FirefoxDriver(firefoxOptions);
 
             case "edge":
                 if (!os.contains("win")) { // Edge is only supported on Windows officially
                     throw new UnsupportedOperationException("Edge browser is only supported on Windows.");
                 }
-                WebDriverManager.edgedriver().setup();
-                driver = new EdgeDriver();
-                break;
+                if (!profile.isFast()) {
+                    return new EdgeDriver();
+                }
+                EdgeOptions edgeOptions = new EdgeOptions();
+                profile.applyTo(edgeOptions, userDataDir);
+                return new EdgeDriver(edgeOptions);
 
             case "safari":
                 if (!os.contains("mac")) { // Safari only runs on macOS
                     throw new UnsupportedOperationException("Safari is only supported on macOS.");
                 }
-                driver = new SafariDriver();
-                break;
+                if (profile.isFast()) {
+                    logger.warn("Safari has no headless mode; the fast profile only applies to Chrome, Firefox and Edge.");
+                }
+                return new SafariDriver();
 
             default:
                 throw new IllegalArgumentException("Unsupported browser: " + browser);
         }
+    }
 
-        // Set implicit wait
-        driver.manage().timeouts().implicitlyWait(Duration.ofSeconds(10));
-        driver.get(baseURL);
-        logger.info("Driver initialized and navigated to base URL: " + baseURL);
-        return driver;
+    /**
+     * Quits a browser created by {@link #createDriver(String, String)} and deletes the user-data copy it was
+     * launched from.
+     *
+     * @param driver the browser to quit
+     */
+    public static void quit(WebDriver driver) {
+        try {
+            driver.quit();
+        } finally {
+            BrowserProfile.release(driver);
+        }
+    }
+
+    /**
+     * Returns the current thread's WebDriver to the pool at the end of a scenario.
+     * The session is reset (cookies, local and session storage, extra windows, back to the base URL) for the next
+     * scenario, or quit if the scenario failed, the session reached its maximum uses, or the reset failed.
+     *
+     * @param failed whether the scenario failed, in which case the browser is not reused
+     */
+    public static void releaseDriver(boolean failed) {
+        DriverPool.Session session = sessionThreadLocal.get();
+        if (session != null) {
+            sessionThreadLocal.remove();
+            pool().release(session, failed);
+        }
     }
 
     /**
@@ -119,13 +236,22 @@ public class DriverFactory {
      * Removes the WebDriver instance from the ThreadLocal storage.
      */
     public static void quitDriver() {
-        WebDriver driver = driverThreadLocal.get();
-        if (driver != null) {
+        DriverPool.Session session = sessionThreadLocal.get();
+        if (session != null) {
             logger.info("Quitting driver...");
-            driver.quit();
-            driverThreadLocal.remove();
+            sessionThreadLocal.remove();
+            pool().discard(session);
         } else {
             logger.warn("Driver is already null. Nothing to quit.");
         }
     }
+
+    /**
+     * Quits every idle pooled browser. Called when the suite finishes and on JVM exit.
+     */
+    public static void shutdownPool() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
 }
@@ -0,0 +1,349 @@
+package testrunners;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chromium.HasCdp;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * A bounded pool of browser sessions, so scenarios reuse a running browser instead of launching one each.
+ * <p>
+ * At most {@code maxSize} sessions exist at a time; a thread that needs one while all are in use waits up to the
+ * borrow timeout. Every release and quit wakes the waiting threads, which then take an idle session for their target,
+ * or quit an idle session of another target to launch their own. Idle sessions are kept per browser and base URL and health-checked before reuse. A returned session
+ * is reset: extra windows are closed, local and session storage of the base URL's origin are cleared, and it is
+ * navigated back to the base URL. WebDriver can only delete the cookies of the current page's domain, so Chrome and
+ * Edge clear the cookies of every domain through the DevTools protocol; other browsers clear the base URL's cookies,
+ * and a session with a window on another origin is recycled instead, since that origin's cookies cannot be reached.
+ * Sessions are quit instead of reused after {@code maxUses} scenarios, after a failed scenario, when the reset fails,
+ * or once the pool has been shut down.
+ */
+final class DriverPool {
+
+    private static final Logger logger = LogManager.getLogger(DriverPool.class);
+
+    private final int maxSize;
+    private final int maxUses;
+    private final long borrowTimeoutMillis;
+
+    // Guards the idle sessions, the session count and the closed flag
+    private final ReentrantLock lock = new ReentrantLock(true);
+
+    // Signalled whenever a session is returned to idle or quit
+    private final Condition changed = lock.newCondition();
+
+    // Idle sessions by browser and base URL, most recently returned first
+    private final Map<String, Deque<Session>> idle = new HashMap<>();
+
+    // Sessions that exist, idle or in use, including those being launched
+    private int sessions;
+
+    // Set by shutdown; sessions released afterwards are quit
+    private boolean closed;
+
+    DriverPool(int maxSize, int maxUses, long borrowTimeoutMillis) {
+        this.maxSize = Math.max(1, maxSize);
+        this.maxUses = Math.max(1, maxUses);
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+    }
+
+    /**
+     * A browser session and its pooling state.
+     */
+    static final class Session {
+        final WebDriver driver;
+        final String target;
+        final String baseURL;
+        private int uses;
+
+        private Session(WebDriver driver, String target, String baseURL) {
+            this.driver = driver;
+            this.target = target;
+            this.baseURL = baseURL;
+        }
+    }
+
+    /**
+     * Borrows a healthy idle session for the target, or launches a new one. While every session exists, the caller
+     * waits; each time a session is released or quit it retries an idle session for its target, then room from an
+     * idle session of another target.
+     *
+     * @param target  The browser and base URL, e.g. "chrome|https://app.example.com".
+     * @param baseURL The base URL.
+     * @param factory Launches a browser navigated to the base URL.
+     * @return A session for the caller's exclusive use until it is released.
+     * @throws IllegalStateException If no session becomes available within the borrow timeout.
+     */
+    Session acquire(String target, String baseURL, Supplier<WebDriver> factory) {
+        long remaining = TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMillis);
+        boolean waiting = false;
+        while (true) {
+            Session reusable;
+            Session victim = null;
+            lock.lock();
+            try {
+                while (true) {
+                    reusable = pollIdle(target);
+                    if (reusable != null) {
+                        break;
+                    }
+                    if (sessions < maxSize) {
+                        sessions++;  // Taken for the session launched below
+                        break;
+                    }
+                    // Every session exists; an idle one for another target makes room, and its slot passes to us
+                    victim = pollIdleOtherThan(target);
+                    if (victim != null) {
+                        break;
+                    }
+                    if (remaining <= 0) {
+                        throw new IllegalStateException("No browser session became available within " + borrowTimeoutMillis
+                                + " ms (browser.pool.maxSize=" + maxSize + ")");
+                    }
+                    if (!waiting) {
+                        waiting = true;
+                        logger.info("All {} browser sessions are in use; waiting for one to be released.", maxSize);
+                    }
+                    remaining = changed.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a browser session", e);
+            } finally {
+                lock.unlock();
+            }
+
+            if (reusable != null) {
+                if (isHealthy(reusable)) {
+                    reusable.uses++;
+                    logger.info("Reusing browser session for {} (use {} of {}).", target, reusable.uses, maxUses);
+                    return reusable;
+                }
+                logger.warn("Discarding an unresponsive browser session for {}.", target);
+                quit(reusable);
+                continue;
+            }
+            if (victim != null) {
+                logger.info("Quitting an idle browser session for {} to make room for {}.", victim.target, target);
+                close(victim);
+            }
+            try {
+                Session session = new Session(factory.get(), target, baseURL);
+                session.uses = 1;
+                return session;
+            } catch (RuntimeException e) {
+                freeSlot();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Takes the most recently returned idle session for the target. Its slot stays taken and passes to the borrower.
+     * Called with the lock held.
+     */
+    private Session pollIdle(String target) {
+        Deque<Session> sessions = idle.get(target);
+        return sessions != null ? sessions.pollFirst() : null;
+    }
+
+    /**
+     * Takes the least recently returned idle session of another target, or null. Called with the lock held.
+     */
+    private Session pollIdleOtherThan(String target) {
+        for (Map.Entry<String, Deque<Session>> entry : idle.entrySet()) {
+            if (!entry.getKey().equals(target) && !entry.getValue().isEmpty()) {
+                return entry.getValue().pollLast();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a session to the pool, resetting it for the next scenario, or quits it if it should not be reused.
+     *
+     * @param session The session.
+     * @param failed  Whether the scenario that used it failed; such sessions are recycled.
+     */
+    void release(Session session, boolean failed) {
+        String reason = failed ? "scenario failed" : session.uses >= maxUses ? "reached " + maxUses + " uses" : null;
+        if (reason == null && isClosed()) {
+            reason = "pool shut down";
+        }
+        if (reason == null && !reset(session)) {
+            reason = "reset failed";
+        }
+        if (reason == null) {
+            lock.lock();
+            try {
+                if (!closed) {
+                    idle.computeIfAbsent(session.target, key -> new ArrayDeque<>()).offerFirst(session);
+                    changed.signalAll();
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            reason = "pool shut down";
+        }
+        logger.info("Recycling browser session for {}: {}.", session.target, reason);
+        quit(session);
+    }
+
+    private boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Quits a session and frees its slot.
+     *
+     * @param session The session.
+     */
+    void discard(Session session) {
+        quit(session);
+    }
+
+    /**
+     * Clears the state a scenario may have left behind. Returns false if the session should not be reused.
+     */
+    private boolean reset(Session session) {
+        WebDriver driver = session.driver;
+        boolean cdp = driver instanceof HasCdp;
+        try {
+            // Close windows and tabs the scenario opened, keeping the first one
+            List<String> handles = new ArrayList<>(driver.getWindowHandles());
+            String foreignOrigin = null;
+            for (int i = 1; i < handles.size(); i++) {
+                driver.switchTo().window(handles.get(i));
+                foreignOrigin = foreignOrigin != null ? foreignOrigin : foreignOrigin(driver, session);
+                driver.close();
+            }
+            driver.switchTo().window(handles.get(0));
+            foreignOrigin = foreignOrigin != null ? foreignOrigin : foreignOrigin(driver, session);
+            if (foreignOrigin != null && !cdp) {
+                logger.info("Browser session for {} visited {}, whose cookies cannot be cleared.", session.target, foreignOrigin);
+                return false;
+            }
+
+            // Storage is per origin, so it can only be cleared from a page of the base URL's origin
+            if (!sameOrigin(driver.getCurrentUrl(), session.baseURL)) {
+                driver.get(session.baseURL);
+            }
+            if (cdp) {
+                ((HasCdp) driver).executeCdpCommand("Network.clearBrowserCookies", Collections.emptyMap());
+            } else {
+                driver.manage().deleteAllCookies();  // Only the cookies of the current page's domain
+            }
+            ((JavascriptExecutor) driver).executeScript("window.localStorage.clear(); window.sessionStorage.clear();");
+            driver.get(session.baseURL);
+            return true;
+        } catch (RuntimeException e) {
+            logger.warn("Failed to reset browser session for {}: {}", session.target, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Returns the current page's URL if it is on another origin than the base URL, or null. Blank pages do not count.
+     */
+    private static String foreignOrigin(WebDriver driver, Session session) {
+        String url = driver.getCurrentUrl();
+        if (url == null || url.startsWith("about:") || url.startsWith("data:") || sameOrigin(url, session.baseURL)) {
+            return null;
+        }
+        return url;
+    }
+
+    private static boolean sameOrigin(String url, String baseURL) {
+        try {
+            URI current = URI.create(url);
+            URI base = URI.create(baseURL);
+            return current.getScheme() != null && current.getScheme().equalsIgnoreCase(base.getScheme())
+                    && current.getHost() != null && current.getHost().equalsIgnoreCase(base.getHost())
+                    && current.getPort() == base.getPort();
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static boolean isHealthy(Session session) {
+        try {
+            session.driver.getWindowHandle();  // A cheap round trip that fails for dead or crashed sessions
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Quits a session and frees its slot for a waiting thread.
+     */
+    private void quit(Session session) {
+        try {
+            close(session);
+        } finally {
+            freeSlot();
+        }
+    }
+
+    /**
+     * Quits a session's browser, keeping its slot.
+     */
+    private static void close(Session session) {
+        try {
+            DriverFactory.quit(session.driver);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to quit browser session for {}: {}", session.target, e.getMessage());
+        }
+    }
+
+    private void freeSlot() {
+        lock.lock();
+        try {
+            sessions--;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Quits every idle session. Sessions in use are quit when they are released.
+     */
+    void shutdown() {
+        List<Session> idleSessions = new ArrayList<>();
+        lock.lock();
+        try {
+            closed = true;
+            for (Deque<Session> deque : idle.values()) {
+                idleSessions.addAll(deque);
+            }
+            idle.clear();
+        } finally {
+            lock.unlock();
+        }
+        idleSessions.forEach(this::quit);
+        if (!idleSessions.isEmpty()) {
+            logger.info("Quit {} pooled browser sessions.", idleSessions.size());
+        }
+    }
+}
@@ -0,0 +1,500 @@
+package testrunners;
+
+import common.config.ConfigManager;
+import common.datasource.DataQuery;
+import common.datasource.DataSources;
+import common.helpers.DataRow;
+import io.cucumber.core.feature.FeatureParser;
+import io.cucumber.core.gherkin.Feature;
+import io.cucumber.core.gherkin.Step;
+import io.cucumber.core.resource.Resource;
+import io.cucumber.plugin.event.Location;
+import io.cucumber.tagexpressions.Expression;
+import io.cucumber.tagexpressions.TagExpressionParser;
+import io.cucumber.testng.CucumberOptions;
+import io.cucumber.testng.FeatureWrapper;
+import io.cucumber.testng.Pickle;
+import io.cucumber.testng.PickleWrapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Constructor;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Expands Scenario Outline examples that come from external test data into the runners' data providers.
+ * An Examples block tagged {@code @dataSource=<location>} keeps only its header row in the feature file;
+ * the header names the columns to project and the Examples name is the row filter, for example:
+ *
+ * <pre>
+ *   &#64;dataSource=users.csv
+ *   Examples: env=qa and active=true
+ *     | userId | statusCode | responseMessage |
+ * </pre>
+ *
+ * {@link #expand(Class, Object[][])} adds one data provider entry per matching row to the scenarios Cucumber found.
+ * The feature files are not copied or rewritten: the rows are streamed from the data source and only their values are
+ * kept, and each row's pickle is compiled from the original feature when its scenario starts, on the thread that runs
+ * it. Rows report the URI of the source feature and the line of the Examples header, and each row is its own test in
+ * TestNG and Allure. Blocks whose scenario does not match the runner's tags are not read.
+ * Setting {@code testData.examples.shard} to {@code index/count} (e.g. {@code 1/4}) keeps every count-th row
+ * starting at index, so several JVMs can split one data set.
+ */
+public final class ExamplesExpander {
+
+    private static final Logger logger = LogManager.getLogger(ExamplesExpander.class);
+
+    private static final String SOURCE_TAG = "@dataSource=";
+
+    // TestNG's Pickle wraps Cucumber's pickle through a package-private constructor
+    private static final Constructor<Pickle> PICKLE_CONSTRUCTOR = pickleConstructor();
+
+    // The expanded row whose pickle the current thread built last, until the scenario's hooks take it
+    private static final ThreadLocal<ExpandedRow> currentRow = new ThreadLocal<>();
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private ExamplesExpander() {
+        // Private constructor to prevent instantiation
+    }
+
+    private static Constructor<Pickle> pickleConstructor() {
+        try {
+            Constructor<Pickle> constructor = Pickle.class.getDeclaredConstructor(io.cucumber.core.gherkin.Pickle.class);
+            constructor.setAccessible(true);
+            return constructor;
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Unsupported cucumber-testng version: no Pickle(Pickle) constructor", e);
+        }
+    }
+
+    /**
+     * The values of an expanded row, for reporting.
+     */
+    public static final class ExpandedRow {
+        private final URI uri;
+        private final int line;
+        private final String key;
+        private final Map<String, String> values;
+
+        private ExpandedRow(URI uri, int line, String key, Map<String, String> values) {
+            this.uri = uri;
+            this.line = line;
+            this.key = key;
+            this.values = values;
+        }
+
+        /**
+         * Returns a key that identifies the row across runs: the feature, the Examples header line and the row's index.
+         *
+         * @return The key.
+         */
+        public String key() {
+            return key;
+        }
+
+        /**
+         * Returns the row's values by column, in header order.
+         *
+         * @return The values.
+         */
+        public Map<String, String> values() {
+            return values;
+        }
+    }
+
+    /**
+     * Takes the expanded row of the scenario that is starting on the current thread.
+     *
+     * @param uri  The scenario's feature URI.
+     * @param line The scenario's line.
+     * @return The row, or null if the scenario does not come from external examples.
+     */
+    public static ExpandedRow takeRow(URI uri, int line) {
+        ExpandedRow row = currentRow.get();
+        currentRow.remove();
+        return row != null && row.uri.equals(uri) && row.line == line ? row : null;
+    }
+
+    /**
+     * Adds the rows of the external examples under the runner's feature folders to the scenarios Cucumber found.
+     *
+     * @param runner    The runner class, whose {@link CucumberOptions} name the features and tags.
+     * @param scenarios The data provider entries of the runner.
+     * @return The entries with one entry per external example row added.
+     * @throws IllegalStateException If a feature or data file cannot be read.
+     */
+    public static Object[][] expand(Class<?> runner, Object[][] scenarios) {
+        CucumberOptions options = runner.getAnnotation(CucumberOptions.class);
+        if (options == null) {
+            return scenarios;
+        }
+        long start = System.currentTimeMillis();
+        List<ExternalExamples> blocks = new ArrayList<>();
+        try {
+            for (String root : options.features()) {
+                if (root.startsWith("classpath:")) {
+                    logger.warn("External examples are only expanded from feature folders, not {}.", root);
+                } else {
+                    blocks.addAll(scan(Paths.get(root)));
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Error reading features of {}: {}", runner.getSimpleName(), e.getMessage(), e);
+            throw new IllegalStateException("Failed to read features of " + runner.getSimpleName(), e);
+        }
+        if (blocks.isEmpty()) {
+            return scenarios;
+        }
+
+        // Rows written inline under an external header are replaced by the data source
+        Set<String> replaced = new HashSet<>();
+        for (ExternalExamples block : blocks) {
+            for (int line : block.inlineRows) {
+                replaced.add(block.uri + ":" + line);
+            }
+        }
+        List<Object[]> expanded = new ArrayList<>(scenarios.length);
+        for (Object[] scenario : scenarios) {
+            Pickle pickle = ((PickleWrapper) scenario[0]).getPickle();
+            if (!replaced.contains(pickle.getUri() + ":" + pickle.getLine())) {
+                expanded.add(scenario);
+            }
+        }
+
+        String tags = System.getProperty("cucumber.filter.tags", options.tags());
+        Expression filter = TagExpressionParser.parse(tags);
+        int[] shard = shard();
+        long rows = 0;
+        for (ExternalExamples block : blocks) {
+            rows += block.addRows(expanded, filter, shard);
+        }
+        logger.info("Expanded {} external example rows of {} blocks for {} (shard {}/{}) in {} ms.",
+                rows, blocks.size(), runner.getSimpleName(), shard[0], shard[1], System.currentTimeMillis() - start);
+        return expanded.toArray(new Object[0][]);
+    }
+
+    /**
+     * Finds the external Examples blocks of every feature file under a folder.
+     */
+    private static List<ExternalExamples> scan(Path root) throws IOException {
+        List<ExternalExamples> blocks = new ArrayList<>();
+        if (!Files.isDirectory(root) && !Files.isRegularFile(root)) {
+            return blocks;
+        }
+        List<Path> features;
+        try (Stream<Path> files = Files.walk(root)) {
+            features = files.filter(file -> file.toString().endsWith(".feature")).collect(Collectors.toList());
+        }
+        for (Path feature : features) {
+            scanFeature(feature, blocks);
+        }
+        return blocks;
+    }
+
+    private static void scanFeature(Path feature, List<ExternalExamples> blocks) throws IOException {
+        List<String> lines = Files.readAllLines(feature, StandardCharsets.UTF_8);
+        String featureName = null;
+        String location = null;
+        for (int i = 0; i < lines.size(); i++) {
+            String trimmed = lines.get(i).trim();
+            if (featureName == null && trimmed.startsWith("Feature:")) {
+                featureName = trimmed.substring("Feature:".length()).trim();
+            }
+            if (trimmed.startsWith("@")) {
+                location = sourceTag(trimmed, location);
+            } else if (location != null && (trimmed.startsWith("Examples:") || trimmed.startsWith("Scenarios:"))) {
+                String filter = trimmed.substring(trimmed.indexOf(':') + 1).trim();
+                blocks.add(examples(feature, lines, featureName, location, filter, i + 1));
+                location = null;
+            } else if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
+                location = null;  // Tags only apply to the element that follows them
+            }
+        }
+    }
+
+    /**
+     * Reads the header and any inline rows of an external Examples block that starts after the given line index.
+     */
+    private static ExternalExamples examples(Path feature, List<String> lines, String featureName, String location,
+                                             String filter, int from) throws IOException {
+        int header = from;
+        while (header < lines.size() && (lines.get(header).trim().isEmpty() || lines.get(header).trim().startsWith("#"))) {
+            header++;
+        }
+        if (header == lines.size() || !lines.get(header).trim().startsWith("|")) {
+            String errorMsg = "Examples from " + location + " in " + feature + " need a header row naming the columns.";
+            logger.error(errorMsg);
+            throw new IOException(errorMsg);
+        }
+        List<Integer> inlineRows = new ArrayList<>();
+        for (int row = header + 1; row < lines.size() && lines.get(row).trim().startsWith("|"); row++) {
+            inlineRows.add(row + 1);
+        }
+        String headerLine = lines.get(header);
+        return new ExternalExamples(feature, lines, featureName, location, filter, header,
+                headerLine.substring(0, headerLine.indexOf('|')), cells(headerLine.trim()), inlineRows);
+    }
+
+    /**
+     * An Examples block whose rows come from a data source.
+     */
+    private static final class ExternalExamples {
+        private final URI uri;
+        private final List<String> lines;
+        private final FeatureWrapper feature;
+        private final String location;
+        private final String filter;
+        private final int headerIndex;  // Zero-based
+        private final String indent;
+        private final String[] columns;
+        private final List<Integer> inlineRows;
+        private String scenarioName;
+
+        private ExternalExamples(Path feature, List<String> lines, String featureName, String location, String filter,
+                                 int headerIndex, String indent, String[] columns, List<Integer> inlineRows) {
+            this.uri = feature.toAbsolutePath().normalize().toUri();
+            this.lines = lines;
+            String name = featureName != null ? featureName : feature.getFileName().toString();
+            this.feature = new FeatureWrapper() {
+                @Override
+                public String toString() {
+                    return "\"" + name + "\"";
+                }
+            };
+            this.location = location;
+            this.filter = filter;
+            this.headerIndex = headerIndex;
+            this.indent = indent;
+            this.columns = columns;
+            this.inlineRows = inlineRows;
+        }
+
+        /**
+         * Streams the block's rows into data provider entries, unless its scenario does not match the tags.
+         */
+        private long addRows(List<Object[]> entries, Expression tags, int[] shard) {
+            String[] blank = new String[columns.length];
+            Arrays.fill(blank, "");
+            io.cucumber.core.gherkin.Pickle template = compile(blank);
+            if (!tags.evaluate(template.getTags())) {
+                return 0;
+            }
+            scenarioName = template.getName();
+
+            long[] counters = new long[2];  // Rows seen, rows added
+            DataQuery query = DataQuery.all().withColumns(columns).withFilter(filter);
+            try (Stream<DataRow> rows = DataSources.open(location, query)) {
+                rows.forEach(row -> {
+                    long index = counters[0]++;
+                    if (index % shard[1] != shard[0]) {
+                        return;
+                    }
+                    String[] values = new String[columns.length];
+                    for (int i = 0; i < columns.length; i++) {
+                        values[i] = row.get(columns[i]);
+                    }
+                    entries.add(new Object[]{new ExpandedPickle(this, index, values), feature});
+                    counters[1]++;
+                });
+            } catch (IOException | UncheckedIOException e) {
+                logger.error("Error reading examples from {} in {}: {}", location, uri, e.getMessage(), e);
+                throw new IllegalStateException("Failed to read examples from " + location, e);
+            }
+            if (counters[1] == 0) {
+                logger.warn("No example rows from {} matched '{}' in {}.", location, filter, uri);
+            }
+            return counters[1];
+        }
+
+        /**
+         * Compiles the pickle of one row from the original feature, with the row inserted under the header.
+         */
+        private io.cucumber.core.gherkin.Pickle compile(String[] values) {
+            StringBuilder source = new StringBuilder();
+            for (int i = 0; i < lines.size(); i++) {
+                source.append(lines.get(i)).append('\n');
+                if (i == headerIndex) {
+                    source.append(indent).append('|');
+                    for (String value : values) {
+                        source.append(' ').append(escape(value)).append(" |");
+                    }
+                    source.append('\n');
+                }
+            }
+            byte[] bytes = source.toString().getBytes(StandardCharsets.UTF_8);
+            Resource resource = new Resource() {
+                @Override
+                public URI getUri() {
+                    return uri;
+                }
+
+                @Override
+                public InputStream getInputStream() {
+                    return new ByteArrayInputStream(bytes);
+                }
+            };
+            int rowLine = headerIndex + 2;  // One-based line of the inserted row
+            Feature parsed = new FeatureParser(UUID::randomUUID).parseResource(resource)
+                    .orElseThrow(() -> new IllegalStateException("Failed to parse " + uri));
+            for (io.cucumber.core.gherkin.Pickle pickle : parsed.getPickles()) {
+                if (pickle.getLocation().getLine() == rowLine) {
+                    return new HeaderPickle(pickle, headerIndex + 1);
+                }
+            }
+            throw new IllegalStateException("No scenario outline found for the examples from " + location + " in " + uri);
+        }
+    }
+
+    /**
+     * A data provider entry for one row; its pickle is compiled when the scenario starts.
+     */
+    private static final class ExpandedPickle implements PickleWrapper {
+        private final ExternalExamples block;
+        private final long index;
+        private final String[] values;
+
+        private ExpandedPickle(ExternalExamples block, long index, String[] values) {
+            this.block = block;
+            this.index = index;
+            this.values = values;
+        }
+
+        @Override
+        public Pickle getPickle() {
+            Map<String, String> row = new LinkedHashMap<>();
+            for (int i = 0; i < block.columns.length; i++) {
+                row.put(block.columns[i], values[i]);
+            }
+            int line = block.headerIndex + 1;
+            currentRow.set(new ExpandedRow(block.uri, line, block.uri + ":" + line + "#" + index, row));
+            try {
+                return PICKLE_CONSTRUCTOR.newInstance(block.compile(values));
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Failed to create the pickle of row " + index + " of " + block.location, e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "\"" + block.scenarioName + " (" + block.location + " row " + (index + 1) + ")\"";
+        }
+    }
+
+    /**
+     * A row's pickle, located at the Examples header so that it points at a line of the original feature.
+     */
+    private static final class HeaderPickle implements io.cucumber.core.gherkin.Pickle {
+        private final io.cucumber.core.gherkin.Pickle pickle;
+        private final Location location;
+
+        private HeaderPickle(io.cucumber.core.gherkin.Pickle pickle, int line) {
+            this.pickle = pickle;
+            this.location = new Location(line, pickle.getLocation().getColumn());
+        }
+
+        @Override
+        public String getKeyword() {
+            return pickle.getKeyword();
+        }
+
+        @Override
+        public String getLanguage() {
+            return pickle.getLanguage();
+        }
+
+        @Override
+        public String getName() {
+            return pickle.getName();
+        }
+
+        @Override
+        public Location getLocation() {
+            return location;
+        }
+
+        @Override
+        public Location getScenarioLocation() {
+            return pickle.getScenarioLocation();
+        }
+
+        @Override
+        public List<Step> getSteps() {
+            return pickle.getSteps();
+        }
+
+        @Override
+        public List<String> getTags() {
+            return pickle.getTags();
+        }
+
+        @Override
+        public URI getUri() {
+            return pickle.getUri();
+        }
+
+        @Override
+        public String getId() {
+            return pickle.getId();
+        }
+    }
+
+    private static String sourceTag(String tagLine, String current) {
+        for (String tag : tagLine.split("\\s+")) {
+            if (tag.startsWith(SOURCE_TAG) && tag.length() > SOURCE_TAG.length()) {
+                return tag.substring(SOURCE_TAG.length());
+            }
+        }
+        return current;
+    }
+
+    private static String[] cells(String tableRow) {
+        String inner = tableRow.substring(1, tableRow.lastIndexOf('|'));
+        String[] cells = inner.split("(?<!\\\\)\\|", -1);
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = cells[i].trim();
+        }
+        return cells;
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace("|", "\\|").replace("\r", "").replace("\n", "\\n");
+    }
+
+    private static int[] shard() {
+        String setting = ConfigManager.get("testData.examples.shard", "0/1");
+        String[] parts = setting.split("/");
+        try {
+            int index = Integer.parseInt(parts[0].trim());
+            int count = Integer.parseInt(parts[1].trim());
+            if (count < 1 || index < 0 || index >= count) {
+                throw new NumberFormatException(setting);
+            }
+            return new int[]{index, count};
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalStateException("testData.examples.shard must be index/count, e.g. 0/4, but was: " + setting);
+        }
+    }
+}
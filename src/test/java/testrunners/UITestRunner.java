@@ -10,10 +10,11 @@ import org.apache.logging.log4j.Logger;
 /**
  * UITestRunner class to run UI tests using Cucumber and TestNG.
  * This class integrates with Allure for reporting and uses a logger for logging.
+ * Scenario Outline examples that come from external test data files are expanded by {@link ExamplesExpander}.
  */
 @CucumberOptions(
         features = "src/test/resources/features/ui",  // Path to UI feature files
-        glue = {"steps.ui", "hooks"},   
+        glue = {"steps.ui", "steps.db", "hooks"},
         tags = "@UI or @ui",// UI step definitions and hooks
         plugin = {
                 "pretty",
@@ -35,7 +36,7 @@ public class UITestRunner extends AbstractTestNGCucumberTests {
     public Object[][] scenarios() {
         try {
             logger.info("Fetching UI scenarios for parallel execution");
-            return super.scenarios();
+            return ExamplesExpander.expand(getClass(), super.scenarios());
         } catch (Exception e) {
             logger.error("Error fetching UI scenarios: {}", e.getMessage(), e);
             throw e;
@@ -0,0 +1,7 @@
+-- Schema of the local SQL Server stand-in (db.mode=local), run once when it is first used
+CREATE TABLE users (
+    id INT IDENTITY(1,1) PRIMARY KEY,
+    name NVARCHAR(100) NOT NULL,
+    username NVARCHAR(50) NOT NULL UNIQUE,
+    email NVARCHAR(255) NOT NULL
+);
@@ -0,0 +1,2 @@
+-- Seed data of the local MySQL stand-in, run after schema.sql
+INSERT INTO users (name, username, email) VALUES ('abcd', 'uabcd', 'ab@cd.com');
@@ -0,0 +1,7 @@
+-- Schema of the local MySQL stand-in (db.mode=local), run once when it is first used
+CREATE TABLE IF NOT EXISTS users (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    username VARCHAR(50) NOT NULL UNIQUE,
+    email VARCHAR(255) NOT NULL
+);